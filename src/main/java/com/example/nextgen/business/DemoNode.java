@@ -2,6 +2,7 @@ package com.example.nextgen.business;
 
 import com.alibaba.fastjson2.JSON;
 import com.alibaba.fastjson2.TypeReference;
+import com.example.nextgen.domain.node.ModelBackedNode;
 import com.example.nextgen.domain.node.NodeId;
 import com.example.nextgen.domain.node.NodeType;
 import com.example.nextgen.domain.node.WorkflowNode;
@@ -10,7 +11,7 @@ import org.springframework.ai.chat.client.ChatClient;
 import java.util.Map;
 import java.util.Objects;
 
-public class DemoNode extends WorkflowNode<Map<String, Object>, Map<String, Object>> {
+public class DemoNode extends WorkflowNode<Map<String, Object>, Map<String, Object>> implements ModelBackedNode {
 
     private ChatClient chatClient;
 
@@ -31,4 +32,9 @@ public class DemoNode extends WorkflowNode<Map<String, Object>, Map<String, Obje
         return Map.of("userInput", text);
     }
 
+    @Override
+    public ChatClient getChatClient() {
+        return chatClient;
+    }
+
 }
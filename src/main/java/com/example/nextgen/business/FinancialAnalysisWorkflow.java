@@ -1,7 +1,15 @@
 package com.example.nextgen.business;
 
 import com.alibaba.fastjson2.JSON;
+import com.example.nextgen.common.chatmodel.ChatAutoConfiguration;
+import com.example.nextgen.common.chatmodel.ChatClientRegistry;
+import com.example.nextgen.common.chatmodel.RoutingChatModel;
+import com.example.nextgen.common.chatmodel.deadline.DeadlineAwareChatModel.Tier;
+import com.example.nextgen.common.chatmodel.deadline.DeadlineFallbackRegistry;
+import com.example.nextgen.common.chatmodel.hedge.HedgingRegistry;
+import com.example.nextgen.common.prompt.ContextTrimPolicy;
 import com.example.nextgen.domain.application.WorkflowApplicationService;
+import com.example.nextgen.domain.application.WorkflowDefinitionRegistry;
 import com.example.nextgen.domain.application.WorkflowResults;
 import com.example.nextgen.domain.node.EndNode;
 import com.example.nextgen.domain.node.NodeId;
@@ -10,7 +18,6 @@ import com.example.nextgen.domain.node.StartNode;
 import com.example.nextgen.domain.orchestration.WorkflowOrchestrator;
 import com.example.nextgen.domain.workflow.WorkflowStatus;
 import org.springframework.ai.chat.client.ChatClient;
-import org.springframework.ai.chat.client.advisor.SimpleLoggerAdvisor;
 import org.springframework.ai.chat.model.ChatModel;
 import org.springframework.stereotype.Component;
 
@@ -20,24 +27,93 @@ import java.util.List;
 @Component
 public class FinancialAnalysisWorkflow {
 
-    public FinancialAnalysisWorkflow(WorkflowApplicationService workflowService, ChatModel chatModel) {
+    private static final String WORKFLOW_NAME = "并行处理工作流";
+
+    /**
+     * 结构化输入节点要求的最低模型质量等级：只路由到 qwen-max，预算不足时才降级到 qwen-plus
+     */
+    private static final String STRUCT_INPUT_MODEL = "structInputChatModel";
+    private static final int STRUCT_INPUT_QUALITY_FLOOR = 2;
+
+    /**
+     * 结构化输入节点的上下文 token 上限，超出时只保留其声明的输入字段并摘要过长的值
+     */
+    private static final int STRUCT_INPUT_CONTEXT_TOKENS = 4_000;
+
+    /**
+     * 业务处理节点使用带对冲的路由模型，对冲请求重新经过路由选择后端
+     */
+    private static final String BUSINESS_MODEL = "businessChatModel";
+
+    /**
+     * 端到端时间预算
+     */
+    private static final long WORKFLOW_TIMEOUT_MILLIS = 120_000L;
+
+    /**
+     * 单次运行的 token 预算
+     */
+    private static final long WORKFLOW_TOKEN_LIMIT = 20_000L;
+
+    public FinancialAnalysisWorkflow(WorkflowApplicationService workflowService, ChatClientRegistry chatClientRegistry,
+                                     RoutingChatModel routingChatModel, HedgingRegistry hedgingRegistry,
+                                     DeadlineFallbackRegistry deadlineFallbackRegistry,
+                                     WorkflowDefinitionRegistry definitionRegistry) {
         this.workflowService = workflowService;
-        this.chatModel = chatModel;
+        this.chatClientRegistry = chatClientRegistry;
+        // 结构化输入节点：预算不足时依次降级到 qwen-plus、qwen-plus + 更短的输出
+        ChatModel qwenPlus = chatClientRegistry.getChatModel(ChatAutoConfiguration.QWEN_PLUS);
+        chatClientRegistry.registerModel(STRUCT_INPUT_MODEL, deadlineFallbackRegistry.withFallbacks(STRUCT_INPUT_MODEL, List.of(
+                Tier.of("routing", routingChatModel.withQualityFloor(STRUCT_INPUT_QUALITY_FLOOR)),
+                Tier.of(ChatAutoConfiguration.QWEN_PLUS, qwenPlus),
+                Tier.of(ChatAutoConfiguration.QWEN_PLUS + "-short", qwenPlus, deadlineFallbackRegistry.getFallbackMaxTokens()))));
+        chatClientRegistry.registerModel(BUSINESS_MODEL, hedgingRegistry.hedge(BUSINESS_MODEL, routingChatModel));
+        // 重启后按此定义恢复未完成的运行
+        definitionRegistry.register(WORKFLOW_NAME, this::buildCommand);
     }
 
     private final WorkflowApplicationService workflowService;
 
-    private final ChatModel chatModel;
+    private final ChatClientRegistry chatClientRegistry;
 
     /**
      * 创建财报分析工作流
      * 流程：开始 -> 数据准备 -> (并行：图像处理 + 文本分析) -> 结果聚合 -> 结束
      */
     public String createAndExecuteWorkflow() {
+        WorkflowResults.WorkflowCreationResult result = workflowService.createWorkflow(buildCommand());
+
+        WorkflowApplicationService.ExecuteWorkflowCommand executeCommand = new WorkflowApplicationService.ExecuteWorkflowCommand();
+        executeCommand.setWorkflowId(result.getWorkflowId());
+        workflowService.executeWorkflow(executeCommand);
+
+        // 轮询只取状态，完成后再取上下文
+        WorkflowApplicationService.WorkflowStatusQuery pollQuery =
+                WorkflowApplicationService.WorkflowStatusQuery.statusOnly(result.getWorkflowId());
+        while (!workflowService.getWorkflowStatus(pollQuery).getStatus().equals(WorkflowStatus.COMPLETED)) {
+            try {
+                Thread.sleep(1000);
+            } catch (InterruptedException e) {
+                throw new RuntimeException(e);
+            }
+        }
+
+        WorkflowApplicationService.WorkflowStatusQuery contextQuery =
+                new WorkflowApplicationService.WorkflowStatusQuery(result.getWorkflowId());
+        contextQuery.setIncludeNodes(false);
+        WorkflowResults.WorkflowStatusResult workflowStatus = workflowService.getWorkflowStatus(contextQuery);
+        String jsonString = JSON.toJSONString(workflowStatus.getGlobalContext());
+
+        return jsonString;
+    }
+
+    private WorkflowApplicationService.CreateWorkflowCommand buildCommand() {
         WorkflowApplicationService.CreateWorkflowCommand command = new WorkflowApplicationService.CreateWorkflowCommand();
-        command.setName("并行处理工作流");
+        command.setName(WORKFLOW_NAME);
         command.setDescription("演示并行处理和结果聚合的工作流");
         command.setOrchestrationType(WorkflowOrchestrator.OrchestrationType.STATIC);
+        command.setTimeoutMillis(WORKFLOW_TIMEOUT_MILLIS);
+        command.setTokenLimit(WORKFLOW_TOKEN_LIMIT);
 
         // 创建节点
         List<WorkflowApplicationService.CreateNodeCommand> nodes = Arrays.asList(
@@ -56,25 +132,7 @@ public class FinancialAnalysisWorkflow {
         );
 
         command.setEdges(edges);
-
-        WorkflowResults.WorkflowCreationResult result = workflowService.createWorkflow(command);
-
-        WorkflowApplicationService.ExecuteWorkflowCommand executeCommand = new WorkflowApplicationService.ExecuteWorkflowCommand();
-        executeCommand.setWorkflowId(result.getWorkflowId());
-        workflowService.executeWorkflow(executeCommand);
-
-        while (!workflowService.getWorkflowStatus(result.getWorkflowId()).getStatus().equals(WorkflowStatus.COMPLETED)) {
-            try {
-                Thread.sleep(1000);
-            } catch (InterruptedException e) {
-                throw new RuntimeException(e);
-            }
-        }
-
-        WorkflowResults.WorkflowStatusResult workflowStatus = workflowService.getWorkflowStatus(result.getWorkflowId());
-        String jsonString = JSON.toJSONString(workflowStatus.getGlobalContext());
-
-        return jsonString;
+        return command;
     }
 
     /**
@@ -117,9 +175,7 @@ public class FinancialAnalysisWorkflow {
         node.setName("业务处理");
         node.setType(NodeType.CUSTOM);
         node.setDependencies(Arrays.asList("开始"));
-        ChatClient chatClient = ChatClient.builder(chatModel)
-                .defaultAdvisors(SimpleLoggerAdvisor.builder().build())
-                .build();
+        ChatClient chatClient = chatClientRegistry.getClient(BUSINESS_MODEL);
 
         node.setNodeSupplier(() -> new DemoNode(NodeId.generate(), node.getName(), chatClient));
         return node;
@@ -131,11 +187,13 @@ public class FinancialAnalysisWorkflow {
         node.setType(NodeType.CUSTOM);
         node.setDependencies(Arrays.asList("业务处理"));
 
-        ChatClient chatClient = ChatClient.builder(chatModel)
-                .defaultAdvisors(SimpleLoggerAdvisor.builder().build())
-                .build();
+        ChatClient chatClient = chatClientRegistry.getClient(STRUCT_INPUT_MODEL);
 
-        node.setNodeSupplier(() -> new StructInputNode(NodeId.generate(), node.getName(),  chatClient));
+        node.setNodeSupplier(() -> {
+            StructInputNode structInputNode = new StructInputNode(NodeId.generate(), node.getName(), chatClient);
+            structInputNode.setContextPolicy(ContextTrimPolicy.of(STRUCT_INPUT_CONTEXT_TOKENS));
+            return structInputNode;
+        });
         return node;
     }
 
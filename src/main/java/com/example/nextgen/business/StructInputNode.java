@@ -2,23 +2,29 @@ package com.example.nextgen.business;
 
 import com.alibaba.fastjson2.JSON;
 import com.alibaba.fastjson2.TypeReference;
+import com.example.nextgen.common.prompt.NodePrompt;
 import com.example.nextgen.domain.node.NodeId;
 import com.example.nextgen.domain.node.NodeType;
-import com.example.nextgen.domain.node.WorkflowNode;
+import com.example.nextgen.domain.node.StructuredOutputNode;
 import org.springframework.ai.chat.client.ChatClient;
+import org.springframework.ai.chat.prompt.Prompt;
 
 import javax.validation.constraints.NotNull;
 import java.util.Date;
-import java.util.Map;
-import java.util.Objects;
+import java.util.List;
 
-public class StructInputNode extends WorkflowNode<StructInputNode.StructOutNodeInput, Map<String, Object>> {
+public class StructInputNode extends StructuredOutputNode<StructInputNode.StructOutNodeInput, StructInputNode.StructOutNodeOutput> {
 
-    private ChatClient chatClient;
+    /**
+     * 系统提示词固定不变，用户输入只进入用户消息
+     */
+    private static final NodePrompt PROMPT = NodePrompt.of(
+            "你是一个尖锐的批评者，请毫不留情的批判任何用户输入。"
+                    + "只输出一个 JSON 对象，不要输出其他内容，格式：{\"issues\": [\"问题\"], \"text\": \"完整的批评\"}",
+            "{{userInput}}");
 
-    protected StructInputNode(NodeId nodeId, String name,  ChatClient chatClient) {
-        super(nodeId, name, NodeType.CUSTOM);
-        this.chatClient = chatClient;
+    protected StructInputNode(NodeId nodeId, String name, ChatClient chatClient) {
+        super(nodeId, name, NodeType.CUSTOM, chatClient, StructOutNodeOutput.class);
     }
 
     @Override
@@ -28,15 +34,13 @@ public class StructInputNode extends WorkflowNode<StructInputNode.StructOutNodeI
     }
 
     @Override
-    protected Map<String, Object> execute(StructOutNodeInput params) {
-        String text = Objects.requireNonNull(chatClient.prompt()
-                        .system("你是一个尖锐的批评者，请毫不留情的批判任何用户输入")
-                        .user(params.userInput())
-                        .call().chatResponse())
-                .getResult().getOutput().getText();
-        return Map.of("text",text);
+    protected Prompt buildPrompt(StructOutNodeInput params) {
+        return PROMPT.render(getInputData());
     }
 
     record StructOutNodeInput(@NotNull String userInput, Date currentDate) {
     }
+
+    record StructOutNodeOutput(@NotNull List<String> issues, @NotNull String text) {
+    }
 }
@@ -0,0 +1,70 @@
+package com.example.nextgen.business;
+
+import com.example.nextgen.domain.application.WorkflowApplicationService;
+import com.example.nextgen.domain.application.WorkflowResults.WorkflowStatusResult;
+import com.example.nextgen.domain.workflow.WorkflowId;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.Set;
+
+/**
+ * 工作流状态查询接口
+ * include 指定返回哪些部分（nodes、nodeData、context），为空时只返回状态和进度；
+ * 响应带 ETag（随状态版本和投影条件变化），请求带上 If-None-Match 且结果没有变化时返回 304；
+ * 工作流不存在返回 404，查询出错返回 500
+ */
+@RestController
+@RequestMapping("/workflows")
+@Tag(name = "工作流状态接口", description = "按需查询工作流执行状态")
+public class WorkflowStatusController {
+
+    /**
+     * 未指定 maxValueChars 时字符串值的最大长度
+     */
+    private static final int DEFAULT_MAX_VALUE_CHARS = 2000;
+
+    private final WorkflowApplicationService workflowService;
+
+    public WorkflowStatusController(WorkflowApplicationService workflowService) {
+        this.workflowService = workflowService;
+    }
+
+    @GetMapping("/{workflowId}/status")
+    @Operation(summary = "查询工作流状态", description = "支持字段投影、超长值截断和 ETag 条件查询")
+    public ResponseEntity<WorkflowStatusResult> status(
+            @PathVariable String workflowId,
+            @RequestParam(required = false) Set<String> include,
+            @RequestParam(required = false) Set<String> node,
+            @RequestParam(required = false) Set<String> contextKey,
+            @RequestParam(defaultValue = "" + DEFAULT_MAX_VALUE_CHARS) int maxValueChars,
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+        WorkflowApplicationService.WorkflowStatusQuery query =
+                WorkflowApplicationService.WorkflowStatusQuery.statusOnly(WorkflowId.of(workflowId));
+        if (include != null) {
+            query.setIncludeNodes(include.contains("nodes") || include.contains("nodeData"));
+            query.setIncludeNodeData(include.contains("nodeData"));
+            query.setIncludeContext(include.contains("context"));
+        }
+        query.setNodeNames(node);
+        query.setContextKeys(contextKey);
+        query.setMaxValueChars(maxValueChars);
+        query.setIfNoneMatch(ifNoneMatch);
+
+        WorkflowStatusResult result = workflowService.getWorkflowStatus(query);
+        if (result.isError()) {
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(result);
+        }
+        if (!result.isFound()) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body(result);
+        }
+        if (result.isNotModified()) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(result.getEtag()).build();
+        }
+        return ResponseEntity.ok().eTag(result.getEtag()).body(result);
+    }
+}
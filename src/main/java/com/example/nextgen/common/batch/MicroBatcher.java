@@ -0,0 +1,187 @@
+package com.example.nextgen.common.batch;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+/**
+ * 微批处理器
+ * 把来自多个调用方（多个工作流实例）的单条请求攒成批：攒够 maxBatchSize 条或第一条等待超过 maxWaitMillis 时，
+ * 发起一次批量调用，再按下标把结果分发回各个调用方
+ *
+ * 批量函数必须按输入顺序返回等长的结果列表
+ */
+@Slf4j
+public class MicroBatcher<I, O> implements AutoCloseable {
+
+    private final String name;
+    private final int maxBatchSize;
+    private final long maxWaitNanos;
+    private final Function<List<I>, List<O>> batchFunction;
+    private final BlockingQueue<Pending<I, O>> queue = new LinkedBlockingQueue<>();
+    private final ExecutorService batchExecutor;
+    private final Semaphore batchPermits;
+    private final Thread dispatcher;
+    private volatile boolean closed;
+
+    private final AtomicLong batches = new AtomicLong();
+    private final AtomicLong items = new AtomicLong();
+    private final AtomicLong failedBatches = new AtomicLong();
+
+    public MicroBatcher(String name, int maxBatchSize, long maxWaitMillis, int maxConcurrentBatches,
+                        Function<List<I>, List<O>> batchFunction) {
+        if (maxBatchSize < 1) {
+            throw new IllegalArgumentException("Max batch size must be at least 1");
+        }
+        if (maxConcurrentBatches < 1) {
+            throw new IllegalArgumentException("Max concurrent batches must be at least 1");
+        }
+        this.name = name;
+        this.maxBatchSize = maxBatchSize;
+        this.maxWaitNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(0L, maxWaitMillis));
+        this.batchFunction = batchFunction;
+        this.batchPermits = new Semaphore(maxConcurrentBatches);
+        AtomicInteger counter = new AtomicInteger();
+        this.batchExecutor = Executors.newFixedThreadPool(maxConcurrentBatches, runnable -> {
+            Thread thread = new Thread(runnable, name + "-batch-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.dispatcher = new Thread(this::dispatchLoop, name + "-batcher");
+        this.dispatcher.setDaemon(true);
+        this.dispatcher.start();
+    }
+
+    /**
+     * 提交一条请求
+     */
+    public CompletableFuture<O> submit(I item) {
+        if (closed) {
+            throw new IllegalStateException("Batcher " + name + " is closed");
+        }
+        CompletableFuture<O> future = new CompletableFuture<>();
+        queue.add(new Pending<>(item, future));
+        return future;
+    }
+
+    /**
+     * 提交多条请求，返回的结果与输入顺序一致
+     */
+    public List<CompletableFuture<O>> submitAll(List<I> itemsToSubmit) {
+        List<CompletableFuture<O>> futures = new ArrayList<>(itemsToSubmit.size());
+        for (I item : itemsToSubmit) {
+            futures.add(submit(item));
+        }
+        return futures;
+    }
+
+    private void dispatchLoop() {
+        while (!closed) {
+            List<Pending<I, O>> batch = new ArrayList<>(maxBatchSize);
+            boolean permitAcquired = false;
+            try {
+                batch.add(queue.take());
+                // 等待批处理并发额度期间继续攒批，后端忙时批次自然变大
+                batchPermits.acquire();
+                permitAcquired = true;
+                long deadline = System.nanoTime() + maxWaitNanos;
+                while (batch.size() < maxBatchSize) {
+                    long remaining = deadline - System.nanoTime();
+                    Pending<I, O> next = remaining > 0 ? queue.poll(remaining, TimeUnit.NANOSECONDS) : queue.poll();
+                    if (next == null) {
+                        break;
+                    }
+                    batch.add(next);
+                }
+                batchExecutor.execute(() -> execute(batch));
+            } catch (InterruptedException e) {
+                abandon(batch, permitAcquired);
+                Thread.currentThread().interrupt();
+                break;
+            } catch (RejectedExecutionException e) {
+                abandon(batch, permitAcquired);
+                break;
+            }
+        }
+        failRemaining();
+    }
+
+    /**
+     * 已取出但没能提交执行的批次：结束其中的请求并归还并发额度
+     */
+    private void abandon(List<Pending<I, O>> batch, boolean permitAcquired) {
+        failAll(batch);
+        if (permitAcquired) {
+            batchPermits.release();
+        }
+    }
+
+    private void execute(List<Pending<I, O>> batch) {
+        try {
+            List<I> inputs = new ArrayList<>(batch.size());
+            for (Pending<I, O> pending : batch) {
+                inputs.add(pending.item());
+            }
+            List<O> outputs = batchFunction.apply(inputs);
+            if (outputs == null || outputs.size() != batch.size()) {
+                throw new IllegalStateException("Batch " + name + " returned " + (outputs == null ? 0 : outputs.size())
+                        + " results for " + batch.size() + " inputs");
+            }
+            for (int i = 0; i < batch.size(); i++) {
+                batch.get(i).future().complete(outputs.get(i));
+            }
+            batches.incrementAndGet();
+            items.addAndGet(batch.size());
+        } catch (RuntimeException e) {
+            failedBatches.incrementAndGet();
+            log.warn("Batch {} of {} items failed: {}", name, batch.size(), e.getMessage());
+            for (Pending<I, O> pending : batch) {
+                pending.future().completeExceptionally(e);
+            }
+        } finally {
+            batchPermits.release();
+        }
+    }
+
+    private void failRemaining() {
+        List<Pending<I, O>> remaining = new ArrayList<>();
+        queue.drainTo(remaining);
+        failAll(remaining);
+    }
+
+    private void failAll(List<Pending<I, O>> pendings) {
+        IllegalStateException closedException = new IllegalStateException("Batcher " + name + " is closed");
+        for (Pending<I, O> pending : pendings) {
+            pending.future().completeExceptionally(closedException);
+        }
+    }
+
+    @Override
+    public void close() {
+        closed = true;
+        dispatcher.interrupt();
+        batchExecutor.shutdown();
+    }
+
+    /**
+     * 平均批大小
+     */
+    public double getAverageBatchSize() {
+        long count = batches.get();
+        return count == 0 ? 0.0 : (double) items.get() / count;
+    }
+
+    public String getName() { return name; }
+    public long getBatches() { return batches.get(); }
+    public long getItems() { return items.get(); }
+    public long getFailedBatches() { return failedBatches.get(); }
+    public int getQueued() { return queue.size(); }
+
+    private record Pending<I, O>(I item, CompletableFuture<O> future) {
+    }
+}
@@ -0,0 +1,135 @@
+package com.example.nextgen.common.budget;
+
+import lombok.Builder;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * 当前线程上的调用预算
+ * 执行引擎在节点执行期间绑定：节点分到的时间预算、所属工作流的 token 预算，以及用于归属统计的工作流/节点信息。
+ * 下游的模型调用据此决定是否降级、截断或拒绝，并把降级记录和 token 用量写回预算对象
+ */
+public final class CallBudget {
+
+    private static final ThreadLocal<CallBudget> CURRENT = new ThreadLocal<>();
+
+    private final String workflowId;
+    private final String workflowName;
+    private final String nodeName;
+    private final long deadlineNanos;
+    private final boolean hasDeadline;
+    private final TokenBudget tokenBudget;
+    private final AtomicLong promptTokens = new AtomicLong();
+    private final AtomicLong completionTokens = new AtomicLong();
+    private final List<String> degradations = Collections.synchronizedList(new ArrayList<>());
+
+    /**
+     * @param timeBudgetMillis 时间预算，为空表示不限制
+     * @param tokenBudget      工作流的 token 预算，为空表示不限制
+     */
+    @Builder
+    private CallBudget(String workflowId, String workflowName, String nodeName, Long timeBudgetMillis,
+                       TokenBudget tokenBudget) {
+        this.workflowId = workflowId;
+        this.workflowName = workflowName;
+        this.nodeName = nodeName;
+        this.hasDeadline = timeBudgetMillis != null;
+        this.deadlineNanos = hasDeadline ? System.nanoTime() + Math.max(0L, timeBudgetMillis) * 1_000_000L : 0L;
+        this.tokenBudget = tokenBudget;
+    }
+
+    /**
+     * 在给定预算内执行，执行结束后恢复原来的预算
+     */
+    public static void within(CallBudget budget, Runnable action) {
+        CallBudget previous = CURRENT.get();
+        CURRENT.set(budget);
+        try {
+            action.run();
+        } finally {
+            if (previous != null) {
+                CURRENT.set(previous);
+            } else {
+                CURRENT.remove();
+            }
+        }
+    }
+
+    /**
+     * 在给定预算内执行并返回结果，用于把预算传递到其他线程
+     */
+    public static <T> T within(CallBudget budget, Supplier<T> action) {
+        CallBudget previous = CURRENT.get();
+        CURRENT.set(budget);
+        try {
+            return action.get();
+        } finally {
+            if (previous != null) {
+                CURRENT.set(previous);
+            } else {
+                CURRENT.remove();
+            }
+        }
+    }
+
+    /**
+     * 当前线程的预算，没有时返回null
+     */
+    public static CallBudget current() {
+        return CURRENT.get();
+    }
+
+    public boolean hasDeadline() {
+        return hasDeadline;
+    }
+
+    /**
+     * 剩余时间（毫秒），没有时间预算时返回 Long.MAX_VALUE
+     */
+    public long remainingMillis() {
+        if (!hasDeadline) {
+            return Long.MAX_VALUE;
+        }
+        return Math.max(0L, (deadlineNanos - System.nanoTime()) / 1_000_000L);
+    }
+
+    public boolean isExpired() {
+        return hasDeadline && deadlineNanos - System.nanoTime() <= 0;
+    }
+
+    /**
+     * 记录一次为满足预算而做的降级
+     */
+    public void recordDegradation(String description) {
+        degradations.add(description);
+    }
+
+    /**
+     * 记录一次模型调用的 token 用量，同时计入工作流预算
+     */
+    public void recordUsage(long prompt, long completion) {
+        promptTokens.addAndGet(prompt);
+        completionTokens.addAndGet(completion);
+        if (tokenBudget != null) {
+            tokenBudget.record(prompt, completion);
+        }
+    }
+
+    public List<String> getDegradations() {
+        synchronized (degradations) {
+            return List.copyOf(degradations);
+        }
+    }
+
+    public String getWorkflowId() { return workflowId; }
+    public String getWorkflowName() { return workflowName; }
+    public String getNodeName() { return nodeName; }
+    public TokenBudget getTokenBudget() { return tokenBudget; }
+    public long getPromptTokens() { return promptTokens.get(); }
+    public long getCompletionTokens() { return completionTokens.get(); }
+    public long getTotalTokens() { return promptTokens.get() + completionTokens.get(); }
+}
@@ -0,0 +1,49 @@
+package com.example.nextgen.common.budget;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 工作流级别的 token 预算和用量
+ * 一次运行内所有节点共享，线程安全
+ */
+public class TokenBudget {
+
+    /**
+     * 上限，小于等于0表示不限制
+     */
+    private final long limit;
+    private final AtomicLong promptTokens = new AtomicLong();
+    private final AtomicLong completionTokens = new AtomicLong();
+
+    public TokenBudget(long limit) {
+        this.limit = limit;
+    }
+
+    public static TokenBudget unlimited() {
+        return new TokenBudget(0L);
+    }
+
+    public void record(long prompt, long completion) {
+        promptTokens.addAndGet(Math.max(0L, prompt));
+        completionTokens.addAndGet(Math.max(0L, completion));
+    }
+
+    public boolean isLimited() {
+        return limit > 0;
+    }
+
+    /**
+     * 剩余 token 数，不限制时返回 Long.MAX_VALUE
+     */
+    public long remaining() {
+        if (!isLimited()) {
+            return Long.MAX_VALUE;
+        }
+        return Math.max(0L, limit - getUsedTokens());
+    }
+
+    public long getLimit() { return limit; }
+    public long getPromptTokens() { return promptTokens.get(); }
+    public long getCompletionTokens() { return completionTokens.get(); }
+    public long getUsedTokens() { return promptTokens.get() + completionTokens.get(); }
+}
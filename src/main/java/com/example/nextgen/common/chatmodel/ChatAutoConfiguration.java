@@ -1,10 +1,14 @@
 package com.example.nextgen.common.chatmodel;
 
+import com.example.nextgen.common.chatmodel.breaker.CircuitBreakerRegistry;
+import com.example.nextgen.common.chatmodel.limit.ConcurrencyLimiterRegistry;
+import com.example.nextgen.common.chatmodel.tool.ToolCallExecutor;
 import io.micrometer.observation.ObservationRegistry;
 import org.springframework.ai.chat.model.ChatModel;
 import org.springframework.ai.chat.observation.ChatModelObservationConvention;
 import org.springframework.ai.model.SimpleApiKey;
 import org.springframework.ai.model.openai.autoconfigure.OpenAIAutoConfigurationUtil;
+import org.springframework.ai.model.openai.autoconfigure.OpenAiChatAutoConfiguration;
 import org.springframework.ai.model.openai.autoconfigure.OpenAiChatProperties;
 import org.springframework.ai.model.openai.autoconfigure.OpenAiConnectionProperties;
 import org.springframework.ai.model.tool.DefaultToolExecutionEligibilityPredicate;
@@ -16,6 +20,7 @@ import org.springframework.ai.openai.OpenAiChatOptions;
 import org.springframework.ai.openai.api.OpenAiApi;
 import org.springframework.ai.retry.autoconfigure.SpringAiRetryAutoConfiguration;
 import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.boot.autoconfigure.AutoConfiguration;
 import org.springframework.boot.autoconfigure.ImportAutoConfiguration;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnClass;
@@ -30,10 +35,13 @@ import org.springframework.web.client.ResponseErrorHandler;
 import org.springframework.web.client.RestClient;
 import org.springframework.web.reactive.function.client.WebClient;
 
+import java.util.LinkedHashMap;
+import java.util.Map;
 import java.util.Objects;
 
 @AutoConfiguration(
-        after = {RestClientAutoConfiguration.class, WebClientAutoConfiguration.class, SpringAiRetryAutoConfiguration.class, ToolCallingAutoConfiguration.class}
+        after = {RestClientAutoConfiguration.class, WebClientAutoConfiguration.class, SpringAiRetryAutoConfiguration.class, ToolCallingAutoConfiguration.class},
+        before = {OpenAiChatAutoConfiguration.class}
 )
 @ConditionalOnClass({OpenAiApi.class})
 @EnableConfigurationProperties({OpenAiConnectionProperties.class, OpenAiChatProperties.class})
@@ -46,27 +54,46 @@ import java.util.Objects;
         classes = {SpringAiRetryAutoConfiguration.class, RestClientAutoConfiguration.class, WebClientAutoConfiguration.class, ToolCallingAutoConfiguration.class}
 )
 public class ChatAutoConfiguration {
+
+    /**
+     * 模型Bean名称
+     */
+    public static final String QWEN_PLUS = "qwenPlusChatModel";
+    public static final String QWEN_MAX = "qwenMaxChatModel";
+    public static final String ROUTING = "routingChatModel";
+
     @Bean
     @Primary
-    public ChatModel qwenPlusChatModel(OpenAiConnectionProperties commonProperties, OpenAiChatProperties chatProperties, ObjectProvider<RestClient.Builder> restClientBuilderProvider, ObjectProvider<WebClient.Builder> webClientBuilderProvider, ToolCallingManager toolCallingManager, RetryTemplate retryTemplate, ResponseErrorHandler responseErrorHandler, ObjectProvider<ObservationRegistry> observationRegistry, ObjectProvider<ChatModelObservationConvention> observationConvention, ObjectProvider<ToolExecutionEligibilityPredicate> openAiToolExecutionEligibilityPredicate) {
+    public ChatModel qwenPlusChatModel(OpenAiConnectionProperties commonProperties, OpenAiChatProperties chatProperties, ObjectProvider<RestClient.Builder> restClientBuilderProvider, ObjectProvider<WebClient.Builder> webClientBuilderProvider, ToolCallingManager toolCallingManager, RetryTemplate retryTemplate, ResponseErrorHandler responseErrorHandler, ObjectProvider<ObservationRegistry> observationRegistry, ObjectProvider<ChatModelObservationConvention> observationConvention, ObjectProvider<ToolExecutionEligibilityPredicate> openAiToolExecutionEligibilityPredicate, ConcurrencyLimiterRegistry concurrencyLimiterRegistry, CircuitBreakerRegistry circuitBreakerRegistry, ToolCallExecutor toolCallExecutor) {
         OpenAiChatOptions copy = chatProperties.getOptions().copy();
         copy.setModel("qwen-plus");
         OpenAiApi openAiApi = this.openAiApi(chatProperties, commonProperties, restClientBuilderProvider.getIfAvailable(RestClient::builder), webClientBuilderProvider.getIfAvailable(WebClient::builder), responseErrorHandler, "chat");
-        OpenAiChatModel chatModel = OpenAiChatModel.builder().openAiApi(openAiApi).defaultOptions(chatProperties.getOptions()).toolCallingManager(toolCallingManager).toolExecutionEligibilityPredicate(openAiToolExecutionEligibilityPredicate.getIfUnique(DefaultToolExecutionEligibilityPredicate::new)).retryTemplate(retryTemplate).observationRegistry((ObservationRegistry)observationRegistry.getIfUnique(() -> ObservationRegistry.NOOP)).build();
+        OpenAiChatModel chatModel = OpenAiChatModel.builder().openAiApi(openAiApi).defaultOptions(chatProperties.getOptions()).toolCallingManager(toolCallExecutor.parallel(toolCallingManager)).toolExecutionEligibilityPredicate(openAiToolExecutionEligibilityPredicate.getIfUnique(DefaultToolExecutionEligibilityPredicate::new)).retryTemplate(retryTemplate).observationRegistry((ObservationRegistry)observationRegistry.getIfUnique(() -> ObservationRegistry.NOOP)).build();
         Objects.requireNonNull(chatModel);
         observationConvention.ifAvailable(chatModel::setObservationConvention);
-        return chatModel;
+        return circuitBreakerRegistry.decorate(QWEN_PLUS, concurrencyLimiterRegistry.decorate(QWEN_PLUS, chatModel));
     }
 
     @Bean
-    public ChatModel qwenMaxChatModel(OpenAiConnectionProperties commonProperties, OpenAiChatProperties chatProperties, ObjectProvider<RestClient.Builder> restClientBuilderProvider, ObjectProvider<WebClient.Builder> webClientBuilderProvider, ToolCallingManager toolCallingManager, RetryTemplate retryTemplate, ResponseErrorHandler responseErrorHandler, ObjectProvider<ObservationRegistry> observationRegistry, ObjectProvider<ChatModelObservationConvention> observationConvention, ObjectProvider<ToolExecutionEligibilityPredicate> openAiToolExecutionEligibilityPredicate) {
+    public ChatModel qwenMaxChatModel(OpenAiConnectionProperties commonProperties, OpenAiChatProperties chatProperties, ObjectProvider<RestClient.Builder> restClientBuilderProvider, ObjectProvider<WebClient.Builder> webClientBuilderProvider, ToolCallingManager toolCallingManager, RetryTemplate retryTemplate, ResponseErrorHandler responseErrorHandler, ObjectProvider<ObservationRegistry> observationRegistry, ObjectProvider<ChatModelObservationConvention> observationConvention, ObjectProvider<ToolExecutionEligibilityPredicate> openAiToolExecutionEligibilityPredicate, ConcurrencyLimiterRegistry concurrencyLimiterRegistry, CircuitBreakerRegistry circuitBreakerRegistry, ToolCallExecutor toolCallExecutor) {
         OpenAiChatOptions copy = chatProperties.getOptions().copy();
         copy.setModel("qwen-max");
         OpenAiApi openAiApi = this.openAiApi(chatProperties, commonProperties, restClientBuilderProvider.getIfAvailable(RestClient::builder), webClientBuilderProvider.getIfAvailable(WebClient::builder), responseErrorHandler, "chat");
-        OpenAiChatModel chatModel = OpenAiChatModel.builder().openAiApi(openAiApi).defaultOptions(copy).toolCallingManager(toolCallingManager).toolExecutionEligibilityPredicate(openAiToolExecutionEligibilityPredicate.getIfUnique(DefaultToolExecutionEligibilityPredicate::new)).retryTemplate(retryTemplate).observationRegistry((ObservationRegistry)observationRegistry.getIfUnique(() -> ObservationRegistry.NOOP)).build();
+        OpenAiChatModel chatModel = OpenAiChatModel.builder().openAiApi(openAiApi).defaultOptions(copy).toolCallingManager(toolCallExecutor.parallel(toolCallingManager)).toolExecutionEligibilityPredicate(openAiToolExecutionEligibilityPredicate.getIfUnique(DefaultToolExecutionEligibilityPredicate::new)).retryTemplate(retryTemplate).observationRegistry((ObservationRegistry)observationRegistry.getIfUnique(() -> ObservationRegistry.NOOP)).build();
         Objects.requireNonNull(chatModel);
         observationConvention.ifAvailable(chatModel::setObservationConvention);
-        return chatModel;
+        return circuitBreakerRegistry.decorate(QWEN_MAX, concurrencyLimiterRegistry.decorate(QWEN_MAX, chatModel));
+    }
+
+    /**
+     * 在 qwen-plus 与 qwen-max 之间按实时延迟、错误率和排队深度路由
+     */
+    @Bean
+    public RoutingChatModel routingChatModel(@Qualifier(QWEN_PLUS) ChatModel qwenPlusChatModel, @Qualifier(QWEN_MAX) ChatModel qwenMaxChatModel, ModelStatsRegistry modelStatsRegistry, ConcurrencyLimiterRegistry concurrencyLimiterRegistry, CircuitBreakerRegistry circuitBreakerRegistry, ChatModelProperties chatModelProperties) {
+        Map<String, ChatModel> backends = new LinkedHashMap<>();
+        backends.put(QWEN_PLUS, qwenPlusChatModel);
+        backends.put(QWEN_MAX, qwenMaxChatModel);
+        return new RoutingChatModel(backends, modelStatsRegistry, concurrencyLimiterRegistry, circuitBreakerRegistry, chatModelProperties);
     }
 
     private OpenAiApi openAiApi(OpenAiChatProperties chatProperties, OpenAiConnectionProperties commonProperties, RestClient.Builder restClientBuilder, WebClient.Builder webClientBuilder, ResponseErrorHandler responseErrorHandler, String modelType) {
@@ -0,0 +1,196 @@
+package com.example.nextgen.common.chatmodel;
+
+import com.example.nextgen.common.chatmodel.memory.RunChatMemory;
+import com.example.nextgen.common.chatmodel.usage.TokenBudgetAdvisor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.ai.chat.client.ChatClient;
+import org.springframework.ai.chat.client.advisor.MessageChatMemoryAdvisor;
+import org.springframework.ai.chat.client.advisor.SimpleLoggerAdvisor;
+import org.springframework.ai.chat.client.advisor.api.Advisor;
+import org.springframework.ai.chat.model.ChatModel;
+import org.springframework.ai.chat.prompt.ChatOptions;
+import org.springframework.stereotype.Component;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * ChatClient 注册中心
+ * 按 "模型 + 顾问链" 缓存预构建的 ChatClient，节点按名称获取，避免每次创建工作流时重复构建客户端
+ *
+ * ChatClient 构建后不可变，可在多个工作流、多个线程间共享
+ */
+@Slf4j
+@Component
+public class ChatClientRegistry {
+
+    /**
+     * 默认顾问链：日志顾问 + token 预算顾问
+     */
+    public static final String DEFAULT_CHAIN = "default";
+
+    /**
+     * 带运行内对话记忆的顾问链，调用时需通过 {@link RunChatMemory#inCurrentRun(String)} 指定会话
+     */
+    public static final String MEMORY_CHAIN = "memory";
+
+    /**
+     * 模型Bean名称 -> ChatModel
+     */
+    private final Map<String, ChatModel> chatModels;
+
+    /**
+     * 顾问链名称 -> 顾问列表（只在注册时配置一次）
+     */
+    private final Map<String, List<Advisor>> advisorChains = new ConcurrentHashMap<>();
+
+    /**
+     * 已构建的客户端缓存
+     */
+    private final Map<ClientKey, ChatClient> clients = new ConcurrentHashMap<>();
+
+    /**
+     * 已构建的客户端 -> 客户端键，用于识别节点使用的客户端
+     */
+    private final Map<ChatClient, ClientKey> keysByClient = new ConcurrentHashMap<>();
+
+    /**
+     * 客户端别名 -> 客户端键
+     */
+    private final Map<String, ClientKey> aliases = new ConcurrentHashMap<>();
+
+    public ChatClientRegistry(Map<String, ChatModel> chatModels, TokenBudgetAdvisor tokenBudgetAdvisor,
+                              RunChatMemory runChatMemory) {
+        this.chatModels = new ConcurrentHashMap<>(chatModels);
+        registerAdvisorChain(DEFAULT_CHAIN, List.of(SimpleLoggerAdvisor.builder().build(), tokenBudgetAdvisor));
+        registerAdvisorChain(MEMORY_CHAIN, List.of(MessageChatMemoryAdvisor.builder(runChatMemory).build(),
+                SimpleLoggerAdvisor.builder().build(), tokenBudgetAdvisor));
+        log.info("ChatClientRegistry initialized with models: {}", this.chatModels.keySet());
+    }
+
+    /**
+     * 注册额外的模型（例如带最低质量等级的路由视图）
+     */
+    public void registerModel(String modelName, ChatModel chatModel) {
+        Objects.requireNonNull(chatModel, "ChatModel cannot be null");
+        chatModels.putIfAbsent(modelName, chatModel);
+    }
+
+    /**
+     * 注册顾问链
+     */
+    public void registerAdvisorChain(String chainName, List<Advisor> advisors) {
+        Objects.requireNonNull(chainName, "Chain name cannot be null");
+        if (advisorChains.putIfAbsent(chainName, List.copyOf(advisors)) != null) {
+            throw new IllegalStateException("Advisor chain already registered: " + chainName);
+        }
+    }
+
+    /**
+     * 为 "模型 + 顾问链" 注册一个别名，节点可以通过别名获取客户端
+     */
+    public void registerAlias(String clientName, String modelName, String chainName) {
+        ClientKey key = new ClientKey(modelName, chainName);
+        validate(key);
+        aliases.put(clientName, key);
+    }
+
+    /**
+     * 按名称获取客户端
+     * 名称可以是已注册的别名，也可以直接是模型Bean名称（使用默认顾问链）
+     */
+    public ChatClient getClient(String clientName) {
+        ClientKey key = aliases.get(clientName);
+        if (key == null) {
+            key = new ClientKey(clientName, DEFAULT_CHAIN);
+        }
+        return getClient(key.modelName(), key.chainName());
+    }
+
+    /**
+     * 按模型和顾问链获取客户端，不存在时构建一次并缓存
+     */
+    public ChatClient getClient(String modelName, String chainName) {
+        ClientKey key = new ClientKey(modelName, chainName);
+        ChatClient client = clients.get(key);
+        if (client != null) {
+            return client;
+        }
+        validate(key);
+        return clients.computeIfAbsent(key, this::buildClient);
+    }
+
+    /**
+     * 获取模型
+     */
+    public ChatModel getChatModel(String modelName) {
+        ChatModel chatModel = chatModels.get(modelName);
+        if (chatModel == null) {
+            throw new IllegalArgumentException("ChatModel not found: " + modelName);
+        }
+        return chatModel;
+    }
+
+    /**
+     * 客户端标识：模型名称、模型默认参数和顾问链，由本注册中心构建的客户端才能识别
+     * 增量执行按此区分不同模型或顾问链产生的输出
+     */
+    public Optional<String> describe(ChatClient client) {
+        ClientKey key = client != null ? keysByClient.get(client) : null;
+        if (key == null) {
+            return Optional.empty();
+        }
+        ChatModel chatModel = chatModels.get(key.modelName());
+        StringBuilder description = new StringBuilder()
+                .append(key.modelName()).append('|').append(chatModel.getClass().getName());
+        if (!appendOptions(description, chatModel.getDefaultOptions())) {
+            // 路由、降级等组合模型没有自己的默认参数，按全部具体模型的参数区分
+            new TreeMap<>(chatModels).forEach((name, model) -> appendOptions(description, model.getDefaultOptions()));
+        }
+        description.append('|').append(key.chainName());
+        for (Advisor advisor : advisorChains.get(key.chainName())) {
+            description.append('|').append(advisor.getName());
+        }
+        return Optional.of(description.toString());
+    }
+
+    private static boolean appendOptions(StringBuilder description, ChatOptions options) {
+        if (options == null || options.getModel() == null) {
+            return false;
+        }
+        description.append('|').append(options.getModel())
+                .append('|').append(options.getTemperature())
+                .append('|').append(options.getTopP())
+                .append('|').append(options.getMaxTokens());
+        return true;
+    }
+
+    /**
+     * 已注册的模型名称
+     */
+    public Set<String> getModelNames() {
+        return Collections.unmodifiableSet(chatModels.keySet());
+    }
+
+    private void validate(ClientKey key) {
+        if (!chatModels.containsKey(key.modelName())) {
+            throw new IllegalArgumentException("ChatModel not found: " + key.modelName());
+        }
+        if (!advisorChains.containsKey(key.chainName())) {
+            throw new IllegalArgumentException("Advisor chain not found: " + key.chainName());
+        }
+    }
+
+    private ChatClient buildClient(ClientKey key) {
+        log.debug("Building ChatClient for model={}, chain={}", key.modelName(), key.chainName());
+        // 包装为支持替换的模型，预算顾问改用其他模型时仍经过完整的顾问链
+        ChatClient client = ChatClient.builder(ModelOverride.overridable(chatModels.get(key.modelName())))
+                .defaultAdvisors(advisorChains.get(key.chainName()))
+                .build();
+        keysByClient.put(client, key);
+        return client;
+    }
+
+    private record ClientKey(String modelName, String chainName) {
+    }
+}
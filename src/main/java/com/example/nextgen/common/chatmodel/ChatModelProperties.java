@@ -0,0 +1,409 @@
+package com.example.nextgen.common.chatmodel;
+
+import com.example.nextgen.common.prompt.ContextTrimStrategy;
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 模型调用相关配置
+ */
+@Getter
+@Setter
+@Component
+@ConfigurationProperties(prefix = "nextgen.chat")
+public class ChatModelProperties {
+
+    /**
+     * 每个模型统计窗口的样本数量
+     */
+    private int statsWindowSize = 256;
+
+    /**
+     * 路由配置
+     */
+    private Routing routing = new Routing();
+
+    /**
+     * 自适应并发限制配置
+     */
+    private Limiter limiter = new Limiter();
+
+    /**
+     * 熔断配置
+     */
+    private Breaker breaker = new Breaker();
+
+    /**
+     * 对冲请求配置
+     */
+    private Hedge hedge = new Hedge();
+
+    /**
+     * 截止时间降级配置
+     */
+    private Deadline deadline = new Deadline();
+
+    /**
+     * token 预算配置
+     */
+    private Tokens tokens = new Tokens();
+
+    /**
+     * 调用前的上下文裁剪配置
+     */
+    private Context context = new Context();
+
+    /**
+     * 工作流运行内的对话记忆配置
+     */
+    private Memory memory = new Memory();
+
+    /**
+     * 工具调用配置
+     */
+    private Tools tools = new Tools();
+
+    @Getter
+    @Setter
+    public static class Routing {
+
+        /**
+         * 主模型，正常情况下优先使用
+         */
+        private String primary = ChatAutoConfiguration.QWEN_PLUS;
+
+        /**
+         * 错误率惩罚系数，评分 = p95 * (1 + 在途/容量) * (1 + 错误率 * 系数)
+         */
+        private double errorPenalty = 4.0;
+
+        /**
+         * 主模型的评分需要比其他模型差多少倍才切换（避免在相近的模型间抖动）
+         */
+        private double switchThreshold = 1.5;
+
+        /**
+         * 参与路由的后端，按模型Bean名称配置
+         */
+        private Map<String, Backend> backends = new LinkedHashMap<>();
+
+        public Routing() {
+            backends.put(ChatAutoConfiguration.QWEN_PLUS, new Backend(1, 16));
+            backends.put(ChatAutoConfiguration.QWEN_MAX, new Backend(2, 8));
+        }
+    }
+
+    @Getter
+    @Setter
+    public static class Limiter {
+
+        /**
+         * 是否启用
+         */
+        private boolean enabled = true;
+
+        /**
+         * 上限算法
+         */
+        private Algorithm algorithm = Algorithm.AIMD;
+
+        private int initialLimit = 4;
+        private int minLimit = 1;
+        private int maxLimit = 64;
+
+        /**
+         * 达到上限时最长等待时间，超时后拒绝
+         */
+        private long maxWaitMillis = 30000;
+
+        /**
+         * AIMD：遇到限流时的回退比例
+         */
+        private double backoffRatio = 0.9;
+
+        /**
+         * AIMD：耗时超过该值视为过载
+         */
+        private long timeoutMillis = 60000;
+
+        /**
+         * 梯度算法：平滑系数
+         */
+        private double smoothing = 0.2;
+
+        /**
+         * 梯度算法：长期基线覆盖的样本数量
+         */
+        private int longWindow = 600;
+
+        /**
+         * 梯度算法：允许的耗时膨胀比例
+         */
+        private double tolerance = 1.5;
+
+        public enum Algorithm {
+            AIMD,
+            GRADIENT
+        }
+    }
+
+    @Getter
+    @Setter
+    public static class Breaker {
+
+        /**
+         * 是否启用
+         */
+        private boolean enabled = true;
+
+        /**
+         * 滑动窗口大小（调用次数）
+         */
+        private int windowSize = 20;
+
+        /**
+         * 窗口内至少有多少次调用才开始计算失败率
+         */
+        private int minimumCalls = 10;
+
+        /**
+         * 失败率阈值
+         */
+        private double failureRateThreshold = 0.5;
+
+        /**
+         * 慢调用率阈值
+         */
+        private double slowCallRateThreshold = 0.8;
+
+        /**
+         * 耗时超过该值视为慢调用
+         */
+        private long slowCallMillis = 30000;
+
+        /**
+         * 打开状态持续时间，之后进入半开状态
+         */
+        private long openDurationMillis = 30000;
+
+        /**
+         * 半开状态允许的探测调用数量
+         */
+        private int halfOpenPermittedCalls = 3;
+    }
+
+    @Getter
+    @Setter
+    public static class Hedge {
+
+        /**
+         * 是否启用，关闭时节点拿到的是原始模型
+         */
+        private boolean enabled = true;
+
+        /**
+         * 超过主请求延迟的哪个百分位后发出对冲请求
+         */
+        private double percentile = 0.95;
+
+        /**
+         * 对冲延迟下限
+         */
+        private long minDelayMillis = 1000;
+
+        /**
+         * 样本不足时使用的对冲延迟
+         */
+        private long initialDelayMillis = 10000;
+
+        /**
+         * 至少有多少个样本才按百分位计算延迟
+         */
+        private int minSamples = 20;
+
+        /**
+         * 对冲请求占原始请求的最大比例
+         */
+        private double budgetRatio = 0.1;
+
+        /**
+         * 对冲预算的突发容量
+         */
+        private int budgetBurst = 5;
+
+        /**
+         * 执行请求的线程数
+         */
+        private int poolSize = 64;
+    }
+
+    @Getter
+    @Setter
+    public static class Deadline {
+
+        /**
+         * 是否启用，关闭时总是使用第一档
+         */
+        private boolean enabled = true;
+
+        /**
+         * 用于预估档位耗时的延迟百分位
+         */
+        private double percentile = 0.9;
+
+        /**
+         * 至少有多少个样本才参与预估，样本不足的档位视为能在预算内完成
+         */
+        private int minSamples = 10;
+
+        /**
+         * 缩短输出档位的最大 token 数
+         */
+        private int fallbackMaxTokens = 512;
+    }
+
+    @Getter
+    @Setter
+    public static class Tokens {
+
+        /**
+         * 预估会超出工作流 token 预算时的处理方式
+         */
+        private Action action = Action.TRUNCATE;
+
+        /**
+         * REROUTE 时改用的模型Bean名称
+         */
+        private String rerouteModel = ChatAutoConfiguration.QWEN_PLUS;
+
+        /**
+         * 为输出保留的最少 token 数，剩余预算不足时不再发起调用
+         */
+        private int minCompletionTokens = 256;
+
+        public enum Action {
+            /**
+             * 直接失败
+             */
+            FAIL,
+            /**
+             * 截断最长的用户消息并收紧输出上限
+             */
+            TRUNCATE,
+            /**
+             * 截断后改用 rerouteModel
+             */
+            REROUTE
+        }
+    }
+
+    @Getter
+    @Setter
+    public static class Context {
+
+        private boolean enabled = true;
+
+        /**
+         * 未单独配置的节点使用的上下文 token 上限，小于等于0表示不限制
+         */
+        private int defaultMaxTokens = 0;
+
+        /**
+         * 摘要时单个值保留的 token 数
+         */
+        private int maxValueTokens = 512;
+
+        /**
+         * 默认裁剪策略及顺序
+         */
+        private List<ContextTrimStrategy> strategies = new ArrayList<>(List.of(
+                ContextTrimStrategy.KEEP_DECLARED,
+                ContextTrimStrategy.SUMMARIZE_LONG_VALUES,
+                ContextTrimStrategy.DROP_OLDEST));
+    }
+
+    @Getter
+    @Setter
+    public static class Memory {
+
+        /**
+         * 每个会话保留的最近消息数
+         */
+        private int maxMessages = 20;
+
+        /**
+         * 每个会话保留的最近消息的 token 上限
+         */
+        private int maxTokens = 4000;
+
+        /**
+         * 压缩旧消息使用的模型Bean名称
+         */
+        private String summaryModel = ChatAutoConfiguration.QWEN_PLUS;
+
+        /**
+         * 摘要的最大输出 token 数
+         */
+        private int summaryMaxTokens = 300;
+
+        /**
+         * 会话空闲超过该时间后回收（兜底未正常结束的运行）
+         */
+        private long idleTtlMinutes = 30;
+    }
+
+    @Getter
+    @Setter
+    public static class Tools {
+
+        /**
+         * 同一轮的多个工具调用是否并发执行
+         */
+        private boolean parallel = true;
+
+        /**
+         * 工具调用线程池大小
+         */
+        private int poolSize = 32;
+
+        /**
+         * 默认的单个工具超时时间
+         */
+        private long timeoutMillis = 30_000L;
+
+        /**
+         * 按工具名称覆盖超时时间
+         */
+        private Map<String, Long> timeouts = new LinkedHashMap<>();
+    }
+
+    @Getter
+    @Setter
+    public static class Backend {
+
+        /**
+         * 质量等级，数值越大质量越高，节点可以要求最低质量等级
+         */
+        private int quality;
+
+        /**
+         * 在途请求数达到该值时视为饱和，新请求溢出到其他模型
+         */
+        private int maxInFlight;
+
+        public Backend() {
+        }
+
+        public Backend(int quality, int maxInFlight) {
+            this.quality = quality;
+            this.maxInFlight = maxInFlight;
+        }
+    }
+}
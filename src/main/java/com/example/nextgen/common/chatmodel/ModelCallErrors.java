@@ -0,0 +1,30 @@
+package com.example.nextgen.common.chatmodel;
+
+import java.io.InterruptedIOException;
+import java.nio.channels.ClosedByInterruptException;
+
+/**
+ * 模型调用异常分类
+ */
+public final class ModelCallErrors {
+
+    private ModelCallErrors() {
+    }
+
+    /**
+     * 调用是否因线程被中断而结束（例如对冲请求中落败的一方被取消）
+     * 这类结束不代表模型故障，不应计入错误率或熔断统计
+     */
+    public static boolean isInterruption(Throwable error) {
+        if (Thread.currentThread().isInterrupted()) {
+            return true;
+        }
+        for (Throwable t = error; t != null; t = t.getCause()) {
+            if (t instanceof InterruptedException || t instanceof InterruptedIOException
+                    || t instanceof ClosedByInterruptException) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
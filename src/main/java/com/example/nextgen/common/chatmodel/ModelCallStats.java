@@ -0,0 +1,145 @@
+package com.example.nextgen.common.chatmodel;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * 单个模型的调用统计
+ * 基于固定大小的环形窗口记录最近的调用耗时和结果，用于计算实时的 p95 延迟、错误率和在途请求数
+ *
+ * 写入无锁，读取时复制窗口后计算，窗口较小（默认256）开销可以忽略
+ */
+public class ModelCallStats {
+
+    private final String modelName;
+
+    /**
+     * 环形窗口：低位记录耗时（毫秒），最高位标记失败
+     */
+    private final AtomicLongArray window;
+    private final AtomicLong cursor = new AtomicLong();
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final AtomicLong totalCalls = new AtomicLong();
+    private final AtomicLong totalFailures = new AtomicLong();
+
+    private static final long FAILURE_FLAG = Long.MIN_VALUE;
+
+    public ModelCallStats(String modelName, int windowSize) {
+        if (windowSize <= 0) {
+            throw new IllegalArgumentException("Window size must be positive");
+        }
+        this.modelName = modelName;
+        this.window = new AtomicLongArray(windowSize);
+        for (int i = 0; i < windowSize; i++) {
+            window.set(i, -1L);
+        }
+    }
+
+    /**
+     * 调用开始，返回开始时间（纳秒）
+     */
+    public long onStart() {
+        inFlight.incrementAndGet();
+        return System.nanoTime();
+    }
+
+    /**
+     * 调用成功
+     */
+    public void onSuccess(long startNanos) {
+        inFlight.decrementAndGet();
+        record(elapsedMillis(startNanos), false);
+    }
+
+    /**
+     * 调用失败
+     */
+    public void onFailure(long startNanos) {
+        inFlight.decrementAndGet();
+        record(elapsedMillis(startNanos), true);
+    }
+
+    /**
+     * 调用被取消（不计入窗口，只释放在途计数）
+     */
+    public void onCancel() {
+        inFlight.decrementAndGet();
+    }
+
+    private void record(long latencyMillis, boolean failed) {
+        totalCalls.incrementAndGet();
+        if (failed) {
+            totalFailures.incrementAndGet();
+        }
+        int slot = (int) (cursor.getAndIncrement() % window.length());
+        window.set(slot, failed ? (latencyMillis | FAILURE_FLAG) : latencyMillis);
+    }
+
+    /**
+     * 窗口内的延迟百分位（毫秒），无样本时返回0
+     *
+     * @param percentile 0~1 之间，例如 0.95
+     */
+    public long latencyPercentile(double percentile) {
+        long[] samples = latencySamples();
+        if (samples.length == 0) {
+            return 0L;
+        }
+        Arrays.sort(samples);
+        int index = (int) Math.ceil(percentile * samples.length) - 1;
+        return samples[Math.max(0, Math.min(index, samples.length - 1))];
+    }
+
+    public long p95LatencyMillis() {
+        return latencyPercentile(0.95);
+    }
+
+    /**
+     * 窗口内的错误率
+     */
+    public double errorRate() {
+        int count = 0;
+        int failures = 0;
+        for (int i = 0; i < window.length(); i++) {
+            long value = window.get(i);
+            if (value == -1L) {
+                continue;
+            }
+            count++;
+            if ((value & FAILURE_FLAG) != 0) {
+                failures++;
+            }
+        }
+        return count == 0 ? 0.0 : (double) failures / count;
+    }
+
+    /**
+     * 窗口内的样本数量
+     */
+    public int sampleCount() {
+        return latencySamples().length;
+    }
+
+    private long[] latencySamples() {
+        long[] samples = new long[window.length()];
+        int count = 0;
+        for (int i = 0; i < window.length(); i++) {
+            long value = window.get(i);
+            if (value != -1L) {
+                samples[count++] = value & ~FAILURE_FLAG;
+            }
+        }
+        return Arrays.copyOf(samples, count);
+    }
+
+    private static long elapsedMillis(long startNanos) {
+        return (System.nanoTime() - startNanos) / 1_000_000L;
+    }
+
+    public String getModelName() { return modelName; }
+    public int getInFlight() { return inFlight.get(); }
+    public long getTotalCalls() { return totalCalls.get(); }
+    public long getTotalFailures() { return totalFailures.get(); }
+}
@@ -0,0 +1,103 @@
+package com.example.nextgen.common.chatmodel;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.ai.chat.model.ChatModel;
+import org.springframework.ai.chat.model.ChatResponse;
+import org.springframework.ai.chat.prompt.ChatOptions;
+import org.springframework.ai.chat.prompt.Prompt;
+import reactor.core.publisher.Flux;
+
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Supplier;
+
+/**
+ * 调用链中的模型替换
+ * 顾问在继续调用链之前指定替换模型，调用链照常经过后续顾问（格式说明等），只在链末尾调用模型时改用替换模型；
+ * 同步调用通过当前线程传递，流式调用通过 Reactor 上下文传递，替换只作用于紧接着的一次模型调用
+ *
+ * 只有由 {@link ChatClientRegistry} 构建的客户端支持替换，其他客户端照常调用原模型并记录警告
+ */
+@Slf4j
+public final class ModelOverride {
+
+    private static final ThreadLocal<ChatModel> PENDING = new ThreadLocal<>();
+    private static final Class<?> CONTEXT_KEY = ModelOverride.class;
+
+    private ModelOverride() {
+    }
+
+    /**
+     * 在替换模型下执行同步调用链
+     */
+    public static <T> T call(ChatModel model, Supplier<T> chain) {
+        PENDING.set(model);
+        try {
+            return chain.get();
+        } finally {
+            if (PENDING.get() != null) {
+                PENDING.remove();
+                log.warn("Model override was not applied, the client does not support overriding");
+            }
+        }
+    }
+
+    /**
+     * 在替换模型下执行流式调用链
+     */
+    public static <T> Flux<T> stream(ChatModel model, Flux<T> chain) {
+        AtomicReference<ChatModel> pending = new AtomicReference<>(model);
+        return chain
+                .doFinally(signal -> {
+                    if (pending.get() != null) {
+                        log.warn("Model override was not applied, the client does not support overriding");
+                    }
+                })
+                .contextWrite(context -> context.put(CONTEXT_KEY, pending));
+    }
+
+    /**
+     * 支持替换的模型，注册中心用它构建客户端
+     */
+    static ChatModel overridable(ChatModel delegate) {
+        return new OverridableChatModel(delegate);
+    }
+
+    private record OverridableChatModel(ChatModel delegate) implements ChatModel {
+
+        @Override
+        public ChatResponse call(Prompt prompt) {
+            ChatModel target = PENDING.get();
+            if (target == null) {
+                return delegate.call(prompt);
+            }
+            PENDING.remove();
+            return target.call(retarget(prompt, target));
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public Flux<ChatResponse> stream(Prompt prompt) {
+            return Flux.deferContextual(context -> {
+                AtomicReference<ChatModel> pending = context.getOrDefault(CONTEXT_KEY, null);
+                ChatModel target = pending != null ? pending.getAndSet(null) : null;
+                return target != null ? target.stream(retarget(prompt, target)) : delegate.stream(prompt);
+            });
+        }
+
+        @Override
+        public ChatOptions getDefaultOptions() {
+            return delegate.getDefaultOptions();
+        }
+
+        /**
+         * 客户端按原模型的默认参数填充了模型名称，改用替换模型的默认模型名称（没有时清空，由替换模型自己决定）
+         */
+        private static Prompt retarget(Prompt prompt, ChatModel target) {
+            if (prompt.getOptions() == null || prompt.getOptions().getModel() == null) {
+                return prompt;
+            }
+            ChatOptions defaults = target.getDefaultOptions();
+            return PromptOptions.withModel(prompt, defaults != null ? defaults.getModel() : null);
+        }
+    }
+}
@@ -0,0 +1,33 @@
+package com.example.nextgen.common.chatmodel;
+
+import org.springframework.stereotype.Component;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 模型调用统计注册中心
+ * 路由、限流、熔断等组件共享同一份按模型名称划分的统计数据
+ */
+@Component
+public class ModelStatsRegistry {
+
+    private final Map<String, ModelCallStats> stats = new ConcurrentHashMap<>();
+    private final ChatModelProperties properties;
+
+    public ModelStatsRegistry(ChatModelProperties properties) {
+        this.properties = properties;
+    }
+
+    /**
+     * 获取模型的统计数据，不存在时创建
+     */
+    public ModelCallStats get(String modelName) {
+        return stats.computeIfAbsent(modelName, name -> new ModelCallStats(name, properties.getStatsWindowSize()));
+    }
+
+    public Map<String, ModelCallStats> getAll() {
+        return Collections.unmodifiableMap(stats);
+    }
+}
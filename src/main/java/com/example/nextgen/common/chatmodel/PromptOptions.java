@@ -0,0 +1,64 @@
+package com.example.nextgen.common.chatmodel;
+
+import org.springframework.ai.chat.prompt.ChatOptions;
+import org.springframework.ai.chat.prompt.DefaultChatOptions;
+import org.springframework.ai.chat.prompt.Prompt;
+import org.springframework.ai.openai.OpenAiChatOptions;
+
+/**
+ * 请求参数工具
+ */
+public final class PromptOptions {
+
+    private PromptOptions() {
+    }
+
+    /**
+     * 限制最大输出 token 数（已有更小的值时保留），返回新的 Prompt
+     */
+    public static Prompt withMaxTokens(Prompt prompt, int maxTokens) {
+        ChatOptions original = prompt.getOptions();
+        if (original != null && original.getMaxTokens() != null && original.getMaxTokens() <= maxTokens) {
+            return prompt;
+        }
+        return new Prompt(prompt.getInstructions(), copy(original, original != null ? original.getModel() : null, maxTokens));
+    }
+
+    /**
+     * 替换模型名称（为null时不指定，由模型使用自己的默认值），返回新的 Prompt
+     */
+    public static Prompt withModel(Prompt prompt, String model) {
+        ChatOptions original = prompt.getOptions();
+        Integer maxTokens = original != null ? original.getMaxTokens() : null;
+        return new Prompt(prompt.getInstructions(), copy(original, model, maxTokens));
+    }
+
+    private static ChatOptions copy(ChatOptions original, String model, Integer maxTokens) {
+        ChatOptions options;
+        if (original instanceof OpenAiChatOptions openAiOptions) {
+            OpenAiChatOptions copy = openAiOptions.copy();
+            copy.setModel(model);
+            copy.setMaxTokens(maxTokens);
+            options = copy;
+        } else if (original instanceof DefaultChatOptions defaultOptions) {
+            DefaultChatOptions copy = defaultOptions.copy();
+            copy.setModel(model);
+            copy.setMaxTokens(maxTokens);
+            options = copy;
+        } else if (original != null) {
+            options = ChatOptions.builder()
+                    .model(model)
+                    .frequencyPenalty(original.getFrequencyPenalty())
+                    .presencePenalty(original.getPresencePenalty())
+                    .stopSequences(original.getStopSequences())
+                    .temperature(original.getTemperature())
+                    .topK(original.getTopK())
+                    .topP(original.getTopP())
+                    .maxTokens(maxTokens)
+                    .build();
+        } else {
+            options = ChatOptions.builder().model(model).maxTokens(maxTokens).build();
+        }
+        return options;
+    }
+}
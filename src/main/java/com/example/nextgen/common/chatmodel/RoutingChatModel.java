@@ -0,0 +1,202 @@
+package com.example.nextgen.common.chatmodel;
+
+import com.example.nextgen.common.chatmodel.breaker.CircuitBreakerRegistry;
+import com.example.nextgen.common.chatmodel.limit.AdaptiveConcurrencyLimiter;
+import com.example.nextgen.common.chatmodel.limit.ConcurrencyLimiterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.ai.chat.model.ChatModel;
+import org.springframework.ai.chat.model.ChatResponse;
+import org.springframework.ai.chat.prompt.ChatOptions;
+import org.springframework.ai.chat.prompt.Prompt;
+import reactor.core.publisher.Flux;
+
+import java.util.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * 延迟感知的路由模型
+ * 按请求在多个后端模型之间选择：综合实时 p95 延迟、错误率和在途请求数（排队深度）评分，
+ * 并满足节点要求的最低质量等级。主模型饱和时，符合质量要求的请求溢出到其他模型，而不是在主模型后排队
+ */
+@Slf4j
+public class RoutingChatModel implements ChatModel {
+
+    private final Map<String, ChatModel> backends;
+    private final ModelStatsRegistry statsRegistry;
+    private final ConcurrencyLimiterRegistry limiterRegistry;
+    private final CircuitBreakerRegistry breakerRegistry;
+    private final ChatModelProperties.Routing routing;
+
+    public RoutingChatModel(Map<String, ChatModel> backends, ModelStatsRegistry statsRegistry,
+                            ConcurrencyLimiterRegistry limiterRegistry, CircuitBreakerRegistry breakerRegistry,
+                            ChatModelProperties properties) {
+        if (backends == null || backends.isEmpty()) {
+            throw new IllegalArgumentException("RoutingChatModel requires at least one backend");
+        }
+        this.backends = new LinkedHashMap<>(backends);
+        this.statsRegistry = statsRegistry;
+        this.limiterRegistry = limiterRegistry;
+        this.breakerRegistry = breakerRegistry;
+        this.routing = properties.getRouting();
+    }
+
+    @Override
+    public ChatResponse call(Prompt prompt) {
+        return call(prompt, 0);
+    }
+
+    @Override
+    public Flux<ChatResponse> stream(Prompt prompt) {
+        return stream(prompt, 0);
+    }
+
+    /**
+     * 后端模型各自使用自己的默认配置（模型名称等），路由模型不提供默认值以免覆盖
+     */
+    @Override
+    public ChatOptions getDefaultOptions() {
+        return ChatOptions.builder().build();
+    }
+
+    /**
+     * 返回一个带最低质量等级的视图，供对质量有要求的节点使用
+     */
+    public ChatModel withQualityFloor(int qualityFloor) {
+        return new ChatModel() {
+            @Override
+            public ChatResponse call(Prompt prompt) {
+                return RoutingChatModel.this.call(prompt, qualityFloor);
+            }
+
+            @Override
+            public Flux<ChatResponse> stream(Prompt prompt) {
+                return RoutingChatModel.this.stream(prompt, qualityFloor);
+            }
+
+            @Override
+            public ChatOptions getDefaultOptions() {
+                return RoutingChatModel.this.getDefaultOptions();
+            }
+        };
+    }
+
+    private ChatResponse call(Prompt prompt, int qualityFloor) {
+        String backendName = select(qualityFloor);
+        ModelCallStats stats = statsRegistry.get(backendName);
+        long start = stats.onStart();
+        try {
+            ChatResponse response = backends.get(backendName).call(prompt);
+            stats.onSuccess(start);
+            return response;
+        } catch (RuntimeException e) {
+            if (ModelCallErrors.isInterruption(e)) {
+                stats.onCancel();
+            } else {
+                stats.onFailure(start);
+            }
+            throw e;
+        }
+    }
+
+    private Flux<ChatResponse> stream(Prompt prompt, int qualityFloor) {
+        return Flux.defer(() -> {
+            String backendName = select(qualityFloor);
+            ModelCallStats stats = statsRegistry.get(backendName);
+            long start = stats.onStart();
+            AtomicBoolean received = new AtomicBoolean();
+            return backends.get(backendName).stream(prompt)
+                    .doOnNext(response -> received.set(true))
+                    .doOnComplete(() -> stats.onSuccess(start))
+                    .doOnError(e -> stats.onFailure(start))
+                    // 收到数据后被取消按成功记录，之前取消不计入窗口
+                    .doOnCancel(() -> {
+                        if (received.get()) {
+                            stats.onSuccess(start);
+                        } else {
+                            stats.onCancel();
+                        }
+                    });
+        });
+    }
+
+    /**
+     * 选择后端
+     * 1. 过滤掉质量等级不满足要求的后端，以及熔断中的后端（全部熔断时保留，由熔断器快速失败）
+     * 2. 优先选择未饱和的后端；全部饱和时选择负载比例最低的
+     * 3. 主模型未饱和且评分不比最优后端差太多时，使用主模型
+     */
+    public String select(int qualityFloor) {
+        List<String> eligible = new ArrayList<>();
+        for (String name : backends.keySet()) {
+            if (backend(name).getQuality() >= qualityFloor) {
+                eligible.add(name);
+            }
+        }
+        if (eligible.isEmpty()) {
+            throw new IllegalStateException("No backend satisfies quality floor " + qualityFloor);
+        }
+        List<String> closed = eligible.stream().filter(breakerRegistry::isCallPermitted).toList();
+        if (!closed.isEmpty()) {
+            eligible = closed;
+        }
+
+        List<String> available = eligible.stream().filter(name -> !isSaturated(name)).toList();
+        if (available.isEmpty()) {
+            return eligible.stream()
+                    .min(Comparator.comparingDouble(this::loadRatio))
+                    .orElseThrow();
+        }
+
+        String best = available.stream()
+                .min(Comparator.comparingDouble(this::score))
+                .orElseThrow();
+        String primary = routing.getPrimary();
+        if (!best.equals(primary) && available.contains(primary)
+                && score(primary) <= score(best) * routing.getSwitchThreshold()) {
+            return primary;
+        }
+        if (!best.equals(primary)) {
+            log.debug("Routing request away from primary {} to {}", primary, best);
+        }
+        return best;
+    }
+
+    /**
+     * 后端评分，越小越好
+     */
+    private double score(String name) {
+        ModelCallStats stats = statsRegistry.get(name);
+        double latency = Math.max(1L, stats.p95LatencyMillis());
+        return latency * (1.0 + loadRatio(name)) * (1.0 + stats.errorRate() * routing.getErrorPenalty());
+    }
+
+    /**
+     * 负载比例，容量取配置上限与自适应并发上限中的较小值
+     */
+    private double loadRatio(String name) {
+        int capacity = backend(name).getMaxInFlight();
+        AdaptiveConcurrencyLimiter limiter = limiterRegistry.find(name);
+        if (limiter != null) {
+            capacity = Math.min(capacity, limiter.getLimit());
+        }
+        capacity = Math.max(1, capacity);
+        return (double) statsRegistry.get(name).getInFlight() / capacity;
+    }
+
+    private boolean isSaturated(String name) {
+        return loadRatio(name) >= 1.0;
+    }
+
+    private ChatModelProperties.Backend backend(String name) {
+        ChatModelProperties.Backend backend = routing.getBackends().get(name);
+        return backend != null ? backend : new ChatModelProperties.Backend(0, Integer.MAX_VALUE);
+    }
+
+    public Set<String> getBackendNames() {
+        return Collections.unmodifiableSet(backends.keySet());
+    }
+
+    public ChatModel getBackend(String name) {
+        return backends.get(name);
+    }
+}
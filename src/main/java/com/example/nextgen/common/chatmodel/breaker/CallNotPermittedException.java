@@ -0,0 +1,18 @@
+package com.example.nextgen.common.chatmodel.breaker;
+
+/**
+ * 熔断器处于打开状态，调用被快速拒绝
+ */
+public class CallNotPermittedException extends RuntimeException {
+
+    private final String modelName;
+
+    public CallNotPermittedException(String modelName) {
+        super("Circuit breaker for model " + modelName + " is open, call not permitted");
+        this.modelName = modelName;
+    }
+
+    public String getModelName() {
+        return modelName;
+    }
+}
@@ -0,0 +1,191 @@
+package com.example.nextgen.common.chatmodel.breaker;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 模型熔断器
+ * 基于调用次数的滑动窗口统计失败率和慢调用率：
+ * CLOSED   - 正常放行，窗口内失败率或慢调用率超过阈值时转为 OPEN
+ * OPEN     - 直接拒绝（快速失败），经过 openDuration 后转为 HALF_OPEN
+ * HALF_OPEN - 只放行少量探测请求，探测全部完成后根据结果转为 CLOSED 或重新 OPEN
+ */
+@Slf4j
+public class CircuitBreaker {
+
+    public enum State {
+        CLOSED,
+        OPEN,
+        HALF_OPEN
+    }
+
+    private static final byte EMPTY = 0;
+    private static final byte SUCCESS = 1;
+    private static final byte FAILURE = 2;
+    private static final byte SLOW = 4;
+
+    private final String name;
+    private final int windowSize;
+    private final int minimumCalls;
+    private final double failureRateThreshold;
+    private final double slowCallRateThreshold;
+    private final long slowCallNanos;
+    private final long openDurationNanos;
+    private final int halfOpenPermittedCalls;
+
+    private State state = State.CLOSED;
+    private byte[] window;
+    private int cursor;
+    private int recorded;
+    private long openedAt;
+    private int halfOpenIssued;
+    private int halfOpenCompleted;
+    private long notPermittedCalls;
+
+    public CircuitBreaker(String name, int windowSize, int minimumCalls, double failureRateThreshold,
+                          double slowCallRateThreshold, long slowCallMillis, long openDurationMillis,
+                          int halfOpenPermittedCalls) {
+        this.name = name;
+        this.windowSize = windowSize;
+        this.minimumCalls = Math.min(minimumCalls, windowSize);
+        this.failureRateThreshold = failureRateThreshold;
+        this.slowCallRateThreshold = slowCallRateThreshold;
+        this.slowCallNanos = TimeUnit.MILLISECONDS.toNanos(slowCallMillis);
+        this.openDurationNanos = TimeUnit.MILLISECONDS.toNanos(openDurationMillis);
+        this.halfOpenPermittedCalls = halfOpenPermittedCalls;
+        this.window = new byte[windowSize];
+    }
+
+    /**
+     * 尝试获取调用许可
+     *
+     * @return false 表示熔断中，调用方应快速失败
+     */
+    public synchronized boolean tryAcquirePermission() {
+        switch (state) {
+            case CLOSED:
+                return true;
+            case OPEN:
+                if (System.nanoTime() - openedAt < openDurationNanos) {
+                    notPermittedCalls++;
+                    return false;
+                }
+                transitionTo(State.HALF_OPEN);
+                // fall through
+            case HALF_OPEN:
+            default:
+                if (halfOpenIssued < halfOpenPermittedCalls) {
+                    halfOpenIssued++;
+                    return true;
+                }
+                notPermittedCalls++;
+                return false;
+        }
+    }
+
+    /**
+     * 是否允许调用（只查看状态，不占用半开探测名额）
+     */
+    public synchronized boolean isCallPermitted() {
+        return switch (state) {
+            case CLOSED -> true;
+            case OPEN -> System.nanoTime() - openedAt >= openDurationNanos;
+            case HALF_OPEN -> halfOpenIssued < halfOpenPermittedCalls;
+        };
+    }
+
+    public synchronized void onSuccess(long durationNanos) {
+        record(durationNanos >= slowCallNanos ? (byte) (SUCCESS | SLOW) : SUCCESS);
+    }
+
+    public synchronized void onFailure(long durationNanos) {
+        record(durationNanos >= slowCallNanos ? (byte) (FAILURE | SLOW) : FAILURE);
+    }
+
+    /**
+     * 与后端健康无关的结束（例如被限流器拒绝），只归还半开探测名额
+     */
+    public synchronized void onIgnored() {
+        if (state == State.HALF_OPEN && halfOpenIssued > halfOpenCompleted) {
+            halfOpenIssued--;
+        }
+    }
+
+    private void record(byte outcome) {
+        if (state == State.OPEN) {
+            return;
+        }
+        window[cursor] = outcome;
+        cursor = (cursor + 1) % windowSize;
+        recorded = Math.min(recorded + 1, windowSize);
+
+        if (state == State.HALF_OPEN) {
+            halfOpenCompleted++;
+            if (halfOpenCompleted >= halfOpenPermittedCalls) {
+                transitionTo(exceedsThresholds(halfOpenCompleted) ? State.OPEN : State.CLOSED);
+            }
+            return;
+        }
+        if (recorded >= minimumCalls && exceedsThresholds(recorded)) {
+            transitionTo(State.OPEN);
+        }
+    }
+
+    /**
+     * 检查最近 count 次调用的失败率和慢调用率
+     */
+    private boolean exceedsThresholds(int count) {
+        int failures = 0;
+        int slow = 0;
+        for (int i = 1; i <= count; i++) {
+            byte outcome = window[(cursor - i + windowSize) % windowSize];
+            if ((outcome & FAILURE) != 0) {
+                failures++;
+            }
+            if ((outcome & SLOW) != 0) {
+                slow++;
+            }
+        }
+        return (double) failures / count >= failureRateThreshold
+                || (double) slow / count >= slowCallRateThreshold;
+    }
+
+    private void transitionTo(State newState) {
+        if (state == newState) {
+            return;
+        }
+        log.warn("Circuit breaker {} transitioned from {} to {}", name, state, newState);
+        state = newState;
+        halfOpenIssued = 0;
+        halfOpenCompleted = 0;
+        if (newState == State.OPEN) {
+            openedAt = System.nanoTime();
+        }
+        if (newState != State.HALF_OPEN) {
+            window = new byte[windowSize];
+            cursor = 0;
+            recorded = 0;
+        }
+    }
+
+    public String getName() { return name; }
+    public synchronized State getState() { return state; }
+    public synchronized long getNotPermittedCalls() { return notPermittedCalls; }
+
+    /**
+     * 当前窗口内的失败率
+     */
+    public synchronized double getFailureRate() {
+        if (recorded == 0) {
+            return 0.0;
+        }
+        int failures = 0;
+        for (int i = 0; i < windowSize; i++) {
+            if (window[i] != EMPTY && (window[i] & FAILURE) != 0) {
+                failures++;
+            }
+        }
+        return (double) failures / recorded;
+    }
+}
@@ -0,0 +1,79 @@
+package com.example.nextgen.common.chatmodel.breaker;
+
+import com.example.nextgen.common.chatmodel.ModelCallErrors;
+import com.example.nextgen.common.chatmodel.limit.ModelOverloadedException;
+import org.springframework.ai.chat.model.ChatModel;
+import org.springframework.ai.chat.model.ChatResponse;
+import org.springframework.ai.chat.prompt.ChatOptions;
+import org.springframework.ai.chat.prompt.Prompt;
+import reactor.core.publisher.Flux;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * 带熔断的模型装饰器
+ * 熔断打开时直接抛出 {@link CallNotPermittedException}，不再进入重试流程
+ */
+public class CircuitBreakerChatModel implements ChatModel {
+
+    private final ChatModel delegate;
+    private final CircuitBreaker circuitBreaker;
+
+    public CircuitBreakerChatModel(ChatModel delegate, CircuitBreaker circuitBreaker) {
+        this.delegate = delegate;
+        this.circuitBreaker = circuitBreaker;
+    }
+
+    @Override
+    public ChatResponse call(Prompt prompt) {
+        if (!circuitBreaker.tryAcquirePermission()) {
+            throw new CallNotPermittedException(circuitBreaker.getName());
+        }
+        long start = System.nanoTime();
+        try {
+            ChatResponse response = delegate.call(prompt);
+            circuitBreaker.onSuccess(System.nanoTime() - start);
+            return response;
+        } catch (RuntimeException e) {
+            onError(e, start);
+            throw e;
+        }
+    }
+
+    @Override
+    public Flux<ChatResponse> stream(Prompt prompt) {
+        return Flux.defer(() -> {
+            if (!circuitBreaker.tryAcquirePermission()) {
+                return Flux.error(new CallNotPermittedException(circuitBreaker.getName()));
+            }
+            long start = System.nanoTime();
+            AtomicBoolean received = new AtomicBoolean();
+            return delegate.stream(prompt)
+                    .doOnNext(response -> received.set(true))
+                    .doOnComplete(() -> circuitBreaker.onSuccess(System.nanoTime() - start))
+                    .doOnError(e -> onError(e, start))
+                    // 收到数据后被取消说明后端正常响应，按成功记录
+                    .doOnCancel(() -> {
+                        if (received.get()) {
+                            circuitBreaker.onSuccess(System.nanoTime() - start);
+                        } else {
+                            circuitBreaker.onIgnored();
+                        }
+                    });
+        });
+    }
+
+    @Override
+    public ChatOptions getDefaultOptions() {
+        return delegate.getDefaultOptions();
+    }
+
+    private void onError(Throwable error, long start) {
+        if (error instanceof ModelOverloadedException || ModelCallErrors.isInterruption(error)) {
+            // 本地限流拒绝、对冲落败被取消都不代表后端故障
+            circuitBreaker.onIgnored();
+        } else {
+            circuitBreaker.onFailure(System.nanoTime() - start);
+        }
+    }
+}
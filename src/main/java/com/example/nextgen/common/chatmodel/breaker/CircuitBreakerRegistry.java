@@ -0,0 +1,56 @@
+package com.example.nextgen.common.chatmodel.breaker;
+
+import com.example.nextgen.common.chatmodel.ChatModelProperties;
+import org.springframework.ai.chat.model.ChatModel;
+import org.springframework.stereotype.Component;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 熔断器注册中心，每个模型一个熔断器
+ */
+@Component
+public class CircuitBreakerRegistry {
+
+    private final ChatModelProperties.Breaker properties;
+    private final Map<String, CircuitBreaker> breakers = new ConcurrentHashMap<>();
+
+    public CircuitBreakerRegistry(ChatModelProperties properties) {
+        this.properties = properties.getBreaker();
+    }
+
+    /**
+     * 为模型加上熔断，未启用时原样返回
+     */
+    public ChatModel decorate(String modelName, ChatModel chatModel) {
+        if (!properties.isEnabled()) {
+            return chatModel;
+        }
+        return new CircuitBreakerChatModel(chatModel, get(modelName));
+    }
+
+    public CircuitBreaker get(String modelName) {
+        return breakers.computeIfAbsent(modelName, name -> new CircuitBreaker(name,
+                properties.getWindowSize(),
+                properties.getMinimumCalls(),
+                properties.getFailureRateThreshold(),
+                properties.getSlowCallRateThreshold(),
+                properties.getSlowCallMillis(),
+                properties.getOpenDurationMillis(),
+                properties.getHalfOpenPermittedCalls()));
+    }
+
+    /**
+     * 模型当前是否允许调用，没有熔断器时视为允许
+     */
+    public boolean isCallPermitted(String modelName) {
+        CircuitBreaker breaker = breakers.get(modelName);
+        return breaker == null || breaker.isCallPermitted();
+    }
+
+    public Map<String, CircuitBreaker> getAll() {
+        return Collections.unmodifiableMap(breakers);
+    }
+}
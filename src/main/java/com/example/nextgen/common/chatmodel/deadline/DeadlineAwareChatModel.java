@@ -0,0 +1,145 @@
+package com.example.nextgen.common.chatmodel.deadline;
+
+import com.example.nextgen.common.chatmodel.ChatModelProperties;
+import com.example.nextgen.common.chatmodel.ModelCallErrors;
+import com.example.nextgen.common.chatmodel.ModelCallStats;
+import com.example.nextgen.common.chatmodel.ModelStatsRegistry;
+import com.example.nextgen.common.chatmodel.PromptOptions;
+import com.example.nextgen.common.budget.CallBudget;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.ai.chat.model.ChatModel;
+import org.springframework.ai.chat.model.ChatResponse;
+import org.springframework.ai.chat.prompt.ChatOptions;
+import org.springframework.ai.chat.prompt.Prompt;
+import reactor.core.publisher.Flux;
+
+import java.util.List;
+
+/**
+ * 按截止时间降级的模型
+ * 按顺序配置若干档位（例如：主模型 -> 更快的模型 -> 更快的模型 + 更短的 max tokens），
+ * 每次调用根据当前线程的 {@link CallBudget} 和各档位的历史 p9x 延迟，选择第一个预计能在预算内返回的档位；
+ * 都不满足时使用最后一档。没有预算时总是使用第一档
+ */
+@Slf4j
+public class DeadlineAwareChatModel implements ChatModel {
+
+    private final String name;
+    private final List<Tier> tiers;
+    private final ModelStatsRegistry statsRegistry;
+    private final ChatModelProperties.Deadline properties;
+
+    public DeadlineAwareChatModel(String name, List<Tier> tiers, ModelStatsRegistry statsRegistry,
+                                  ChatModelProperties.Deadline properties) {
+        if (tiers == null || tiers.isEmpty()) {
+            throw new IllegalArgumentException("DeadlineAwareChatModel requires at least one tier");
+        }
+        this.name = name;
+        this.tiers = List.copyOf(tiers);
+        this.statsRegistry = statsRegistry;
+        this.properties = properties;
+    }
+
+    @Override
+    public ChatResponse call(Prompt prompt) {
+        int index = select(CallBudget.current());
+        Tier tier = tiers.get(index);
+        ModelCallStats stats = stats(tier);
+        long start = stats.onStart();
+        try {
+            ChatResponse response = tier.model().call(apply(tier, prompt));
+            stats.onSuccess(start);
+            return response;
+        } catch (RuntimeException e) {
+            if (ModelCallErrors.isInterruption(e)) {
+                stats.onCancel();
+            } else {
+                stats.onFailure(start);
+            }
+            throw e;
+        }
+    }
+
+    @Override
+    public Flux<ChatResponse> stream(Prompt prompt) {
+        // 预算绑定在调用线程上，选择档位必须在订阅前完成
+        Tier tier = tiers.get(select(CallBudget.current()));
+        return tier.model().stream(apply(tier, prompt));
+    }
+
+    @Override
+    public ChatOptions getDefaultOptions() {
+        return ChatOptions.builder().build();
+    }
+
+    /**
+     * 选择档位，并把降级记录到预算对象上
+     */
+    int select(CallBudget budget) {
+        if (budget == null || !budget.hasDeadline()) {
+            return 0;
+        }
+        long remaining = budget.remainingMillis();
+        int selected = tiers.size() - 1;
+        for (int i = 0; i < tiers.size(); i++) {
+            if (estimatedLatencyMillis(tiers.get(i)) <= remaining) {
+                selected = i;
+                break;
+            }
+        }
+        if (selected > 0) {
+            String degradation = name + " -> " + tiers.get(selected).name() + " (remaining " + remaining + " ms)";
+            log.info("Degrading model call to meet deadline: {}", degradation);
+            budget.recordDegradation(degradation);
+        }
+        return selected;
+    }
+
+    /**
+     * 档位的预计延迟，样本不足时视为0（先使用，积累样本）
+     */
+    private long estimatedLatencyMillis(Tier tier) {
+        ModelCallStats stats = stats(tier);
+        if (stats.sampleCount() < properties.getMinSamples()) {
+            return 0L;
+        }
+        return stats.latencyPercentile(properties.getPercentile());
+    }
+
+    private ModelCallStats stats(Tier tier) {
+        return statsRegistry.get(name + "." + tier.name());
+    }
+
+    /**
+     * 档位限制了 max tokens 时，在请求参数上应用
+     */
+    private static Prompt apply(Tier tier, Prompt prompt) {
+        return tier.maxTokens() == null ? prompt : PromptOptions.withMaxTokens(prompt, tier.maxTokens());
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public List<Tier> getTiers() {
+        return tiers;
+    }
+
+    /**
+     * 降级档位
+     *
+     * @param name      档位名称，延迟统计按 "模型名称.档位名称" 记录
+     * @param model     使用的模型
+     * @param maxTokens 限制的最大输出 token 数，为空表示不限制
+     */
+    public record Tier(String name, ChatModel model, Integer maxTokens) {
+
+        public static Tier of(String name, ChatModel model) {
+            return new Tier(name, model, null);
+        }
+
+        public static Tier of(String name, ChatModel model, Integer maxTokens) {
+            return new Tier(name, model, maxTokens);
+        }
+    }
+}
@@ -0,0 +1,59 @@
+package com.example.nextgen.common.chatmodel.deadline;
+
+import com.example.nextgen.common.chatmodel.ChatModelProperties;
+import com.example.nextgen.common.chatmodel.ModelStatsRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.ai.chat.model.ChatModel;
+import org.springframework.stereotype.Component;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 截止时间降级链注册中心
+ */
+@Slf4j
+@Component
+public class DeadlineFallbackRegistry {
+
+    private final ChatModelProperties.Deadline properties;
+    private final ModelStatsRegistry statsRegistry;
+    private final Map<String, DeadlineAwareChatModel> models = new ConcurrentHashMap<>();
+
+    public DeadlineFallbackRegistry(ChatModelProperties properties, ModelStatsRegistry statsRegistry) {
+        this.properties = properties.getDeadline();
+        this.statsRegistry = statsRegistry;
+    }
+
+    /**
+     * 创建按截止时间降级的模型，未启用时直接返回第一档
+     *
+     * @param tiers 按优先级排列的档位，第一档为正常使用的模型
+     */
+    public ChatModel withFallbacks(String name, List<DeadlineAwareChatModel.Tier> tiers) {
+        if (tiers == null || tiers.isEmpty()) {
+            throw new IllegalArgumentException("At least one tier is required");
+        }
+        if (!properties.isEnabled()) {
+            return tiers.get(0).model();
+        }
+        return models.computeIfAbsent(name, key -> {
+            log.info("Deadline fallback chain for {}: {}", key,
+                    tiers.stream().map(DeadlineAwareChatModel.Tier::name).toList());
+            return new DeadlineAwareChatModel(key, tiers, statsRegistry, properties);
+        });
+    }
+
+    /**
+     * 降级档位默认使用的最大输出 token 数
+     */
+    public int getFallbackMaxTokens() {
+        return properties.getFallbackMaxTokens();
+    }
+
+    public Map<String, DeadlineAwareChatModel> getAll() {
+        return Collections.unmodifiableMap(models);
+    }
+}
@@ -0,0 +1,47 @@
+package com.example.nextgen.common.chatmodel.hedge;
+
+/**
+ * 对冲预算（令牌桶）
+ * 每个原始请求存入 ratio 个令牌，每发出一个对冲请求消耗一个令牌，桶容量为 burst。
+ * 长期来看对冲请求不超过原始请求的 ratio 比例，后端变慢时也不会因对冲而放大负载
+ */
+public class HedgeBudget {
+
+    private final double ratio;
+    private final double burst;
+    private double tokens;
+
+    public HedgeBudget(double ratio, int burst) {
+        if (ratio < 0 || ratio > 1) {
+            throw new IllegalArgumentException("Hedge ratio must be between 0 and 1");
+        }
+        if (burst < 1) {
+            throw new IllegalArgumentException("Hedge burst must be at least 1");
+        }
+        this.ratio = ratio;
+        this.burst = burst;
+        this.tokens = burst;
+    }
+
+    /**
+     * 记录一个原始请求
+     */
+    public synchronized void onRequest() {
+        tokens = Math.min(burst, tokens + ratio);
+    }
+
+    /**
+     * 尝试获取一次对冲的额度
+     */
+    public synchronized boolean tryAcquire() {
+        if (tokens < 1.0) {
+            return false;
+        }
+        tokens -= 1.0;
+        return true;
+    }
+
+    public synchronized double getTokens() {
+        return tokens;
+    }
+}
@@ -0,0 +1,210 @@
+package com.example.nextgen.common.chatmodel.hedge;
+
+import com.example.nextgen.common.budget.CallBudget;
+import com.example.nextgen.common.chatmodel.ChatModelProperties;
+import com.example.nextgen.common.chatmodel.ModelCallErrors;
+import com.example.nextgen.common.chatmodel.ModelCallStats;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.ai.chat.model.ChatModel;
+import org.springframework.ai.chat.model.ChatResponse;
+import org.springframework.ai.chat.prompt.ChatOptions;
+import org.springframework.ai.chat.prompt.Prompt;
+import org.springframework.ai.model.tool.ToolCallingChatOptions;
+import reactor.core.publisher.Flux;
+
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BooleanSupplier;
+
+/**
+ * 对冲请求模型装饰器
+ * 请求超过主模型实时 p9x 延迟仍未返回时，向对冲目标（同一模型或另一个模型）再发一次相同请求，
+ * 先返回的结果生效，落败的一方被中断取消。对冲次数受 {@link HedgeBudget} 限制
+ *
+ * 只对 call 生效，stream 直接透传给主模型。带工具的请求不对冲（模型在调用内执行工具，对冲会重复执行工具的副作用），
+ * 直接在调用线程上请求主模型；线程池没有空闲线程时同样直接请求主模型，不排队、不对冲。
+ * 请求在线程池中执行时绑定调用方的 {@link CallBudget}，工具循环和截止时间照常生效
+ */
+@Slf4j
+public class HedgingChatModel implements ChatModel {
+
+    private final String name;
+    private final ChatModel primary;
+    private final ChatModel hedgeTarget;
+    private final BooleanSupplier hedgeTargetAvailable;
+    private final ModelCallStats stats;
+    private final HedgeBudget budget;
+    private final ThreadPoolExecutor executor;
+    private final ChatModelProperties.Hedge properties;
+
+    private final AtomicLong requests = new AtomicLong();
+    private final AtomicLong hedges = new AtomicLong();
+    private final AtomicLong hedgeWins = new AtomicLong();
+    private final AtomicLong budgetExhausted = new AtomicLong();
+
+    public HedgingChatModel(String name, ChatModel primary, ChatModel hedgeTarget, BooleanSupplier hedgeTargetAvailable,
+                            ModelCallStats stats, HedgeBudget budget, ThreadPoolExecutor executor,
+                            ChatModelProperties.Hedge properties) {
+        this.name = name;
+        this.primary = primary;
+        this.hedgeTarget = hedgeTarget != null ? hedgeTarget : primary;
+        this.hedgeTargetAvailable = hedgeTargetAvailable;
+        this.stats = stats;
+        this.budget = budget;
+        this.executor = executor;
+        this.properties = properties;
+    }
+
+    @Override
+    public ChatResponse call(Prompt prompt) {
+        requests.incrementAndGet();
+        if (hasTools(prompt)) {
+            return callDirectly(prompt);
+        }
+        budget.onRequest();
+
+        CallBudget callBudget = CallBudget.current();
+        CompletableFuture<ChatResponse> winner = new CompletableFuture<>();
+        AtomicInteger pending = new AtomicInteger(1);
+        Future<?> primaryTask;
+        try {
+            primaryTask = submit(primary, prompt, callBudget, winner, pending, true);
+        } catch (RejectedExecutionException e) {
+            return callDirectly(prompt);
+        }
+        Future<?> hedgeTask = null;
+        long delayMillis = hedgeDelayMillis();
+        try {
+            try {
+                return winner.get(delayMillis, TimeUnit.MILLISECONDS);
+            } catch (TimeoutException e) {
+                if (shouldHedge()) {
+                    hedges.incrementAndGet();
+                    log.debug("Hedging request on {} after {} ms", name, delayMillis);
+                    pending.incrementAndGet();
+                    try {
+                        hedgeTask = submit(hedgeTarget, prompt, callBudget, winner, pending, false);
+                    } catch (RejectedExecutionException rejected) {
+                        pending.decrementAndGet();
+                        log.debug("Hedge pool of {} is full, waiting for the primary request", name);
+                    }
+                }
+            }
+            return winner.get();
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            throw new IllegalStateException("Hedged call failed on " + name, e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for " + name, e);
+        } finally {
+            // 取消落败（或仍在进行中）的请求，已完成的任务不受影响
+            primaryTask.cancel(true);
+            if (hedgeTask != null) {
+                hedgeTask.cancel(true);
+            }
+        }
+    }
+
+    @Override
+    public Flux<ChatResponse> stream(Prompt prompt) {
+        return primary.stream(prompt);
+    }
+
+    @Override
+    public ChatOptions getDefaultOptions() {
+        return primary.getDefaultOptions();
+    }
+
+    /**
+     * 不对冲，在调用线程上请求主模型并记录耗时
+     */
+    private ChatResponse callDirectly(Prompt prompt) {
+        long start = stats.onStart();
+        try {
+            ChatResponse response = primary.call(prompt);
+            stats.onSuccess(start);
+            return response;
+        } catch (RuntimeException | Error e) {
+            if (ModelCallErrors.isInterruption(e)) {
+                stats.onCancel();
+            } else {
+                stats.onFailure(start);
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * 提交一次请求，成功时尝试成为胜者；全部请求都失败时以最后一个错误结束
+     * 只记录主请求的耗时，对冲延迟按单次请求的延迟分布计算
+     *
+     * @throws RejectedExecutionException 线程池没有空闲线程
+     */
+    private Future<?> submit(ChatModel model, Prompt prompt, CallBudget callBudget, CompletableFuture<ChatResponse> winner,
+                             AtomicInteger pending, boolean recordLatency) {
+        return executor.submit(() -> {
+            long start = recordLatency ? stats.onStart() : 0L;
+            try {
+                ChatResponse response = callBudget != null
+                        ? CallBudget.within(callBudget, () -> model.call(prompt))
+                        : model.call(prompt);
+                if (recordLatency) {
+                    stats.onSuccess(start);
+                }
+                if (winner.complete(response) && !recordLatency) {
+                    hedgeWins.incrementAndGet();
+                }
+            } catch (RuntimeException | Error e) {
+                if (recordLatency) {
+                    if (ModelCallErrors.isInterruption(e)) {
+                        stats.onCancel();
+                    } else {
+                        stats.onFailure(start);
+                    }
+                }
+                if (pending.decrementAndGet() == 0) {
+                    winner.completeExceptionally(e);
+                }
+            }
+        });
+    }
+
+    private static boolean hasTools(Prompt prompt) {
+        return prompt.getOptions() instanceof ToolCallingChatOptions options
+                && (!options.getToolCallbacks().isEmpty() || !options.getToolNames().isEmpty());
+    }
+
+    /**
+     * 对冲延迟：主请求延迟的 p9x，样本不足时使用初始延迟
+     */
+    long hedgeDelayMillis() {
+        if (stats.sampleCount() < properties.getMinSamples()) {
+            return properties.getInitialDelayMillis();
+        }
+        return Math.max(properties.getMinDelayMillis(), stats.latencyPercentile(properties.getPercentile()));
+    }
+
+    /**
+     * 对冲目标不可用（熔断/饱和）或线程池已满时不对冲，避免在过载时进一步放大负载
+     */
+    private boolean shouldHedge() {
+        if (!hedgeTargetAvailable.getAsBoolean() || executor.getActiveCount() >= executor.getMaximumPoolSize()) {
+            return false;
+        }
+        if (!budget.tryAcquire()) {
+            budgetExhausted.incrementAndGet();
+            return false;
+        }
+        return true;
+    }
+
+    public String getName() { return name; }
+    public long getRequests() { return requests.get(); }
+    public long getHedges() { return hedges.get(); }
+    public long getHedgeWins() { return hedgeWins.get(); }
+    public long getBudgetExhausted() { return budgetExhausted.get(); }
+}
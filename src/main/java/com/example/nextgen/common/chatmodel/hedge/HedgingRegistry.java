@@ -0,0 +1,132 @@
+package com.example.nextgen.common.chatmodel.hedge;
+
+import com.example.nextgen.common.chatmodel.ChatModelProperties;
+import com.example.nextgen.common.chatmodel.ModelStatsRegistry;
+import com.example.nextgen.common.chatmodel.breaker.CircuitBreakerRegistry;
+import com.example.nextgen.common.chatmodel.limit.AdaptiveConcurrencyLimiter;
+import com.example.nextgen.common.chatmodel.limit.ConcurrencyLimiterRegistry;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.ai.chat.model.ChatModel;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.stereotype.Component;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+
+/**
+ * 对冲请求注册中心
+ * 节点按需（opt-in）为模型创建对冲视图，所有视图共享一个执行线程池；每个视图有独立的延迟统计和对冲预算
+ */
+@Slf4j
+@Component
+public class HedgingRegistry {
+
+    private final ChatModelProperties.Hedge properties;
+    private final ModelStatsRegistry statsRegistry;
+    private final ConcurrencyLimiterRegistry limiterRegistry;
+    private final CircuitBreakerRegistry breakerRegistry;
+    private final ObjectProvider<MeterRegistry> meterRegistry;
+    private final ThreadPoolExecutor executor;
+    private final Map<String, HedgingChatModel> models = new ConcurrentHashMap<>();
+
+    public HedgingRegistry(ChatModelProperties properties, ModelStatsRegistry statsRegistry,
+                           ConcurrencyLimiterRegistry limiterRegistry, CircuitBreakerRegistry breakerRegistry,
+                           ObjectProvider<MeterRegistry> meterRegistry) {
+        this.properties = properties.getHedge();
+        this.statsRegistry = statsRegistry;
+        this.limiterRegistry = limiterRegistry;
+        this.breakerRegistry = breakerRegistry;
+        this.meterRegistry = meterRegistry;
+        this.executor = createExecutor(this.properties.getPoolSize());
+    }
+
+    /**
+     * 创建对冲视图，对冲请求发往主模型自身
+     *
+     * @param name 视图名称，延迟统计和指标按该名称记录
+     */
+    public ChatModel hedge(String name, ChatModel primary) {
+        return hedge(name, primary, null, null);
+    }
+
+    /**
+     * 创建对冲视图，对冲请求发往另一个模型Bean；该模型熔断或并发已满时不对冲
+     *
+     * @param name            视图名称，延迟统计和指标按该名称记录
+     * @param hedgeTargetName 对冲目标的模型Bean名称
+     */
+    public ChatModel hedge(String name, ChatModel primary, String hedgeTargetName, ChatModel hedgeTarget) {
+        if (!properties.isEnabled()) {
+            return primary;
+        }
+        return models.computeIfAbsent(name, key -> create(key, primary, hedgeTargetName, hedgeTarget));
+    }
+
+    public Map<String, HedgingChatModel> getAll() {
+        return Collections.unmodifiableMap(models);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    private HedgingChatModel create(String name, ChatModel primary, String hedgeTargetName, ChatModel hedgeTarget) {
+        HedgingChatModel model = new HedgingChatModel(name, primary, hedgeTarget, availability(hedgeTargetName),
+                statsRegistry.get(name), new HedgeBudget(properties.getBudgetRatio(), properties.getBudgetBurst()),
+                executor, properties);
+        meterRegistry.ifAvailable(registry -> {
+            FunctionCounter.builder("nextgen.model.hedge.requests", model, HedgingChatModel::getRequests)
+                    .tag("model", name)
+                    .register(registry);
+            FunctionCounter.builder("nextgen.model.hedge.sent", model, HedgingChatModel::getHedges)
+                    .tag("model", name)
+                    .register(registry);
+            FunctionCounter.builder("nextgen.model.hedge.wins", model, HedgingChatModel::getHedgeWins)
+                    .tag("model", name)
+                    .register(registry);
+            FunctionCounter.builder("nextgen.model.hedge.budget.exhausted", model, HedgingChatModel::getBudgetExhausted)
+                    .tag("model", name)
+                    .register(registry);
+        });
+        log.info("Hedging enabled for {} (hedge target: {})", name, hedgeTargetName != null ? hedgeTargetName : "self");
+        return model;
+    }
+
+    /**
+     * 对冲目标是否可用：未熔断且并发未满
+     */
+    private BooleanSupplier availability(String hedgeTargetName) {
+        if (hedgeTargetName == null) {
+            return () -> true;
+        }
+        return () -> {
+            if (!breakerRegistry.isCallPermitted(hedgeTargetName)) {
+                return false;
+            }
+            AdaptiveConcurrencyLimiter limiter = limiterRegistry.find(hedgeTargetName);
+            return limiter == null || limiter.getInFlight() < limiter.getLimit();
+        };
+    }
+
+    /**
+     * 不排队：没有空闲线程时拒绝提交，主请求改为在调用线程上直接执行
+     */
+    private static ThreadPoolExecutor createExecutor(int poolSize) {
+        AtomicInteger counter = new AtomicInteger();
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(poolSize, poolSize, 60L, TimeUnit.SECONDS,
+                new SynchronousQueue<>(), runnable -> {
+            Thread thread = new Thread(runnable, "model-hedge-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        executor.allowCoreThreadTimeOut(true);
+        return executor;
+    }
+}
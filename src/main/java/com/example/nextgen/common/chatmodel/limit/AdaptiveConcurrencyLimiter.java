@@ -0,0 +1,133 @@
+package com.example.nextgen.common.chatmodel.limit;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * 自适应并发限制器
+ * 在途请求数达到算法给出的上限时，新请求最多等待 maxWait，超时后拒绝
+ */
+public class AdaptiveConcurrencyLimiter {
+
+    private final String name;
+    private final LimitAlgorithm algorithm;
+    private final long maxWaitNanos;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition released = lock.newCondition();
+    private int inFlight;
+
+    private final AtomicLong acquired = new AtomicLong();
+    private final AtomicLong rejections = new AtomicLong();
+    private final AtomicLong drops = new AtomicLong();
+
+    public AdaptiveConcurrencyLimiter(String name, LimitAlgorithm algorithm, long maxWaitMillis) {
+        this.name = name;
+        this.algorithm = algorithm;
+        this.maxWaitNanos = TimeUnit.MILLISECONDS.toNanos(maxWaitMillis);
+    }
+
+    /**
+     * 获取许可
+     *
+     * @throws ModelOverloadedException 等待超时
+     */
+    public Permit acquire() {
+        lock.lock();
+        try {
+            long remaining = maxWaitNanos;
+            while (inFlight >= algorithm.getLimit()) {
+                if (remaining <= 0) {
+                    rejections.incrementAndGet();
+                    throw new ModelOverloadedException(name, algorithm.getLimit());
+                }
+                remaining = released.awaitNanos(remaining);
+            }
+            inFlight++;
+            acquired.incrementAndGet();
+            return new Permit(inFlight);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            rejections.incrementAndGet();
+            throw new ModelOverloadedException(name, algorithm.getLimit());
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void release(Permit permit, boolean dropped, boolean sample) {
+        if (sample) {
+            algorithm.onSample(System.nanoTime() - permit.startNanos, permit.inFlightAtStart, dropped);
+        }
+        if (dropped) {
+            drops.incrementAndGet();
+        }
+        lock.lock();
+        try {
+            inFlight--;
+            released.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public String getName() { return name; }
+    public String getAlgorithmName() { return algorithm.getName(); }
+    public int getLimit() { return algorithm.getLimit(); }
+    public long getAcquired() { return acquired.get(); }
+    public long getRejections() { return rejections.get(); }
+    public long getDrops() { return drops.get(); }
+
+    public int getInFlight() {
+        lock.lock();
+        try {
+            return inFlight;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * 并发许可，每个许可只能释放一次
+     */
+    public class Permit {
+        private final long startNanos = System.nanoTime();
+        private final int inFlightAtStart;
+        private boolean released;
+
+        private Permit(int inFlightAtStart) {
+            this.inFlightAtStart = inFlightAtStart;
+        }
+
+        /**
+         * 调用成功
+         */
+        public void onSuccess() {
+            release(false, true);
+        }
+
+        /**
+         * 调用被限流或过载
+         */
+        public void onDropped() {
+            release(true, true);
+        }
+
+        /**
+         * 与容量无关的失败（参数错误等），只释放许可不记录样本
+         */
+        public void onIgnore() {
+            release(false, false);
+        }
+
+        private synchronized void release(boolean dropped, boolean sample) {
+            if (released) {
+                return;
+            }
+            released = true;
+            AdaptiveConcurrencyLimiter.this.release(this, dropped, sample);
+        }
+    }
+}
@@ -0,0 +1,49 @@
+package com.example.nextgen.common.chatmodel.limit;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 加性增、乘性减（AIMD）
+ * 请求成功且并发接近上限时上限加一；遇到限流或耗时超过阈值时按比例回退
+ */
+public class AimdLimit implements LimitAlgorithm {
+
+    private final int minLimit;
+    private final int maxLimit;
+    private final double backoffRatio;
+    private final long timeoutNanos;
+    private volatile int limit;
+
+    public AimdLimit(int initialLimit, int minLimit, int maxLimit, double backoffRatio, long timeoutMillis) {
+        if (backoffRatio <= 0 || backoffRatio >= 1) {
+            throw new IllegalArgumentException("Backoff ratio must be in (0, 1)");
+        }
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.backoffRatio = backoffRatio;
+        this.timeoutNanos = TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+        this.limit = Math.max(minLimit, Math.min(maxLimit, initialLimit));
+    }
+
+    @Override
+    public synchronized void onSample(long rttNanos, int inFlight, boolean dropped) {
+        int current = limit;
+        if (dropped || rttNanos > timeoutNanos) {
+            current = (int) Math.floor(current * backoffRatio);
+        } else if (inFlight * 2 >= current) {
+            // 只有在上限确实被用到一半以上时才增加，避免空闲时上限无限增长
+            current = current + 1;
+        }
+        limit = Math.max(minLimit, Math.min(maxLimit, current));
+    }
+
+    @Override
+    public int getLimit() {
+        return limit;
+    }
+
+    @Override
+    public String getName() {
+        return "aimd";
+    }
+}
@@ -0,0 +1,91 @@
+package com.example.nextgen.common.chatmodel.limit;
+
+import org.springframework.ai.chat.model.ChatModel;
+import org.springframework.ai.chat.model.ChatResponse;
+import org.springframework.ai.chat.prompt.ChatOptions;
+import org.springframework.ai.chat.prompt.Prompt;
+import org.springframework.ai.retry.TransientAiException;
+import org.springframework.web.client.HttpClientErrorException;
+import reactor.core.publisher.Flux;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * 带自适应并发限制的模型装饰器
+ */
+public class ConcurrencyLimitedChatModel implements ChatModel {
+
+    private final ChatModel delegate;
+    private final AdaptiveConcurrencyLimiter limiter;
+
+    public ConcurrencyLimitedChatModel(ChatModel delegate, AdaptiveConcurrencyLimiter limiter) {
+        this.delegate = delegate;
+        this.limiter = limiter;
+    }
+
+    @Override
+    public ChatResponse call(Prompt prompt) {
+        AdaptiveConcurrencyLimiter.Permit permit = limiter.acquire();
+        try {
+            ChatResponse response = delegate.call(prompt);
+            permit.onSuccess();
+            return response;
+        } catch (RuntimeException e) {
+            release(permit, e);
+            throw e;
+        }
+    }
+
+    @Override
+    public Flux<ChatResponse> stream(Prompt prompt) {
+        return Flux.defer(() -> {
+            AdaptiveConcurrencyLimiter.Permit permit = limiter.acquire();
+            AtomicBoolean received = new AtomicBoolean();
+            return delegate.stream(prompt)
+                    .doOnNext(response -> received.set(true))
+                    .doOnComplete(permit::onSuccess)
+                    .doOnError(e -> release(permit, e))
+                    // 收到数据后取消（调用方已拿到所需内容）按成功记录，之前取消只释放许可
+                    .doOnCancel(() -> {
+                        if (received.get()) {
+                            permit.onSuccess();
+                        } else {
+                            permit.onIgnore();
+                        }
+                    });
+        });
+    }
+
+    @Override
+    public ChatOptions getDefaultOptions() {
+        return delegate.getDefaultOptions();
+    }
+
+    public ChatModel getDelegate() {
+        return delegate;
+    }
+
+    private void release(AdaptiveConcurrencyLimiter.Permit permit, Throwable error) {
+        if (isOverload(error)) {
+            permit.onDropped();
+        } else {
+            permit.onIgnore();
+        }
+    }
+
+    /**
+     * 429 和服务端瞬时错误视为过载信号
+     */
+    static boolean isOverload(Throwable error) {
+        for (Throwable t = error; t != null; t = t.getCause()) {
+            if (t instanceof HttpClientErrorException.TooManyRequests || t instanceof TransientAiException) {
+                return true;
+            }
+            String message = t.getMessage();
+            if (message != null && (message.startsWith("429") || message.contains("Too Many Requests"))) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,85 @@
+package com.example.nextgen.common.chatmodel.limit;
+
+import com.example.nextgen.common.chatmodel.ChatModelProperties;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.ai.chat.model.ChatModel;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.stereotype.Component;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 并发限制器注册中心
+ * 每个模型Bean一个独立的限制器，并把当前上限和拒绝次数注册为指标
+ */
+@Slf4j
+@Component
+public class ConcurrencyLimiterRegistry {
+
+    private final ChatModelProperties.Limiter properties;
+    private final ObjectProvider<MeterRegistry> meterRegistry;
+    private final Map<String, AdaptiveConcurrencyLimiter> limiters = new ConcurrentHashMap<>();
+
+    public ConcurrencyLimiterRegistry(ChatModelProperties properties, ObjectProvider<MeterRegistry> meterRegistry) {
+        this.properties = properties.getLimiter();
+        this.meterRegistry = meterRegistry;
+    }
+
+    /**
+     * 为模型加上并发限制，未启用时原样返回
+     */
+    public ChatModel decorate(String modelName, ChatModel chatModel) {
+        if (!properties.isEnabled()) {
+            return chatModel;
+        }
+        return new ConcurrencyLimitedChatModel(chatModel, get(modelName));
+    }
+
+    /**
+     * 获取模型的限制器，不存在时创建
+     */
+    public AdaptiveConcurrencyLimiter get(String modelName) {
+        return limiters.computeIfAbsent(modelName, this::create);
+    }
+
+    /**
+     * 查找模型的限制器，未启用限流时返回null
+     */
+    public AdaptiveConcurrencyLimiter find(String modelName) {
+        return limiters.get(modelName);
+    }
+
+    public Map<String, AdaptiveConcurrencyLimiter> getAll() {
+        return Collections.unmodifiableMap(limiters);
+    }
+
+    private AdaptiveConcurrencyLimiter create(String modelName) {
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(modelName, createAlgorithm(), properties.getMaxWaitMillis());
+        meterRegistry.ifAvailable(registry -> {
+            Gauge.builder("nextgen.model.concurrency.limit", limiter, AdaptiveConcurrencyLimiter::getLimit)
+                    .tag("model", modelName)
+                    .register(registry);
+            Gauge.builder("nextgen.model.concurrency.inflight", limiter, AdaptiveConcurrencyLimiter::getInFlight)
+                    .tag("model", modelName)
+                    .register(registry);
+            Gauge.builder("nextgen.model.concurrency.rejections", limiter, AdaptiveConcurrencyLimiter::getRejections)
+                    .tag("model", modelName)
+                    .register(registry);
+        });
+        log.info("Concurrency limiter created for model {} with algorithm {}", modelName, limiter.getAlgorithmName());
+        return limiter;
+    }
+
+    private LimitAlgorithm createAlgorithm() {
+        return switch (properties.getAlgorithm()) {
+            case AIMD -> new AimdLimit(properties.getInitialLimit(), properties.getMinLimit(), properties.getMaxLimit(),
+                    properties.getBackoffRatio(), properties.getTimeoutMillis());
+            case GRADIENT -> new GradientLimit(properties.getInitialLimit(), properties.getMinLimit(), properties.getMaxLimit(),
+                    properties.getSmoothing(), properties.getLongWindow(), properties.getTolerance());
+        };
+    }
+}
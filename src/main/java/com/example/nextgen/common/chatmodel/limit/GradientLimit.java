@@ -0,0 +1,74 @@
+package com.example.nextgen.common.chatmodel.limit;
+
+/**
+ * 梯度算法（Vegas/Gradient 风格）
+ * 比较长期基线耗时与短期耗时：耗时保持平稳时上限按 sqrt(limit) 的排队余量增长，
+ * 耗时膨胀时按比例收缩；遇到限流直接减半
+ */
+public class GradientLimit implements LimitAlgorithm {
+
+    private final int minLimit;
+    private final int maxLimit;
+    private final double smoothing;
+    private final double longWindowWeight;
+    private final double tolerance;
+
+    private double estimatedLimit;
+    private double shortRttNanos;
+    private double longRttNanos;
+    private volatile int limit;
+
+    /**
+     * @param smoothing  新上限的平滑系数（0~1），越大变化越快
+     * @param longWindow 长期基线覆盖的样本数量
+     * @param tolerance  允许的耗时膨胀比例，例如 1.5 表示短期耗时达到基线 1.5 倍才开始收缩
+     */
+    public GradientLimit(int initialLimit, int minLimit, int maxLimit, double smoothing, int longWindow, double tolerance) {
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.smoothing = smoothing;
+        this.longWindowWeight = 2.0 / (Math.max(1, longWindow) + 1);
+        this.tolerance = tolerance;
+        this.estimatedLimit = Math.max(minLimit, Math.min(maxLimit, initialLimit));
+        this.limit = (int) estimatedLimit;
+    }
+
+    @Override
+    public synchronized void onSample(long rttNanos, int inFlight, boolean dropped) {
+        if (dropped) {
+            estimatedLimit = Math.max(minLimit, estimatedLimit / 2);
+            limit = (int) estimatedLimit;
+            return;
+        }
+
+        shortRttNanos = shortRttNanos == 0 ? rttNanos : shortRttNanos * 0.5 + rttNanos * 0.5;
+        longRttNanos = longRttNanos == 0 ? rttNanos : longRttNanos * (1 - longWindowWeight) + rttNanos * longWindowWeight;
+
+        // 长期基线明显高于短期耗时，说明负载已下降，让基线更快回落
+        if (longRttNanos / shortRttNanos > 2) {
+            longRttNanos = longRttNanos * 0.95;
+        }
+
+        // 空闲时不增长上限
+        if (inFlight < estimatedLimit / 2) {
+            return;
+        }
+
+        double gradient = Math.max(0.5, Math.min(1.0, tolerance * longRttNanos / shortRttNanos));
+        double queueSize = Math.sqrt(estimatedLimit);
+        double newLimit = estimatedLimit * gradient + queueSize;
+        newLimit = estimatedLimit * (1 - smoothing) + newLimit * smoothing;
+        estimatedLimit = Math.max(minLimit, Math.min(maxLimit, newLimit));
+        limit = (int) estimatedLimit;
+    }
+
+    @Override
+    public int getLimit() {
+        return limit;
+    }
+
+    @Override
+    public String getName() {
+        return "gradient";
+    }
+}
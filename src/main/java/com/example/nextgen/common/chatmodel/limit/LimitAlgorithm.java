@@ -0,0 +1,27 @@
+package com.example.nextgen.common.chatmodel.limit;
+
+/**
+ * 并发上限算法
+ * 根据每次调用的耗时和结果调整允许的在途请求数
+ */
+public interface LimitAlgorithm {
+
+    /**
+     * 当前并发上限
+     */
+    int getLimit();
+
+    /**
+     * 记录一次调用样本
+     *
+     * @param rttNanos 调用耗时（纳秒）
+     * @param inFlight 调用开始时的在途请求数
+     * @param dropped  是否被服务端限流（429）或判定为过载
+     */
+    void onSample(long rttNanos, int inFlight, boolean dropped);
+
+    /**
+     * 算法名称
+     */
+    String getName();
+}
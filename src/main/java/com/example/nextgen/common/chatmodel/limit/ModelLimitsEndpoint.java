@@ -0,0 +1,48 @@
+package com.example.nextgen.common.chatmodel.limit;
+
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.actuate.endpoint.annotation.Selector;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * 模型并发限制端点
+ * GET /actuator/modellimits 查看各模型当前的并发上限、在途请求数和拒绝次数
+ */
+@Component
+@Endpoint(id = "modellimits")
+public class ModelLimitsEndpoint {
+
+    private final ConcurrencyLimiterRegistry limiterRegistry;
+
+    public ModelLimitsEndpoint(ConcurrencyLimiterRegistry limiterRegistry) {
+        this.limiterRegistry = limiterRegistry;
+    }
+
+    @ReadOperation
+    public Map<String, Map<String, Object>> limits() {
+        Map<String, Map<String, Object>> result = new LinkedHashMap<>();
+        limiterRegistry.getAll().forEach((name, limiter) -> result.put(name, describe(limiter)));
+        return result;
+    }
+
+    @ReadOperation
+    public Map<String, Object> limit(@Selector String model) {
+        AdaptiveConcurrencyLimiter limiter = limiterRegistry.find(model);
+        return limiter != null ? describe(limiter) : null;
+    }
+
+    private Map<String, Object> describe(AdaptiveConcurrencyLimiter limiter) {
+        Map<String, Object> info = new LinkedHashMap<>();
+        info.put("algorithm", limiter.getAlgorithmName());
+        info.put("limit", limiter.getLimit());
+        info.put("inFlight", limiter.getInFlight());
+        info.put("acquired", limiter.getAcquired());
+        info.put("rejections", limiter.getRejections());
+        info.put("drops", limiter.getDrops());
+        return info;
+    }
+}
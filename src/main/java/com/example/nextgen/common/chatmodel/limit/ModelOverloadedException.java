@@ -0,0 +1,18 @@
+package com.example.nextgen.common.chatmodel.limit;
+
+/**
+ * 模型并发已达上限且等待超时
+ */
+public class ModelOverloadedException extends RuntimeException {
+
+    private final String modelName;
+
+    public ModelOverloadedException(String modelName, int limit) {
+        super("Model " + modelName + " is overloaded, concurrency limit " + limit + " reached");
+        this.modelName = modelName;
+    }
+
+    public String getModelName() {
+        return modelName;
+    }
+}
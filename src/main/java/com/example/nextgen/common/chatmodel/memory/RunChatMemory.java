@@ -0,0 +1,286 @@
+package com.example.nextgen.common.chatmodel.memory;
+
+import com.example.nextgen.common.budget.CallBudget;
+import com.example.nextgen.common.chatmodel.ChatModelProperties;
+import com.example.nextgen.common.chatmodel.PromptOptions;
+import com.example.nextgen.common.chatmodel.usage.TokenUsageRegistry;
+import com.example.nextgen.domain.event.WorkflowEvent;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.ai.chat.client.ChatClient;
+import org.springframework.ai.chat.memory.ChatMemory;
+import org.springframework.ai.chat.messages.Message;
+import org.springframework.ai.chat.messages.SystemMessage;
+import org.springframework.ai.chat.messages.UserMessage;
+import org.springframework.ai.chat.metadata.Usage;
+import org.springframework.ai.chat.model.ChatModel;
+import org.springframework.ai.chat.model.ChatResponse;
+import org.springframework.ai.chat.prompt.Prompt;
+import org.springframework.ai.tokenizer.JTokkitTokenCountEstimator;
+import org.springframework.ai.tokenizer.TokenCountEstimator;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+/**
+ * 工作流运行内的对话记忆
+ * 会话按 "工作流实例ID/链名称" 隔离，同一次运行中使用同一链名称的节点共享对话；
+ * 每个会话只保留最近的若干条消息（条数和 token 数双重上限），更早的消息在后台压缩为摘要，
+ * 读取时以 "摘要 + 待压缩消息 + 最近消息" 的形式返回；运行结束（完成或失败）时回收该运行的全部会话
+ *
+ * 替换 spring-ai 默认的 MessageWindowChatMemory（不会回收，也没有 token 上限）
+ */
+@Slf4j
+@Component
+public class RunChatMemory implements ChatMemory {
+
+    private static final String SUMMARY_INSTRUCTION = "把以下对话压缩为简洁的摘要，保留事实、结论、用户偏好和未完成的事项，只输出摘要";
+    private static final String SUMMARY_PREFIX = "以下是之前对话的摘要：\n";
+
+    private final ChatModelProperties.Memory properties;
+    private final Map<String, ChatModel> chatModels;
+    private final TokenUsageRegistry usageRegistry;
+    private final TokenCountEstimator estimator = new JTokkitTokenCountEstimator();
+    private final Map<String, Conversation> conversations = new ConcurrentHashMap<>();
+    private final ScheduledThreadPoolExecutor executor;
+
+    public RunChatMemory(ChatModelProperties properties, Map<String, ChatModel> chatModels,
+                         TokenUsageRegistry usageRegistry, ObjectProvider<MeterRegistry> meterRegistry) {
+        this.properties = properties.getMemory();
+        this.chatModels = chatModels;
+        this.usageRegistry = usageRegistry;
+        AtomicInteger counter = new AtomicInteger();
+        this.executor = new ScheduledThreadPoolExecutor(2, runnable -> {
+            Thread thread = new Thread(runnable, "chat-memory-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.executor.scheduleWithFixedDelay(this::evictIdle, 1, 1, TimeUnit.MINUTES);
+        meterRegistry.ifAvailable(registry -> Gauge.builder("nextgen.chat.memory.conversations", conversations, Map::size)
+                .register(registry));
+    }
+
+    /**
+     * 会话ID
+     *
+     * @param workflowId 工作流实例ID
+     * @param chain      链名称，同一次运行中使用相同链名称的节点共享对话
+     */
+    public static String conversationId(String workflowId, String chain) {
+        return workflowId + "/" + chain;
+    }
+
+    /**
+     * 当前工作流运行中指定链的会话，配合 {@link com.example.nextgen.common.chatmodel.ChatClientRegistry#MEMORY_CHAIN} 使用：
+     * <pre>
+     *   chatClient.prompt().user(...).advisors(RunChatMemory.inCurrentRun("agent")).call()
+     * </pre>
+     */
+    public static Consumer<ChatClient.AdvisorSpec> inCurrentRun(String chain) {
+        CallBudget budget = CallBudget.current();
+        if (budget == null || budget.getWorkflowId() == null) {
+            throw new IllegalStateException("Run chat memory can only be used while a workflow node is executing");
+        }
+        String conversationId = conversationId(budget.getWorkflowId(), chain);
+        return advisor -> advisor.param(ChatMemory.CONVERSATION_ID, conversationId);
+    }
+
+    @Override
+    public void add(String conversationId, List<Message> messages) {
+        if (messages == null || messages.isEmpty()) {
+            return;
+        }
+        Conversation conversation = conversations.computeIfAbsent(conversationId, key -> new Conversation());
+        boolean startSummary;
+        synchronized (conversation) {
+            conversation.touch();
+            for (Message message : messages) {
+                conversation.messages.addLast(message);
+                conversation.tokens += estimate(message);
+            }
+            startSummary = compact(conversation);
+        }
+        if (startSummary) {
+            executor.execute(() -> summarize(conversationId, conversation));
+        }
+    }
+
+    @Override
+    public List<Message> get(String conversationId) {
+        Conversation conversation = conversations.get(conversationId);
+        if (conversation == null) {
+            return List.of();
+        }
+        synchronized (conversation) {
+            conversation.touch();
+            List<Message> result = new ArrayList<>(conversation.pending.size() + conversation.messages.size() + 1);
+            if (conversation.summary != null) {
+                result.add(new SystemMessage(SUMMARY_PREFIX + conversation.summary));
+            }
+            result.addAll(conversation.pending);
+            result.addAll(conversation.messages);
+            return result;
+        }
+    }
+
+    @Override
+    public void clear(String conversationId) {
+        conversations.remove(conversationId);
+    }
+
+    /**
+     * 回收一次运行的全部会话
+     */
+    public void evictRun(String workflowId) {
+        String prefix = workflowId + "/";
+        conversations.keySet().removeIf(key -> key.startsWith(prefix));
+    }
+
+    @EventListener
+    public void onWorkflowCompleted(WorkflowEvent.WorkflowCompleted event) {
+        evictRun(event.getWorkflowId().getValue());
+    }
+
+    @EventListener
+    public void onWorkflowFailed(WorkflowEvent.WorkflowFailed event) {
+        evictRun(event.getWorkflowId().getValue());
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    public int getConversationCount() {
+        return conversations.size();
+    }
+
+    /**
+     * 超出条数或 token 上限时，把最早的消息移入待压缩队列；需要启动后台压缩时返回true
+     */
+    private boolean compact(Conversation conversation) {
+        int evicted = 0;
+        while (conversation.messages.size() > 1
+                && (conversation.messages.size() > properties.getMaxMessages() || conversation.tokens > properties.getMaxTokens())) {
+            evict(conversation);
+            evicted++;
+        }
+        // 不保留没有提问的回答
+        while (evicted > 0 && conversation.messages.size() > 1 && !(conversation.messages.peekFirst() instanceof UserMessage)) {
+            evict(conversation);
+        }
+        // 压缩模型不可用时待压缩队列也不能无限增长
+        while (conversation.pending.size() > properties.getMaxMessages()) {
+            conversation.pending.pollFirst();
+        }
+        if (evicted == 0 || conversation.summarizing) {
+            return false;
+        }
+        conversation.summarizing = true;
+        return true;
+    }
+
+    private void evict(Conversation conversation) {
+        Message message = conversation.messages.pollFirst();
+        conversation.tokens -= estimate(message);
+        conversation.pending.addLast(message);
+    }
+
+    /**
+     * 后台压缩：把待压缩消息合并进摘要，直到队列为空
+     */
+    private void summarize(String conversationId, Conversation conversation) {
+        try {
+            while (true) {
+                String previous;
+                List<Message> batch;
+                synchronized (conversation) {
+                    if (conversation.pending.isEmpty() || conversations.get(conversationId) != conversation) {
+                        conversation.summarizing = false;
+                        return;
+                    }
+                    previous = conversation.summary;
+                    batch = new ArrayList<>(conversation.pending);
+                }
+                String summary = callSummaryModel(previous, batch);
+                synchronized (conversation) {
+                    conversation.summary = summary;
+                    Set<Message> summarized = Collections.newSetFromMap(new IdentityHashMap<>());
+                    summarized.addAll(batch);
+                    conversation.pending.removeIf(summarized::contains);
+                }
+            }
+        } catch (RuntimeException e) {
+            log.warn("Failed to summarize chat memory {}: {}", conversationId, e.getMessage());
+            synchronized (conversation) {
+                conversation.summarizing = false;
+            }
+        }
+    }
+
+    private String callSummaryModel(String previous, List<Message> batch) {
+        ChatModel model = chatModels.get(properties.getSummaryModel());
+        if (model == null) {
+            throw new IllegalStateException("Summary model not found: " + properties.getSummaryModel());
+        }
+        StringBuilder text = new StringBuilder();
+        if (previous != null) {
+            text.append("已有摘要：\n").append(previous).append("\n\n");
+        }
+        text.append("新的对话：\n");
+        for (Message message : batch) {
+            text.append(message.getMessageType().getValue()).append(": ").append(message.getText()).append('\n');
+        }
+        Prompt prompt = PromptOptions.withMaxTokens(
+                new Prompt(List.of(new SystemMessage(SUMMARY_INSTRUCTION), new UserMessage(text.toString()))),
+                properties.getSummaryMaxTokens());
+        ChatResponse response = model.call(prompt);
+        recordUsage(response);
+        return response.getResult().getOutput().getText();
+    }
+
+    private void recordUsage(ChatResponse response) {
+        Usage usage = response.getMetadata() != null ? response.getMetadata().getUsage() : null;
+        if (usage == null || usage.getTotalTokens() == null || usage.getTotalTokens() <= 0) {
+            return;
+        }
+        usageRegistry.record(response.getMetadata().getModel(), null, "chat-memory-summary",
+                usage.getPromptTokens() != null ? usage.getPromptTokens() : 0L,
+                usage.getCompletionTokens() != null ? usage.getCompletionTokens() : 0L);
+    }
+
+    private void evictIdle() {
+        long cutoff = System.currentTimeMillis() - TimeUnit.MINUTES.toMillis(properties.getIdleTtlMinutes());
+        conversations.values().removeIf(conversation -> conversation.lastAccess < cutoff);
+    }
+
+    private int estimate(Message message) {
+        String text = message.getText();
+        return text != null ? estimator.estimate(text) : 0;
+    }
+
+    private static final class Conversation {
+        private final Deque<Message> messages = new ArrayDeque<>();
+        /**
+         * 已移出窗口、等待合并进摘要的消息
+         */
+        private final Deque<Message> pending = new ArrayDeque<>();
+        private int tokens;
+        private String summary;
+        private boolean summarizing;
+        private volatile long lastAccess = System.currentTimeMillis();
+
+        private void touch() {
+            lastAccess = System.currentTimeMillis();
+        }
+    }
+}
@@ -0,0 +1,187 @@
+package com.example.nextgen.common.chatmodel.tool;
+
+import com.example.nextgen.common.budget.CallBudget;
+import com.example.nextgen.common.chatmodel.ChatModelProperties;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.ai.chat.messages.AssistantMessage;
+import org.springframework.ai.chat.messages.Message;
+import org.springframework.ai.chat.messages.ToolResponseMessage;
+import org.springframework.ai.chat.model.ChatResponse;
+import org.springframework.ai.chat.model.Generation;
+import org.springframework.ai.chat.prompt.Prompt;
+import org.springframework.ai.model.tool.ToolCallingChatOptions;
+import org.springframework.ai.model.tool.ToolCallingManager;
+import org.springframework.ai.model.tool.ToolExecutionResult;
+import org.springframework.ai.tool.definition.ToolDefinition;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+
+/**
+ * 并发执行工具调用
+ * 模型在一轮中请求多个工具时，每个工具调用拆成单独的请求交给原 ToolCallingManager 在线程池中并发执行
+ * （工具解析、观测、异常处理保持原有行为），再把所有结果按请求顺序合并为一条工具响应消息，在同一个后续轮次中返回给模型；
+ * 本轮耗时取决于最慢的工具。单个工具超时（从开始执行时计时，同时不超过节点剩余时间）时取消该调用，并把超时信息作为该工具的结果返回
+ */
+@Slf4j
+public class ParallelToolCallingManager implements ToolCallingManager {
+
+    private final ToolCallingManager delegate;
+    private final ExecutorService executor;
+    private final ChatModelProperties.Tools properties;
+    private final ToolCallExecutor.Listener listener;
+
+    ParallelToolCallingManager(ToolCallingManager delegate, ExecutorService executor,
+                               ChatModelProperties.Tools properties, ToolCallExecutor.Listener listener) {
+        this.delegate = delegate;
+        this.executor = executor;
+        this.properties = properties;
+        this.listener = listener;
+    }
+
+    @Override
+    public List<ToolDefinition> resolveToolDefinitions(ToolCallingChatOptions chatOptions) {
+        return delegate.resolveToolDefinitions(chatOptions);
+    }
+
+    @Override
+    public ToolExecutionResult executeToolCalls(Prompt prompt, ChatResponse chatResponse) {
+        if (!properties.isParallel()) {
+            return delegate.executeToolCalls(prompt, chatResponse);
+        }
+        AssistantMessage assistantMessage = chatResponse.getResults().stream()
+                .map(Generation::getOutput)
+                .filter(AssistantMessage::hasToolCalls)
+                .findFirst()
+                .orElseThrow(() -> new IllegalStateException("No tool call requested by the chat model"));
+        List<AssistantMessage.ToolCall> toolCalls = assistantMessage.getToolCalls();
+
+        // 工具线程上沿用节点的调用预算（截止时间、token 预算及用量归属）
+        CallBudget budget = CallBudget.current();
+        List<ToolTask> tasks = new ArrayList<>(toolCalls.size());
+        List<Future<ToolExecutionResult>> futures = new ArrayList<>(toolCalls.size());
+        for (AssistantMessage.ToolCall toolCall : toolCalls) {
+            ChatResponse single = new ChatResponse(List.of(new Generation(new AssistantMessage(
+                    assistantMessage.getText(), assistantMessage.getMetadata(), List.of(toolCall)))));
+            ToolTask task = new ToolTask(toolCall.name(), prompt, single, budget);
+            tasks.add(task);
+            futures.add(executor.submit(task));
+        }
+
+        List<ToolResponseMessage.ToolResponse> responses = new ArrayList<>(toolCalls.size());
+        boolean returnDirect = true;
+        for (int i = 0; i < toolCalls.size(); i++) {
+            AssistantMessage.ToolCall toolCall = toolCalls.get(i);
+            ToolTask task = tasks.get(i);
+            try {
+                ToolExecutionResult result = await(task, futures.get(i), budget);
+                responses.addAll(toolResponses(result));
+                returnDirect &= result.returnDirect();
+                listener.onCompleted(toolCall.name(), task.elapsedNanos);
+            } catch (TimeoutException e) {
+                futures.get(i).cancel(true);
+                long timeoutMillis = task.started.getCount() == 0 ? task.timeoutMillis : timeoutMillis(toolCall.name(), budget);
+                log.warn("Tool {} timed out after {} ms", toolCall.name(), timeoutMillis);
+                responses.add(new ToolResponseMessage.ToolResponse(toolCall.id(), toolCall.name(),
+                        "Tool " + toolCall.name() + " timed out after " + timeoutMillis + " ms"));
+                returnDirect = false;
+                listener.onTimeout(toolCall.name());
+            } catch (ExecutionException e) {
+                cancelAll(futures);
+                listener.onFailed(toolCall.name());
+                throw e.getCause() instanceof RuntimeException runtime ? runtime
+                        : new IllegalStateException("Tool " + toolCall.name() + " failed", e.getCause());
+            } catch (InterruptedException e) {
+                cancelAll(futures);
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Interrupted while waiting for tool " + toolCall.name(), e);
+            }
+        }
+
+        List<Message> conversationHistory = new ArrayList<>(prompt.getInstructions());
+        conversationHistory.add(assistantMessage);
+        conversationHistory.add(new ToolResponseMessage(responses));
+        return ToolExecutionResult.builder()
+                .conversationHistory(conversationHistory)
+                .returnDirect(returnDirect)
+                .build();
+    }
+
+    /**
+     * 等待工具执行结束。超时从工具开始执行时计时，排队时间不计入；排队期间只受节点剩余时间限制
+     */
+    private static ToolExecutionResult await(ToolTask task, Future<ToolExecutionResult> future, CallBudget budget)
+            throws InterruptedException, ExecutionException, TimeoutException {
+        if (budget != null && budget.hasDeadline()) {
+            if (!task.started.await(Math.max(0L, budget.remainingMillis()), TimeUnit.MILLISECONDS)) {
+                throw new TimeoutException();
+            }
+        } else {
+            task.started.await();
+        }
+        long waitNanos = task.deadlineNanos - System.nanoTime();
+        return future.get(Math.max(0L, waitNanos), TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * 工具超时时间，不超过节点剩余时间
+     */
+    private long timeoutMillis(String toolName, CallBudget budget) {
+        long timeout = properties.getTimeouts().getOrDefault(toolName, properties.getTimeoutMillis());
+        if (budget != null && budget.hasDeadline()) {
+            timeout = Math.min(timeout, budget.remainingMillis());
+        }
+        return Math.max(0L, timeout);
+    }
+
+    /**
+     * 单个工具的执行结果中，对话历史的最后一条是工具响应消息
+     */
+    private static List<ToolResponseMessage.ToolResponse> toolResponses(ToolExecutionResult result) {
+        List<Message> history = result.conversationHistory();
+        if (!history.isEmpty() && history.get(history.size() - 1) instanceof ToolResponseMessage message) {
+            return message.getResponses();
+        }
+        throw new IllegalStateException("Tool execution did not produce a tool response message");
+    }
+
+    /**
+     * 单个工具调用，在工具线程上记录开始时间、超时截止时间和执行耗时
+     */
+    private class ToolTask implements Callable<ToolExecutionResult> {
+
+        private final String toolName;
+        private final Prompt prompt;
+        private final ChatResponse single;
+        private final CallBudget budget;
+        private final CountDownLatch started = new CountDownLatch(1);
+        private volatile long timeoutMillis;
+        private volatile long deadlineNanos;
+        private volatile long elapsedNanos;
+
+        private ToolTask(String toolName, Prompt prompt, ChatResponse single, CallBudget budget) {
+            this.toolName = toolName;
+            this.prompt = prompt;
+            this.single = single;
+            this.budget = budget;
+        }
+
+        @Override
+        public ToolExecutionResult call() {
+            long start = System.nanoTime();
+            timeoutMillis = timeoutMillis(toolName, budget);
+            deadlineNanos = start + TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+            started.countDown();
+            ToolExecutionResult result = CallBudget.within(budget, () -> delegate.executeToolCalls(prompt, single));
+            elapsedNanos = System.nanoTime() - start;
+            return result;
+        }
+    }
+
+    private static void cancelAll(List<Future<ToolExecutionResult>> futures) {
+        for (Future<ToolExecutionResult> future : futures) {
+            future.cancel(true);
+        }
+    }
+}
@@ -0,0 +1,96 @@
+package com.example.nextgen.common.chatmodel.tool;
+
+import com.example.nextgen.common.chatmodel.ChatModelProperties;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import org.springframework.ai.model.tool.ToolCallingManager;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 工具调用执行器
+ * 所有模型共享一个有界线程池并发执行工具调用，按工具记录耗时（nextgen.tool.calls）和超时/失败次数
+ */
+@Component
+public class ToolCallExecutor {
+
+    private final ChatModelProperties.Tools properties;
+    private final ObjectProvider<MeterRegistry> meterRegistry;
+    private final ThreadPoolExecutor executor;
+
+    public ToolCallExecutor(ChatModelProperties properties, ObjectProvider<MeterRegistry> meterRegistry) {
+        this.properties = properties.getTools();
+        this.meterRegistry = meterRegistry;
+        this.executor = createExecutor(this.properties.getPoolSize());
+    }
+
+    /**
+     * 包装模型使用的 ToolCallingManager，使同一轮的多个工具调用并发执行
+     */
+    public ToolCallingManager parallel(ToolCallingManager delegate) {
+        return new ParallelToolCallingManager(delegate, executor, properties, new MeterListener());
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    private static ThreadPoolExecutor createExecutor(int poolSize) {
+        AtomicInteger counter = new AtomicInteger();
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(poolSize, poolSize, 60L, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>(), runnable -> {
+            Thread thread = new Thread(runnable, "tool-call-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        executor.allowCoreThreadTimeOut(true);
+        return executor;
+    }
+
+    /**
+     * 工具调用结果回调
+     */
+    interface Listener {
+        void onCompleted(String toolName, long elapsedNanos);
+
+        void onTimeout(String toolName);
+
+        void onFailed(String toolName);
+    }
+
+    private class MeterListener implements Listener {
+
+        @Override
+        public void onCompleted(String toolName, long elapsedNanos) {
+            meterRegistry.ifAvailable(registry -> Timer.builder("nextgen.tool.calls")
+                    .tag("tool", toolName)
+                    .register(registry)
+                    .record(elapsedNanos, TimeUnit.NANOSECONDS));
+        }
+
+        @Override
+        public void onTimeout(String toolName) {
+            count("nextgen.tool.timeouts", toolName);
+        }
+
+        @Override
+        public void onFailed(String toolName) {
+            count("nextgen.tool.failures", toolName);
+        }
+
+        private void count(String name, String toolName) {
+            meterRegistry.ifAvailable(registry -> Counter.builder(name)
+                    .tag("tool", toolName)
+                    .register(registry)
+                    .increment());
+        }
+    }
+}
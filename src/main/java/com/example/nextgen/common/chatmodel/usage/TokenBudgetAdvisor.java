@@ -0,0 +1,244 @@
+package com.example.nextgen.common.chatmodel.usage;
+
+import com.example.nextgen.common.budget.CallBudget;
+import com.example.nextgen.common.budget.TokenBudget;
+import com.example.nextgen.common.chatmodel.ChatModelProperties;
+import com.example.nextgen.common.chatmodel.ModelOverride;
+import com.example.nextgen.common.chatmodel.PromptOptions;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.ai.chat.client.ChatClientRequest;
+import org.springframework.ai.chat.client.ChatClientResponse;
+import org.springframework.ai.chat.client.advisor.api.CallAdvisor;
+import org.springframework.ai.chat.client.advisor.api.CallAdvisorChain;
+import org.springframework.ai.chat.client.advisor.api.StreamAdvisor;
+import org.springframework.ai.chat.client.advisor.api.StreamAdvisorChain;
+import org.springframework.ai.chat.messages.Message;
+import org.springframework.ai.chat.messages.UserMessage;
+import org.springframework.ai.chat.metadata.Usage;
+import org.springframework.ai.chat.model.ChatModel;
+import org.springframework.ai.chat.model.ChatResponse;
+import org.springframework.ai.chat.prompt.Prompt;
+import org.springframework.ai.tokenizer.JTokkitTokenCountEstimator;
+import org.springframework.ai.tokenizer.TokenCountEstimator;
+import org.springframework.core.Ordered;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * token 预算顾问
+ * 调用前：预估请求的 token 数，超出所在工作流剩余预算时按配置截断、改用其他模型或直接失败，并把输出上限收紧到剩余预算以内；
+ * 调用后：从 ChatResponse 元数据读取实际用量，按模型/工作流/节点记录，并计入工作流预算；
+ * 流式响应在收到数据后被调用方取消时没有用量元数据，按请求和已收到的内容预估用量
+ *
+ * 位于顾问链末尾（紧挨模型调用），预估的是最终发给模型的请求
+ */
+@Slf4j
+@Component
+public class TokenBudgetAdvisor implements CallAdvisor, StreamAdvisor {
+
+    /**
+     * 每条消息的格式开销（角色、分隔符）
+     */
+    private static final int MESSAGE_OVERHEAD_TOKENS = 4;
+
+    private final TokenUsageRegistry usageRegistry;
+    private final ChatModelProperties.Tokens properties;
+    private final Map<String, ChatModel> chatModels;
+    private final TokenCountEstimator estimator = new JTokkitTokenCountEstimator();
+
+    public TokenBudgetAdvisor(TokenUsageRegistry usageRegistry, ChatModelProperties properties,
+                              Map<String, ChatModel> chatModels) {
+        this.usageRegistry = usageRegistry;
+        this.properties = properties.getTokens();
+        this.chatModels = chatModels;
+    }
+
+    @Override
+    public ChatClientResponse adviseCall(ChatClientRequest request, CallAdvisorChain chain) {
+        CallBudget budget = CallBudget.current();
+        Plan plan = plan(request, budget);
+        // 改用其他模型时仍经过后续顾问，只在链末尾替换模型
+        ChatClientResponse response = plan.model() != null
+                ? ModelOverride.call(plan.model(), () -> chain.nextCall(plan.request()))
+                : chain.nextCall(plan.request());
+        record(response.chatResponse(), budget);
+        return response;
+    }
+
+    @Override
+    public Flux<ChatClientResponse> adviseStream(ChatClientRequest request, StreamAdvisorChain chain) {
+        CallBudget budget = CallBudget.current();
+        Plan plan = plan(request, budget);
+        Flux<ChatClientResponse> responses = plan.model() != null
+                ? ModelOverride.stream(plan.model(), chain.nextStream(plan.request()))
+                : chain.nextStream(plan.request());
+        // 流式响应的用量通常只出现在最后一个分片上
+        AtomicReference<ChatResponse> lastWithUsage = new AtomicReference<>();
+        AtomicReference<String> model = new AtomicReference<>();
+        StringBuilder received = new StringBuilder();
+        return responses
+                .doOnNext(response -> {
+                    ChatResponse chatResponse = response.chatResponse();
+                    if (usageOf(chatResponse) != null) {
+                        lastWithUsage.set(chatResponse);
+                    }
+                    if (chatResponse != null) {
+                        if (chatResponse.getMetadata() != null && chatResponse.getMetadata().getModel() != null) {
+                            model.set(chatResponse.getMetadata().getModel());
+                        }
+                        if (chatResponse.getResult() != null && chatResponse.getResult().getOutput().getText() != null) {
+                            received.append(chatResponse.getResult().getOutput().getText());
+                        }
+                    }
+                })
+                .doOnComplete(() -> record(lastWithUsage.get(), budget))
+                .doOnCancel(() -> {
+                    if (lastWithUsage.get() != null) {
+                        record(lastWithUsage.get(), budget);
+                    } else if (!received.isEmpty()) {
+                        // 调用方拿到所需内容后提前取消，服务端已生成的部分按预估计入
+                        record(model.get(), estimate(plan.request().prompt()), estimator.estimate(received.toString()), budget);
+                    }
+                });
+    }
+
+    @Override
+    public String getName() {
+        return "TokenBudgetAdvisor";
+    }
+
+    @Override
+    public int getOrder() {
+        return Ordered.LOWEST_PRECEDENCE - 1000;
+    }
+
+    /**
+     * 根据工作流剩余预算决定如何发出请求
+     */
+    private Plan plan(ChatClientRequest request, CallBudget budget) {
+        TokenBudget tokenBudget = budget != null ? budget.getTokenBudget() : null;
+        if (tokenBudget == null || !tokenBudget.isLimited()) {
+            return new Plan(request, null);
+        }
+        long remaining = tokenBudget.remaining();
+        int reserve = properties.getMinCompletionTokens();
+        int estimated = estimate(request.prompt());
+        if (estimated + reserve <= remaining) {
+            return new Plan(withPrompt(request, cap(request.prompt(), remaining - estimated)), null);
+        }
+        if (properties.getAction() == ChatModelProperties.Tokens.Action.FAIL || remaining <= reserve) {
+            throw new TokenBudgetExceededException(budget.getWorkflowName(), estimated + reserve, remaining);
+        }
+
+        Prompt truncated = truncate(request.prompt(), estimated, (int) (remaining - reserve));
+        if (truncated == null) {
+            throw new TokenBudgetExceededException(budget.getWorkflowName(), estimated + reserve, remaining);
+        }
+        ChatClientRequest adjusted = withPrompt(request, cap(truncated, reserve));
+        if (properties.getAction() == ChatModelProperties.Tokens.Action.REROUTE) {
+            ChatModel target = chatModels.get(properties.getRerouteModel());
+            if (target == null) {
+                throw new IllegalStateException("Reroute model not found: " + properties.getRerouteModel());
+            }
+            budget.recordDegradation("token budget: rerouted to " + properties.getRerouteModel()
+                    + ", prompt truncated from " + estimated + " tokens (remaining " + remaining + ")");
+            return new Plan(adjusted, target);
+        }
+        budget.recordDegradation("token budget: prompt truncated from " + estimated + " tokens (remaining " + remaining + ")");
+        return new Plan(adjusted, null);
+    }
+
+    /**
+     * 预估请求的 token 数
+     */
+    int estimate(Prompt prompt) {
+        int total = 0;
+        for (Message message : prompt.getInstructions()) {
+            total += estimate(message);
+        }
+        return total;
+    }
+
+    private int estimate(Message message) {
+        String text = message.getText();
+        return MESSAGE_OVERHEAD_TOKENS + (text != null ? estimator.estimate(text) : 0);
+    }
+
+    /**
+     * 截断最长的用户消息以满足预算；只截断这一条仍不够时返回null
+     */
+    private Prompt truncate(Prompt prompt, int estimated, int allowed) {
+        List<Message> messages = new ArrayList<>(prompt.getInstructions());
+        int longest = -1;
+        for (int i = 0; i < messages.size(); i++) {
+            if (messages.get(i) instanceof UserMessage userMessage && userMessage.getText() != null
+                    && (longest < 0 || userMessage.getText().length() > messages.get(longest).getText().length())) {
+                longest = i;
+            }
+        }
+        if (longest < 0) {
+            return null;
+        }
+        String text = messages.get(longest).getText();
+        int messageTokens = estimate(messages.get(longest)) - MESSAGE_OVERHEAD_TOKENS;
+        int keepTokens = messageTokens - (estimated - allowed);
+        if (keepTokens <= 0) {
+            return null;
+        }
+        // 按比例保留开头部分，留 10% 余量抵消预估误差
+        int keepChars = (int) (text.length() * ((double) keepTokens / messageTokens) * 0.9);
+        messages.set(longest, new UserMessage(text.substring(0, Math.max(0, keepChars))));
+        log.info("Truncated user message from {} to {} chars to fit token budget", text.length(), keepChars);
+        return new Prompt(messages, prompt.getOptions());
+    }
+
+    private Prompt cap(Prompt prompt, long maxTokens) {
+        return PromptOptions.withMaxTokens(prompt, (int) Math.min(Integer.MAX_VALUE, maxTokens));
+    }
+
+    private ChatClientRequest withPrompt(ChatClientRequest request, Prompt prompt) {
+        return prompt == request.prompt() ? request : request.mutate().prompt(prompt).build();
+    }
+
+    /**
+     * 记录实际用量
+     */
+    private void record(ChatResponse response, CallBudget budget) {
+        Usage usage = usageOf(response);
+        if (usage == null) {
+            return;
+        }
+        long prompt = usage.getPromptTokens() != null ? usage.getPromptTokens() : 0L;
+        long completion = usage.getCompletionTokens() != null ? usage.getCompletionTokens() : 0L;
+        record(response.getMetadata().getModel(), prompt, completion, budget);
+    }
+
+    private void record(String model, long prompt, long completion, CallBudget budget) {
+        usageRegistry.record(model,
+                budget != null ? budget.getWorkflowName() : null,
+                budget != null ? budget.getNodeName() : null,
+                prompt, completion);
+        if (budget != null) {
+            budget.recordUsage(prompt, completion);
+        }
+    }
+
+    private static Usage usageOf(ChatResponse response) {
+        if (response == null || response.getMetadata() == null) {
+            return null;
+        }
+        Usage usage = response.getMetadata().getUsage();
+        if (usage == null || usage.getTotalTokens() == null || usage.getTotalTokens() <= 0) {
+            return null;
+        }
+        return usage;
+    }
+
+    private record Plan(ChatClientRequest request, ChatModel model) {
+    }
+}
@@ -0,0 +1,12 @@
+package com.example.nextgen.common.chatmodel.usage;
+
+/**
+ * 调用前预估会超出工作流 token 预算
+ */
+public class TokenBudgetExceededException extends IllegalStateException {
+
+    public TokenBudgetExceededException(String workflowName, long estimatedTokens, long remainingTokens) {
+        super("Token budget exceeded for workflow " + workflowName + ": estimated " + estimatedTokens
+                + " tokens, remaining " + remainingTokens);
+    }
+}
@@ -0,0 +1,44 @@
+package com.example.nextgen.common.chatmodel.usage;
+
+import com.example.nextgen.common.budget.TokenBudget;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * token 用量端点
+ * GET /actuator/tokenusage 查看按模型和按工作流汇总的 token 用量
+ */
+@Component
+@Endpoint(id = "tokenusage")
+public class TokenUsageEndpoint {
+
+    private final TokenUsageRegistry usageRegistry;
+
+    public TokenUsageEndpoint(TokenUsageRegistry usageRegistry) {
+        this.usageRegistry = usageRegistry;
+    }
+
+    @ReadOperation
+    public Map<String, Map<String, Map<String, Long>>> usage() {
+        Map<String, Map<String, Map<String, Long>>> result = new LinkedHashMap<>();
+        result.put("models", describe(usageRegistry.getByModel()));
+        result.put("workflows", describe(usageRegistry.getByWorkflow()));
+        return result;
+    }
+
+    private Map<String, Map<String, Long>> describe(Map<String, TokenBudget> usage) {
+        Map<String, Map<String, Long>> result = new LinkedHashMap<>();
+        usage.forEach((name, budget) -> {
+            Map<String, Long> info = new LinkedHashMap<>();
+            info.put("promptTokens", budget.getPromptTokens());
+            info.put("completionTokens", budget.getCompletionTokens());
+            info.put("totalTokens", budget.getUsedTokens());
+            result.put(name, info);
+        });
+        return result;
+    }
+}
@@ -0,0 +1,71 @@
+package com.example.nextgen.common.chatmodel.usage;
+
+import com.example.nextgen.common.budget.TokenBudget;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.stereotype.Component;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * token 用量注册中心
+ * 按模型、工作流、节点记录每次调用的 token 用量，并注册为指标 nextgen.tokens（type=prompt|completion）
+ */
+@Component
+public class TokenUsageRegistry {
+
+    private static final String UNKNOWN = "unknown";
+
+    private final ObjectProvider<MeterRegistry> meterRegistry;
+    private final Map<String, TokenBudget> byModel = new ConcurrentHashMap<>();
+    private final Map<String, TokenBudget> byWorkflow = new ConcurrentHashMap<>();
+
+    public TokenUsageRegistry(ObjectProvider<MeterRegistry> meterRegistry) {
+        this.meterRegistry = meterRegistry;
+    }
+
+    /**
+     * 记录一次调用的用量
+     *
+     * @param model    实际响应的模型名称
+     * @param workflow 工作流名称，不在工作流中调用时为空
+     * @param node     节点名称，不在工作流中调用时为空
+     */
+    public void record(String model, String workflow, String node, long promptTokens, long completionTokens) {
+        String modelTag = model != null && !model.isBlank() ? model : UNKNOWN;
+        String workflowTag = workflow != null ? workflow : UNKNOWN;
+        String nodeTag = node != null ? node : UNKNOWN;
+        byModel.computeIfAbsent(modelTag, key -> TokenBudget.unlimited()).record(promptTokens, completionTokens);
+        byWorkflow.computeIfAbsent(workflowTag, key -> TokenBudget.unlimited()).record(promptTokens, completionTokens);
+        meterRegistry.ifAvailable(registry -> {
+            counter(registry, "prompt", modelTag, workflowTag, nodeTag).increment(promptTokens);
+            counter(registry, "completion", modelTag, workflowTag, nodeTag).increment(completionTokens);
+        });
+    }
+
+    private Counter counter(MeterRegistry registry, String type, String model, String workflow, String node) {
+        return Counter.builder("nextgen.tokens")
+                .tag("type", type)
+                .tag("model", model)
+                .tag("workflow", workflow)
+                .tag("node", node)
+                .register(registry);
+    }
+
+    /**
+     * 按模型汇总的用量
+     */
+    public Map<String, TokenBudget> getByModel() {
+        return Collections.unmodifiableMap(byModel);
+    }
+
+    /**
+     * 按工作流名称汇总的用量
+     */
+    public Map<String, TokenBudget> getByWorkflow() {
+        return Collections.unmodifiableMap(byWorkflow);
+    }
+}
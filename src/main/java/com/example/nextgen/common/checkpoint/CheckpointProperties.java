@@ -0,0 +1,47 @@
+package com.example.nextgen.common.checkpoint;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+/**
+ * 节点输出检查点相关配置
+ */
+@Getter
+@Setter
+@Component
+@ConfigurationProperties(prefix = "nextgen.checkpoint")
+public class CheckpointProperties {
+
+    /**
+     * 是否保存已完成节点的输出，并在节点再次被调度时直接复用，默认关闭
+     */
+    private boolean enabled = false;
+
+    /**
+     * 检查点目录；相对路径按工作目录解析，部署时应配置为绝对路径
+     */
+    private String directory = "data/checkpoints";
+
+    /**
+     * 段文件大小（字节），创建时按此大小预分配并整体映射到内存
+     */
+    private long segmentBytes = 64L * 1024 * 1024;
+
+    /**
+     * 把映射内存刷到磁盘的间隔（毫秒），进程崩溃不会丢失已写入的检查点，刷盘只影响操作系统崩溃时的丢失范围
+     */
+    private long flushIntervalMillis = 1_000;
+
+    /**
+     * 检查点保留时长（小时），超过后所在段文件被删除
+     */
+    private long retentionHours = 24;
+
+    /**
+     * 增量执行：节点输入和配置的哈希与之前某次运行相同时，直接复用那次的输出
+     * 保留时长内的输出都可被复用，与运行是否完成无关；调用模型的节点重新执行可能得到不同的结果，默认关闭
+     */
+    private boolean incremental = false;
+}
@@ -0,0 +1,19 @@
+package com.example.nextgen.common.checkpoint;
+
+import java.util.Map;
+
+/**
+ * 已完成节点的输出检查点
+ *
+ * @param workflowId   工作流实例ID
+ * @param workflowName 工作流名称
+ * @param nodeId       写入时的节点ID（重建工作流后节点ID会变化，查找按节点名称）
+ * @param nodeName     节点名称
+ * @param inputHash    节点输入和配置的哈希，为空时不参与增量复用
+ * @param timestamp    写入时间（毫秒）
+ * @param output       节点输出
+ * @param metadata     节点元数据
+ */
+public record NodeCheckpoint(String workflowId, String workflowName, String nodeId, String nodeName, String inputHash,
+                             long timestamp, Map<String, Object> output, Map<String, Object> metadata) {
+}
@@ -0,0 +1,479 @@
+package com.example.nextgen.common.checkpoint;
+
+import com.alibaba.fastjson2.JSON;
+import com.alibaba.fastjson2.JSONObject;
+import com.example.nextgen.domain.event.WorkflowEvent;
+import com.example.nextgen.domain.node.NodeId;
+import com.example.nextgen.domain.node.WorkflowNode;
+import com.example.nextgen.domain.workflow.Workflow;
+import com.example.nextgen.domain.workflow.WorkflowId;
+import com.example.nextgen.domain.workflow.WorkflowRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+/**
+ * 节点输出检查点存储
+ * 已完成节点的输出追加写入内存映射的段文件（按配置大小预分配），内存中按 "工作流实例ID/节点名称" 索引到记录位置；
+ * 写入只是一次内存拷贝，读取直接从映射内存取出记录，不经过文件读写调用。
+ * 每条记录为 "长度 + CRC + JSON"，长度最后写入，未写完的记录在启动扫描时被忽略；
+ * 重启后只读映射已有的段，新记录写入新段。
+ *
+ * 运行完成时丢弃其检查点，失败的运行保留到过期，供重试和恢复复用；节点被重置时丢弃该节点的检查点。
+ * 段内的检查点都被丢弃或已过期时删除段文件
+ *
+ * 带输入哈希的检查点同时按 "工作流名称/节点名称/输入哈希" 索引，供后续运行增量复用：
+ * 运行完成后该索引仍保留，直到所在段过期
+ */
+@Slf4j
+@Component
+public class NodeCheckpointStore {
+
+    private static final String SEGMENT_PREFIX = "checkpoint-";
+    private static final String SEGMENT_SUFFIX = ".dat";
+    private static final int HEADER_BYTES = 8;
+
+    private final CheckpointProperties properties;
+    private final WorkflowRepository workflowRepository;
+    private final Path directory;
+
+    /**
+     * 工作流实例ID -> 节点名称 -> 记录位置
+     */
+    private final Map<String, Map<String, Location>> index = new ConcurrentHashMap<>();
+
+    /**
+     * 工作流名称/节点名称/输入哈希 -> 记录位置，同一键以最新写入的为准
+     */
+    private final Map<String, Location> hashIndex = new ConcurrentHashMap<>();
+
+    /**
+     * 节点事件只带节点ID，按此找到所属工作流；运行结束时移除
+     */
+    private final Map<NodeId, Workflow> nodeOwners = new ConcurrentHashMap<>();
+
+    /**
+     * 所有段，写入和回收时加锁
+     */
+    private final List<Segment> segments = new ArrayList<>();
+    private Segment active;
+    private int nextSegmentId = 1;
+
+    private final ScheduledThreadPoolExecutor executor;
+    private final Counter writes;
+    private final Counter hits;
+
+    public NodeCheckpointStore(CheckpointProperties properties, WorkflowRepository workflowRepository,
+                               ObjectProvider<MeterRegistry> meterRegistry) {
+        this.properties = properties;
+        this.workflowRepository = workflowRepository;
+        this.directory = Path.of(properties.getDirectory());
+        MeterRegistry registry = meterRegistry.getIfAvailable();
+        this.writes = registry != null ? Counter.builder("nextgen.checkpoint.writes").register(registry) : null;
+        this.hits = registry != null ? Counter.builder("nextgen.checkpoint.hits").register(registry) : null;
+        if (registry != null) {
+            Gauge.builder("nextgen.checkpoint.segments", this, NodeCheckpointStore::getSegmentCount).register(registry);
+        }
+        if (!properties.isEnabled()) {
+            this.executor = null;
+            return;
+        }
+        load();
+        AtomicInteger counter = new AtomicInteger();
+        this.executor = new ScheduledThreadPoolExecutor(1, runnable -> {
+            Thread thread = new Thread(runnable, "node-checkpoint-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        long interval = Math.max(100, properties.getFlushIntervalMillis());
+        this.executor.scheduleWithFixedDelay(this::maintain, interval, interval, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * 查找节点在指定运行中的检查点
+     */
+    public Optional<NodeCheckpoint> find(String workflowId, String nodeName) {
+        Map<String, Location> nodes = index.get(workflowId);
+        Location location = nodes != null ? nodes.get(nodeName) : null;
+        return read(location);
+    }
+
+    /**
+     * 查找同一工作流中同名节点在相同输入和配置下的最近一次输出，不限于本次运行
+     */
+    public Optional<NodeCheckpoint> findByInputHash(String workflowName, String nodeName, String inputHash) {
+        return read(hashIndex.get(hashKey(workflowName, nodeName, inputHash)));
+    }
+
+    public boolean isIncremental() {
+        return properties.isEnabled() && properties.isIncremental();
+    }
+
+    private Optional<NodeCheckpoint> read(Location location) {
+        if (location == null || location.segment.deleted) {
+            return Optional.empty();
+        }
+        byte[] payload = new byte[location.length];
+        // 绝对位置读取不改变缓冲区状态，可与写入和其他读取并发
+        location.segment.buffer.get(location.offset + HEADER_BYTES, payload);
+        if (hits != null) {
+            hits.increment();
+        }
+        return Optional.of(decode(payload));
+    }
+
+    /**
+     * 保存节点输出，同一运行中同名节点的旧检查点被覆盖
+     */
+    public void save(NodeCheckpoint checkpoint) {
+        JSONObject json = new JSONObject();
+        json.put("workflowId", checkpoint.workflowId());
+        json.put("workflowName", checkpoint.workflowName());
+        json.put("nodeId", checkpoint.nodeId());
+        json.put("nodeName", checkpoint.nodeName());
+        json.put("inputHash", checkpoint.inputHash());
+        json.put("timestamp", checkpoint.timestamp());
+        json.put("output", checkpoint.output());
+        json.put("metadata", checkpoint.metadata());
+        byte[] payload = JSON.toJSONBytes(json);
+        Location location;
+        try {
+            location = append(payload, checkpoint.timestamp());
+        } catch (IOException e) {
+            log.warn("Failed to write checkpoint of node {}: {}", checkpoint.nodeName(), e.getMessage());
+            return;
+        }
+        put(checkpoint.workflowId(), checkpoint.nodeName(), location);
+        putHash(checkpoint.workflowName(), checkpoint.nodeName(), checkpoint.inputHash(), location);
+        if (writes != null) {
+            writes.increment();
+        }
+    }
+
+    /**
+     * 丢弃一个运行的全部检查点
+     */
+    public void discard(String workflowId) {
+        Map<String, Location> nodes = index.remove(workflowId);
+        if (nodes != null) {
+            nodes.values().forEach(location -> location.segment.live.decrementAndGet());
+        }
+    }
+
+    /**
+     * 丢弃单个节点的检查点
+     */
+    public void discard(String workflowId, String nodeName) {
+        Map<String, Location> nodes = index.get(workflowId);
+        Location removed = nodes != null ? nodes.remove(nodeName) : null;
+        if (removed != null) {
+            removed.segment.live.decrementAndGet();
+        }
+    }
+
+    @EventListener
+    public void onWorkflowStarted(WorkflowEvent.WorkflowStarted event) {
+        track(event.getWorkflowId());
+    }
+
+    @EventListener
+    public void onWorkflowRecovered(WorkflowEvent.WorkflowRecovered event) {
+        track(event.getWorkflowId());
+    }
+
+    @EventListener
+    public void onWorkflowRetried(WorkflowEvent.WorkflowRetried event) {
+        track(event.getWorkflowId());
+    }
+
+    @EventListener
+    public void onNodeCompleted(WorkflowEvent.NodeCompleted event) {
+        Workflow workflow = nodeOwners.get(event.getNodeId());
+        if (!properties.isEnabled() || workflow == null) {
+            return;
+        }
+        String workflowId = workflow.getWorkflowId().getValue();
+        Map<String, Location> nodes = index.get(workflowId);
+        if (nodes != null && nodes.containsKey(event.getNodeName())) {
+            // 由检查点直接完成的节点不再重复写入
+            return;
+        }
+        WorkflowNode<?, ?> node = workflow.getNode(event.getNodeId());
+        Map<String, Object> metadata = node != null ? node.getMetadata() : Map.of();
+        String inputHash = (String) metadata.get(WorkflowNode.INPUT_HASH_KEY);
+        Location reused = inputHash != null && Boolean.TRUE.equals(metadata.get("fromCheckpoint"))
+                ? hashIndex.get(hashKey(workflow.getName(), event.getNodeName(), inputHash)) : null;
+        if (reused != null) {
+            // 复用之前运行的输出，本次运行直接指向同一条记录
+            put(workflowId, event.getNodeName(), reused);
+            return;
+        }
+        // 降级结果（fallback 或降级模型档位）只用于本次运行，不按输入哈希索引
+        String reusableHash = isDegraded(metadata) ? null : inputHash;
+        save(new NodeCheckpoint(workflowId, workflow.getName(), event.getNodeId().getValue(), event.getNodeName(),
+                reusableHash, System.currentTimeMillis(), event.getOutput(), metadata));
+    }
+
+    private static boolean isDegraded(Map<String, Object> metadata) {
+        return metadata.containsKey("fallbackReason") || metadata.containsKey("degradations");
+    }
+
+    @EventListener
+    public void onNodeReset(WorkflowEvent.NodeReset event) {
+        Workflow workflow = nodeOwners.get(event.getNodeId());
+        if (workflow != null) {
+            discard(workflow.getWorkflowId().getValue(), event.getNodeName());
+        }
+    }
+
+    @EventListener
+    public void onWorkflowCompleted(WorkflowEvent.WorkflowCompleted event) {
+        untrack(event.getWorkflowId());
+        discard(event.getWorkflowId().getValue());
+    }
+
+    @EventListener
+    public void onWorkflowFailed(WorkflowEvent.WorkflowFailed event) {
+        // 保留检查点，重试或重新执行时复用
+        untrack(event.getWorkflowId());
+    }
+
+    private void track(WorkflowId workflowId) {
+        if (!properties.isEnabled()) {
+            return;
+        }
+        workflowRepository.findById(workflowId).ifPresent(workflow -> {
+            for (Object node : workflow.getNodes().values()) {
+                nodeOwners.put(((WorkflowNode<?, ?>) node).getNodeId(), workflow);
+            }
+        });
+    }
+
+    private void untrack(WorkflowId workflowId) {
+        nodeOwners.values().removeIf(workflow -> workflow.getWorkflowId().equals(workflowId));
+    }
+
+    private void put(String workflowId, String nodeName, Location location) {
+        location.segment.live.incrementAndGet();
+        Location previous = index.computeIfAbsent(workflowId, key -> new ConcurrentHashMap<>()).put(nodeName, location);
+        if (previous != null) {
+            previous.segment.live.decrementAndGet();
+        }
+    }
+
+    private void putHash(String workflowName, String nodeName, String inputHash, Location location) {
+        if (workflowName == null || inputHash == null) {
+            return;
+        }
+        location.segment.live.incrementAndGet();
+        Location previous = hashIndex.put(hashKey(workflowName, nodeName, inputHash), location);
+        if (previous != null) {
+            previous.segment.live.decrementAndGet();
+        }
+    }
+
+    private static String hashKey(String workflowName, String nodeName, String inputHash) {
+        return workflowName + "/" + nodeName + "/" + inputHash;
+    }
+
+    /**
+     * 追加一条记录：先写内容和 CRC，最后写长度，未写完的记录对扫描不可见
+     */
+    private synchronized Location append(byte[] payload, long timestamp) throws IOException {
+        int size = HEADER_BYTES + payload.length;
+        if (active == null || active.position + size > active.buffer.capacity()) {
+            active = createSegment(Math.min(Integer.MAX_VALUE, Math.max(properties.getSegmentBytes(), size)));
+        }
+        CRC32 crc = new CRC32();
+        crc.update(payload);
+        int offset = active.position;
+        MappedByteBuffer buffer = active.buffer;
+        buffer.put(offset + HEADER_BYTES, payload);
+        buffer.putInt(offset + 4, (int) crc.getValue());
+        buffer.putInt(offset, payload.length);
+        active.position += size;
+        active.dirty = true;
+        active.newestTimestamp = Math.max(active.newestTimestamp, timestamp);
+        return new Location(active, offset, payload.length);
+    }
+
+    private Segment createSegment(long bytes) throws IOException {
+        if (active != null) {
+            force(active);
+        }
+        Files.createDirectories(directory);
+        Path file = directory.resolve(String.format("%s%08d%s", SEGMENT_PREFIX, nextSegmentId++, SEGMENT_SUFFIX));
+        try (RandomAccessFile raf = new RandomAccessFile(file.toFile(), "rw")) {
+            raf.setLength(bytes);
+            Segment segment = new Segment(file, raf.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, bytes));
+            segments.add(segment);
+            return segment;
+        }
+    }
+
+    /**
+     * 刷盘并回收段：检查点都已丢弃或超过保留时长的非活动段删除文件
+     */
+    synchronized void maintain() {
+        if (active != null && active.dirty) {
+            force(active);
+        }
+        long expiredBefore = System.currentTimeMillis() - TimeUnit.HOURS.toMillis(properties.getRetentionHours());
+        Iterator<Segment> iterator = segments.iterator();
+        while (iterator.hasNext()) {
+            Segment segment = iterator.next();
+            if (segment == active || (segment.live.get() > 0 && segment.newestTimestamp >= expiredBefore)) {
+                continue;
+            }
+            segment.deleted = true;
+            for (Map<String, Location> nodes : index.values()) {
+                nodes.values().removeIf(location -> location.segment == segment);
+            }
+            hashIndex.values().removeIf(location -> location.segment == segment);
+            try {
+                // 映射在缓冲区被回收时释放，Linux 下删除仍被映射的文件是安全的
+                Files.deleteIfExists(segment.file);
+            } catch (IOException e) {
+                log.warn("Failed to delete checkpoint segment {}: {}", segment.file, e.getMessage());
+            }
+            iterator.remove();
+        }
+    }
+
+    private void force(Segment segment) {
+        segment.dirty = false;
+        segment.buffer.force();
+    }
+
+    /**
+     * 启动时只读映射已有的段并重建索引，遇到长度为 0、越界或校验失败的记录时停止扫描该段
+     */
+    private void load() {
+        if (!Files.isDirectory(directory)) {
+            return;
+        }
+        List<Path> files;
+        try (Stream<Path> stream = Files.list(directory)) {
+            files = stream.filter(path -> {
+                        String name = path.getFileName().toString();
+                        return name.startsWith(SEGMENT_PREFIX) && name.endsWith(SEGMENT_SUFFIX);
+                    })
+                    .sorted()
+                    .toList();
+        } catch (IOException e) {
+            log.warn("Failed to list checkpoint segments in {}: {}", directory, e.getMessage());
+            return;
+        }
+        int count = 0;
+        for (Path file : files) {
+            String name = file.getFileName().toString();
+            nextSegmentId = Math.max(nextSegmentId,
+                    Integer.parseInt(name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length())) + 1);
+            try (FileChannel channel = FileChannel.open(file)) {
+                Segment segment = new Segment(file, channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+                segments.add(segment);
+                count += scan(segment);
+            } catch (IOException | RuntimeException e) {
+                log.warn("Failed to load checkpoint segment {}: {}", file, e.getMessage());
+            }
+        }
+        if (count > 0) {
+            log.info("Loaded {} node checkpoints from {}", count, directory);
+        }
+    }
+
+    private int scan(Segment segment) {
+        MappedByteBuffer buffer = segment.buffer;
+        int offset = 0;
+        int count = 0;
+        while (offset + HEADER_BYTES <= buffer.capacity()) {
+            int length = buffer.getInt(offset);
+            if (length <= 0 || offset + HEADER_BYTES + length > buffer.capacity()) {
+                break;
+            }
+            byte[] payload = new byte[length];
+            buffer.get(offset + HEADER_BYTES, payload);
+            CRC32 crc = new CRC32();
+            crc.update(payload);
+            if ((int) crc.getValue() != buffer.getInt(offset + 4)) {
+                log.warn("Checkpoint segment {} has a corrupt record at offset {}", segment.file, offset);
+                break;
+            }
+            JSONObject json = JSON.parseObject(payload);
+            segment.newestTimestamp = Math.max(segment.newestTimestamp, json.getLongValue("timestamp"));
+            Location location = new Location(segment, offset, length);
+            put(json.getString("workflowId"), json.getString("nodeName"), location);
+            putHash(json.getString("workflowName"), json.getString("nodeName"), json.getString("inputHash"), location);
+            offset += HEADER_BYTES + length;
+            count++;
+        }
+        segment.position = offset;
+        return count;
+    }
+
+    private static NodeCheckpoint decode(byte[] payload) {
+        JSONObject json = JSON.parseObject(payload);
+        JSONObject output = json.getJSONObject("output");
+        JSONObject metadata = json.getJSONObject("metadata");
+        return new NodeCheckpoint(json.getString("workflowId"), json.getString("workflowName"), json.getString("nodeId"),
+                json.getString("nodeName"), json.getString("inputHash"), json.getLongValue("timestamp"), output != null ? output : new JSONObject(),
+                metadata != null ? metadata : new JSONObject());
+    }
+
+    public synchronized int getSegmentCount() {
+        return segments.size();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (executor == null) {
+            return;
+        }
+        executor.shutdownNow();
+        synchronized (this) {
+            if (active != null && active.dirty) {
+                force(active);
+            }
+        }
+    }
+
+    private record Location(Segment segment, int offset, int length) {
+    }
+
+    private static final class Segment {
+        private final Path file;
+        private final MappedByteBuffer buffer;
+        /**
+         * 索引（按运行和按输入哈希）中仍指向本段的条目数量
+         */
+        private final AtomicInteger live = new AtomicInteger();
+        private int position;
+        private boolean dirty;
+        private volatile long newestTimestamp;
+        private volatile boolean deleted;
+
+        private Segment(Path file, MappedByteBuffer buffer) {
+            this.file = file;
+            this.buffer = buffer;
+        }
+    }
+}
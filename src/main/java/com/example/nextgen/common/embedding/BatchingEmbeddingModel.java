@@ -0,0 +1,89 @@
+package com.example.nextgen.common.embedding;
+
+import com.example.nextgen.common.batch.MicroBatcher;
+import org.springframework.ai.document.Document;
+import org.springframework.ai.document.MetadataMode;
+import org.springframework.ai.embedding.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+/**
+ * 微批处理的向量模型
+ * 并发的向量请求在 {@link MicroBatcher} 中按文本合并为批量请求，一次调用上游，再按下标拆分结果。
+ * 指定了模型或维度等参数的请求无法与其他请求合并，直接调用上游
+ */
+public class BatchingEmbeddingModel implements EmbeddingModel, AutoCloseable {
+
+    private final EmbeddingModel delegate;
+    private final MicroBatcher<String, float[]> batcher;
+
+    public BatchingEmbeddingModel(String name, EmbeddingModel delegate, EmbeddingProperties.Batch properties) {
+        this.delegate = delegate;
+        this.batcher = new MicroBatcher<>(name, properties.getMaxBatchSize(), properties.getMaxWaitMillis(),
+                properties.getMaxConcurrentBatches(), this::embedBatch);
+    }
+
+    @Override
+    public EmbeddingResponse call(EmbeddingRequest request) {
+        if (!isBatchable(request.getOptions())) {
+            return delegate.call(request);
+        }
+        List<CompletableFuture<float[]>> futures = batcher.submitAll(request.getInstructions());
+        List<Embedding> embeddings = new ArrayList<>(futures.size());
+        try {
+            for (int i = 0; i < futures.size(); i++) {
+                embeddings.add(new Embedding(futures.get(i).join(), i));
+            }
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            throw e;
+        }
+        return new EmbeddingResponse(embeddings);
+    }
+
+    @Override
+    public float[] embed(Document document) {
+        return embed(document.getFormattedContent(MetadataMode.EMBED));
+    }
+
+    @Override
+    public int dimensions() {
+        return delegate.dimensions();
+    }
+
+    /**
+     * 一次上游批量调用，按下标对齐结果
+     */
+    private List<float[]> embedBatch(List<String> texts) {
+        EmbeddingResponse response = delegate.call(new EmbeddingRequest(texts, EmbeddingOptionsBuilder.builder().build()));
+        float[][] outputs = new float[texts.size()][];
+        List<Embedding> results = response.getResults();
+        for (int i = 0; i < results.size(); i++) {
+            Embedding embedding = results.get(i);
+            int index = embedding.getIndex() != null ? embedding.getIndex() : i;
+            outputs[index] = embedding.getOutput();
+        }
+        return List.of(outputs);
+    }
+
+    /**
+     * 只有未指定参数（使用默认模型和维度）的请求可以合并
+     */
+    private static boolean isBatchable(EmbeddingOptions options) {
+        return options == null || (options.getModel() == null && options.getDimensions() == null);
+    }
+
+    public MicroBatcher<String, float[]> getBatcher() {
+        return batcher;
+    }
+
+    @Override
+    public void close() {
+        batcher.close();
+    }
+}
@@ -0,0 +1,48 @@
+package com.example.nextgen.common.embedding;
+
+import com.example.nextgen.common.batch.MicroBatcher;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.ai.embedding.EmbeddingModel;
+import org.springframework.ai.openai.OpenAiEmbeddingModel;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+
+/**
+ * 向量模型配置
+ * 在 text-embedding-v3 前面加一层微批处理，多个工作流实例的向量请求合并后再调用上游
+ */
+@Configuration
+public class EmbeddingConfiguration {
+
+    public static final String BATCHING_EMBEDDING_MODEL = "batchingEmbeddingModel";
+
+    @Bean(name = BATCHING_EMBEDDING_MODEL)
+    @Primary
+    public EmbeddingModel batchingEmbeddingModel(OpenAiEmbeddingModel openAiEmbeddingModel, EmbeddingProperties properties,
+                                                 ObjectProvider<MeterRegistry> meterRegistry) {
+        if (!properties.getBatch().isEnabled()) {
+            return openAiEmbeddingModel;
+        }
+        BatchingEmbeddingModel model = new BatchingEmbeddingModel(BATCHING_EMBEDDING_MODEL, openAiEmbeddingModel, properties.getBatch());
+        MicroBatcher<String, float[]> batcher = model.getBatcher();
+        meterRegistry.ifAvailable(registry -> {
+            FunctionCounter.builder("nextgen.batch.batches", batcher, MicroBatcher::getBatches)
+                    .tag("batcher", batcher.getName())
+                    .register(registry);
+            FunctionCounter.builder("nextgen.batch.items", batcher, MicroBatcher::getItems)
+                    .tag("batcher", batcher.getName())
+                    .register(registry);
+            FunctionCounter.builder("nextgen.batch.failed", batcher, MicroBatcher::getFailedBatches)
+                    .tag("batcher", batcher.getName())
+                    .register(registry);
+            Gauge.builder("nextgen.batch.queued", batcher, MicroBatcher::getQueued)
+                    .tag("batcher", batcher.getName())
+                    .register(registry);
+        });
+        return model;
+    }
+}
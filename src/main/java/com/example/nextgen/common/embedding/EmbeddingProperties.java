@@ -0,0 +1,46 @@
+package com.example.nextgen.common.embedding;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+/**
+ * 向量模型调用相关配置
+ */
+@Getter
+@Setter
+@Component
+@ConfigurationProperties(prefix = "nextgen.embedding")
+public class EmbeddingProperties {
+
+    /**
+     * 微批处理配置
+     */
+    private Batch batch = new Batch();
+
+    @Getter
+    @Setter
+    public static class Batch {
+
+        /**
+         * 是否启用
+         */
+        private boolean enabled = true;
+
+        /**
+         * 每批最多的文本数量（text-embedding-v3 单次最多 10 条）
+         */
+        private int maxBatchSize = 10;
+
+        /**
+         * 第一条请求最长等待时间，超时后不足一批也发出
+         */
+        private long maxWaitMillis = 20;
+
+        /**
+         * 同时进行的批量调用数量
+         */
+        private int maxConcurrentBatches = 4;
+    }
+}
@@ -0,0 +1,159 @@
+package com.example.nextgen.common.ingest;
+
+import org.springframework.ai.document.Document;
+import reactor.core.publisher.Flux;
+import reactor.core.scheduler.Schedulers;
+
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 文档分块流
+ * 解析线程边解析边写入，下游节点边读边处理，不必等整个文档解析完；队列有界，消费慢时解析线程阻塞（背压）
+ * 分块按产出顺序而不是页码顺序到达，页码等信息见分块元数据；只支持单个消费者
+ */
+public class DocumentChunkStream implements Iterable<Document> {
+
+    /**
+     * 流结束标记
+     */
+    private static final Document END = new Document("end-of-stream");
+
+    private final String id;
+    private final String source;
+    private final BlockingQueue<Document> queue;
+    private final AtomicInteger pendingWorkers = new AtomicInteger();
+    private final AtomicLong chunks = new AtomicLong();
+    private final long startNanos = System.nanoTime();
+    private volatile long firstChunkNanos;
+    private volatile Throwable error;
+    private volatile boolean cancelled;
+
+    DocumentChunkStream(String id, String source, int capacity) {
+        this.id = id;
+        this.source = source;
+        this.queue = new ArrayBlockingQueue<>(Math.max(1, capacity));
+    }
+
+    void start(int workers) {
+        pendingWorkers.set(workers);
+        if (workers == 0) {
+            queue.offer(END);
+        }
+    }
+
+    /**
+     * 写入一个分块，流已取消时丢弃
+     *
+     * @return 首个分块返回true
+     */
+    boolean publish(Document chunk) throws InterruptedException {
+        if (cancelled) {
+            return false;
+        }
+        queue.put(chunk);
+        boolean first = chunks.getAndIncrement() == 0;
+        if (first) {
+            firstChunkNanos = System.nanoTime() - startNanos;
+        }
+        return first;
+    }
+
+    void workerDone() {
+        if (pendingWorkers.decrementAndGet() == 0) {
+            end();
+        }
+    }
+
+    void fail(Throwable cause) {
+        if (error == null) {
+            error = cause;
+        }
+        cancelled = true;
+        queue.clear();
+        end();
+    }
+
+    /**
+     * 取消：丢弃未消费的分块，解析线程在下一次写入时退出
+     */
+    public void cancel() {
+        cancelled = true;
+        queue.clear();
+        end();
+    }
+
+    private void end() {
+        // 队列满时清出空间，保证结束标记能写入
+        while (!queue.offer(END)) {
+            queue.poll();
+        }
+    }
+
+    /**
+     * 阻塞迭代，直到流结束；解析失败时抛出异常
+     */
+    @Override
+    public Iterator<Document> iterator() {
+        return new Iterator<>() {
+            private Document next;
+
+            @Override
+            public boolean hasNext() {
+                if (next == null) {
+                    try {
+                        next = queue.take();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        throw new IllegalStateException("Interrupted while reading document stream " + id, e);
+                    }
+                }
+                if (next == END) {
+                    // 放回结束标记，重复调用 hasNext 仍返回false
+                    queue.offer(END);
+                    if (error != null) {
+                        throw new IllegalStateException("Failed to ingest " + source + ": " + error.getMessage(), error);
+                    }
+                    return false;
+                }
+                return true;
+            }
+
+            @Override
+            public Document next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                Document current = next;
+                next = null;
+                return current;
+            }
+        };
+    }
+
+    /**
+     * 以 Flux 形式消费，阻塞读取在弹性线程上进行
+     */
+    public Flux<Document> flux() {
+        return Flux.fromIterable(this).subscribeOn(Schedulers.boundedElastic());
+    }
+
+    public boolean isCancelled() {
+        return cancelled;
+    }
+
+    public String getId() { return id; }
+    public String getSource() { return source; }
+    public long getChunks() { return chunks.get(); }
+
+    /**
+     * 从开始解析到产出首个分块的耗时（毫秒），尚未产出时返回-1
+     */
+    public long getFirstChunkMillis() {
+        return chunks.get() == 0 ? -1L : firstChunkNanos / 1_000_000L;
+    }
+}
@@ -0,0 +1,186 @@
+package com.example.nextgen.common.ingest;
+
+import com.example.nextgen.common.budget.CallBudget;
+import com.example.nextgen.domain.event.WorkflowEvent;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.ai.document.Document;
+import org.springframework.ai.transformer.splitter.TokenTextSplitter;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 文档摄取服务
+ * 在共享的有界线程池上并行解析文档分区、切分成块并写入 {@link DocumentChunkStream}；
+ * 摄取节点只输出流ID，下游节点通过 {@link #stream(String)} 边读边处理。所属工作流结束时回收未消费完的流
+ *
+ * 分块ID由来源和分块内容决定，重复摄取同一文件得到相同的ID，向量索引据此跳过已写入的分块
+ */
+@Slf4j
+@Component
+public class DocumentIngestionService {
+
+    private final IngestionProperties properties;
+    private final ObjectProvider<MeterRegistry> meterRegistry;
+    private final TokenTextSplitter splitter;
+    private final ThreadPoolExecutor executor;
+    private final Map<String, DocumentChunkStream> streams = new ConcurrentHashMap<>();
+
+    public DocumentIngestionService(IngestionProperties properties, ObjectProvider<MeterRegistry> meterRegistry) {
+        this.properties = properties;
+        this.meterRegistry = meterRegistry;
+        this.splitter = TokenTextSplitter.builder().withChunkSize(properties.getChunkSizeTokens()).build();
+        this.executor = createExecutor(properties.getPoolSize());
+    }
+
+    public DocumentChunkStream ingestPdf(Path path) {
+        return ingest(path.toString(), "pdf", new PdfPartitionReader(path, properties.getPagesPerBatch()));
+    }
+
+    public DocumentChunkStream ingestMarkdown(Path path) {
+        return ingest(path.toString(), "markdown", new MarkdownPartitionReader(path));
+    }
+
+    /**
+     * 开始摄取，立即返回文档流
+     *
+     * @param source 来源（文件路径），用于日志和错误信息
+     * @param type   文档类型，用于指标
+     */
+    public DocumentChunkStream ingest(String source, String type, PartitionReader reader) {
+        DocumentChunkStream stream = new DocumentChunkStream(newStreamId(), source, properties.getQueueCapacity());
+        int workers = Math.min(reader.partitions(), Math.max(1, properties.getWorkersPerDocument()));
+        streams.put(stream.getId(), stream);
+        stream.start(workers);
+        for (int worker = 0; worker < workers; worker++) {
+            int index = worker;
+            executor.execute(() -> runWorker(stream, type, reader, index, workers));
+        }
+        log.info("Ingesting {} with {} partitions on {} workers (stream {})", source, reader.partitions(), workers, stream.getId());
+        return stream;
+    }
+
+    /**
+     * 按ID获取文档流
+     */
+    public DocumentChunkStream stream(String streamId) {
+        DocumentChunkStream stream = streams.get(streamId);
+        if (stream == null) {
+            throw new IllegalArgumentException("Document stream not found: " + streamId);
+        }
+        return stream;
+    }
+
+    /**
+     * 消费完毕后释放文档流
+     */
+    public void release(String streamId) {
+        DocumentChunkStream stream = streams.remove(streamId);
+        if (stream != null) {
+            stream.cancel();
+        }
+    }
+
+    @EventListener
+    public void onWorkflowCompleted(WorkflowEvent.WorkflowCompleted event) {
+        releaseRun(event.getWorkflowId().getValue());
+    }
+
+    @EventListener
+    public void onWorkflowFailed(WorkflowEvent.WorkflowFailed event) {
+        releaseRun(event.getWorkflowId().getValue());
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        streams.values().forEach(DocumentChunkStream::cancel);
+        executor.shutdownNow();
+    }
+
+    private void releaseRun(String workflowId) {
+        String prefix = workflowId + "/";
+        streams.keySet().stream().filter(id -> id.startsWith(prefix)).toList().forEach(this::release);
+    }
+
+    /**
+     * 流ID带上所属工作流实例ID，工作流结束时据此回收
+     */
+    private static String newStreamId() {
+        CallBudget budget = CallBudget.current();
+        String owner = budget != null && budget.getWorkflowId() != null ? budget.getWorkflowId() : "standalone";
+        return owner + "/" + UUID.randomUUID();
+    }
+
+    private void runWorker(DocumentChunkStream stream, String type, PartitionReader reader, int worker, int workers) {
+        try {
+            reader.read(worker, workers, documents -> publish(stream, type, documents));
+            stream.workerDone();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            stream.fail(e);
+        } catch (Exception e) {
+            log.warn("Failed to ingest {}: {}", stream.getSource(), e.getMessage());
+            stream.fail(e);
+        }
+    }
+
+    private boolean publish(DocumentChunkStream stream, String type, List<Document> documents) throws InterruptedException {
+        if (stream.isCancelled()) {
+            return false;
+        }
+        List<Document> chunks = splitter.apply(documents);
+        for (Document split : chunks) {
+            Document chunk = withStableId(stream.getSource(), split);
+            if (stream.publish(chunk)) {
+                long firstChunkMillis = stream.getFirstChunkMillis();
+                log.info("First chunk of {} ready after {} ms", stream.getSource(), firstChunkMillis);
+                meterRegistry.ifAvailable(registry -> Timer.builder("nextgen.ingest.first.chunk")
+                        .tag("type", type)
+                        .register(registry)
+                        .record(firstChunkMillis, TimeUnit.MILLISECONDS));
+            }
+        }
+        meterRegistry.ifAvailable(registry -> Counter.builder("nextgen.ingest.chunks")
+                .tag("type", type)
+                .register(registry)
+                .increment(chunks.size()));
+        return !stream.isCancelled();
+    }
+
+    /**
+     * 切分器给分块分配的是随机ID，换成按来源和内容计算的ID
+     */
+    static Document withStableId(String source, Document chunk) {
+        String id = UUID.nameUUIDFromBytes((source + '\0' + chunk.getText()).getBytes(StandardCharsets.UTF_8)).toString();
+        Document document = Document.builder().id(id).text(chunk.getText()).metadata(chunk.getMetadata()).build();
+        document.setContentFormatter(chunk.getContentFormatter());
+        return document;
+    }
+
+    private static ThreadPoolExecutor createExecutor(int poolSize) {
+        AtomicInteger counter = new AtomicInteger();
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(poolSize, poolSize, 60L, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>(), runnable -> {
+            Thread thread = new Thread(runnable, "document-ingest-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        executor.allowCoreThreadTimeOut(true);
+        return executor;
+    }
+}
@@ -0,0 +1,41 @@
+package com.example.nextgen.common.ingest;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+/**
+ * 文档摄取相关配置
+ */
+@Getter
+@Setter
+@Component
+@ConfigurationProperties(prefix = "nextgen.ingest")
+public class IngestionProperties {
+
+    /**
+     * 所有文档共享的解析线程数
+     */
+    private int poolSize = 8;
+
+    /**
+     * 单个文档最多同时使用的解析线程数
+     */
+    private int workersPerDocument = 4;
+
+    /**
+     * PDF 每批解析的页数，越小首个分块越早产出
+     */
+    private int pagesPerBatch = 5;
+
+    /**
+     * 分块大小（token）
+     */
+    private int chunkSizeTokens = 800;
+
+    /**
+     * 每个文档流中未被消费的分块上限，消费慢时解析线程阻塞等待
+     */
+    private int queueCapacity = 256;
+}
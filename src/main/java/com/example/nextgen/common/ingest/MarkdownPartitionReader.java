@@ -0,0 +1,97 @@
+package com.example.nextgen.common.ingest;
+
+import org.springframework.ai.document.Document;
+import org.springframework.ai.reader.markdown.MarkdownDocumentReader;
+import org.springframework.ai.reader.markdown.config.MarkdownDocumentReaderConfig;
+import org.springframework.core.io.ByteArrayResource;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Markdown 按章节并行读取
+ * 通过内存映射读取文件，按一、二级标题（代码块之外）切分章节，各章节交给 spring-ai MarkdownDocumentReader 解析
+ */
+public class MarkdownPartitionReader implements PartitionReader {
+
+    private final Path path;
+    private final List<String> sections;
+
+    public MarkdownPartitionReader(Path path) {
+        this.path = path;
+        this.sections = splitSections(readMapped(path));
+    }
+
+    @Override
+    public int partitions() {
+        return sections.size();
+    }
+
+    @Override
+    public void read(int worker, int workers, Emitter emit) throws Exception {
+        MarkdownDocumentReaderConfig config = MarkdownDocumentReaderConfig.builder()
+                .withIncludeCodeBlock(true)
+                .withIncludeBlockquote(true)
+                .withAdditionalMetadata("file_name", path.getFileName().toString())
+                .build();
+        for (int index = worker; index < sections.size(); index += workers) {
+            byte[] section = sections.get(index).getBytes(StandardCharsets.UTF_8);
+            List<Document> documents = new ArrayList<>();
+            for (Document document : new MarkdownDocumentReader(new ByteArrayResource(section), config).get()) {
+                document.getMetadata().put("section_index", index);
+                documents.add(document);
+            }
+            if (!emit.emit(documents)) {
+                return;
+            }
+        }
+    }
+
+    private static String readMapped(Path path) {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            return StandardCharsets.UTF_8.decode(buffer).toString();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to read markdown " + path, e);
+        }
+    }
+
+    /**
+     * 在一、二级标题处切分，忽略代码块中的 # 行
+     */
+    static List<String> splitSections(String text) {
+        List<String> sections = new ArrayList<>();
+        boolean inCodeBlock = false;
+        int sectionStart = 0;
+        int lineStart = 0;
+        while (lineStart < text.length()) {
+            int lineEnd = text.indexOf('\n', lineStart);
+            if (lineEnd < 0) {
+                lineEnd = text.length();
+            }
+            if (text.startsWith("```", lineStart) || text.startsWith("~~~", lineStart)) {
+                inCodeBlock = !inCodeBlock;
+            } else if (!inCodeBlock && lineStart > sectionStart
+                    && (text.startsWith("# ", lineStart) || text.startsWith("## ", lineStart))) {
+                addSection(sections, text.substring(sectionStart, lineStart));
+                sectionStart = lineStart;
+            }
+            lineStart = lineEnd + 1;
+        }
+        addSection(sections, text.substring(sectionStart));
+        return sections;
+    }
+
+    private static void addSection(List<String> sections, String section) {
+        if (!section.isBlank()) {
+            sections.add(section);
+        }
+    }
+}
@@ -0,0 +1,31 @@
+package com.example.nextgen.common.ingest;
+
+import org.springframework.ai.document.Document;
+
+import java.util.List;
+
+/**
+ * 按分区并行读取文档
+ * 文档被划分为若干分区（PDF 的页批、Markdown 的章节），第 worker 个解析线程依次处理 worker、worker + workers ... 号分区，
+ * 每读完一个分区就通过 emit 交出，随后被分块并写入文档流
+ */
+public interface PartitionReader {
+
+    /**
+     * 分区数量，决定使用多少个解析线程
+     */
+    int partitions();
+
+    /**
+     * 由每个解析线程调用一次；每个线程需要独立打开文档，不与其他线程共享解析状态
+     */
+    void read(int worker, int workers, Emitter emit) throws Exception;
+
+    @FunctionalInterface
+    interface Emitter {
+        /**
+         * @return 流已取消时返回false，读取方应停止
+         */
+        boolean emit(List<Document> documents) throws InterruptedException;
+    }
+}
@@ -0,0 +1,90 @@
+package com.example.nextgen.common.ingest;
+
+import org.apache.pdfbox.Loader;
+import org.apache.pdfbox.io.RandomAccessReadMemoryMappedFile;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.PDPage;
+import org.springframework.ai.document.Document;
+import org.springframework.ai.reader.pdf.PagePdfDocumentReader;
+import org.springframework.ai.reader.pdf.layout.PDFLayoutTextStripperByArea;
+
+import java.awt.Rectangle;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * PDF 按页批并行读取
+ * 每个解析线程通过内存映射独立打开文件（操作系统共享同一份页缓存，不把整个文件读入堆），
+ * 按 spring-ai PagePdfDocumentReader 的方式逐页提取版面文本，每页一个 Document
+ */
+public class PdfPartitionReader implements PartitionReader {
+
+    private static final String PAGE_REGION = "pdfPageRegion";
+
+    private final Path path;
+    private final int pagesPerBatch;
+    private final int pageCount;
+
+    public PdfPartitionReader(Path path, int pagesPerBatch) {
+        this.path = path;
+        this.pagesPerBatch = Math.max(1, pagesPerBatch);
+        try (RandomAccessReadMemoryMappedFile file = new RandomAccessReadMemoryMappedFile(path);
+             PDDocument document = Loader.loadPDF(file)) {
+            this.pageCount = document.getNumberOfPages();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to open PDF " + path, e);
+        }
+    }
+
+    @Override
+    public int partitions() {
+        return (pageCount + pagesPerBatch - 1) / pagesPerBatch;
+    }
+
+    @Override
+    public void read(int worker, int workers, Emitter emit) throws Exception {
+        try (RandomAccessReadMemoryMappedFile file = new RandomAccessReadMemoryMappedFile(path);
+             PDDocument document = Loader.loadPDF(file)) {
+            PDFLayoutTextStripperByArea stripper = new PDFLayoutTextStripperByArea();
+            String fileName = path.getFileName().toString();
+            for (int batch = worker; batch < partitions(); batch += workers) {
+                int from = batch * pagesPerBatch;
+                int to = Math.min(pageCount, from + pagesPerBatch);
+                List<Document> pages = new ArrayList<>(to - from);
+                for (int index = from; index < to; index++) {
+                    String text = pageText(stripper, document.getPage(index));
+                    if (!text.isBlank()) {
+                        pages.add(new Document(text, Map.of(
+                                PagePdfDocumentReader.METADATA_START_PAGE_NUMBER, index + 1,
+                                PagePdfDocumentReader.METADATA_FILE_NAME, fileName)));
+                    }
+                }
+                if (!emit.emit(pages)) {
+                    return;
+                }
+            }
+        }
+    }
+
+    private static String pageText(PDFLayoutTextStripperByArea stripper, PDPage page) throws IOException {
+        int x0 = (int) page.getMediaBox().getLowerLeftX();
+        int y0 = (int) page.getMediaBox().getLowerLeftY();
+        int width = (int) page.getMediaBox().getWidth();
+        int height = (int) page.getMediaBox().getHeight();
+        stripper.addRegion(PAGE_REGION, new Rectangle(x0, y0, width, height));
+        try {
+            stripper.extractRegions(page);
+            return stripper.getTextForRegion(PAGE_REGION);
+        } finally {
+            stripper.removeRegion(PAGE_REGION);
+        }
+    }
+
+    public int getPageCount() {
+        return pageCount;
+    }
+}
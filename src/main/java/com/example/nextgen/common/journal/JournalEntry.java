@@ -0,0 +1,36 @@
+package com.example.nextgen.common.journal;
+
+import java.util.Map;
+
+/**
+ * 事件日志中的一条记录
+ * 节点按名称记录（节点ID在重建工作流后会变化），data 中只保存恢复需要的内容
+ *
+ * @param sequence   全局递增序号
+ * @param workflowId 工作流实例ID
+ * @param type       事件类型，同 {@link com.example.nextgen.domain.event.WorkflowEvent#getEventType()}
+ * @param timestamp  记录时间（毫秒）
+ * @param nodeName   节点事件的节点名称，工作流事件为空
+ * @param data       事件内容
+ */
+public record JournalEntry(long sequence, String workflowId, String type, long timestamp, String nodeName,
+                           Map<String, Object> data) {
+
+    public static final String WORKFLOW_STARTED = "WorkflowStarted";
+    public static final String WORKFLOW_RECOVERED = "WorkflowRecovered";
+    public static final String WORKFLOW_COMPLETED = "WorkflowCompleted";
+    public static final String WORKFLOW_FAILED = "WorkflowFailed";
+    /**
+     * 恢复时找不到定义等原因放弃的运行，之后不再尝试恢复
+     */
+    public static final String WORKFLOW_ABANDONED = "WorkflowAbandoned";
+    public static final String NODE_COMPLETED = "NodeCompleted";
+    public static final String NODE_FAILED = "NodeFailed";
+
+    /**
+     * 运行已结束，不需要恢复
+     */
+    public boolean isTerminal() {
+        return WORKFLOW_COMPLETED.equals(type) || WORKFLOW_FAILED.equals(type) || WORKFLOW_ABANDONED.equals(type);
+    }
+}
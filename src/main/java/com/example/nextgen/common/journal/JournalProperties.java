@@ -0,0 +1,51 @@
+package com.example.nextgen.common.journal;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+/**
+ * 工作流事件日志相关配置
+ */
+@Getter
+@Setter
+@Component
+@ConfigurationProperties(prefix = "nextgen.journal")
+public class JournalProperties {
+
+    /**
+     * 是否记录事件日志并在启动时恢复未结束的运行，默认关闭
+     */
+    private boolean enabled = false;
+
+    /**
+     * 日志目录，段文件和快照都写在这里；相对路径按工作目录解析，部署时应配置为绝对路径
+     */
+    private String directory = "data/journal";
+
+    /**
+     * 单个段文件的大小上限（字节），超过后滚动到新段
+     */
+    private long segmentBytes = 64L * 1024 * 1024;
+
+    /**
+     * 一次组提交最多合并的记录数
+     */
+    private int maxBatch = 512;
+
+    /**
+     * 节点完成、运行结束时是否等待落盘后再继续调度，关闭后崩溃时可能丢失最后一批记录（对应节点会重新执行）
+     */
+    private boolean syncCommit = true;
+
+    /**
+     * 等待落盘的最长时间（毫秒），超时后不再等待
+     */
+    private long syncTimeoutMillis = 5_000;
+
+    /**
+     * 每个运行每记录多少条事件写一次快照，之前的日志随之可以回收
+     */
+    private int snapshotEveryEvents = 50;
+}
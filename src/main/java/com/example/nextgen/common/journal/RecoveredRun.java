@@ -0,0 +1,73 @@
+package com.example.nextgen.common.journal;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 启动时从日志中找到的未结束运行
+ *
+ * @param workflowId 工作流实例ID
+ * @param snapshot   最后一次快照，没有快照时为空
+ * @param tail       快照之后（没有快照时为全部）的日志记录，按序号排列
+ */
+public record RecoveredRun(String workflowId, RunSnapshot snapshot, List<JournalEntry> tail) {
+
+    /**
+     * 工作流名称，取自快照或启动、恢复、重试记录，都没有时为空
+     */
+    public String workflowName() {
+        if (snapshot != null) {
+            return snapshot.workflowName();
+        }
+        for (JournalEntry entry : tail) {
+            Object name = entry.data().get("workflowName");
+            if (name != null) {
+                return name.toString();
+            }
+        }
+        return null;
+    }
+
+    /**
+     * 启动时的全局上下文，快照之后的恢复不需要
+     */
+    @SuppressWarnings("unchecked")
+    public Map<String, Object> initialContext() {
+        JournalEntry started = startedEntry();
+        Object context = started != null ? started.data().get("globalContext") : null;
+        return context instanceof Map ? (Map<String, Object>) context : Map.of();
+    }
+
+    /**
+     * 本次运行的时间预算，未记录时为空
+     */
+    public Long timeoutMillis() {
+        if (snapshot != null) {
+            return snapshot.timeoutMillis();
+        }
+        JournalEntry started = startedEntry();
+        Object value = started != null ? started.data().get("timeoutMillis") : null;
+        return value instanceof Number number ? number.longValue() : null;
+    }
+
+    /**
+     * 本次运行的 token 预算，未记录时为空
+     */
+    public Long tokenLimit() {
+        if (snapshot != null) {
+            return snapshot.tokenLimit();
+        }
+        JournalEntry started = startedEntry();
+        Object value = started != null ? started.data().get("tokenLimit") : null;
+        return value instanceof Number number ? number.longValue() : null;
+    }
+
+    private JournalEntry startedEntry() {
+        for (JournalEntry entry : tail) {
+            if (JournalEntry.WORKFLOW_STARTED.equals(entry.type())) {
+                return entry;
+            }
+        }
+        return null;
+    }
+}
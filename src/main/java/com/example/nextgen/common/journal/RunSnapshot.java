@@ -0,0 +1,69 @@
+package com.example.nextgen.common.journal;
+
+import com.alibaba.fastjson2.JSON;
+import com.alibaba.fastjson2.JSONObject;
+import com.example.nextgen.domain.node.WorkflowNode;
+import com.example.nextgen.domain.workflow.Workflow;
+
+import java.util.*;
+
+/**
+ * 运行中工作流的快照，恢复时从快照开始重放其后的日志
+ *
+ * @param workflowId      工作流实例ID
+ * @param workflowName    工作流名称，按名称找到定义重建节点
+ * @param globalContext   全局上下文
+ * @param nodes           节点名称 -> 节点状态
+ * @param handledFailures 已被错误处理边接管的失败节点名称
+ * @param timeoutMillis   本次运行的时间预算
+ * @param tokenLimit      本次运行的 token 预算
+ * @param lastSequence    快照已包含的最后一条日志序号
+ */
+public record RunSnapshot(String workflowId, String workflowName, Map<String, Object> globalContext,
+                          Map<String, NodeSnapshot> nodes, List<String> handledFailures, Long timeoutMillis,
+                          Long tokenLimit, long lastSequence) {
+
+    /**
+     * @param status     节点状态
+     * @param outputData 节点输出
+     * @param metadata   节点元数据
+     */
+    public record NodeSnapshot(String status, Map<String, Object> outputData, Map<String, Object> metadata) {
+    }
+
+    /**
+     * 在执行线程上复制工作流当前状态，序号在写入日志时确定
+     */
+    public static RunSnapshot of(Workflow workflow) {
+        Map<String, NodeSnapshot> nodes = new LinkedHashMap<>();
+        List<String> handledFailures = new ArrayList<>();
+        for (Object value : workflow.getNodes().values()) {
+            WorkflowNode<?, ?> node = (WorkflowNode<?, ?>) value;
+            nodes.put(node.getName(), new NodeSnapshot(node.getStatus().name(),
+                    new LinkedHashMap<>(node.getOutputData()), new LinkedHashMap<>(node.getMetadata())));
+            if (workflow.getHandledFailures().contains(node.getNodeId())) {
+                handledFailures.add(node.getName());
+            }
+        }
+        return new RunSnapshot(workflow.getWorkflowId().getValue(), workflow.getName(),
+                new LinkedHashMap<>(workflow.getGlobalContext()), nodes, handledFailures, workflow.getTimeoutMillis(),
+                workflow.getTokenLimit(), 0L);
+    }
+
+    /**
+     * 读取快照文件；全局上下文按写入顺序还原（上下文裁剪依赖该顺序）
+     */
+    static RunSnapshot parse(byte[] bytes) {
+        JSONObject json = JSON.parseObject(bytes);
+        RunSnapshot snapshot = json.to(RunSnapshot.class);
+        JSONObject context = json.getJSONObject("globalContext");
+        return new RunSnapshot(snapshot.workflowId, snapshot.workflowName,
+                context != null ? new LinkedHashMap<>(context) : new LinkedHashMap<>(), snapshot.nodes,
+                snapshot.handledFailures, snapshot.timeoutMillis, snapshot.tokenLimit, snapshot.lastSequence);
+    }
+
+    RunSnapshot withLastSequence(long sequence) {
+        return new RunSnapshot(workflowId, workflowName, globalContext, nodes, handledFailures, timeoutMillis, tokenLimit,
+                sequence);
+    }
+}
@@ -0,0 +1,651 @@
+package com.example.nextgen.common.journal;
+
+import com.alibaba.fastjson2.JSON;
+import com.alibaba.fastjson2.JSONObject;
+import com.example.nextgen.domain.event.WorkflowEvent;
+import com.example.nextgen.domain.node.NodeId;
+import com.example.nextgen.domain.node.WorkflowNode;
+import com.example.nextgen.domain.workflow.Workflow;
+import com.example.nextgen.domain.workflow.WorkflowId;
+import com.example.nextgen.domain.workflow.WorkflowRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+/**
+ * 工作流事件日志
+ * 所有工作流事件按序号追加到本地分段日志，每条记录为 "长度 + CRC + 序号 + JSON"；
+ * 追加只是入队，单个写线程把队列中积攒的记录一次写入并只调用一次 fsync（组提交），
+ * 节点完成和运行开始/结束时执行线程等待所在批次落盘，保证已完成的节点在重启后不会重新执行。
+ * 每个运行每隔若干条事件写一次快照，快照之前的日志以及已结束运行的日志所在的段文件随之删除。
+ *
+ * 启动时读取快照和日志，未结束的运行由 {@link #getRecoveredRuns()} 交给恢复流程重建；
+ * 段尾不完整或校验失败的记录（崩溃时写了一半）被忽略，新记录总是写入新的段
+ */
+@Slf4j
+@Component
+public class WorkflowJournal {
+
+    private static final String SEGMENT_PREFIX = "segment-";
+    private static final String SEGMENT_SUFFIX = ".log";
+    private static final String SNAPSHOT_DIRECTORY = "snapshots";
+    private static final String SNAPSHOT_SUFFIX = ".json";
+    private static final int HEADER_BYTES = 16;
+    private static final int MAX_RECORD_BYTES = 64 * 1024 * 1024;
+
+    private final JournalProperties properties;
+    private final WorkflowRepository workflowRepository;
+    private final Path directory;
+    private final Path snapshotDirectory;
+
+    /**
+     * 节点事件只带节点ID，按此找到所属工作流；运行结束时移除
+     */
+    private final Map<NodeId, Workflow> nodeOwners = new ConcurrentHashMap<>();
+
+    /**
+     * 运行 -> 上次快照后记录的事件数
+     */
+    private final Map<String, Integer> sinceSnapshot = new ConcurrentHashMap<>();
+
+    private final BlockingQueue<Append> queue = new LinkedBlockingQueue<>();
+    private final Object appendLock = new Object();
+    private long nextSequence = 1;
+    private final List<RecoveredRun> recoveredRuns;
+    private final Thread writer;
+    private volatile boolean running = true;
+
+    // 以下只在写线程（以及启动前的加载）中访问
+    private final TreeMap<Long, Segment> segments = new TreeMap<>();
+    private Segment current;
+    private FileChannel channel;
+
+    private final Counter commits;
+    private final DistributionSummary batchSizes;
+    private final Counter failures;
+
+    public WorkflowJournal(JournalProperties properties, WorkflowRepository workflowRepository,
+                           ObjectProvider<MeterRegistry> meterRegistry) {
+        this.properties = properties;
+        this.workflowRepository = workflowRepository;
+        this.directory = Path.of(properties.getDirectory());
+        this.snapshotDirectory = directory.resolve(SNAPSHOT_DIRECTORY);
+        MeterRegistry registry = meterRegistry.getIfAvailable();
+        this.commits = registry != null ? Counter.builder("nextgen.journal.commits").register(registry) : null;
+        this.batchSizes = registry != null ? DistributionSummary.builder("nextgen.journal.batch.size").register(registry) : null;
+        this.failures = registry != null ? Counter.builder("nextgen.journal.failures").register(registry) : null;
+
+        if (!properties.isEnabled()) {
+            this.recoveredRuns = List.of();
+            this.writer = null;
+            return;
+        }
+        this.recoveredRuns = load();
+        this.writer = new Thread(this::writeLoop, "workflow-journal-1");
+        this.writer.setDaemon(true);
+        this.writer.start();
+    }
+
+    /**
+     * 启动时找到的未结束运行
+     */
+    public List<RecoveredRun> getRecoveredRuns() {
+        return recoveredRuns;
+    }
+
+    /**
+     * 放弃恢复一个运行，之后重启也不再尝试
+     */
+    public void abandon(String workflowId, String reason) {
+        if (!properties.isEnabled()) {
+            return;
+        }
+        Map<String, Object> data = new LinkedHashMap<>();
+        data.put("reason", reason);
+        await(append(workflowId, JournalEntry.WORKFLOW_ABANDONED, null, data, null));
+    }
+
+    @EventListener
+    public void onEvent(WorkflowEvent event) {
+        if (!properties.isEnabled()) {
+            return;
+        }
+        try {
+            record(event);
+        } catch (RuntimeException e) {
+            log.warn("Failed to journal {} event: {}", event.getEventType(), e.getMessage());
+        }
+    }
+
+    private void record(WorkflowEvent event) {
+        if (event instanceof WorkflowEvent.WorkflowStarted started) {
+            Workflow workflow = track(started.getWorkflowId());
+            if (workflow == null) {
+                return;
+            }
+            Map<String, Object> data = new LinkedHashMap<>();
+            data.put("workflowName", workflow.getName());
+            data.put("globalContext", new LinkedHashMap<>(workflow.getGlobalContext()));
+            data.put("timeoutMillis", workflow.getTimeoutMillis());
+            data.put("tokenLimit", workflow.getTokenLimit());
+            await(append(id(workflow), event.getEventType(), null, data, null));
+        } else if (event instanceof WorkflowEvent.WorkflowRecovered recovered) {
+            resumed(recovered.getWorkflowId(), event.getEventType());
+        } else if (event instanceof WorkflowEvent.WorkflowRetried retried) {
+            resumed(retried.getWorkflowId(), event.getEventType());
+        } else if (event instanceof WorkflowEvent.WorkflowCompleted completed) {
+            finish(completed.getWorkflowId(), event.getEventType(), new LinkedHashMap<>());
+        } else if (event instanceof WorkflowEvent.WorkflowFailed failed) {
+            Map<String, Object> data = new LinkedHashMap<>();
+            data.put("errorMessage", failed.getErrorMessage());
+            finish(failed.getWorkflowId(), event.getEventType(), data);
+        } else {
+            recordNodeEvent(event);
+        }
+    }
+
+    /**
+     * 运行恢复或重试后继续执行：立即写快照，之前的日志随之可以回收
+     */
+    private void resumed(WorkflowId workflowId, String type) {
+        Workflow workflow = track(workflowId);
+        if (workflow == null) {
+            return;
+        }
+        Map<String, Object> data = new LinkedHashMap<>();
+        data.put("workflowName", workflow.getName());
+        sinceSnapshot.put(id(workflow), 0);
+        await(append(id(workflow), type, null, data, RunSnapshot.of(workflow)));
+    }
+
+    private void recordNodeEvent(WorkflowEvent event) {
+        NodeId nodeId = nodeIdOf(event);
+        Workflow workflow = nodeId != null ? nodeOwners.get(nodeId) : null;
+        WorkflowNode<?, ?> node = workflow != null ? workflow.getNode(nodeId) : null;
+        if (node == null) {
+            return;
+        }
+        String workflowId = id(workflow);
+        Map<String, Object> data = new LinkedHashMap<>();
+        if (event instanceof WorkflowEvent.NodeCompleted completed) {
+            data.put("output", new LinkedHashMap<>(completed.getOutput()));
+            data.put("metadata", new LinkedHashMap<>(node.getMetadata()));
+            // 节点完成事件在工作流处理完该节点之后发布，此时的状态可以作为快照
+            int count = sinceSnapshot.merge(workflowId, 1, Integer::sum);
+            RunSnapshot snapshot = null;
+            if (count >= properties.getSnapshotEveryEvents()) {
+                sinceSnapshot.put(workflowId, 0);
+                snapshot = RunSnapshot.of(workflow);
+            }
+            await(append(workflowId, event.getEventType(), node.getName(), data, snapshot));
+            return;
+        }
+        if (event instanceof WorkflowEvent.NodeFailed failed) {
+            data.put("errorMessage", failed.getErrorMessage());
+            data.put("metadata", new LinkedHashMap<>(node.getMetadata()));
+        } else if (event instanceof WorkflowEvent.NodeOutputFieldCompleted field) {
+            data.put("field", field.getField());
+            data.put("value", field.getValue());
+        } else if (event instanceof WorkflowEvent.AgentExecutionCompleted agent) {
+            data.put("agentName", agent.getAgentName());
+            data.put("result", agent.getResult());
+        }
+        sinceSnapshot.merge(workflowId, 1, Integer::sum);
+        append(workflowId, event.getEventType(), node.getName(), data, null);
+    }
+
+    private static NodeId nodeIdOf(WorkflowEvent event) {
+        if (event instanceof WorkflowEvent.NodeStarted e) {
+            return e.getNodeId();
+        } else if (event instanceof WorkflowEvent.NodeCompleted e) {
+            return e.getNodeId();
+        } else if (event instanceof WorkflowEvent.NodeFailed e) {
+            return e.getNodeId();
+        } else if (event instanceof WorkflowEvent.NodeReset e) {
+            return e.getNodeId();
+        } else if (event instanceof WorkflowEvent.NodeSkipped e) {
+            return e.getNodeId();
+        } else if (event instanceof WorkflowEvent.NodeOutputFieldCompleted e) {
+            return e.getNodeId();
+        } else if (event instanceof WorkflowEvent.AgentExecutionStarted e) {
+            return e.getNodeId();
+        } else if (event instanceof WorkflowEvent.AgentExecutionCompleted e) {
+            return e.getNodeId();
+        }
+        return null;
+    }
+
+    private Workflow track(WorkflowId workflowId) {
+        Workflow workflow = workflowRepository.findById(workflowId).orElse(null);
+        if (workflow != null) {
+            for (Object node : workflow.getNodes().values()) {
+                nodeOwners.put(((WorkflowNode<?, ?>) node).getNodeId(), workflow);
+            }
+        }
+        return workflow;
+    }
+
+    private void finish(WorkflowId workflowId, String type, Map<String, Object> data) {
+        nodeOwners.values().removeIf(workflow -> workflow.getWorkflowId().equals(workflowId));
+        sinceSnapshot.remove(workflowId.getValue());
+        await(append(workflowId.getValue(), type, null, data, null));
+    }
+
+    private static String id(Workflow workflow) {
+        return workflow.getWorkflowId().getValue();
+    }
+
+    /**
+     * 追加一条记录，返回的 future 在所在批次落盘后完成
+     * 序列化在锁外进行，锁内只分配序号并入队，保证队列顺序与序号一致
+     */
+    private CompletableFuture<Void> append(String workflowId, String type, String nodeName,
+                                           Map<String, Object> data, RunSnapshot snapshot) {
+        JSONObject body = new JSONObject();
+        body.put("workflowId", workflowId);
+        body.put("type", type);
+        body.put("timestamp", System.currentTimeMillis());
+        body.put("nodeName", nodeName);
+        body.put("data", data);
+        byte[] payload = JSON.toJSONBytes(body);
+        CRC32 crc = new CRC32();
+        crc.update(payload);
+        ByteBuffer frame = ByteBuffer.allocate(HEADER_BYTES + payload.length);
+        frame.putInt(payload.length).putInt((int) crc.getValue());
+        CompletableFuture<Void> durable = new CompletableFuture<>();
+        synchronized (appendLock) {
+            if (!running) {
+                durable.completeExceptionally(new IllegalStateException("Journal is closed"));
+                return durable;
+            }
+            long sequence = nextSequence++;
+            frame.putLong(sequence).put(payload).flip();
+            queue.add(new Append(sequence, workflowId, type, frame,
+                    snapshot != null ? snapshot.withLastSequence(sequence) : null, durable));
+        }
+        return durable;
+    }
+
+    /**
+     * 按配置等待落盘，失败或超时只记录日志，不影响执行
+     */
+    private void await(CompletableFuture<Void> durable) {
+        if (!properties.isSyncCommit()) {
+            return;
+        }
+        try {
+            durable.get(properties.getSyncTimeoutMillis(), TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException | TimeoutException e) {
+            log.warn("Journal commit not confirmed: {}", e.getMessage());
+        }
+    }
+
+    // ---------------------------------------------------------------- 写线程
+
+    private void writeLoop() {
+        List<Append> batch = new ArrayList<>();
+        while (running || !queue.isEmpty()) {
+            try {
+                Append first = queue.poll(200, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                queue.drainTo(batch, Math.max(1, properties.getMaxBatch()) - 1);
+                commit(batch);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            } finally {
+                batch.clear();
+            }
+        }
+        closeSegment();
+    }
+
+    /**
+     * 组提交：整批写入后只 fsync 一次，然后写快照、回收段文件，最后通知等待的执行线程
+     */
+    private void commit(List<Append> batch) {
+        try {
+            List<ByteBuffer> frames = new ArrayList<>(batch.size());
+            for (Append append : batch) {
+                int length = append.frame().remaining();
+                if (channel == null || (current.size > 0 && current.size + length > properties.getSegmentBytes())) {
+                    write(frames);
+                    frames.clear();
+                    roll(append.sequence());
+                }
+                frames.add(append.frame());
+                current.size += length;
+                current.lastSequence = append.sequence();
+                current.live.add(append.workflowId());
+            }
+            write(frames);
+            channel.force(false);
+        } catch (IOException e) {
+            log.error("Failed to write workflow journal: {}", e.getMessage());
+            if (failures != null) {
+                failures.increment();
+            }
+            batch.forEach(append -> append.durable().completeExceptionally(e));
+            // 写入位置已不可信，下一批写到新段
+            closeSegment();
+            return;
+        }
+        if (commits != null) {
+            commits.increment();
+            batchSizes.record(batch.size());
+        }
+        for (Append append : batch) {
+            if (append.snapshot() != null) {
+                writeSnapshot(append.snapshot());
+            }
+            if (JournalEntry.WORKFLOW_COMPLETED.equals(append.type()) || JournalEntry.WORKFLOW_FAILED.equals(append.type())
+                    || JournalEntry.WORKFLOW_ABANDONED.equals(append.type())) {
+                release(append.workflowId(), Long.MAX_VALUE);
+                deleteSnapshot(append.workflowId());
+            }
+        }
+        batch.forEach(append -> append.durable().complete(null));
+    }
+
+    private void write(List<ByteBuffer> frames) throws IOException {
+        if (frames.isEmpty()) {
+            return;
+        }
+        ByteBuffer[] buffers = frames.toArray(new ByteBuffer[0]);
+        long remaining = 0;
+        for (ByteBuffer buffer : buffers) {
+            remaining += buffer.remaining();
+        }
+        while (remaining > 0) {
+            remaining -= channel.write(buffers);
+        }
+    }
+
+    private void roll(long firstSequence) throws IOException {
+        closeSegment();
+        Files.createDirectories(directory);
+        Path file = directory.resolve(String.format("%s%020d%s", SEGMENT_PREFIX, firstSequence, SEGMENT_SUFFIX));
+        // 同名文件只可能是上次崩溃时没有写成功任何记录的段，直接覆盖
+        channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING);
+        current = new Segment(file);
+        segments.put(firstSequence, current);
+        // 目录项也要落盘，否则崩溃后新段文件可能不存在
+        forceDirectory();
+    }
+
+    private void closeSegment() {
+        if (channel == null) {
+            return;
+        }
+        try {
+            channel.force(false);
+            channel.close();
+        } catch (IOException e) {
+            log.warn("Failed to close journal segment {}: {}", current.file, e.getMessage());
+        }
+        channel = null;
+        current.closed = true;
+        deleteReleasedSegments();
+    }
+
+    /**
+     * 运行在 sequence 之前的记录已不再需要（已写快照或运行已结束），回收不再包含未结束运行记录的段
+     */
+    private void release(String workflowId, long sequence) {
+        for (Segment segment : segments.values()) {
+            if (segment.lastSequence <= sequence) {
+                segment.live.remove(workflowId);
+            }
+        }
+        deleteReleasedSegments();
+    }
+
+    private void deleteReleasedSegments() {
+        Iterator<Segment> iterator = segments.values().iterator();
+        while (iterator.hasNext()) {
+            Segment segment = iterator.next();
+            if (segment.closed && segment.live.isEmpty()) {
+                try {
+                    Files.deleteIfExists(segment.file);
+                    iterator.remove();
+                } catch (IOException e) {
+                    log.warn("Failed to delete journal segment {}: {}", segment.file, e.getMessage());
+                }
+            }
+        }
+    }
+
+    private void writeSnapshot(RunSnapshot snapshot) {
+        try {
+            Files.createDirectories(snapshotDirectory);
+            Path file = snapshotFile(snapshot.workflowId());
+            Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+            try (FileChannel out = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                    StandardOpenOption.TRUNCATE_EXISTING)) {
+                ByteBuffer buffer = ByteBuffer.wrap(JSON.toJSONBytes(snapshot));
+                while (buffer.hasRemaining()) {
+                    out.write(buffer);
+                }
+                out.force(true);
+            }
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            release(snapshot.workflowId(), snapshot.lastSequence());
+        } catch (IOException | RuntimeException e) {
+            // 快照失败时保留日志，恢复时从更早的位置重放
+            log.warn("Failed to write snapshot of workflow {}: {}", snapshot.workflowId(), e.getMessage());
+        }
+    }
+
+    private void deleteSnapshot(String workflowId) {
+        try {
+            Files.deleteIfExists(snapshotFile(workflowId));
+        } catch (IOException e) {
+            log.warn("Failed to delete snapshot of workflow {}: {}", workflowId, e.getMessage());
+        }
+    }
+
+    private Path snapshotFile(String workflowId) {
+        return snapshotDirectory.resolve(workflowId + SNAPSHOT_SUFFIX);
+    }
+
+    private void forceDirectory() {
+        try (FileChannel dir = FileChannel.open(directory, StandardOpenOption.READ)) {
+            dir.force(true);
+        } catch (IOException e) {
+            // 部分平台不支持对目录 fsync
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        synchronized (appendLock) {
+            running = false;
+        }
+        if (writer == null) {
+            return;
+        }
+        try {
+            writer.join(TimeUnit.SECONDS.toMillis(5));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    // ---------------------------------------------------------------- 启动加载
+
+    /**
+     * 读取快照和全部段文件，找出未结束的运行；只包含已结束运行（或已被快照覆盖）记录的段直接删除
+     */
+    private List<RecoveredRun> load() {
+        if (!Files.isDirectory(directory)) {
+            return List.of();
+        }
+        Map<String, RunSnapshot> snapshots = readSnapshots();
+        Map<String, List<JournalEntry>> tails = new LinkedHashMap<>();
+        Set<String> finished = new HashSet<>();
+        long lastSequence = 0;
+        for (Path file : segmentFiles()) {
+            Segment segment = new Segment(file);
+            segment.closed = true;
+            long[] last = {lastSequence};
+            readSegment(file, lastSequence, entry -> {
+                last[0] = entry.sequence();
+                segment.lastSequence = entry.sequence();
+                if (entry.isTerminal()) {
+                    finished.add(entry.workflowId());
+                    return;
+                }
+                // 结束后又有记录，说明运行被重试
+                finished.remove(entry.workflowId());
+                RunSnapshot snapshot = snapshots.get(entry.workflowId());
+                if (snapshot != null && entry.sequence() <= snapshot.lastSequence()) {
+                    return;
+                }
+                tails.computeIfAbsent(entry.workflowId(), key -> new ArrayList<>()).add(entry);
+                segment.live.add(entry.workflowId());
+            });
+            lastSequence = last[0];
+            segments.put(firstSequence(file), segment);
+        }
+        nextSequence = lastSequence + 1;
+
+        for (String workflowId : finished) {
+            release(workflowId, Long.MAX_VALUE);
+            tails.remove(workflowId);
+            if (snapshots.remove(workflowId) != null) {
+                deleteSnapshot(workflowId);
+            }
+        }
+        deleteReleasedSegments();
+
+        Set<String> ids = new LinkedHashSet<>(snapshots.keySet());
+        ids.addAll(tails.keySet());
+        List<RecoveredRun> runs = new ArrayList<>();
+        for (String workflowId : ids) {
+            runs.add(new RecoveredRun(workflowId, snapshots.get(workflowId), tails.getOrDefault(workflowId, List.of())));
+        }
+        if (!runs.isEmpty()) {
+            log.info("Found {} unfinished workflow runs in journal {}", runs.size(), directory);
+        }
+        return Collections.unmodifiableList(runs);
+    }
+
+    private Map<String, RunSnapshot> readSnapshots() {
+        Map<String, RunSnapshot> snapshots = new HashMap<>();
+        if (!Files.isDirectory(snapshotDirectory)) {
+            return snapshots;
+        }
+        try (Stream<Path> files = Files.list(snapshotDirectory)) {
+            for (Path file : files.filter(path -> path.getFileName().toString().endsWith(SNAPSHOT_SUFFIX)).toList()) {
+                try {
+                    RunSnapshot snapshot = RunSnapshot.parse(Files.readAllBytes(file));
+                    snapshots.put(snapshot.workflowId(), snapshot);
+                } catch (IOException | RuntimeException e) {
+                    log.warn("Ignoring unreadable snapshot {}: {}", file, e.getMessage());
+                }
+            }
+        } catch (IOException e) {
+            log.warn("Failed to list snapshots in {}: {}", snapshotDirectory, e.getMessage());
+        }
+        return snapshots;
+    }
+
+    private List<Path> segmentFiles() {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.filter(path -> {
+                        String name = path.getFileName().toString();
+                        return name.startsWith(SEGMENT_PREFIX) && name.endsWith(SEGMENT_SUFFIX);
+                    })
+                    .sorted(Comparator.comparingLong(WorkflowJournal::firstSequence))
+                    .toList();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to list journal segments in " + directory, e);
+        }
+    }
+
+    private static long firstSequence(Path file) {
+        String name = file.getFileName().toString();
+        return Long.parseLong(name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length()));
+    }
+
+    /**
+     * 顺序读取段内记录，遇到不完整、校验失败或序号不递增的记录时停止
+     */
+    private static void readSegment(Path file, long previousSequence, java.util.function.Consumer<JournalEntry> consumer) {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+            long previous = previousSequence;
+            while (true) {
+                int length;
+                int checksum;
+                long sequence;
+                byte[] payload;
+                try {
+                    length = in.readInt();
+                    checksum = in.readInt();
+                    sequence = in.readLong();
+                    if (length <= 0 || length > MAX_RECORD_BYTES) {
+                        log.warn("Journal segment {} has a corrupt record after sequence {}", file, previous);
+                        return;
+                    }
+                    payload = new byte[length];
+                    in.readFully(payload);
+                } catch (EOFException e) {
+                    return;
+                }
+                CRC32 crc = new CRC32();
+                crc.update(payload);
+                if ((int) crc.getValue() != checksum || sequence <= previous) {
+                    log.warn("Journal segment {} has a corrupt record after sequence {}", file, previous);
+                    return;
+                }
+                JSONObject body = JSON.parseObject(payload);
+                JSONObject data = body.getJSONObject("data");
+                consumer.accept(new JournalEntry(sequence, body.getString("workflowId"), body.getString("type"),
+                        body.getLongValue("timestamp"), body.getString("nodeName"),
+                        data != null ? data : new JSONObject()));
+                previous = sequence;
+            }
+        } catch (IOException e) {
+            log.warn("Failed to read journal segment {}: {}", file, e.getMessage());
+        }
+    }
+
+    private record Append(long sequence, String workflowId, String type, ByteBuffer frame, RunSnapshot snapshot,
+                          CompletableFuture<Void> durable) {
+    }
+
+    private static final class Segment {
+        private final Path file;
+        /**
+         * 记录仍需保留的未结束运行
+         */
+        private final Set<String> live = new HashSet<>();
+        private long size;
+        private long lastSequence;
+        private boolean closed;
+
+        private Segment(Path file) {
+            this.file = file;
+        }
+    }
+}
@@ -0,0 +1,184 @@
+package com.example.nextgen.common.json;
+
+import com.alibaba.fastjson2.JSON;
+import com.alibaba.fastjson2.JSONException;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.BiConsumer;
+
+/**
+ * 增量 JSON 解析器
+ * 按分片喂入模型的流式输出，只扫描新到达的字符；顶层对象的某个字段值一结束（字符串收尾引号、对象/数组闭合、
+ * 原始值后的逗号）就解析该值并回调，不需要等整个响应结束
+ *
+ * 顶层 "{" 之前的内容（例如 ```json 代码块标记或说明文字）会被忽略
+ */
+public class IncrementalJsonParser {
+
+    private enum Phase { KEY, COLON, VALUE, AFTER_VALUE }
+
+    private final StringBuilder buffer = new StringBuilder();
+    private final Map<String, Object> fields = new LinkedHashMap<>();
+    private final BiConsumer<String, Object> onField;
+
+    private int position;
+    private boolean started;
+    private boolean complete;
+    private int depth;
+    private boolean inString;
+    private boolean escaped;
+    private Phase phase = Phase.KEY;
+    private int keyStart = -1;
+    private String currentKey;
+    private int valueStart = -1;
+
+    /**
+     * @param onField 字段完成时的回调，可为空
+     */
+    public IncrementalJsonParser(BiConsumer<String, Object> onField) {
+        this.onField = onField;
+    }
+
+    /**
+     * 喂入一个分片
+     */
+    public void feed(String chunk) {
+        if (chunk == null || chunk.isEmpty() || complete) {
+            return;
+        }
+        buffer.append(chunk);
+        for (; position < buffer.length() && !complete; position++) {
+            scan(buffer.charAt(position));
+        }
+    }
+
+    private void scan(char c) {
+        if (!started) {
+            if (c == '{') {
+                started = true;
+                depth = 1;
+            }
+            return;
+        }
+        if (inString) {
+            if (escaped) {
+                escaped = false;
+            } else if (c == '\\') {
+                escaped = true;
+            } else if (c == '"') {
+                inString = false;
+                if (depth == 1 && phase == Phase.KEY) {
+                    currentKey = parseKey(buffer.substring(keyStart, position + 1));
+                    phase = Phase.COLON;
+                } else if (depth == 1 && phase == Phase.VALUE) {
+                    emit(position + 1);
+                }
+            }
+            return;
+        }
+        switch (c) {
+            case '"' -> {
+                inString = true;
+                if (depth == 1 && phase == Phase.KEY) {
+                    keyStart = position;
+                } else if (depth == 1 && phase == Phase.VALUE && valueStart < 0) {
+                    valueStart = position;
+                }
+            }
+            case ':' -> {
+                if (depth == 1 && phase == Phase.COLON) {
+                    phase = Phase.VALUE;
+                    valueStart = -1;
+                }
+            }
+            case '{', '[' -> {
+                if (depth == 1 && phase == Phase.VALUE && valueStart < 0) {
+                    valueStart = position;
+                }
+                depth++;
+            }
+            case '}', ']' -> {
+                depth--;
+                if (depth == 1 && phase == Phase.VALUE) {
+                    emit(position + 1);
+                } else if (depth == 0) {
+                    if (phase == Phase.VALUE && valueStart >= 0) {
+                        emit(position);
+                    }
+                    complete = true;
+                }
+            }
+            case ',' -> {
+                if (depth == 1) {
+                    if (phase == Phase.VALUE && valueStart >= 0) {
+                        emit(position);
+                    }
+                    phase = Phase.KEY;
+                }
+            }
+            default -> {
+                if (depth == 1 && phase == Phase.VALUE && valueStart < 0 && !Character.isWhitespace(c)) {
+                    valueStart = position;
+                }
+            }
+        }
+    }
+
+    /**
+     * 解析并回调当前字段；值本身不合法时跳过，由调用方在整体修复时处理
+     */
+    private void emit(int end) {
+        String raw = buffer.substring(valueStart, end).trim();
+        phase = Phase.AFTER_VALUE;
+        valueStart = -1;
+        if (currentKey == null) {
+            return;
+        }
+        try {
+            Object value = JSON.parse(raw);
+            fields.put(currentKey, value);
+            if (onField != null) {
+                onField.accept(currentKey, value);
+            }
+        } catch (JSONException e) {
+            // 忽略，最终结果会整体修复后重新解析
+        }
+        currentKey = null;
+    }
+
+    private static String parseKey(String quoted) {
+        try {
+            return (String) JSON.parse(quoted);
+        } catch (JSONException e) {
+            return quoted.substring(1, quoted.length() - 1);
+        }
+    }
+
+    /**
+     * 给定字段是否都已解析完成
+     */
+    public boolean hasFields(Collection<String> names) {
+        return fields.keySet().containsAll(names);
+    }
+
+    /**
+     * 顶层对象是否已闭合
+     */
+    public boolean isComplete() {
+        return complete;
+    }
+
+    public Map<String, Object> getFields() {
+        return Collections.unmodifiableMap(fields);
+    }
+
+    /**
+     * 到目前为止收到的全部文本
+     */
+    public String getText() {
+        return buffer.toString();
+    }
+}
@@ -0,0 +1,118 @@
+package com.example.nextgen.common.json;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+
+/**
+ * 本地修复模型输出中常见的轻微 JSON 语法错误，避免为此重新调用模型：
+ * 去掉 JSON 前后的说明文字和代码块标记、去掉对象/数组末尾多余的逗号、转义字符串中的换行、
+ * 补全被截断的字符串和未闭合的括号
+ */
+public final class JsonRepair {
+
+    private JsonRepair() {
+    }
+
+    public static String repair(String text) {
+        if (text == null) {
+            return null;
+        }
+        int start = firstBracket(text);
+        if (start < 0) {
+            return text.trim();
+        }
+        StringBuilder out = new StringBuilder(text.length() + 8);
+        Deque<Character> closers = new ArrayDeque<>();
+        boolean inString = false;
+        boolean escaped = false;
+        for (int i = start; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (inString) {
+                if (escaped) {
+                    escaped = false;
+                    out.append(c);
+                } else if (c == '\\') {
+                    escaped = true;
+                    out.append(c);
+                } else if (c == '"') {
+                    inString = false;
+                    out.append(c);
+                } else if (c == '\n') {
+                    out.append("\\n");
+                } else if (c == '\r') {
+                    out.append("\\r");
+                } else if (c == '\t') {
+                    out.append("\\t");
+                } else {
+                    out.append(c);
+                }
+                continue;
+            }
+            switch (c) {
+                case '"' -> {
+                    inString = true;
+                    out.append(c);
+                }
+                case '{' -> {
+                    closers.push('}');
+                    out.append(c);
+                }
+                case '[' -> {
+                    closers.push(']');
+                    out.append(c);
+                }
+                case '}', ']' -> {
+                    removeTrailingComma(out);
+                    if (!closers.isEmpty()) {
+                        out.append(closers.pop());
+                    }
+                    if (closers.isEmpty()) {
+                        // 顶层结构已闭合，忽略之后的内容
+                        return out.toString();
+                    }
+                }
+                default -> out.append(c);
+            }
+        }
+        // 输出被截断：补全字符串和括号
+        if (inString) {
+            if (escaped) {
+                out.setLength(out.length() - 1);
+            }
+            out.append('"');
+        }
+        trimTrailingWhitespace(out);
+        if (out.length() > 0 && out.charAt(out.length() - 1) == ':') {
+            out.append("null");
+        }
+        removeTrailingComma(out);
+        while (!closers.isEmpty()) {
+            out.append(closers.pop());
+        }
+        return out.toString();
+    }
+
+    private static int firstBracket(String text) {
+        int object = text.indexOf('{');
+        int array = text.indexOf('[');
+        if (object < 0) {
+            return array;
+        }
+        return array < 0 ? object : Math.min(object, array);
+    }
+
+    private static void removeTrailingComma(StringBuilder out) {
+        trimTrailingWhitespace(out);
+        if (out.length() > 0 && out.charAt(out.length() - 1) == ',') {
+            out.setLength(out.length() - 1);
+        }
+    }
+
+    private static void trimTrailingWhitespace(StringBuilder out) {
+        int length = out.length();
+        while (length > 0 && Character.isWhitespace(out.charAt(length - 1))) {
+            length--;
+        }
+        out.setLength(length);
+    }
+}
@@ -0,0 +1,33 @@
+package com.example.nextgen.common.prompt;
+
+import java.util.List;
+import java.util.Set;
+
+/**
+ * 节点的上下文裁剪策略
+ *
+ * @param maxTokens      上下文的 token 上限，小于等于0表示不限制
+ * @param maxValueTokens 摘要时单个值保留的 token 数，小于等于0时使用全局配置
+ * @param strategies     按顺序应用的裁剪策略，为空时使用全局配置
+ * @param declaredFields 必须保留的字段，为空时使用节点输入类型声明的字段
+ */
+public record ContextTrimPolicy(int maxTokens, int maxValueTokens, List<ContextTrimStrategy> strategies,
+                                Set<String> declaredFields) {
+
+    public ContextTrimPolicy {
+        strategies = strategies != null ? List.copyOf(strategies) : List.of();
+        declaredFields = declaredFields != null ? Set.copyOf(declaredFields) : Set.of();
+    }
+
+    public static ContextTrimPolicy of(int maxTokens) {
+        return new ContextTrimPolicy(maxTokens, 0, null, null);
+    }
+
+    public static ContextTrimPolicy of(int maxTokens, ContextTrimStrategy... strategies) {
+        return new ContextTrimPolicy(maxTokens, 0, List.of(strategies), null);
+    }
+
+    public ContextTrimPolicy withDeclaredFields(Set<String> fields) {
+        return new ContextTrimPolicy(maxTokens, maxValueTokens, strategies, fields);
+    }
+}
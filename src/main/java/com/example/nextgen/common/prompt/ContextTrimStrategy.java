@@ -0,0 +1,22 @@
+package com.example.nextgen.common.prompt;
+
+/**
+ * 上下文裁剪策略，按配置顺序依次应用，直到上下文预估 token 数不超过节点上限
+ */
+public enum ContextTrimStrategy {
+
+    /**
+     * 只保留节点声明的输入字段（节点未声明时跳过）
+     */
+    KEEP_DECLARED,
+
+    /**
+     * 从最大的值开始摘要过长的值：文本保留首尾，列表保留前若干项
+     */
+    SUMMARIZE_LONG_VALUES,
+
+    /**
+     * 按写入顺序丢弃最早的未声明字段
+     */
+    DROP_OLDEST
+}
@@ -0,0 +1,229 @@
+package com.example.nextgen.common.prompt;
+
+import com.alibaba.fastjson2.JSON;
+import com.example.nextgen.common.chatmodel.ChatModelProperties;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.ai.tokenizer.JTokkitTokenCountEstimator;
+import org.springframework.ai.tokenizer.TokenCountEstimator;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.stereotype.Component;
+
+import java.util.*;
+
+/**
+ * 上下文裁剪器
+ * 节点默认拿到完整的全局上下文，提示词随上游模型输出不断变长；调用前在本地预估上下文的 token 数，
+ * 超过节点上限时按策略顺序裁剪，并把节省的 token 数记录为指标 nextgen.prompt.tokens.saved
+ */
+@Slf4j
+@Component
+public class ContextTrimmer {
+
+    /**
+     * 每个字段的格式开销（引号、冒号、分隔符）
+     */
+    private static final int ENTRY_OVERHEAD_TOKENS = 2;
+
+    private static final String OMITTED = "\n...(已省略约 %d tokens)...\n";
+
+    private final ChatModelProperties.Context properties;
+    private final ObjectProvider<MeterRegistry> meterRegistry;
+    private final TokenCountEstimator estimator = new JTokkitTokenCountEstimator();
+
+    public ContextTrimmer(ChatModelProperties properties, ObjectProvider<MeterRegistry> meterRegistry) {
+        this.properties = properties.getContext();
+        this.meterRegistry = meterRegistry;
+    }
+
+    /**
+     * 按节点策略裁剪上下文，不修改传入的 Map
+     *
+     * @param nodeName       节点名称，用于指标
+     * @param context        节点的完整输入
+     * @param policy         节点策略，为空时使用全局默认上限
+     * @param declaredFields 节点输入类型声明的字段，策略未指定时使用
+     */
+    public TrimResult trim(String nodeName, Map<String, Object> context, ContextTrimPolicy policy,
+                           Set<String> declaredFields) {
+        int maxTokens = policy != null ? policy.maxTokens() : properties.getDefaultMaxTokens();
+        if (!properties.isEnabled() || maxTokens <= 0 || context.isEmpty()) {
+            return TrimResult.untouched(context);
+        }
+        Map<String, Integer> sizes = new LinkedHashMap<>();
+        int total = 0;
+        for (Map.Entry<String, Object> entry : context.entrySet()) {
+            int size = estimate(entry.getKey(), entry.getValue());
+            sizes.put(entry.getKey(), size);
+            total += size;
+        }
+        if (total <= maxTokens) {
+            return TrimResult.untouched(context);
+        }
+
+        Set<String> keep = policy != null && !policy.declaredFields().isEmpty() ? policy.declaredFields()
+                : declaredFields != null ? declaredFields : Set.of();
+        List<ContextTrimStrategy> strategies = policy != null && !policy.strategies().isEmpty()
+                ? policy.strategies() : properties.getStrategies();
+        int maxValueTokens = policy != null && policy.maxValueTokens() > 0
+                ? policy.maxValueTokens() : properties.getMaxValueTokens();
+
+        Map<String, Object> trimmed = new LinkedHashMap<>(context);
+        int original = total;
+        List<String> actions = new ArrayList<>();
+        for (ContextTrimStrategy strategy : strategies) {
+            if (total <= maxTokens) {
+                break;
+            }
+            int before = total;
+            total = switch (strategy) {
+                case KEEP_DECLARED -> keepDeclared(trimmed, sizes, keep, total);
+                case SUMMARIZE_LONG_VALUES -> summarize(trimmed, sizes, maxValueTokens, maxTokens, total);
+                case DROP_OLDEST -> dropOldest(trimmed, sizes, keep, maxTokens, total);
+            };
+            if (total < before) {
+                actions.add(strategy.name());
+                recordSaved(nodeName, strategy, before - total);
+            }
+        }
+        if (total > maxTokens) {
+            log.warn("Context of node {} still exceeds {} tokens after trimming: {} tokens", nodeName, maxTokens, total);
+        }
+        log.info("Trimmed context of node {} from {} to {} tokens ({})", nodeName, original, total, actions);
+        return new TrimResult(trimmed, original, total, actions);
+    }
+
+    /**
+     * 丢弃所有未声明的字段
+     */
+    private int keepDeclared(Map<String, Object> context, Map<String, Integer> sizes, Set<String> keep, int total) {
+        if (keep.isEmpty()) {
+            return total;
+        }
+        Iterator<String> keys = context.keySet().iterator();
+        while (keys.hasNext()) {
+            String key = keys.next();
+            if (!keep.contains(key)) {
+                keys.remove();
+                total -= sizes.remove(key);
+            }
+        }
+        return total;
+    }
+
+    /**
+     * 从最大的值开始摘要，直到不超过上限
+     */
+    private int summarize(Map<String, Object> context, Map<String, Integer> sizes, int maxValueTokens,
+                          int maxTokens, int total) {
+        List<String> candidates = new ArrayList<>();
+        for (Map.Entry<String, Integer> entry : sizes.entrySet()) {
+            if (entry.getValue() > maxValueTokens) {
+                candidates.add(entry.getKey());
+            }
+        }
+        candidates.sort(Comparator.comparing(sizes::get).reversed());
+        for (String key : candidates) {
+            if (total <= maxTokens) {
+                break;
+            }
+            Object summary = summarizeValue(context.get(key), sizes.get(key), maxValueTokens);
+            if (summary == null) {
+                continue;
+            }
+            int size = estimate(key, summary);
+            total += size - sizes.get(key);
+            sizes.put(key, size);
+            context.put(key, summary);
+        }
+        return total;
+    }
+
+    /**
+     * 文本保留开头和结尾，列表保留前若干项；其他类型不摘要（返回null）
+     */
+    private Object summarizeValue(Object value, int size, int maxValueTokens) {
+        if (value instanceof CharSequence sequence) {
+            String text = sequence.toString();
+            int keepChars = (int) ((long) text.length() * maxValueTokens / Math.max(1, size));
+            int head = keepChars * 2 / 3;
+            int tail = keepChars - head;
+            return text.substring(0, head) + String.format(OMITTED, size - maxValueTokens)
+                    + text.substring(text.length() - tail);
+        }
+        if (value instanceof List<?> list) {
+            List<Object> kept = new ArrayList<>();
+            int used = 0;
+            for (Object item : list) {
+                int itemTokens = estimateValue(item);
+                if (used + itemTokens > maxValueTokens && !kept.isEmpty()) {
+                    break;
+                }
+                kept.add(item);
+                used += itemTokens;
+            }
+            return kept.size() < list.size() ? kept : null;
+        }
+        return null;
+    }
+
+    /**
+     * 按写入顺序丢弃最早的未声明字段
+     */
+    private int dropOldest(Map<String, Object> context, Map<String, Integer> sizes, Set<String> keep,
+                           int maxTokens, int total) {
+        Iterator<String> keys = context.keySet().iterator();
+        while (total > maxTokens && keys.hasNext()) {
+            String key = keys.next();
+            if (!keep.contains(key)) {
+                keys.remove();
+                total -= sizes.remove(key);
+            }
+        }
+        return total;
+    }
+
+    private int estimate(String key, Object value) {
+        return ENTRY_OVERHEAD_TOKENS + estimator.estimate(key) + estimateValue(value);
+    }
+
+    private int estimateValue(Object value) {
+        if (value == null) {
+            return 1;
+        }
+        return estimator.estimate(value instanceof CharSequence text ? text.toString() : JSON.toJSONString(value));
+    }
+
+    private void recordSaved(String nodeName, ContextTrimStrategy strategy, int saved) {
+        meterRegistry.ifAvailable(registry -> Counter.builder("nextgen.prompt.tokens.saved")
+                .tag("node", nodeName != null ? nodeName : "unknown")
+                .tag("strategy", strategy.name())
+                .register(registry)
+                .increment(saved));
+    }
+
+    /**
+     * 裁剪结果
+     *
+     * @param context        裁剪后的上下文
+     * @param originalTokens 裁剪前的预估 token 数
+     * @param trimmedTokens  裁剪后的预估 token 数
+     * @param strategies     实际生效的策略
+     */
+    public record TrimResult(Map<String, Object> context, int originalTokens, int trimmedTokens,
+                             List<String> strategies) {
+
+        static TrimResult untouched(Map<String, Object> context) {
+            return new TrimResult(context, 0, 0, List.of());
+        }
+
+        public boolean isTrimmed() {
+            return !strategies.isEmpty();
+        }
+
+        public int getSavedTokens() {
+            return originalTokens - trimmedTokens;
+        }
+    }
+}
@@ -0,0 +1,54 @@
+package com.example.nextgen.common.prompt;
+
+import org.springframework.ai.chat.messages.SystemMessage;
+import org.springframework.ai.chat.messages.UserMessage;
+import org.springframework.ai.chat.prompt.Prompt;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * 节点提示词定义
+ * 系统提示词必须是不含占位符的固定文本，所有调用共用同一条 SystemMessage 并始终放在消息列表最前面，
+ * 使请求的前缀在各次调用之间逐字节一致，最大化服务端的前缀缓存命中；变化的内容只出现在其后的用户消息中
+ */
+public final class NodePrompt {
+
+    private final SystemMessage system;
+    private final PromptTemplate user;
+
+    private NodePrompt(String system, PromptTemplate user) {
+        this.system = system != null ? new SystemMessage(system) : null;
+        this.user = user;
+    }
+
+    /**
+     * @param system 固定的系统提示词，可为空
+     * @param user   用户消息模板
+     */
+    public static NodePrompt of(String system, String user) {
+        Objects.requireNonNull(user, "User template cannot be null");
+        if (system != null && !PromptTemplate.compile(system).isStatic()) {
+            throw new PromptTemplateException("System prompt must be static to keep the cached prefix stable, "
+                    + "move placeholders into the user template");
+        }
+        return new NodePrompt(system, PromptTemplate.compile(user));
+    }
+
+    /**
+     * 按节点输入渲染成请求
+     */
+    public Prompt render(Map<String, ?> input) {
+        UserMessage userMessage = new UserMessage(user.render(input));
+        return new Prompt(system != null ? List.of(system, userMessage) : List.of(userMessage));
+    }
+
+    public String getSystem() {
+        return system != null ? system.getText() : null;
+    }
+
+    public PromptTemplate getUserTemplate() {
+        return user;
+    }
+}
@@ -0,0 +1,12 @@
+package com.example.nextgen.common.prompt;
+
+/**
+ * 编译后的占位符
+ *
+ * @param name     原始名称，例如 company.name
+ * @param path     按 "." 拆分后的取值路径，编译时拆分一次
+ * @param type     值类型
+ * @param optional 可选占位符缺值时渲染为空字符串，否则报错
+ */
+public record Placeholder(String name, String[] path, PlaceholderType type, boolean optional) {
+}
@@ -0,0 +1,87 @@
+package com.example.nextgen.common.prompt;
+
+import com.alibaba.fastjson2.JSON;
+
+import java.util.Locale;
+
+/**
+ * 占位符类型，渲染时按类型校验并格式化值
+ */
+public enum PlaceholderType {
+
+    STRING {
+        @Override
+        String format(Object value) {
+            return value instanceof String text ? text : String.valueOf(value);
+        }
+    },
+
+    INT {
+        @Override
+        String format(Object value) {
+            if (value instanceof Integer || value instanceof Long || value instanceof Short || value instanceof Byte) {
+                return value.toString();
+            }
+            if (value instanceof String text) {
+                return Long.toString(Long.parseLong(text.trim()));
+            }
+            throw mismatch(value);
+        }
+    },
+
+    NUMBER {
+        @Override
+        String format(Object value) {
+            if (value instanceof Number) {
+                return value.toString();
+            }
+            if (value instanceof String text) {
+                return new java.math.BigDecimal(text.trim()).toPlainString();
+            }
+            throw mismatch(value);
+        }
+    },
+
+    BOOL {
+        @Override
+        String format(Object value) {
+            if (value instanceof Boolean) {
+                return value.toString();
+            }
+            if (value instanceof String text && ("true".equalsIgnoreCase(text) || "false".equalsIgnoreCase(text))) {
+                return text.toLowerCase(Locale.ROOT);
+            }
+            throw mismatch(value);
+        }
+    },
+
+    /**
+     * 对象、列表等序列化为 JSON
+     */
+    JSON_VALUE {
+        @Override
+        String format(Object value) {
+            return value instanceof String text ? text : JSON.toJSONString(value);
+        }
+    };
+
+    abstract String format(Object value);
+
+    IllegalArgumentException mismatch(Object value) {
+        return new IllegalArgumentException("Expected " + name() + " but got " + value.getClass().getSimpleName());
+    }
+
+    /**
+     * 解析模板中声明的类型名称
+     */
+    static PlaceholderType parse(String typeName) {
+        return switch (typeName.toLowerCase(Locale.ROOT)) {
+            case "string", "str" -> STRING;
+            case "int", "integer", "long" -> INT;
+            case "number", "decimal", "double" -> NUMBER;
+            case "bool", "boolean" -> BOOL;
+            case "json" -> JSON_VALUE;
+            default -> throw new IllegalArgumentException("Unknown placeholder type: " + typeName);
+        };
+    }
+}
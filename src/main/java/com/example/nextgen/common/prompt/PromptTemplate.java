@@ -0,0 +1,199 @@
+package com.example.nextgen.common.prompt;
+
+import java.util.*;
+
+/**
+ * 预编译的提示词模板
+ * 模板在定义时解析一次，拆成 "字面量 / 占位符" 交替的片段；渲染时按顺序拼接，不再做正则匹配或重新解析
+ *
+ * 语法：
+ * <pre>
+ *   {{name}}            字符串
+ *   {{name:int}}        带类型（string / int / number / bool / json）
+ *   {{company.name}}    按路径从嵌套 Map 中取值
+ *   {{name?}}           可选，缺值时渲染为空字符串
+ *   \{{                 字面量 "{{"
+ * </pre>
+ */
+public final class PromptTemplate {
+
+    private static final String OPEN = "{{";
+    private static final String CLOSE = "}}";
+
+    private final String source;
+
+    /**
+     * 字面量片段，比占位符多一个：literals[0] p[0] literals[1] p[1] ... literals[n]
+     */
+    private final String[] literals;
+    private final Placeholder[] placeholders;
+    private final int literalLength;
+
+    private PromptTemplate(String source, String[] literals, Placeholder[] placeholders) {
+        this.source = source;
+        this.literals = literals;
+        this.placeholders = placeholders;
+        int length = 0;
+        for (String literal : literals) {
+            length += literal.length();
+        }
+        this.literalLength = length;
+    }
+
+    /**
+     * 编译模板；不做全局缓存，由持有方（NodePrompt、WorkflowNode）保存编译结果，随持有方一起回收
+     */
+    public static PromptTemplate compile(String source) {
+        Objects.requireNonNull(source, "Template cannot be null");
+        return parse(source);
+    }
+
+    private static PromptTemplate parse(String source) {
+        List<String> literals = new ArrayList<>();
+        List<Placeholder> placeholders = new ArrayList<>();
+        StringBuilder literal = new StringBuilder();
+        int position = 0;
+        while (position < source.length()) {
+            int open = source.indexOf(OPEN, position);
+            if (open < 0) {
+                literal.append(source, position, source.length());
+                break;
+            }
+            if (open > 0 && source.charAt(open - 1) == '\\') {
+                literal.append(source, position, open - 1).append(OPEN);
+                position = open + OPEN.length();
+                continue;
+            }
+            int close = source.indexOf(CLOSE, open + OPEN.length());
+            if (close < 0) {
+                throw new PromptTemplateException("Unclosed placeholder at index " + open + " in template: " + abbreviate(source));
+            }
+            literal.append(source, position, open);
+            literals.add(literal.toString());
+            literal.setLength(0);
+            placeholders.add(parsePlaceholder(source.substring(open + OPEN.length(), close).trim(), source));
+            position = close + CLOSE.length();
+        }
+        literals.add(literal.toString());
+        return new PromptTemplate(source, literals.toArray(new String[0]), placeholders.toArray(new Placeholder[0]));
+    }
+
+    private static Placeholder parsePlaceholder(String token, String source) {
+        boolean optional = token.endsWith("?");
+        if (optional) {
+            token = token.substring(0, token.length() - 1).trim();
+        }
+        PlaceholderType type = PlaceholderType.STRING;
+        int colon = token.indexOf(':');
+        String name = token;
+        if (colon >= 0) {
+            name = token.substring(0, colon).trim();
+            try {
+                type = PlaceholderType.parse(token.substring(colon + 1).trim());
+            } catch (IllegalArgumentException e) {
+                throw new PromptTemplateException(e.getMessage() + " in template: " + abbreviate(source), e);
+            }
+        }
+        if (name.isEmpty()) {
+            throw new PromptTemplateException("Empty placeholder name in template: " + abbreviate(source));
+        }
+        return new Placeholder(name, splitPath(name), type, optional);
+    }
+
+    private static String[] splitPath(String name) {
+        List<String> parts = new ArrayList<>();
+        int start = 0;
+        for (int i = 0; i < name.length(); i++) {
+            if (name.charAt(i) == '.') {
+                parts.add(name.substring(start, i));
+                start = i + 1;
+            }
+        }
+        parts.add(name.substring(start));
+        return parts.toArray(new String[0]);
+    }
+
+    /**
+     * 按节点输入渲染
+     */
+    public String render(Map<String, ?> input) {
+        if (placeholders.length == 0) {
+            return literals[0];
+        }
+        StringBuilder builder = new StringBuilder(literalLength + placeholders.length * 32);
+        builder.append(literals[0]);
+        for (int i = 0; i < placeholders.length; i++) {
+            builder.append(format(placeholders[i], input));
+            builder.append(literals[i + 1]);
+        }
+        return builder.toString();
+    }
+
+    private static String format(Placeholder placeholder, Map<String, ?> input) {
+        Object value = resolve(placeholder.path(), input);
+        if (value == null) {
+            if (placeholder.optional()) {
+                return "";
+            }
+            throw new PromptTemplateException("Missing value for placeholder: " + placeholder.name());
+        }
+        try {
+            return placeholder.type().format(value);
+        } catch (IllegalArgumentException e) {
+            throw new PromptTemplateException("Invalid value for placeholder " + placeholder.name() + ": " + e.getMessage(), e);
+        }
+    }
+
+    private static Object resolve(String[] path, Map<String, ?> input) {
+        Object current = input;
+        for (String key : path) {
+            if (!(current instanceof Map<?, ?> map)) {
+                return null;
+            }
+            current = map.get(key);
+        }
+        return current;
+    }
+
+    private static String abbreviate(String text) {
+        return text.length() <= 64 ? text : text.substring(0, 64) + "...";
+    }
+
+    /**
+     * 是否不含占位符（渲染结果恒定）
+     */
+    public boolean isStatic() {
+        return placeholders.length == 0;
+    }
+
+    /**
+     * 第一个占位符之前的固定前缀
+     */
+    public String getStaticPrefix() {
+        return literals[0];
+    }
+
+    public List<Placeholder> getPlaceholders() {
+        return List.of(placeholders);
+    }
+
+    /**
+     * 模板引用的顶层输入字段
+     */
+    public Set<String> getInputKeys() {
+        Set<String> keys = new LinkedHashSet<>();
+        for (Placeholder placeholder : placeholders) {
+            keys.add(placeholder.path()[0]);
+        }
+        return keys;
+    }
+
+    public String getSource() {
+        return source;
+    }
+
+    @Override
+    public String toString() {
+        return source;
+    }
+}
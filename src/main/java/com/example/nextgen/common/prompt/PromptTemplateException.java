@@ -0,0 +1,15 @@
+package com.example.nextgen.common.prompt;
+
+/**
+ * 模板解析或渲染失败
+ */
+public class PromptTemplateException extends IllegalArgumentException {
+
+    public PromptTemplateException(String message) {
+        super(message);
+    }
+
+    public PromptTemplateException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
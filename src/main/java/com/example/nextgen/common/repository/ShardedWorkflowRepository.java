@@ -0,0 +1,384 @@
+package com.example.nextgen.common.repository;
+
+import com.alibaba.fastjson2.JSON;
+import com.example.nextgen.domain.event.WorkflowEvent;
+import com.example.nextgen.domain.workflow.*;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.*;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.stream.Stream;
+
+/**
+ * 分片的内存工作流仓储
+ * 按工作流ID哈希到固定数量的分片，每个分片单独加读写锁，执行线程和查询线程之间互不阻塞；
+ * 已结束的工作流按结束顺序排队，超过保留时长或数量上限时回收，稳定负载下内存占用保持恒定。
+ * 配置了归档目录时，回收的工作流在后台写成 JSON 快照，仍可通过 {@link #findArchived} 查询
+ */
+@Slf4j
+@Component
+public class ShardedWorkflowRepository implements WorkflowRepository {
+
+    private static final String SPILL_SUFFIX = ".json";
+
+    private final WorkflowStoreProperties properties;
+    private final Shard[] shards;
+    private final int mask;
+    private final int maxTerminalPerShard;
+    private final Path spillDirectory;
+    private final ScheduledThreadPoolExecutor executor;
+    private final ObjectProvider<MeterRegistry> meterRegistry;
+
+    public ShardedWorkflowRepository(WorkflowStoreProperties properties, ObjectProvider<MeterRegistry> meterRegistry) {
+        this.properties = properties;
+        this.meterRegistry = meterRegistry;
+        int count = 1;
+        while (count < properties.getShards()) {
+            count <<= 1;
+        }
+        this.shards = new Shard[count];
+        for (int i = 0; i < count; i++) {
+            shards[i] = new Shard();
+        }
+        this.mask = count - 1;
+        this.maxTerminalPerShard = Math.max(1, (properties.getMaxTerminal() + count - 1) / count);
+        String directory = properties.getSpillDirectory();
+        this.spillDirectory = directory != null && !directory.isBlank() ? Path.of(directory) : null;
+
+        AtomicInteger counter = new AtomicInteger();
+        this.executor = new ScheduledThreadPoolExecutor(1, runnable -> {
+            Thread thread = new Thread(runnable, "workflow-store-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        long interval = Math.max(1, properties.getSweepIntervalSeconds());
+        this.executor.scheduleWithFixedDelay(this::sweep, interval, interval, TimeUnit.SECONDS);
+        meterRegistry.ifAvailable(registry -> {
+            Gauge.builder("nextgen.workflow.store.size", this, ShardedWorkflowRepository::count)
+                    .register(registry);
+            Gauge.builder("nextgen.workflow.store.terminal", this, ShardedWorkflowRepository::terminalCount)
+                    .register(registry);
+        });
+    }
+
+    @Override
+    public void save(Workflow workflow) {
+        Objects.requireNonNull(workflow, "Workflow cannot be null");
+        Shard shard = shard(workflow.getWorkflowId());
+        List<Workflow> evicted;
+        shard.lock.writeLock().lock();
+        try {
+            shard.workflows.put(workflow.getWorkflowId(), workflow);
+            if (workflow.getStatus().isTerminal()) {
+                shard.terminal.putIfAbsent(workflow.getWorkflowId(), endTime(workflow));
+            } else {
+                // 重新执行等场景下离开终态
+                shard.terminal.remove(workflow.getWorkflowId());
+            }
+            evicted = shard.evictOverflow(maxTerminalPerShard);
+        } finally {
+            shard.lock.writeLock().unlock();
+        }
+        evicted(evicted, "size");
+    }
+
+    @Override
+    public Optional<Workflow> findById(WorkflowId workflowId) {
+        Shard shard = shard(workflowId);
+        shard.lock.readLock().lock();
+        try {
+            return Optional.ofNullable(shard.workflows.get(workflowId));
+        } finally {
+            shard.lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public boolean delete(WorkflowId workflowId) {
+        Shard shard = shard(workflowId);
+        boolean removed;
+        shard.lock.writeLock().lock();
+        try {
+            removed = shard.workflows.remove(workflowId) != null;
+            shard.terminal.remove(workflowId);
+        } finally {
+            shard.lock.writeLock().unlock();
+        }
+        if (spillDirectory != null) {
+            try {
+                removed |= Files.deleteIfExists(spillFile(workflowId));
+            } catch (IOException e) {
+                log.warn("Failed to delete archived workflow {}: {}", workflowId, e.getMessage());
+            }
+        }
+        return removed;
+    }
+
+    @Override
+    public List<Workflow> findAll() {
+        List<Workflow> result = new ArrayList<>();
+        for (Shard shard : shards) {
+            shard.lock.readLock().lock();
+            try {
+                result.addAll(shard.workflows.values());
+            } finally {
+                shard.lock.readLock().unlock();
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public List<Workflow> findByStatus(WorkflowStatus status) {
+        List<Workflow> result = new ArrayList<>();
+        for (Shard shard : shards) {
+            shard.lock.readLock().lock();
+            try {
+                for (Workflow workflow : shard.workflows.values()) {
+                    if (workflow.getStatus() == status) {
+                        result.add(workflow);
+                    }
+                }
+            } finally {
+                shard.lock.readLock().unlock();
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public Optional<WorkflowArchive> findArchived(WorkflowId workflowId) {
+        if (spillDirectory == null) {
+            return Optional.empty();
+        }
+        Path file = spillFile(workflowId);
+        if (!Files.isRegularFile(file)) {
+            return Optional.empty();
+        }
+        try {
+            return Optional.ofNullable(JSON.parseObject(Files.readString(file, StandardCharsets.UTF_8), WorkflowArchive.class));
+        } catch (IOException e) {
+            log.warn("Failed to read archived workflow {}: {}", workflowId, e.getMessage());
+            return Optional.empty();
+        }
+    }
+
+    @Override
+    public long count() {
+        long count = 0;
+        for (Shard shard : shards) {
+            shard.lock.readLock().lock();
+            try {
+                count += shard.workflows.size();
+            } finally {
+                shard.lock.readLock().unlock();
+            }
+        }
+        return count;
+    }
+
+    /**
+     * 工作流结束时进入回收队列；执行引擎直接修改工作流状态，不会再调用 save
+     */
+    @EventListener
+    public void onWorkflowCompleted(WorkflowEvent.WorkflowCompleted event) {
+        markTerminal(event.getWorkflowId());
+    }
+
+    @EventListener
+    public void onWorkflowFailed(WorkflowEvent.WorkflowFailed event) {
+        markTerminal(event.getWorkflowId());
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdown();
+    }
+
+    private void markTerminal(WorkflowId workflowId) {
+        Shard shard = shard(workflowId);
+        List<Workflow> evicted;
+        shard.lock.writeLock().lock();
+        try {
+            if (!shard.workflows.containsKey(workflowId)) {
+                return;
+            }
+            shard.terminal.putIfAbsent(workflowId, System.currentTimeMillis());
+            evicted = shard.evictOverflow(maxTerminalPerShard);
+        } finally {
+            shard.lock.writeLock().unlock();
+        }
+        evicted(evicted, "size");
+    }
+
+    /**
+     * 定期回收：补登记未经事件进入终态的工作流（如被取消），再回收超过保留时长的
+     */
+    private void sweep() {
+        try {
+            long cutoff = System.currentTimeMillis() - TimeUnit.MINUTES.toMillis(properties.getTerminalTtlMinutes());
+            for (Shard shard : shards) {
+                List<Workflow> expired;
+                List<Workflow> overflow;
+                shard.lock.writeLock().lock();
+                try {
+                    for (Map.Entry<WorkflowId, Workflow> entry : shard.workflows.entrySet()) {
+                        if (entry.getValue().getStatus().isTerminal() && !shard.terminal.containsKey(entry.getKey())) {
+                            shard.terminal.put(entry.getKey(), endTime(entry.getValue()));
+                        }
+                    }
+                    expired = shard.evictExpired(cutoff);
+                    overflow = shard.evictOverflow(maxTerminalPerShard);
+                } finally {
+                    shard.lock.writeLock().unlock();
+                }
+                evicted(expired, "ttl");
+                evicted(overflow, "size");
+            }
+            purgeSpilled();
+        } catch (RuntimeException e) {
+            log.warn("Workflow store sweep failed: {}", e.getMessage(), e);
+        }
+    }
+
+    private void evicted(List<Workflow> workflows, String reason) {
+        if (workflows.isEmpty()) {
+            return;
+        }
+        meterRegistry.ifAvailable(registry -> Counter.builder("nextgen.workflow.store.evicted")
+                .tag("reason", reason)
+                .register(registry)
+                .increment(workflows.size()));
+        if (spillDirectory == null) {
+            return;
+        }
+        // 快照在锁外生成，回收后工作流不再被执行线程修改
+        List<WorkflowArchive> archives = workflows.stream().map(WorkflowArchive::from).toList();
+        executor.execute(() -> archives.forEach(this::spill));
+    }
+
+    private void spill(WorkflowArchive archive) {
+        try {
+            Files.createDirectories(spillDirectory);
+            Files.writeString(spillFile(WorkflowId.of(archive.workflowId())), JSON.toJSONString(archive), StandardCharsets.UTF_8);
+        } catch (IOException | RuntimeException e) {
+            log.warn("Failed to archive workflow {}: {}", archive.workflowId(), e.getMessage());
+        }
+    }
+
+    private void purgeSpilled() {
+        if (spillDirectory == null || !Files.isDirectory(spillDirectory)) {
+            return;
+        }
+        long cutoff = System.currentTimeMillis() - TimeUnit.HOURS.toMillis(properties.getSpillRetentionHours());
+        try (Stream<Path> files = Files.list(spillDirectory)) {
+            files.filter(file -> file.getFileName().toString().endsWith(SPILL_SUFFIX)).forEach(file -> {
+                try {
+                    if (Files.getLastModifiedTime(file).toMillis() < cutoff) {
+                        Files.deleteIfExists(file);
+                    }
+                } catch (IOException e) {
+                    log.warn("Failed to purge archived workflow {}: {}", file, e.getMessage());
+                }
+            });
+        } catch (IOException e) {
+            log.warn("Failed to list archived workflows: {}", e.getMessage());
+        }
+    }
+
+    private long terminalCount() {
+        long count = 0;
+        for (Shard shard : shards) {
+            shard.lock.readLock().lock();
+            try {
+                count += shard.terminal.size();
+            } finally {
+                shard.lock.readLock().unlock();
+            }
+        }
+        return count;
+    }
+
+    private Path spillFile(WorkflowId workflowId) {
+        String name = workflowId.getValue();
+        if (!name.matches("[A-Za-z0-9_-]+")) {
+            throw new IllegalArgumentException("Invalid workflow id: " + name);
+        }
+        return spillDirectory.resolve(name + SPILL_SUFFIX);
+    }
+
+    private Shard shard(WorkflowId workflowId) {
+        int hash = workflowId.hashCode();
+        return shards[(hash ^ (hash >>> 16)) & mask];
+    }
+
+    private static long endTime(Workflow workflow) {
+        LocalDateTime time = workflow.getCompletedAt() != null ? workflow.getCompletedAt() : workflow.getUpdatedAt();
+        return time != null ? time.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli() : System.currentTimeMillis();
+    }
+
+    private static final class Shard {
+        private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+        private final Map<WorkflowId, Workflow> workflows = new HashMap<>();
+        /**
+         * 已结束的工作流 -> 结束时间，按进入终态的顺序排列
+         */
+        private final LinkedHashMap<WorkflowId, Long> terminal = new LinkedHashMap<>();
+
+        /**
+         * 回收结束时间早于 cutoff 的工作流；队列按进入顺序排列，结束时间大致递增，遇到未过期的即停止
+         */
+        private List<Workflow> evictExpired(long cutoff) {
+            List<Workflow> evicted = new ArrayList<>();
+            Iterator<Map.Entry<WorkflowId, Long>> iterator = terminal.entrySet().iterator();
+            while (iterator.hasNext()) {
+                Map.Entry<WorkflowId, Long> entry = iterator.next();
+                if (entry.getValue() >= cutoff) {
+                    break;
+                }
+                iterator.remove();
+                Workflow workflow = workflows.remove(entry.getKey());
+                if (workflow != null) {
+                    evicted.add(workflow);
+                }
+            }
+            return evicted;
+        }
+
+        /**
+         * 超过数量上限时回收最早结束的工作流
+         */
+        private List<Workflow> evictOverflow(int max) {
+            if (terminal.size() <= max) {
+                return List.of();
+            }
+            List<Workflow> evicted = new ArrayList<>();
+            Iterator<WorkflowId> iterator = terminal.keySet().iterator();
+            while (terminal.size() > max && iterator.hasNext()) {
+                WorkflowId workflowId = iterator.next();
+                iterator.remove();
+                Workflow workflow = workflows.remove(workflowId);
+                if (workflow != null) {
+                    evicted.add(workflow);
+                }
+            }
+            return evicted;
+        }
+    }
+}
@@ -0,0 +1,71 @@
+package com.example.nextgen.common.repository;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+/**
+ * 工作流仓储相关配置
+ */
+@Getter
+@Setter
+@Component
+@ConfigurationProperties(prefix = "nextgen.store")
+public class WorkflowStoreProperties {
+
+    /**
+     * 分片数，向上取整为 2 的幂
+     */
+    private int shards = 16;
+
+    /**
+     * 已结束的工作流保留时长（分钟），超过后回收
+     */
+    private long terminalTtlMinutes = 10;
+
+    /**
+     * 最多保留的已结束工作流数量，超过后先回收最早结束的
+     */
+    private int maxTerminal = 1000;
+
+    /**
+     * 回收检查间隔（秒）
+     */
+    private long sweepIntervalSeconds = 30;
+
+    /**
+     * 回收时归档快照的目录，为空表示不归档
+     */
+    private String spillDirectory;
+
+    /**
+     * 归档快照保留时长（小时）
+     */
+    private long spillRetentionHours = 168;
+
+    /**
+     * 数据库持久化配置
+     */
+    private Persistence persistence = new Persistence();
+
+    @Getter
+    @Setter
+    public static class Persistence {
+
+        /**
+         * 是否把工作流定义、运行、节点状态和上下文写入数据库（表结构见 db/workflow-schema.sql）
+         */
+        private boolean enabled = false;
+
+        /**
+         * 写回间隔（毫秒），期间同一对象的多次变更合并为一次写入
+         */
+        private long flushIntervalMillis = 500;
+
+        /**
+         * 每条批量语句最多写入的行数，待写入的节点状态达到该数量时提前写回
+         */
+        private int batchSize = 200;
+    }
+}
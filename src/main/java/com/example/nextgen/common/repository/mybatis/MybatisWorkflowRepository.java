@@ -0,0 +1,402 @@
+package com.example.nextgen.common.repository.mybatis;
+
+import com.alibaba.fastjson2.JSON;
+import com.alibaba.fastjson2.TypeReference;
+import com.example.nextgen.common.repository.ShardedWorkflowRepository;
+import com.example.nextgen.common.repository.WorkflowStoreProperties;
+import com.example.nextgen.domain.edge.WorkflowEdge;
+import com.example.nextgen.domain.event.WorkflowEvent;
+import com.example.nextgen.domain.node.NodeId;
+import com.example.nextgen.domain.node.NodeStatus;
+import com.example.nextgen.domain.node.NodeType;
+import com.example.nextgen.domain.node.WorkflowNode;
+import com.example.nextgen.domain.workflow.*;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Primary;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+/**
+ * 持久化到数据库（MySQL 或 PostgreSQL，见 {@link WorkflowPersistenceMapper}）的工作流仓储
+ * 运行中的工作流对象仍由 {@link ShardedWorkflowRepository} 保存在内存中（节点持有模型客户端，无法从数据库重建），
+ * 定义、运行状态、节点状态和上下文写入数据库，用于审计和回收后的查询。
+ *
+ * 写入采用 write-behind：状态变化只标记为待写回，后台线程按间隔把同一对象的多次变化合并成一行，
+ * 每张表用一条多行 upsert 写入，节点状态变化不会给执行线程增加数据库往返。
+ * 行数据取自工作流最近发布的状态快照（{@link WorkflowStatusSnapshot}），不读取执行线程正在修改的节点和上下文
+ */
+@Slf4j
+@Primary
+@Component
+@ConditionalOnProperty(prefix = "nextgen.store.persistence", name = "enabled", havingValue = "true")
+public class MybatisWorkflowRepository implements WorkflowRepository {
+
+    private final ShardedWorkflowRepository memory;
+    private final WorkflowPersistenceMapper mapper;
+    private final WorkflowStoreProperties.Persistence properties;
+    private final ObjectProvider<MeterRegistry> meterRegistry;
+
+    /**
+     * 待写回的定义、运行和节点状态，键相同的多次变化合并为一次写入
+     */
+    private final Map<WorkflowId, Workflow> pendingDefinitions = new ConcurrentHashMap<>();
+    private final Map<WorkflowId, Workflow> pendingRuns = new ConcurrentHashMap<>();
+    private final Map<NodeId, NodeRef> pendingNodes = new ConcurrentHashMap<>();
+
+    /**
+     * 节点事件只带节点ID，按此找到所属工作流；运行结束且写回后移除
+     */
+    private final Map<NodeId, Workflow> nodeOwners = new ConcurrentHashMap<>();
+
+    private final ScheduledThreadPoolExecutor executor;
+    private final AtomicBoolean flushScheduled = new AtomicBoolean();
+
+    public MybatisWorkflowRepository(ShardedWorkflowRepository memory, WorkflowPersistenceMapper mapper,
+                                     WorkflowStoreProperties properties, ObjectProvider<MeterRegistry> meterRegistry) {
+        this.memory = memory;
+        this.mapper = mapper;
+        this.properties = properties.getPersistence();
+        this.meterRegistry = meterRegistry;
+        AtomicInteger counter = new AtomicInteger();
+        this.executor = new ScheduledThreadPoolExecutor(1, runnable -> {
+            Thread thread = new Thread(runnable, "workflow-persist-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        long interval = Math.max(1, this.properties.getFlushIntervalMillis());
+        this.executor.scheduleWithFixedDelay(this::flush, interval, interval, TimeUnit.MILLISECONDS);
+        meterRegistry.ifAvailable(registry -> Gauge.builder("nextgen.workflow.persist.pending", this,
+                        repository -> repository.pendingRuns.size() + repository.pendingNodes.size())
+                .register(registry));
+    }
+
+    @Override
+    public void save(Workflow workflow) {
+        memory.save(workflow);
+        for (Object node : workflow.getNodes().values()) {
+            nodeOwners.put(((WorkflowNode<?, ?>) node).getNodeId(), workflow);
+        }
+        pendingDefinitions.put(workflow.getWorkflowId(), workflow);
+        pendingRuns.put(workflow.getWorkflowId(), workflow);
+    }
+
+    @Override
+    public Optional<Workflow> findById(WorkflowId workflowId) {
+        return memory.findById(workflowId);
+    }
+
+    @Override
+    public boolean delete(WorkflowId workflowId) {
+        boolean removed = memory.delete(workflowId);
+        pendingDefinitions.remove(workflowId);
+        pendingRuns.remove(workflowId);
+        pendingNodes.values().removeIf(ref -> ref.workflow().getWorkflowId().equals(workflowId));
+        nodeOwners.values().removeIf(workflow -> workflow.getWorkflowId().equals(workflowId));
+        String id = workflowId.getValue();
+        mapper.deleteNodeStates(id);
+        removed |= mapper.deleteRun(id) > 0;
+        mapper.deleteDefinition(id);
+        return removed;
+    }
+
+    @Override
+    public List<Workflow> findAll() {
+        return memory.findAll();
+    }
+
+    @Override
+    public List<Workflow> findByStatus(WorkflowStatus status) {
+        return memory.findByStatus(status);
+    }
+
+    /**
+     * 内存中已回收的工作流从数据库读取最终状态
+     */
+    @Override
+    public Optional<WorkflowArchive> findArchived(WorkflowId workflowId) {
+        if (pendingRuns.containsKey(workflowId)) {
+            flush();
+        }
+        WorkflowRunRow run = mapper.selectRun(workflowId.getValue());
+        if (run == null) {
+            return memory.findArchived(workflowId);
+        }
+        List<WorkflowArchive.NodeState> nodes = mapper.selectNodeStates(workflowId.getValue()).stream()
+                .map(row -> new WorkflowArchive.NodeState(row.getNodeId(), row.getName(),
+                        row.getType() != null ? NodeType.valueOf(row.getType()) : null,
+                        NodeStatus.valueOf(row.getStatus()), parseMap(row.getOutputData())))
+                .toList();
+        return Optional.of(new WorkflowArchive(run.getWorkflowId(), run.getName(), run.getDescription(),
+                WorkflowStatus.valueOf(run.getStatus()), run.getCreatedAt(), run.getStartedAt(), run.getCompletedAt(),
+                parseMap(run.getGlobalContext()), nodes));
+    }
+
+    @Override
+    public long count() {
+        return memory.count();
+    }
+
+    @EventListener
+    public void onWorkflowStarted(WorkflowEvent.WorkflowStarted event) {
+        markRun(event.getWorkflowId());
+    }
+
+    @EventListener
+    public void onWorkflowCompleted(WorkflowEvent.WorkflowCompleted event) {
+        markRun(event.getWorkflowId());
+    }
+
+    @EventListener
+    public void onWorkflowFailed(WorkflowEvent.WorkflowFailed event) {
+        markRun(event.getWorkflowId());
+    }
+
+    @EventListener
+    public void onNodeStarted(WorkflowEvent.NodeStarted event) {
+        markNode(event.getNodeId());
+    }
+
+    @EventListener
+    public void onNodeCompleted(WorkflowEvent.NodeCompleted event) {
+        markNode(event.getNodeId());
+    }
+
+    @EventListener
+    public void onNodeFailed(WorkflowEvent.NodeFailed event) {
+        markNode(event.getNodeId());
+    }
+
+    @EventListener
+    public void onNodeSkipped(WorkflowEvent.NodeSkipped event) {
+        markNode(event.getNodeId());
+    }
+
+    @EventListener
+    public void onNodeReset(WorkflowEvent.NodeReset event) {
+        markNode(event.getNodeId());
+    }
+
+    /**
+     * 关闭前写回全部待写入的变化
+     */
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdown();
+        flush();
+    }
+
+    private void markRun(WorkflowId workflowId) {
+        memory.findById(workflowId).ifPresent(workflow -> pendingRuns.put(workflowId, workflow));
+    }
+
+    private void markNode(NodeId nodeId) {
+        Workflow workflow = nodeOwners.get(nodeId);
+        if (workflow == null) {
+            return;
+        }
+        pendingNodes.put(nodeId, new NodeRef(workflow, nodeId));
+        pendingRuns.put(workflow.getWorkflowId(), workflow);
+        if (pendingNodes.size() >= properties.getBatchSize() && flushScheduled.compareAndSet(false, true)) {
+            executor.execute(this::flush);
+        }
+    }
+
+    /**
+     * 写回：先定义、再运行、最后节点状态（外键顺序），写入失败的对象重新标记，下次重试
+     */
+    synchronized void flush() {
+        flushScheduled.set(false);
+        try {
+            // 同一次写回中同一工作流只取一次快照，各表的行一致
+            Map<Workflow, SnapshotView> snapshots = new IdentityHashMap<>();
+            Function<Workflow, SnapshotView> snapshotOf = workflow ->
+                    snapshots.computeIfAbsent(workflow, key -> new SnapshotView(key.getStatusSnapshot()));
+            write(pendingDefinitions, workflow -> toDefinitionRow(workflow, snapshotOf.apply(workflow).snapshot()),
+                    mapper::upsertDefinitions, "definition");
+            List<Workflow> finished = new ArrayList<>();
+            write(pendingRuns, workflow -> {
+                WorkflowStatusSnapshot snapshot = snapshotOf.apply(workflow).snapshot();
+                if (snapshot.status().isTerminal()) {
+                    finished.add(workflow);
+                }
+                return toRunRow(workflow, snapshot);
+            }, mapper::upsertRuns, "run");
+            write(pendingNodes, ref -> toNodeStateRow(snapshotOf.apply(ref.workflow()), ref.nodeId()),
+                    mapper::upsertNodeStates, "node");
+            // 已结束且写回的运行不会再有节点事件
+            for (Workflow workflow : finished) {
+                if (!pendingRuns.containsKey(workflow.getWorkflowId())) {
+                    nodeOwners.values().removeIf(owner -> owner == workflow);
+                }
+            }
+        } catch (RuntimeException e) {
+            log.warn("Failed to flush workflow state: {}", e.getMessage(), e);
+        }
+    }
+
+    /**
+     * 取出一批待写回对象生成行并写入
+     */
+    private <K, V, R> void write(Map<K, V> pending, Function<V, R> toRow, Function<List<R>, Integer> upsert, String table) {
+        int batchSize = Math.max(1, properties.getBatchSize());
+        while (!pending.isEmpty()) {
+            Map<K, V> batch = new LinkedHashMap<>();
+            List<R> rows = new ArrayList<>();
+            for (K key : List.copyOf(pending.keySet())) {
+                if (batch.size() == batchSize) {
+                    break;
+                }
+                V value = pending.remove(key);
+                if (value == null) {
+                    continue;
+                }
+                R row = toRow.apply(value);
+                if (row != null) {
+                    rows.add(row);
+                    batch.put(key, value);
+                }
+            }
+            if (rows.isEmpty()) {
+                return;
+            }
+            try {
+                upsert.apply(rows);
+                recordFlushed(table, rows.size());
+            } catch (RuntimeException e) {
+                // 期间又有新变化的保留新标记
+                batch.forEach(pending::putIfAbsent);
+                meterRegistry.ifAvailable(registry -> Counter.builder("nextgen.workflow.persist.failures")
+                        .tag("table", table)
+                        .register(registry)
+                        .increment());
+                throw e;
+            }
+        }
+    }
+
+    private void recordFlushed(String table, int rows) {
+        meterRegistry.ifAvailable(registry -> Counter.builder("nextgen.workflow.persist.rows")
+                .tag("table", table)
+                .register(registry)
+                .increment(rows));
+    }
+
+    private static WorkflowDefinitionRow toDefinitionRow(Workflow workflow, WorkflowStatusSnapshot snapshot) {
+        List<Map<String, Object>> nodes = new ArrayList<>();
+        for (WorkflowStatusSnapshot.NodeState node : snapshot.nodes()) {
+            nodes.add(Map.of(
+                    "nodeId", node.nodeId().getValue(),
+                    "name", String.valueOf(node.name()),
+                    "type", node.type().name(),
+                    "dependencies", node.dependencies().stream().map(NodeId::getValue).toList()));
+        }
+        // 边只能在工作流未运行时修改
+        List<Map<String, Object>> edges = new ArrayList<>();
+        for (WorkflowEdge edge : workflow.getEdges()) {
+            Map<String, Object> row = new LinkedHashMap<>();
+            row.put("edgeId", edge.getId().getValue());
+            row.put("source", edge.getSourceNodeId().getValue());
+            row.put("target", edge.getTargetNodeId().getValue());
+            row.put("type", edge.getType().name());
+            row.put("name", edge.getName());
+            row.put("condition", edge.getCondition());
+            edges.add(row);
+        }
+        WorkflowDefinitionRow row = new WorkflowDefinitionRow();
+        row.setWorkflowId(snapshot.workflowId().getValue());
+        row.setName(snapshot.name());
+        row.setDescription(workflow.getDescription());
+        row.setNodes(JSON.toJSONString(nodes));
+        row.setEdges(JSON.toJSONString(edges));
+        row.setCreatedAt(workflow.getCreatedAt());
+        return row;
+    }
+
+    private static WorkflowRunRow toRunRow(Workflow workflow, WorkflowStatusSnapshot snapshot) {
+        WorkflowRunRow row = new WorkflowRunRow();
+        row.setWorkflowId(snapshot.workflowId().getValue());
+        row.setName(snapshot.name());
+        row.setDescription(workflow.getDescription());
+        row.setStatus(snapshot.status().name());
+        row.setGlobalContext(JSON.toJSONString(snapshot.globalContext()));
+        row.setCreatedAt(workflow.getCreatedAt());
+        row.setStartedAt(snapshot.startedAt());
+        row.setCompletedAt(snapshot.completedAt());
+        LocalDateTime updatedAt = workflow.getUpdatedAt();
+        row.setUpdatedAt(updatedAt != null ? updatedAt : LocalDateTime.now());
+        return row;
+    }
+
+    /**
+     * 节点已不在快照中（被移除）时返回null
+     */
+    private static NodeStateRow toNodeStateRow(SnapshotView view, NodeId nodeId) {
+        WorkflowStatusSnapshot.NodeState node = view.node(nodeId);
+        if (node == null) {
+            return null;
+        }
+        NodeStateRow row = new NodeStateRow();
+        row.setWorkflowId(view.snapshot().workflowId().getValue());
+        row.setNodeId(nodeId.getValue());
+        row.setName(node.name());
+        row.setType(node.type().name());
+        row.setStatus(node.status().name());
+        row.setInputData(JSON.toJSONString(node.inputData()));
+        row.setOutputData(JSON.toJSONString(node.outputData()));
+        row.setErrorMessage(node.errorMessage());
+        row.setUpdatedAt(LocalDateTime.ofInstant(Instant.ofEpochMilli(node.updatedAt()), ZoneId.systemDefault()));
+        return row;
+    }
+
+    private static Map<String, Object> parseMap(String json) {
+        if (json == null || json.isEmpty()) {
+            return new LinkedHashMap<>();
+        }
+        return JSON.parseObject(json, new TypeReference<LinkedHashMap<String, Object>>() {
+        });
+    }
+
+    private record NodeRef(Workflow workflow, NodeId nodeId) {
+    }
+
+    /**
+     * 一次写回使用的快照，节点按ID索引
+     */
+    private static final class SnapshotView {
+        private final WorkflowStatusSnapshot snapshot;
+        private Map<NodeId, WorkflowStatusSnapshot.NodeState> nodes;
+
+        private SnapshotView(WorkflowStatusSnapshot snapshot) {
+            this.snapshot = snapshot;
+        }
+
+        private WorkflowStatusSnapshot snapshot() {
+            return snapshot;
+        }
+
+        private WorkflowStatusSnapshot.NodeState node(NodeId nodeId) {
+            if (nodes == null) {
+                nodes = new HashMap<>();
+                snapshot.nodes().forEach(node -> nodes.put(node.nodeId(), node));
+            }
+            return nodes.get(nodeId);
+        }
+    }
+}
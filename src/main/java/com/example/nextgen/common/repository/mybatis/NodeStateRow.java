@@ -0,0 +1,27 @@
+package com.example.nextgen.common.repository.mybatis;
+
+import lombok.Data;
+
+import java.time.LocalDateTime;
+
+/**
+ * nextgen_node_state 表的行
+ */
+@Data
+public class NodeStateRow {
+    private String workflowId;
+    private String nodeId;
+    private String name;
+    private String type;
+    private String status;
+    /**
+     * 节点输入，JSON
+     */
+    private String inputData;
+    /**
+     * 节点输出，JSON
+     */
+    private String outputData;
+    private String errorMessage;
+    private LocalDateTime updatedAt;
+}
@@ -0,0 +1,39 @@
+package com.example.nextgen.common.repository.mybatis;
+
+import org.apache.ibatis.mapping.DatabaseIdProvider;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * 持久化 SQL 方言
+ * 按数据源 URL 确定 MyBatis 的 databaseId，{@link WorkflowPersistenceMapper} 中方言相关的语句按此选择；
+ * 只看配置，启动时不连接数据库
+ */
+@Configuration
+public class PersistenceDialectConfiguration {
+
+    public static final String MYSQL = "mysql";
+    public static final String POSTGRESQL = "postgresql";
+
+    @Bean
+    public DatabaseIdProvider databaseIdProvider(DataSourceProperties dataSourceProperties) {
+        return dataSource -> dialectOf(dataSourceProperties.getUrl());
+    }
+
+    /**
+     * 不支持的数据库返回null，此时方言相关的语句不可用
+     */
+    static String dialectOf(String url) {
+        if (url == null) {
+            return null;
+        }
+        if (url.startsWith("jdbc:mysql:") || url.startsWith("jdbc:mariadb:")) {
+            return MYSQL;
+        }
+        if (url.startsWith("jdbc:postgresql:")) {
+            return POSTGRESQL;
+        }
+        return null;
+    }
+}
@@ -0,0 +1,24 @@
+package com.example.nextgen.common.repository.mybatis;
+
+import lombok.Data;
+
+import java.time.LocalDateTime;
+
+/**
+ * nextgen_workflow_definition 表的行
+ */
+@Data
+public class WorkflowDefinitionRow {
+    private String workflowId;
+    private String name;
+    private String description;
+    /**
+     * 节点定义（id、名称、类型、依赖），JSON
+     */
+    private String nodes;
+    /**
+     * 边定义，JSON
+     */
+    private String edges;
+    private LocalDateTime createdAt;
+}
@@ -0,0 +1,132 @@
+package com.example.nextgen.common.repository.mybatis;
+
+import org.apache.ibatis.annotations.*;
+
+import java.util.List;
+
+/**
+ * 工作流持久化 Mapper
+ * 默认配置的数据源是 MySQL，dev 配置是 PostgreSQL，方言相关的语句各有一份，按 databaseId 选择
+ * （见 {@link PersistenceDialectConfiguration}），表结构见 db/workflow-schema-{mysql,postgresql}.sql。
+ * 写入都是多行 upsert，一次写回每张表只有一条语句；JSON 字段以文本传入
+ */
+@Mapper
+public interface WorkflowPersistenceMapper {
+
+    @Insert(databaseId = PersistenceDialectConfiguration.MYSQL, value = """
+            <script>
+            INSERT INTO nextgen_workflow_definition (workflow_id, name, description, nodes, edges, created_at)
+            VALUES
+            <foreach collection="rows" item="row" separator=",">
+              (#{row.workflowId}, #{row.name}, #{row.description}, #{row.nodes}, #{row.edges}, #{row.createdAt})
+            </foreach>
+            ON DUPLICATE KEY UPDATE
+              name = VALUES(name), description = VALUES(description), nodes = VALUES(nodes), edges = VALUES(edges)
+            </script>
+            """)
+    @Insert(databaseId = PersistenceDialectConfiguration.POSTGRESQL, value = """
+            <script>
+            INSERT INTO nextgen_workflow_definition (workflow_id, name, description, nodes, edges, created_at)
+            VALUES
+            <foreach collection="rows" item="row" separator=",">
+              (#{row.workflowId}, #{row.name}, #{row.description}, #{row.nodes}::jsonb, #{row.edges}::jsonb, #{row.createdAt})
+            </foreach>
+            ON CONFLICT (workflow_id) DO UPDATE SET
+              name = EXCLUDED.name, description = EXCLUDED.description, nodes = EXCLUDED.nodes, edges = EXCLUDED.edges
+            </script>
+            """)
+    int upsertDefinitions(@Param("rows") List<WorkflowDefinitionRow> rows);
+
+    @Insert(databaseId = PersistenceDialectConfiguration.MYSQL, value = """
+            <script>
+            INSERT INTO nextgen_workflow_run (workflow_id, name, description, status, global_context,
+                                              created_at, started_at, completed_at, updated_at)
+            VALUES
+            <foreach collection="rows" item="row" separator=",">
+              (#{row.workflowId}, #{row.name}, #{row.description}, #{row.status}, #{row.globalContext},
+               #{row.createdAt}, #{row.startedAt}, #{row.completedAt}, #{row.updatedAt})
+            </foreach>
+            ON DUPLICATE KEY UPDATE
+              status = VALUES(status), global_context = VALUES(global_context), started_at = VALUES(started_at),
+              completed_at = VALUES(completed_at), updated_at = VALUES(updated_at)
+            </script>
+            """)
+    @Insert(databaseId = PersistenceDialectConfiguration.POSTGRESQL, value = """
+            <script>
+            INSERT INTO nextgen_workflow_run (workflow_id, name, description, status, global_context,
+                                              created_at, started_at, completed_at, updated_at)
+            VALUES
+            <foreach collection="rows" item="row" separator=",">
+              (#{row.workflowId}, #{row.name}, #{row.description}, #{row.status}, #{row.globalContext}::jsonb,
+               #{row.createdAt}, #{row.startedAt}, #{row.completedAt}, #{row.updatedAt})
+            </foreach>
+            ON CONFLICT (workflow_id) DO UPDATE SET
+              status = EXCLUDED.status, global_context = EXCLUDED.global_context, started_at = EXCLUDED.started_at,
+              completed_at = EXCLUDED.completed_at, updated_at = EXCLUDED.updated_at
+            </script>
+            """)
+    int upsertRuns(@Param("rows") List<WorkflowRunRow> rows);
+
+    @Insert(databaseId = PersistenceDialectConfiguration.MYSQL, value = """
+            <script>
+            INSERT INTO nextgen_node_state (workflow_id, node_id, name, type, status, input_data, output_data,
+                                            error_message, updated_at)
+            VALUES
+            <foreach collection="rows" item="row" separator=",">
+              (#{row.workflowId}, #{row.nodeId}, #{row.name}, #{row.type}, #{row.status}, #{row.inputData},
+               #{row.outputData}, #{row.errorMessage}, #{row.updatedAt})
+            </foreach>
+            ON DUPLICATE KEY UPDATE
+              status = VALUES(status), input_data = VALUES(input_data), output_data = VALUES(output_data),
+              error_message = VALUES(error_message), updated_at = VALUES(updated_at)
+            </script>
+            """)
+    @Insert(databaseId = PersistenceDialectConfiguration.POSTGRESQL, value = """
+            <script>
+            INSERT INTO nextgen_node_state (workflow_id, node_id, name, type, status, input_data, output_data,
+                                            error_message, updated_at)
+            VALUES
+            <foreach collection="rows" item="row" separator=",">
+              (#{row.workflowId}, #{row.nodeId}, #{row.name}, #{row.type}, #{row.status}, #{row.inputData}::jsonb,
+               #{row.outputData}::jsonb, #{row.errorMessage}, #{row.updatedAt})
+            </foreach>
+            ON CONFLICT (workflow_id, node_id) DO UPDATE SET
+              status = EXCLUDED.status, input_data = EXCLUDED.input_data, output_data = EXCLUDED.output_data,
+              error_message = EXCLUDED.error_message, updated_at = EXCLUDED.updated_at
+            </script>
+            """)
+    int upsertNodeStates(@Param("rows") List<NodeStateRow> rows);
+
+    @Select(databaseId = PersistenceDialectConfiguration.MYSQL, value = """
+            SELECT workflow_id, name, description, status, CAST(global_context AS CHAR) AS global_context,
+                   created_at, started_at, completed_at, updated_at
+            FROM nextgen_workflow_run WHERE workflow_id = #{workflowId}
+            """)
+    @Select(databaseId = PersistenceDialectConfiguration.POSTGRESQL, value = """
+            SELECT workflow_id, name, description, status, global_context::text AS global_context,
+                   created_at, started_at, completed_at, updated_at
+            FROM nextgen_workflow_run WHERE workflow_id = #{workflowId}
+            """)
+    WorkflowRunRow selectRun(@Param("workflowId") String workflowId);
+
+    @Select(databaseId = PersistenceDialectConfiguration.MYSQL, value = """
+            SELECT workflow_id, node_id, name, type, status, CAST(input_data AS CHAR) AS input_data,
+                   CAST(output_data AS CHAR) AS output_data, error_message, updated_at
+            FROM nextgen_node_state WHERE workflow_id = #{workflowId}
+            """)
+    @Select(databaseId = PersistenceDialectConfiguration.POSTGRESQL, value = """
+            SELECT workflow_id, node_id, name, type, status, input_data::text AS input_data,
+                   output_data::text AS output_data, error_message, updated_at
+            FROM nextgen_node_state WHERE workflow_id = #{workflowId}
+            """)
+    List<NodeStateRow> selectNodeStates(@Param("workflowId") String workflowId);
+
+    @Delete("DELETE FROM nextgen_node_state WHERE workflow_id = #{workflowId}")
+    int deleteNodeStates(@Param("workflowId") String workflowId);
+
+    @Delete("DELETE FROM nextgen_workflow_run WHERE workflow_id = #{workflowId}")
+    int deleteRun(@Param("workflowId") String workflowId);
+
+    @Delete("DELETE FROM nextgen_workflow_definition WHERE workflow_id = #{workflowId}")
+    int deleteDefinition(@Param("workflowId") String workflowId);
+}
@@ -0,0 +1,24 @@
+package com.example.nextgen.common.repository.mybatis;
+
+import lombok.Data;
+
+import java.time.LocalDateTime;
+
+/**
+ * nextgen_workflow_run 表的行
+ */
+@Data
+public class WorkflowRunRow {
+    private String workflowId;
+    private String name;
+    private String description;
+    private String status;
+    /**
+     * 全局上下文，JSON
+     */
+    private String globalContext;
+    private LocalDateTime createdAt;
+    private LocalDateTime startedAt;
+    private LocalDateTime completedAt;
+    private LocalDateTime updatedAt;
+}
@@ -0,0 +1,459 @@
+package com.example.nextgen.common.vector;
+
+import com.alibaba.fastjson2.JSON;
+import com.alibaba.fastjson2.JSONObject;
+import org.springframework.ai.document.Document;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * 进程内 HNSW 近似最近邻索引（余弦相似度）
+ * 向量归一化后存放在堆外内存（{@link OffHeapVectors}），图结构用基本类型数组保存；支持边写边查：
+ * 插入之间互斥，查询之间并发。文档按 id 去重，已存在的 id 不重复插入。
+ * 持久化为单个文件，加载时向量区直接映射文件，不需要重新向量化或重建图
+ *
+ * 文件格式：64 字节头（小端）| 向量区 | 图结构 | 文档
+ */
+public final class HnswIndex {
+
+    private static final int MAGIC = 0x484E5357;
+    private static final int VERSION = 1;
+    private static final int HEADER_BYTES = 64;
+
+    private final int dimensions;
+    private final int m;
+    private final int efConstruction;
+    private final int segmentVectors;
+    private final double levelMultiplier;
+    private final OffHeapVectors vectors;
+    private final List<Document> documents;
+    /**
+     * 文档 id -> 节点序号
+     */
+    private final Map<String, Integer> nodesById;
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    /**
+     * 节点 -> 层 -> 邻居表，邻居表第 0 位是邻居数量
+     */
+    private int[][][] graph;
+    private int entryPoint = -1;
+    private int maxLevel = -1;
+
+    /**
+     * @param dimensions     向量维度
+     * @param m              上层最大邻居数，第 0 层为 2m
+     * @param efConstruction 插入时的候选集大小
+     * @param segmentVectors 每个堆外内存段容纳的向量数
+     */
+    public HnswIndex(int dimensions, int m, int efConstruction, int segmentVectors) {
+        this(dimensions, m, efConstruction, segmentVectors, new OffHeapVectors(dimensions, segmentVectors),
+                new ArrayList<>(), new int[1024][][]);
+    }
+
+    private HnswIndex(int dimensions, int m, int efConstruction, int segmentVectors, OffHeapVectors vectors,
+                      List<Document> documents, int[][][] graph) {
+        if (m < 2 || efConstruction < 1) {
+            throw new IllegalArgumentException("Invalid HNSW parameters: m=" + m + ", efConstruction=" + efConstruction);
+        }
+        this.dimensions = dimensions;
+        this.m = m;
+        this.efConstruction = efConstruction;
+        this.segmentVectors = segmentVectors;
+        this.levelMultiplier = 1 / Math.log(m);
+        this.vectors = vectors;
+        this.documents = documents;
+        this.graph = graph;
+        this.nodesById = new HashMap<>(Math.max(16, documents.size() * 2));
+        for (int node = 0; node < documents.size(); node++) {
+            nodesById.putIfAbsent(documents.get(node).getId(), node);
+        }
+    }
+
+    /**
+     * 插入文档及其向量，返回节点序号；已存在相同 id 的文档时不插入，返回 -1
+     */
+    public int add(Document document, float[] vector) {
+        float[] query = normalize(vector);
+        lock.writeLock().lock();
+        try {
+            if (nodesById.containsKey(document.getId())) {
+                return -1;
+            }
+            int node = vectors.add(query);
+            documents.add(document);
+            nodesById.put(document.getId(), node);
+            int level = randomLevel();
+            if (node == graph.length) {
+                graph = Arrays.copyOf(graph, graph.length * 2);
+            }
+            int[][] layers = new int[level + 1][];
+            for (int l = 0; l <= level; l++) {
+                layers[l] = new int[1 + capacity(l)];
+            }
+            graph[node] = layers;
+            if (entryPoint < 0) {
+                entryPoint = node;
+                maxLevel = level;
+                return node;
+            }
+
+            int current = entryPoint;
+            for (int l = maxLevel; l > level; l--) {
+                current = greedy(query, current, l);
+            }
+            BitSet visited = new BitSet(node + 1);
+            for (int l = Math.min(level, maxLevel); l >= 0; l--) {
+                visited.clear();
+                int[] selected = selectNeighbors(searchLayer(query, current, efConstruction, l, visited));
+                for (int neighbor : selected) {
+                    link(node, neighbor, l);
+                    link(neighbor, node, l);
+                }
+                current = selected[0];
+            }
+            if (level > maxLevel) {
+                maxLevel = level;
+                entryPoint = node;
+            }
+            return node;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * 查询最相似的 k 个文档，按相似度从高到低排列
+     *
+     * @param ef 候选集大小，越大召回越好，小于 k 时按 k 处理
+     */
+    public List<SearchHit> search(float[] vector, int k, int ef) {
+        if (k <= 0) {
+            return List.of();
+        }
+        float[] query = normalize(vector);
+        lock.readLock().lock();
+        try {
+            if (entryPoint < 0) {
+                return List.of();
+            }
+            int current = entryPoint;
+            for (int l = maxLevel; l > 0; l--) {
+                current = greedy(query, current, l);
+            }
+            ScoredQueue results = searchLayer(query, current, Math.max(ef, k), 0, new BitSet(vectors.size()));
+            while (results.size() > k) {
+                results.pop();
+            }
+            SearchHit[] hits = new SearchHit[results.size()];
+            for (int i = hits.length - 1; i >= 0; i--) {
+                float score = results.topScore();
+                hits[i] = new SearchHit(documents.get(results.pop()), score);
+            }
+            return List.of(hits);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * 在指定层上从 current 出发贪心移动到最相似的节点
+     */
+    private int greedy(float[] query, int current, int level) {
+        float best = vectors.dot(current, query);
+        boolean changed = true;
+        while (changed) {
+            changed = false;
+            int[] neighbors = graph[current][level];
+            for (int i = 1; i <= neighbors[0]; i++) {
+                float score = vectors.dot(neighbors[i], query);
+                if (score > best) {
+                    best = score;
+                    current = neighbors[i];
+                    changed = true;
+                }
+            }
+        }
+        return current;
+    }
+
+    /**
+     * 在指定层上做候选集大小为 ef 的最佳优先搜索，返回堆顶为最不相似节点的结果集
+     */
+    private ScoredQueue searchLayer(float[] query, int entry, int ef, int level, BitSet visited) {
+        ScoredQueue candidates = new ScoredQueue(ef, true);
+        ScoredQueue results = new ScoredQueue(ef + 1, false);
+        float score = vectors.dot(entry, query);
+        visited.set(entry);
+        candidates.push(entry, score);
+        results.push(entry, score);
+        while (candidates.size() > 0) {
+            float candidateScore = candidates.topScore();
+            int candidate = candidates.pop();
+            if (results.size() >= ef && candidateScore < results.topScore()) {
+                break;
+            }
+            int[] neighbors = graph[candidate][level];
+            for (int i = 1; i <= neighbors[0]; i++) {
+                int neighbor = neighbors[i];
+                if (visited.get(neighbor)) {
+                    continue;
+                }
+                visited.set(neighbor);
+                float neighborScore = vectors.dot(neighbor, query);
+                if (results.size() < ef || neighborScore > results.topScore()) {
+                    candidates.push(neighbor, neighborScore);
+                    results.push(neighbor, neighborScore);
+                    if (results.size() > ef) {
+                        results.pop();
+                    }
+                }
+            }
+        }
+        return results;
+    }
+
+    /**
+     * 启发式选邻居：候选与已选邻居的相似度高于与新节点的相似度时跳过，使邻居分布在不同方向上；不足 m 个时用跳过的候选补齐
+     */
+    private int[] selectNeighbors(ScoredQueue results) {
+        int count = results.size();
+        int[] ordered = new int[count];
+        float[] scores = new float[count];
+        for (int i = count - 1; i >= 0; i--) {
+            scores[i] = results.topScore();
+            ordered[i] = results.pop();
+        }
+        int[] selected = new int[Math.min(m, count)];
+        int[] skipped = new int[count];
+        int selectedCount = 0;
+        int skippedCount = 0;
+        for (int i = 0; i < count && selectedCount < selected.length; i++) {
+            boolean diverse = true;
+            for (int j = 0; j < selectedCount; j++) {
+                if (vectors.dot(ordered[i], selected[j]) > scores[i]) {
+                    diverse = false;
+                    break;
+                }
+            }
+            if (diverse) {
+                selected[selectedCount++] = ordered[i];
+            } else {
+                skipped[skippedCount++] = ordered[i];
+            }
+        }
+        for (int i = 0; i < skippedCount && selectedCount < selected.length; i++) {
+            selected[selectedCount++] = skipped[i];
+        }
+        return selected;
+    }
+
+    /**
+     * 添加单向连接，邻居表已满时替换掉最不相似的邻居
+     */
+    private void link(int from, int to, int level) {
+        int[] neighbors = graph[from][level];
+        int count = neighbors[0];
+        if (count < neighbors.length - 1) {
+            neighbors[count + 1] = to;
+            neighbors[0] = count + 1;
+            return;
+        }
+        int worst = -1;
+        float worstScore = vectors.dot(from, to);
+        for (int i = 1; i <= count; i++) {
+            float score = vectors.dot(from, neighbors[i]);
+            if (score < worstScore) {
+                worstScore = score;
+                worst = i;
+            }
+        }
+        if (worst > 0) {
+            neighbors[worst] = to;
+        }
+    }
+
+    private int capacity(int level) {
+        return level == 0 ? 2 * m : m;
+    }
+
+    private int randomLevel() {
+        double random = 1.0 - ThreadLocalRandom.current().nextDouble();
+        return (int) (-Math.log(random) * levelMultiplier);
+    }
+
+    private float[] normalize(float[] vector) {
+        if (vector == null || vector.length != dimensions) {
+            throw new IllegalArgumentException("Expected vector of " + dimensions + " dimensions but got "
+                    + (vector == null ? "null" : vector.length));
+        }
+        double norm = 0;
+        for (float value : vector) {
+            norm += value * value;
+        }
+        if (norm == 0) {
+            throw new IllegalArgumentException("Cannot index a zero vector");
+        }
+        float scale = (float) (1 / Math.sqrt(norm));
+        float[] normalized = new float[dimensions];
+        for (int i = 0; i < dimensions; i++) {
+            normalized[i] = vector[i] * scale;
+        }
+        return normalized;
+    }
+
+    /**
+     * 写入文件，先写临时文件再替换，查询不受影响
+     */
+    public void save(Path path) throws IOException {
+        Path parent = path.toAbsolutePath().getParent();
+        Files.createDirectories(parent);
+        Path temp = Files.createTempFile(parent, path.getFileName().toString(), ".tmp");
+        lock.readLock().lock();
+        try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            int count = vectors.size();
+            ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES).order(OffHeapVectors.ORDER);
+            header.putInt(MAGIC).putInt(VERSION).putInt(dimensions).putInt(m).putInt(efConstruction)
+                    .putInt(segmentVectors).putInt(count).putInt(entryPoint).putInt(maxLevel);
+            header.clear();
+            while (header.hasRemaining()) {
+                channel.write(header);
+            }
+            vectors.write(channel);
+
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Channels.newOutputStream(channel)));
+            for (int node = 0; node < count; node++) {
+                int[][] layers = graph[node];
+                out.writeInt(layers.length);
+                for (int[] neighbors : layers) {
+                    out.writeInt(neighbors[0]);
+                    for (int i = 1; i <= neighbors[0]; i++) {
+                        out.writeInt(neighbors[i]);
+                    }
+                }
+            }
+            for (Document document : documents) {
+                JSONObject json = new JSONObject();
+                json.put("id", document.getId());
+                json.put("text", document.getText());
+                json.put("metadata", document.getMetadata());
+                byte[] bytes = json.toJSONString().getBytes(StandardCharsets.UTF_8);
+                out.writeInt(bytes.length);
+                out.write(bytes);
+            }
+            out.flush();
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(temp);
+            throw e;
+        } finally {
+            lock.readLock().unlock();
+        }
+        Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * 从文件加载，向量区以内存映射方式读取
+     */
+    public static HnswIndex load(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES).order(OffHeapVectors.ORDER);
+            while (header.hasRemaining()) {
+                if (channel.read(header) < 0) {
+                    throw new EOFException("Truncated vector index header: " + path);
+                }
+            }
+            header.flip();
+            if (header.getInt() != MAGIC) {
+                throw new IllegalStateException("Not a vector index file: " + path);
+            }
+            int version = header.getInt();
+            if (version != VERSION) {
+                throw new IllegalStateException("Unsupported vector index version " + version + ": " + path);
+            }
+            int dimensions = header.getInt();
+            int m = header.getInt();
+            int efConstruction = header.getInt();
+            int segmentVectors = header.getInt();
+            int count = header.getInt();
+            int entryPoint = header.getInt();
+            int maxLevel = header.getInt();
+
+            OffHeapVectors vectors = OffHeapVectors.map(channel, HEADER_BYTES, count, dimensions, segmentVectors);
+            channel.position(HEADER_BYTES + (long) count * dimensions * Float.BYTES);
+            DataInputStream in = new DataInputStream(new BufferedInputStream(Channels.newInputStream(channel)));
+            int[][][] graph = new int[Math.max(1024, count)][][];
+            for (int node = 0; node < count; node++) {
+                int[][] layers = new int[in.readInt()][];
+                for (int l = 0; l < layers.length; l++) {
+                    int[] neighbors = new int[1 + (l == 0 ? 2 * m : m)];
+                    neighbors[0] = in.readInt();
+                    for (int i = 1; i <= neighbors[0]; i++) {
+                        neighbors[i] = in.readInt();
+                    }
+                    layers[l] = neighbors;
+                }
+                graph[node] = layers;
+            }
+            List<Document> documents = new ArrayList<>(count);
+            for (int node = 0; node < count; node++) {
+                byte[] bytes = new byte[in.readInt()];
+                in.readFully(bytes);
+                JSONObject json = JSON.parseObject(new String(bytes, StandardCharsets.UTF_8));
+                JSONObject metadata = json.getJSONObject("metadata");
+                String text = json.getString("text");
+                documents.add(new Document(json.getString("id"), text != null ? text : "",
+                        metadata != null ? metadata : Map.of()));
+            }
+
+            HnswIndex index = new HnswIndex(dimensions, m, efConstruction, segmentVectors, vectors, documents, graph);
+            index.entryPoint = entryPoint;
+            index.maxLevel = maxLevel;
+            return index;
+        }
+    }
+
+    /**
+     * 是否已有该 id 的文档
+     */
+    public boolean contains(String documentId) {
+        lock.readLock().lock();
+        try {
+            return nodesById.containsKey(documentId);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return vectors.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public int getDimensions() {
+        return dimensions;
+    }
+
+    /**
+     * 查询结果
+     *
+     * @param document 命中的文档
+     * @param score    余弦相似度
+     */
+    public record SearchHit(Document document, float score) {
+    }
+}
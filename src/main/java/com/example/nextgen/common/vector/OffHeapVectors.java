@@ -0,0 +1,125 @@
+package com.example.nextgen.common.vector;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 堆外向量存储
+ * 向量按固定大小的段存放在直接内存中，不占用堆也不增加 GC 扫描负担；从文件加载时已写满的段直接以只读方式映射文件，
+ * 只有最后一个未写满的段复制到直接内存中继续追加
+ */
+final class OffHeapVectors {
+
+    static final ByteOrder ORDER = ByteOrder.LITTLE_ENDIAN;
+
+    private final int dimensions;
+    private final int segmentVectors;
+    private final int segmentBytes;
+    private final List<ByteBuffer> segments = new ArrayList<>();
+    private final List<FloatBuffer> views = new ArrayList<>();
+    private int size;
+
+    OffHeapVectors(int dimensions, int segmentVectors) {
+        long bytes = (long) dimensions * segmentVectors * Float.BYTES;
+        if (dimensions <= 0 || segmentVectors <= 0 || bytes > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Invalid vector segment: " + segmentVectors + " x " + dimensions);
+        }
+        this.dimensions = dimensions;
+        this.segmentVectors = segmentVectors;
+        this.segmentBytes = (int) bytes;
+    }
+
+    /**
+     * 从文件映射已持久化的向量
+     *
+     * @param position 向量区在文件中的起始位置
+     * @param count    向量数量
+     */
+    static OffHeapVectors map(FileChannel channel, long position, int count, int dimensions, int segmentVectors)
+            throws IOException {
+        OffHeapVectors vectors = new OffHeapVectors(dimensions, segmentVectors);
+        int full = count / segmentVectors;
+        for (int i = 0; i < full; i++) {
+            vectors.addSegment(channel.map(FileChannel.MapMode.READ_ONLY, position + (long) i * vectors.segmentBytes,
+                    vectors.segmentBytes));
+        }
+        int rest = count % segmentVectors;
+        if (rest > 0) {
+            ByteBuffer segment = ByteBuffer.allocateDirect(vectors.segmentBytes);
+            segment.put(channel.map(FileChannel.MapMode.READ_ONLY, position + (long) full * vectors.segmentBytes,
+                    (long) rest * dimensions * Float.BYTES));
+            vectors.addSegment(segment);
+        }
+        vectors.size = count;
+        return vectors;
+    }
+
+    /**
+     * 追加一个向量，返回其序号
+     */
+    int add(float[] vector) {
+        int segment = size / segmentVectors;
+        if (segment == segments.size()) {
+            addSegment(ByteBuffer.allocateDirect(segmentBytes));
+        }
+        views.get(segment).put((size % segmentVectors) * dimensions, vector);
+        return size++;
+    }
+
+    /**
+     * 向量与查询的点积
+     */
+    float dot(int id, float[] query) {
+        FloatBuffer segment = views.get(id / segmentVectors);
+        int offset = (id % segmentVectors) * dimensions;
+        float sum = 0f;
+        for (int i = 0; i < dimensions; i++) {
+            sum += segment.get(offset + i) * query[i];
+        }
+        return sum;
+    }
+
+    /**
+     * 两个已存储向量的点积
+     */
+    float dot(int a, int b) {
+        FloatBuffer left = views.get(a / segmentVectors);
+        FloatBuffer right = views.get(b / segmentVectors);
+        int leftOffset = (a % segmentVectors) * dimensions;
+        int rightOffset = (b % segmentVectors) * dimensions;
+        float sum = 0f;
+        for (int i = 0; i < dimensions; i++) {
+            sum += left.get(leftOffset + i) * right.get(rightOffset + i);
+        }
+        return sum;
+    }
+
+    /**
+     * 按顺序写出全部向量（不含段尾的空闲空间）
+     */
+    void write(FileChannel channel) throws IOException {
+        for (int i = 0; i < segments.size(); i++) {
+            int vectors = Math.min(segmentVectors, size - i * segmentVectors);
+            ByteBuffer buffer = segments.get(i).duplicate();
+            buffer.clear().limit(vectors * dimensions * Float.BYTES);
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+        }
+    }
+
+    int size() {
+        return size;
+    }
+
+    private void addSegment(ByteBuffer segment) {
+        segment.clear();
+        segments.add(segment);
+        views.add(segment.order(ORDER).asFloatBuffer());
+    }
+}
@@ -0,0 +1,86 @@
+package com.example.nextgen.common.vector;
+
+import java.util.Arrays;
+
+/**
+ * 基于基本类型数组的 (节点, 相似度) 二叉堆，避免检索过程中的装箱和对象分配
+ */
+final class ScoredQueue {
+
+    private final boolean maxFirst;
+    private int[] ids;
+    private float[] scores;
+    private int size;
+
+    /**
+     * @param maxFirst true 时堆顶为相似度最高的节点，否则为最低的节点
+     */
+    ScoredQueue(int capacity, boolean maxFirst) {
+        this.maxFirst = maxFirst;
+        this.ids = new int[Math.max(capacity, 4)];
+        this.scores = new float[ids.length];
+    }
+
+    void push(int id, float score) {
+        if (size == ids.length) {
+            ids = Arrays.copyOf(ids, size * 2);
+            scores = Arrays.copyOf(scores, size * 2);
+        }
+        int index = size++;
+        while (index > 0) {
+            int parent = (index - 1) >>> 1;
+            if (!before(score, scores[parent])) {
+                break;
+            }
+            ids[index] = ids[parent];
+            scores[index] = scores[parent];
+            index = parent;
+        }
+        ids[index] = id;
+        scores[index] = score;
+    }
+
+    /**
+     * 移除堆顶，返回其节点
+     */
+    int pop() {
+        int top = ids[0];
+        size--;
+        int lastId = ids[size];
+        float lastScore = scores[size];
+        int index = 0;
+        int half = size >>> 1;
+        while (index < half) {
+            int child = 2 * index + 1;
+            int right = child + 1;
+            if (right < size && before(scores[right], scores[child])) {
+                child = right;
+            }
+            if (!before(scores[child], lastScore)) {
+                break;
+            }
+            ids[index] = ids[child];
+            scores[index] = scores[child];
+            index = child;
+        }
+        ids[index] = lastId;
+        scores[index] = lastScore;
+        return top;
+    }
+
+    int topId() {
+        return ids[0];
+    }
+
+    float topScore() {
+        return scores[0];
+    }
+
+    int size() {
+        return size;
+    }
+
+    private boolean before(float a, float b) {
+        return maxFirst ? a > b : a < b;
+    }
+}
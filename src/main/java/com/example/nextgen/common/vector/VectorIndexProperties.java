@@ -0,0 +1,51 @@
+package com.example.nextgen.common.vector;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+/**
+ * 进程内向量索引相关配置
+ */
+@Getter
+@Setter
+@Component
+@ConfigurationProperties(prefix = "nextgen.vector")
+public class VectorIndexProperties {
+
+    /**
+     * 索引文件目录，每个索引一个 {名称}.hnsw 文件
+     */
+    private String directory = "data/vector-index";
+
+    /**
+     * 写入后是否持久化到磁盘，供后续运行复用
+     */
+    private boolean persist = true;
+
+    /**
+     * 每个节点在上层的最大邻居数（第 0 层为两倍）
+     */
+    private int m = 16;
+
+    /**
+     * 插入时的候选集大小，越大召回越好、插入越慢
+     */
+    private int efConstruction = 200;
+
+    /**
+     * 查询时的候选集大小，不小于 topK
+     */
+    private int efSearch = 64;
+
+    /**
+     * 每个堆外内存段容纳的向量数
+     */
+    private int segmentVectors = 4096;
+
+    /**
+     * 写入索引时每批向量化的分块数
+     */
+    private int embedBatchSize = 10;
+}
@@ -0,0 +1,198 @@
+package com.example.nextgen.common.vector;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.ai.document.Document;
+import org.springframework.ai.embedding.EmbeddingModel;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+
+/**
+ * 向量索引服务
+ * 按名称管理进程内的 {@link HnswIndex}：首次使用时从索引目录加载已持久化的索引，写入后保存回磁盘，供后续运行复用；
+ * 写入时边消费分块边向量化插入，可以直接接在文档摄取流后面；索引中已有的文档 id 直接跳过，不重复向量化
+ */
+@Slf4j
+@Component
+public class VectorIndexService {
+
+    private static final Pattern NAME = Pattern.compile("[A-Za-z0-9_-]+");
+    private static final String FILE_SUFFIX = ".hnsw";
+
+    private final VectorIndexProperties properties;
+    private final EmbeddingModel embeddingModel;
+    private final ObjectProvider<MeterRegistry> meterRegistry;
+    private final Map<String, HnswIndex> indexes = new ConcurrentHashMap<>();
+    private final Set<String> dirty = ConcurrentHashMap.newKeySet();
+
+    public VectorIndexService(VectorIndexProperties properties, EmbeddingModel embeddingModel,
+                              ObjectProvider<MeterRegistry> meterRegistry) {
+        this.properties = properties;
+        this.embeddingModel = embeddingModel;
+        this.meterRegistry = meterRegistry;
+    }
+
+    /**
+     * 向量化并写入索引，分块按到达顺序分批处理，返回新写入的数量；索引不存在时按首批向量的维度创建。
+     * id 已在索引中（或在本次写入中重复出现）的文档跳过
+     */
+    public int index(String name, Iterable<Document> documents) {
+        checkName(name);
+        int batchSize = Math.max(1, properties.getEmbedBatchSize());
+        List<Document> batch = new ArrayList<>(batchSize);
+        Set<String> seen = new HashSet<>();
+        // 先加载已持久化的索引，之后只查内存
+        find(name);
+        int indexed = 0;
+        for (Document document : documents) {
+            if (document.getText() == null || document.getText().isBlank()) {
+                continue;
+            }
+            if (!seen.add(document.getId())) {
+                continue;
+            }
+            HnswIndex existing = indexes.get(name);
+            if (existing != null && existing.contains(document.getId())) {
+                continue;
+            }
+            batch.add(document);
+            if (batch.size() == batchSize) {
+                indexed += insert(name, batch);
+                batch.clear();
+            }
+        }
+        if (!batch.isEmpty()) {
+            indexed += insert(name, batch);
+        }
+        if (properties.isPersist() && indexed > 0) {
+            save(name);
+        }
+        return indexed;
+    }
+
+    /**
+     * 查询与文本最相似的 topK 个分块
+     */
+    public List<HnswIndex.SearchHit> search(String name, String query, int topK) {
+        HnswIndex index = find(name);
+        if (index == null) {
+            throw new IllegalArgumentException("Vector index not found: " + name);
+        }
+        float[] vector = embeddingModel.embed(query);
+        long start = System.nanoTime();
+        List<HnswIndex.SearchHit> hits = index.search(vector, topK, properties.getEfSearch());
+        long elapsed = System.nanoTime() - start;
+        meterRegistry.ifAvailable(registry -> Timer.builder("nextgen.vector.search")
+                .tag("index", name)
+                .register(registry)
+                .record(elapsed, TimeUnit.NANOSECONDS));
+        return hits;
+    }
+
+    /**
+     * 已加载或已持久化的索引，不存在时返回null
+     */
+    public HnswIndex find(String name) {
+        checkName(name);
+        HnswIndex index = indexes.get(name);
+        if (index != null) {
+            return index;
+        }
+        Path file = file(name);
+        if (!Files.isRegularFile(file)) {
+            return null;
+        }
+        return indexes.computeIfAbsent(name, key -> load(file));
+    }
+
+    /**
+     * 把索引保存到索引目录
+     */
+    public void save(String name) {
+        HnswIndex index = indexes.get(name);
+        if (index == null) {
+            return;
+        }
+        dirty.remove(name);
+        try {
+            index.save(file(name));
+            log.info("Saved vector index {} with {} vectors", name, index.size());
+        } catch (IOException e) {
+            dirty.add(name);
+            throw new UncheckedIOException("Failed to save vector index " + name, e);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (!properties.isPersist()) {
+            return;
+        }
+        for (String name : List.copyOf(dirty)) {
+            try {
+                save(name);
+            } catch (UncheckedIOException e) {
+                log.warn(e.getMessage(), e.getCause());
+            }
+        }
+    }
+
+    private int insert(String name, List<Document> batch) {
+        List<float[]> vectors = embeddingModel.embed(batch.stream().map(Document::getText).toList());
+        HnswIndex index = find(name);
+        if (index == null) {
+            index = indexes.computeIfAbsent(name, key -> new HnswIndex(vectors.get(0).length, properties.getM(),
+                    properties.getEfConstruction(), properties.getSegmentVectors()));
+        }
+        // 并发写入同一索引时，其他调用可能已经插入了相同 id
+        int inserted = 0;
+        for (int i = 0; i < batch.size(); i++) {
+            if (index.add(batch.get(i), vectors.get(i)) >= 0) {
+                inserted++;
+            }
+        }
+        int count = inserted;
+        dirty.add(name);
+        meterRegistry.ifAvailable(registry -> Counter.builder("nextgen.vector.inserts")
+                .tag("index", name)
+                .register(registry)
+                .increment(count));
+        return count;
+    }
+
+    private HnswIndex load(Path file) {
+        try {
+            HnswIndex index = HnswIndex.load(file);
+            log.info("Loaded vector index {} with {} vectors", file, index.size());
+            return index;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to load vector index " + file, e);
+        }
+    }
+
+    private Path file(String name) {
+        return Path.of(properties.getDirectory()).resolve(name + FILE_SUFFIX);
+    }
+
+    private static void checkName(String name) {
+        if (name == null || !NAME.matcher(name).matches()) {
+            throw new IllegalArgumentException("Invalid vector index name: " + name);
+        }
+    }
+}
@@ -8,7 +8,9 @@ import com.example.nextgen.domain.service.WorkFlowExecutor;
 import com.example.nextgen.domain.service.WorkflowExecutionEngine;
 import com.example.nextgen.domain.workflow.Workflow;
 import com.example.nextgen.domain.workflow.WorkflowId;
+import com.example.nextgen.domain.workflow.WorkflowRepository;
 import com.example.nextgen.domain.workflow.WorkflowStatus;
+import com.example.nextgen.domain.workflow.WorkflowStatusSnapshot;
 // import com.example.nextgen.domain.event.WorkflowEventHandler; // 已删除
 import com.example.nextgen.domain.application.WorkflowResults.*;
 import lombok.Data;
@@ -18,6 +20,9 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.stereotype.Service;
 
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.util.*;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
@@ -35,18 +40,19 @@ import com.example.nextgen.domain.edge.EdgeType;
  */
 @Service
 public class WorkflowApplicationService {
-    // TODO: 需要实现WorkflowRepository接口
-    // @Autowired
-    // private WorkflowRepository workflowRepository;
     // @Autowired
     // private WorkflowEventHandler eventHandler;
 
-    private final Map<WorkflowId, Workflow> workflowStorage = new HashMap<>();
+    private final WorkflowRepository workflowRepository;
     private final WorkflowExecutionEngine executionEngine;
+    private final WorkflowListIndex listIndex;
     private WorkflowOrchestrator staticOrchestrator;
 
-    public WorkflowApplicationService(WorkflowExecutionEngine executionEngine,WorkflowOrchestrator staticOrchestrator) {
+    public WorkflowApplicationService(WorkflowRepository workflowRepository, WorkflowExecutionEngine executionEngine,
+                                      WorkflowListIndex listIndex, WorkflowOrchestrator staticOrchestrator) {
+        this.workflowRepository = workflowRepository;
         this.executionEngine = executionEngine;
+        this.listIndex = listIndex;
         this.staticOrchestrator = staticOrchestrator;
     }
 
@@ -59,49 +65,7 @@ public class WorkflowApplicationService {
             validateCreateCommand(command);
             
             // 创建工作流
-            Workflow workflow = Workflow.builder()
-                    .workflowId(WorkflowId.generate())
-                    .name(command.getName())
-                    .description(command.getDescription())
-                    .build();
-            
-            // 用于存储节点名称到NodeId的映射
-            Map<String, NodeId> nodeNameToIdMap = new HashMap<>();
-            HashMap<WorkflowNode, List<String>> nodeAndDependenceNames = new HashMap<>();
-            // 添加节点
-            for (CreateNodeCommand nodeCommand : command.getNodes()) {
-                WorkflowNode node = nodeCommand.getNodeSupplier().get();
-                workflow.addNode(node);
-                nodeNameToIdMap.put(nodeCommand.getName(), node.getNodeId());
-                nodeAndDependenceNames.put(node, nodeCommand.getDependencies());
-            }
-
-            nodeAndDependenceNames.forEach((node, dependencies) -> {
-                for (String dependencyName : dependencies) {
-                    NodeId dependencyId = nodeNameToIdMap.get(dependencyName);
-                    if (dependencyId != null) {
-                        node.addDependency(dependencyId);
-                    }
-                }
-            });
-            
-            // 添加边
-            if (command.getEdges() != null) {
-                for (CreateEdgeCommand edgeCommand : command.getEdges()) {
-                    NodeId sourceNodeId = nodeNameToIdMap.get(edgeCommand.getSourceNodeName());
-                    NodeId targetNodeId = nodeNameToIdMap.get(edgeCommand.getTargetNodeName());
-                    
-                    if (sourceNodeId == null) {
-                        throw new IllegalArgumentException("Source node not found: " + edgeCommand.getSourceNodeName());
-                    }
-                    if (targetNodeId == null) {
-                        throw new IllegalArgumentException("Target node not found: " + edgeCommand.getTargetNodeName());
-                    }
-                    
-                    WorkflowEdge edge = createEdge(edgeCommand, sourceNodeId, targetNodeId);
-                    workflow.addEdge(edge);
-                }
-            }
+            Workflow workflow = buildWorkflow(command, WorkflowId.generate());
             
             // 验证工作流结构
             WorkflowOrchestrator orchestrator = getOrchestrator(command.getOrchestrationType());
@@ -112,7 +76,8 @@ public class WorkflowApplicationService {
             }
             
             // 保存工作流
-            workflowStorage.put(workflow.getWorkflowId(), workflow);
+            workflowRepository.save(workflow);
+            listIndex.index(workflow);
             return WorkflowResults.WorkflowCreationResult.success(workflow.getWorkflowId(), workflow.getName());
             
         } catch (Exception e) {
@@ -127,7 +92,7 @@ public class WorkflowApplicationService {
         return CompletableFuture.supplyAsync(() -> {
             try {
                 // 查找工作流
-                Optional<Workflow> workflowOpt = Optional.ofNullable(workflowStorage.get(command.getWorkflowId()));
+                Optional<Workflow> workflowOpt = workflowRepository.findById(command.getWorkflowId());
                 if (workflowOpt.isEmpty()) {
                     return WorkFlowExecutor.WorkflowExecutionResult.failure("工作流不存在: " + command.getWorkflowId().getValue());
                 }
@@ -143,6 +108,14 @@ public class WorkflowApplicationService {
                 if (command.getInitialContext() != null) {
                     workflow.getGlobalContext().putAll(command.getInitialContext());
                 }
+
+                // 本次执行的时间预算覆盖创建时的设置
+                if (command.getTimeoutMillis() != null) {
+                    workflow.setTimeoutMillis(command.getTimeoutMillis());
+                }
+                if (command.getTokenLimit() != null) {
+                    workflow.setTokenLimit(command.getTokenLimit());
+                }
                 
                 // 选择编排器
                 WorkflowOrchestrator orchestrator = getOrchestrator(command.getOrchestrationType());
@@ -151,7 +124,7 @@ public class WorkflowApplicationService {
                 executionEngine.startExecution(workflow, orchestrator);
 
                 // 保存更新后的工作流
-                workflowStorage.put(workflow.getWorkflowId(), workflow);
+                workflowRepository.save(workflow);
 
 
                 return WorkFlowExecutor.WorkflowExecutionResult.success(workflow.getWorkflowId(), "工作流启动成功");
@@ -167,7 +140,7 @@ public class WorkflowApplicationService {
      */
     public WorkflowOperationResult pauseWorkflow(WorkflowId workflowId) {
         try {
-            Optional<Workflow> workflowOpt = Optional.ofNullable(workflowStorage.get(workflowId));
+            Optional<Workflow> workflowOpt = workflowRepository.findById(workflowId);
             if (workflowOpt.isEmpty()) {
                 return WorkflowOperationResult.failure("工作流不存在");
             }
@@ -179,7 +152,8 @@ public class WorkflowApplicationService {
             }
             
             workflow.pause();
-            workflowStorage.put(workflow.getWorkflowId(), workflow);
+            workflowRepository.save(workflow);
+            listIndex.index(workflow);
             
             return WorkflowOperationResult.success("工作流已暂停");
             
@@ -194,7 +168,7 @@ public class WorkflowApplicationService {
 //    public CompletableFuture<WorkflowOperationResult> resumeWorkflow(ResumeWorkflowCommand command) {
 //        return CompletableFuture.supplyAsync(() -> {
 //            try {
-//                Optional<Workflow> workflowOpt = Optional.ofNullable(workflowStorage.get(command.getWorkflowId()));
+//                Optional<Workflow> workflowOpt = workflowRepository.findById(command.getWorkflowId());
 //                if (workflowOpt.isEmpty()) {
 //                    return WorkflowOperationResult.failure("工作流不存在");
 //                }
@@ -211,7 +185,7 @@ public class WorkflowApplicationService {
 //                WorkflowOrchestrator orchestrator = getOrchestrator(command.getOrchestrationType());
 //                executionEngine.resumeExecution(workflow, orchestrator);
 //
-//                workflowStorage.put(workflow.getWorkflowId(), workflow);
+//                workflowRepository.save(workflow);
 //
 //                return WorkflowOperationResult.success("工作流已恢复执行");
 //
@@ -221,12 +195,41 @@ public class WorkflowApplicationService {
 //        });
 //    }
 //
+    /**
+     * 从失败处重试：只重置失败的节点及其下游，保留已完成的上游输出和全局上下文，然后继续调度
+     * 已完成节点不会重新执行，有检查点的节点直接使用保存的输出
+     */
+    public WorkflowOperationResult retryWorkflow(WorkflowId workflowId) {
+        try {
+            Optional<Workflow> workflowOpt = workflowRepository.findById(workflowId);
+            if (workflowOpt.isEmpty()) {
+                return WorkflowOperationResult.failure("工作流不存在");
+            }
+
+            Workflow workflow = workflowOpt.get();
+
+            if (workflow.getStatus() != WorkflowStatus.FAILED) {
+                return WorkflowOperationResult.failure("只能重试失败的工作流");
+            }
+
+            List<WorkflowNode> reset = workflow.retryFromFailure();
+            workflowRepository.save(workflow);
+            executionEngine.resumeExecution(workflow);
+
+            return WorkflowOperationResult.success("工作流已从失败节点重新执行，重置节点: "
+                    + reset.stream().map(WorkflowNode::getName).collect(Collectors.joining(", ")));
+
+        } catch (Exception e) {
+            return WorkflowOperationResult.failure("重试工作流失败: " + e.getMessage());
+        }
+    }
+
     /**
      * 取消工作流执行
      */
     public WorkflowOperationResult cancelWorkflow(WorkflowId workflowId) {
         try {
-            Optional<Workflow> workflowOpt = Optional.ofNullable(workflowStorage.get(workflowId));
+            Optional<Workflow> workflowOpt = workflowRepository.findById(workflowId);
             if (workflowOpt.isEmpty()) {
                 return WorkflowOperationResult.failure("工作流不存在");
             }
@@ -239,7 +242,8 @@ public class WorkflowApplicationService {
             }
             
             workflow.fail("工作流被取消");
-            workflowStorage.put(workflow.getWorkflowId(), workflow);
+            workflowRepository.save(workflow);
+            listIndex.index(workflow);
             
             return WorkflowOperationResult.success("工作流已取消");
             
@@ -253,9 +257,12 @@ public class WorkflowApplicationService {
      */
     public WorkflowStatusResult getWorkflowStatus(WorkflowId workflowId) {
         try {
-            Optional<Workflow> workflowOpt = Optional.ofNullable(workflowStorage.get(workflowId));
+            Optional<Workflow> workflowOpt = workflowRepository.findById(workflowId);
             if (workflowOpt.isEmpty()) {
-                return WorkflowStatusResult.notFound();
+                // 已结束较久的工作流可能已被回收，查归档快照
+                return workflowRepository.findArchived(workflowId)
+                        .map(WorkflowStatusResult::archived)
+                        .orElseGet(WorkflowStatusResult::notFound);
             }
             
             Workflow workflow = workflowOpt.get();
@@ -267,32 +274,45 @@ public class WorkflowApplicationService {
     }
     
     /**
-     * 获取工作流列表
+     * 按投影查询工作流状态：只返回请求的节点和上下文字段，超长值截断；
+     * ifNoneMatch 与当前状态快照的 ETag 相同时直接返回 notModified，不再构建节点和上下文
      */
-    public List<WorkflowSummary> getWorkflowList(WorkflowListQuery query) {
+    public WorkflowStatusResult getWorkflowStatus(WorkflowStatusQuery query) {
         try {
-            List<Workflow> workflows;
-            
-            if (query.getStatus() != null) {
-                workflows = workflowStorage.values().stream()
-                    .filter(w -> w.getStatus() == query.getStatus())
-                    .collect(Collectors.toList());
-            } else if (query.getNamePattern() != null) {
-                // 模糊查询实现
-                workflows = workflowStorage.values().stream()
-                    .filter(w -> w.getName().contains(query.getNamePattern()))
-                    .collect(Collectors.toList());
-            } else {
-                workflows = new ArrayList<>(workflowStorage.values());
+            WorkflowId workflowId = query.getWorkflowId();
+            Optional<Workflow> workflowOpt = workflowRepository.findById(workflowId);
+            if (workflowOpt.isEmpty()) {
+                String etag = WorkflowStatusResult.archivedEtag(query);
+                return workflowRepository.findArchived(workflowId)
+                        .map(archive -> etag.equals(query.getIfNoneMatch())
+                                ? WorkflowStatusResult.notModified(workflowId, 0L, etag)
+                                : WorkflowStatusResult.archived(archive).project(query, etag))
+                        .orElseGet(WorkflowStatusResult::notFound);
             }
-            
-            return workflows.stream()
-                    .map(this::createWorkflowSummary)
-                    .sorted(Comparator.comparing(WorkflowSummary::getName))
-                    .collect(Collectors.toList());
-            
+
+            WorkflowStatusSnapshot snapshot = workflowOpt.get().getStatusSnapshot();
+            String etag = WorkflowStatusResult.etagOf(snapshot, query);
+            if (etag.equals(query.getIfNoneMatch())) {
+                return WorkflowStatusResult.notModified(workflowId, snapshot.version(), etag);
+            }
+            return WorkflowStatusResult.success(snapshot).project(query, etag);
+
         } catch (Exception e) {
-            return Collections.emptyList();
+            return WorkflowStatusResult.error("查询工作流状态失败: " + e.getMessage());
+        }
+    }
+    
+    /**
+     * 分页获取工作流列表，按名称排序；状态、名称前缀和名称关键字可以组合。游标无效时返回失败结果
+     */
+    public WorkflowPage getWorkflowList(WorkflowListQuery query) {
+        try {
+            return listIndex.query(query.getStatus(), query.getNamePrefix(), query.getNamePattern(),
+                    query.getCursor(), query.getLimit());
+        } catch (IllegalArgumentException e) {
+            return WorkflowPage.error(e.getMessage());
+        } catch (Exception e) {
+            return WorkflowPage.error("查询工作流列表失败: " + e.getMessage());
         }
     }
     
@@ -301,7 +321,7 @@ public class WorkflowApplicationService {
 //     */
 //    public WorkflowExecutionHistory getExecutionHistory(WorkflowId workflowId) {
 //        try {
-//            Optional<Workflow> workflowOpt = Optional.ofNullable(workflowStorage.get(workflowId));
+//            Optional<Workflow> workflowOpt = workflowRepository.findById(workflowId);
 //            if (workflowOpt.isEmpty()) {
 //                return WorkflowExecutionHistory.notFound();
 //            }
@@ -321,7 +341,7 @@ public class WorkflowApplicationService {
      */
     public WorkflowOperationResult deleteWorkflow(WorkflowId workflowId) {
         try {
-            Optional<Workflow> workflowOpt = Optional.ofNullable(workflowStorage.get(workflowId));
+            Optional<Workflow> workflowOpt = workflowRepository.findById(workflowId);
             if (workflowOpt.isEmpty()) {
                 return WorkflowOperationResult.failure("工作流不存在");
             }
@@ -332,7 +352,8 @@ public class WorkflowApplicationService {
                 return WorkflowOperationResult.failure("不能删除运行中的工作流");
             }
             
-            workflowStorage.remove(workflowId);
+            workflowRepository.delete(workflowId);
+            listIndex.remove(workflowId);
             
             return WorkflowOperationResult.success("工作流已删除");
             
@@ -343,6 +364,58 @@ public class WorkflowApplicationService {
     
     // 私有辅助方法
     
+    /**
+     * 按创建命令构建工作流（节点、依赖和边），不做结构校验也不保存；崩溃恢复时以原实例ID重建
+     */
+    Workflow buildWorkflow(CreateWorkflowCommand command, WorkflowId workflowId) {
+        Workflow workflow = Workflow.builder()
+                .workflowId(workflowId)
+                .name(command.getName())
+                .description(command.getDescription())
+                .timeoutMillis(command.getTimeoutMillis())
+                .tokenLimit(command.getTokenLimit())
+                .build();
+        
+        // 用于存储节点名称到NodeId的映射
+        Map<String, NodeId> nodeNameToIdMap = new HashMap<>();
+        HashMap<WorkflowNode, List<String>> nodeAndDependenceNames = new HashMap<>();
+        // 添加节点
+        for (CreateNodeCommand nodeCommand : command.getNodes()) {
+            WorkflowNode node = nodeCommand.getNodeSupplier().get();
+            workflow.addNode(node);
+            nodeNameToIdMap.put(nodeCommand.getName(), node.getNodeId());
+            nodeAndDependenceNames.put(node, nodeCommand.getDependencies());
+        }
+
+        nodeAndDependenceNames.forEach((node, dependencies) -> {
+            for (String dependencyName : dependencies) {
+                NodeId dependencyId = nodeNameToIdMap.get(dependencyName);
+                if (dependencyId != null) {
+                    node.addDependency(dependencyId);
+                }
+            }
+        });
+        
+        // 添加边
+        if (command.getEdges() != null) {
+            for (CreateEdgeCommand edgeCommand : command.getEdges()) {
+                NodeId sourceNodeId = nodeNameToIdMap.get(edgeCommand.getSourceNodeName());
+                NodeId targetNodeId = nodeNameToIdMap.get(edgeCommand.getTargetNodeName());
+                
+                if (sourceNodeId == null) {
+                    throw new IllegalArgumentException("Source node not found: " + edgeCommand.getSourceNodeName());
+                }
+                if (targetNodeId == null) {
+                    throw new IllegalArgumentException("Target node not found: " + edgeCommand.getTargetNodeName());
+                }
+                
+                WorkflowEdge edge = createEdge(edgeCommand, sourceNodeId, targetNodeId);
+                workflow.addEdge(edge);
+            }
+        }
+        return workflow;
+    }
+
     private void validateCreateCommand(CreateWorkflowCommand command) {
         if (command == null) {
             throw new IllegalArgumentException("创建命令不能为空");
@@ -384,34 +457,6 @@ public class WorkflowApplicationService {
         return staticOrchestrator; // 默认使用静态编排
     }
     
-    private WorkflowSummary createWorkflowSummary(Workflow workflow) {
-        return new WorkflowSummary(
-                workflow.getWorkflowId(),
-                workflow.getName(),
-                workflow.getDescription(),
-                workflow.getStatus(),
-                workflow.getNodes().size(),
-                calculateCompletedNodeCount(workflow),
-                calculateProgress(workflow)
-        );
-    }
-    
-    private int calculateCompletedNodeCount(Workflow workflow) {
-        return (int) workflow.getNodes().values().stream()
-                .filter(node -> node.getStatus() == NodeStatus.COMPLETED)
-                .count();
-    }
-    
-    private double calculateProgress(Workflow workflow) {
-        int totalNodes = workflow.getNodes().size();
-        if (totalNodes == 0) {
-            return 0.0;
-        }
-        
-        int completedNodes = calculateCompletedNodeCount(workflow);
-        return (double) completedNodes / totalNodes * 100.0;
-    }
-    
     // 内部类和结果类
     
     @Setter
@@ -423,6 +468,14 @@ public class WorkflowApplicationService {
         private List<CreateNodeCommand> nodes;
         private List<CreateEdgeCommand> edges = new ArrayList<>();
         private WorkflowOrchestrator.OrchestrationType orchestrationType;
+        /**
+         * 端到端时间预算（毫秒），为空表示不限制
+         */
+        private Long timeoutMillis;
+        /**
+         * token 预算，为空表示不限制
+         */
+        private Long tokenLimit;
 
     }
     
@@ -461,6 +514,14 @@ public class WorkflowApplicationService {
         private WorkflowId workflowId;
         private Map<String, Object> initialContext;
         private WorkflowOrchestrator.OrchestrationType orchestrationType;
+        /**
+         * 端到端时间预算（毫秒），为空时使用创建工作流时的设置
+         */
+        private Long timeoutMillis;
+        /**
+         * token 预算，为空时使用创建工作流时的设置
+         */
+        private Long tokenLimit;
 
     }
     
@@ -478,13 +539,123 @@ public class WorkflowApplicationService {
     
     public static class WorkflowListQuery {
         private WorkflowStatus status;
+        private String namePrefix;
         private String namePattern;
+        private String cursor;
+        private int limit = WorkflowListIndex.DEFAULT_PAGE_SIZE;
         
         // Getters and Setters
         public WorkflowStatus getStatus() { return status; }
         public void setStatus(WorkflowStatus status) { this.status = status; }
         
+        public String getNamePrefix() { return namePrefix; }
+        public void setNamePrefix(String namePrefix) { this.namePrefix = namePrefix; }
+        
         public String getNamePattern() { return namePattern; }
         public void setNamePattern(String namePattern) { this.namePattern = namePattern; }
+        
+        public String getCursor() { return cursor; }
+        public void setCursor(String cursor) { this.cursor = cursor; }
+        
+        public int getLimit() { return limit; }
+        public void setLimit(int limit) { this.limit = limit; }
+    }
+    
+    /**
+     * 状态查询的投影条件，默认返回全部字段且不截断
+     */
+    public static class WorkflowStatusQuery {
+        private WorkflowId workflowId;
+        private boolean includeNodes = true;
+        private boolean includeNodeData = true;
+        private boolean includeContext = true;
+        /**
+         * 只返回这些名称的节点，为空表示全部
+         */
+        private Set<String> nodeNames;
+        /**
+         * 只返回这些上下文字段，为空表示全部
+         */
+        private Set<String> contextKeys;
+        /**
+         * 字符串值的最大长度，超出部分截断；非正数表示不截断
+         */
+        private int maxValueChars;
+        /**
+         * 上次查询得到的 ETag
+         */
+        private String ifNoneMatch;
+        
+        public WorkflowStatusQuery() {
+        }
+        
+        public WorkflowStatusQuery(WorkflowId workflowId) {
+            this.workflowId = workflowId;
+        }
+        
+        /**
+         * 只查询状态和进度，用于轮询
+         */
+        public static WorkflowStatusQuery statusOnly(WorkflowId workflowId) {
+            WorkflowStatusQuery query = new WorkflowStatusQuery(workflowId);
+            query.setIncludeNodes(false);
+            query.setIncludeContext(false);
+            return query;
+        }
+        
+        /**
+         * 投影条件的摘要，拼入 ETag：同一版本不同投影的结果互不命中
+         */
+        public String projectionTag() {
+            StringBuilder canonical = new StringBuilder()
+                    .append(includeNodes ? 'n' : '-')
+                    .append(includeNodes && includeNodeData ? 'd' : '-')
+                    .append(includeContext ? 'c' : '-')
+                    .append('|').append(Math.max(maxValueChars, 0));
+            appendSorted(canonical, includeNodes ? nodeNames : null);
+            appendSorted(canonical, includeContext ? contextKeys : null);
+            try {
+                byte[] digest = MessageDigest.getInstance("SHA-256").digest(canonical.toString().getBytes(StandardCharsets.UTF_8));
+                return HexFormat.of().formatHex(digest, 0, 8);
+            } catch (NoSuchAlgorithmException e) {
+                throw new IllegalStateException("SHA-256 不可用", e);
+            }
+        }
+        
+        private static void appendSorted(StringBuilder canonical, Set<String> values) {
+            canonical.append('|');
+            if (values == null) {
+                canonical.append('*');
+                return;
+            }
+            for (String value : new TreeSet<>(values)) {
+                canonical.append(value.length()).append(':').append(value);
+            }
+        }
+        
+        // Getters and Setters
+        public WorkflowId getWorkflowId() { return workflowId; }
+        public void setWorkflowId(WorkflowId workflowId) { this.workflowId = workflowId; }
+        
+        public boolean isIncludeNodes() { return includeNodes; }
+        public void setIncludeNodes(boolean includeNodes) { this.includeNodes = includeNodes; }
+        
+        public boolean isIncludeNodeData() { return includeNodeData; }
+        public void setIncludeNodeData(boolean includeNodeData) { this.includeNodeData = includeNodeData; }
+        
+        public boolean isIncludeContext() { return includeContext; }
+        public void setIncludeContext(boolean includeContext) { this.includeContext = includeContext; }
+        
+        public Set<String> getNodeNames() { return nodeNames; }
+        public void setNodeNames(Set<String> nodeNames) { this.nodeNames = nodeNames; }
+        
+        public Set<String> getContextKeys() { return contextKeys; }
+        public void setContextKeys(Set<String> contextKeys) { this.contextKeys = contextKeys; }
+        
+        public int getMaxValueChars() { return maxValueChars; }
+        public void setMaxValueChars(int maxValueChars) { this.maxValueChars = maxValueChars; }
+        
+        public String getIfNoneMatch() { return ifNoneMatch; }
+        public void setIfNoneMatch(String ifNoneMatch) { this.ifNoneMatch = ifNoneMatch; }
     }
-}
\ No newline at end of file
+}
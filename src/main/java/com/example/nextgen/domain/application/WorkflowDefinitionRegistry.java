@@ -0,0 +1,35 @@
+package com.example.nextgen.domain.application;
+
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+ * 工作流定义注册表
+ * 节点持有模型客户端等运行时对象，无法从日志中还原；业务代码按工作流名称注册创建命令的工厂，
+ * 重启后据此重建节点，再载入日志中的执行结果。没有注册定义的运行无法恢复
+ */
+@Component
+public class WorkflowDefinitionRegistry {
+
+    private final Map<String, Supplier<WorkflowApplicationService.CreateWorkflowCommand>> definitions = new ConcurrentHashMap<>();
+
+    /**
+     * 注册工作流定义，同名定义覆盖之前的注册
+     *
+     * @param name    工作流名称，与创建命令中的名称一致
+     * @param factory 每次调用返回一个新的创建命令
+     */
+    public void register(String name, Supplier<WorkflowApplicationService.CreateWorkflowCommand> factory) {
+        definitions.put(Objects.requireNonNull(name, "Name cannot be null"),
+                Objects.requireNonNull(factory, "Factory cannot be null"));
+    }
+
+    public Optional<Supplier<WorkflowApplicationService.CreateWorkflowCommand>> find(String name) {
+        return name != null ? Optional.ofNullable(definitions.get(name)) : Optional.empty();
+    }
+}
@@ -0,0 +1,273 @@
+package com.example.nextgen.domain.application;
+
+import com.example.nextgen.domain.application.WorkflowResults.WorkflowPage;
+import com.example.nextgen.domain.application.WorkflowResults.WorkflowSummary;
+import com.example.nextgen.domain.event.WorkflowEvent;
+import com.example.nextgen.domain.node.NodeId;
+import com.example.nextgen.domain.node.WorkflowNode;
+import com.example.nextgen.domain.workflow.Workflow;
+import com.example.nextgen.domain.workflow.WorkflowId;
+import com.example.nextgen.domain.workflow.WorkflowRepository;
+import com.example.nextgen.domain.workflow.WorkflowStatus;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 工作流列表索引
+ * 每个工作流维护一份摘要，在状态变化（创建、启动、节点完成/失败/跳过/重置、结束等）时更新，查询时不再逐个构建；
+ * 摘要按 "名称 + ID" 排序，分别维护全部工作流和按状态划分的有序索引，名称前缀查询和游标分页都是有序集合上的区间遍历。
+ *
+ * 仓储回收已结束的工作流时不发事件，查询时遇到已不在仓储中的条目即移除，后台也定期清理
+ */
+@Slf4j
+@Component
+public class WorkflowListIndex {
+
+    public static final int DEFAULT_PAGE_SIZE = 50;
+    public static final int MAX_PAGE_SIZE = 500;
+
+    private final WorkflowRepository workflowRepository;
+
+    private final Map<WorkflowId, WorkflowSummary> summaries = new ConcurrentHashMap<>();
+    private final NavigableSet<SortKey> byName = new ConcurrentSkipListSet<>();
+    private final Map<WorkflowStatus, NavigableSet<SortKey>> byStatus = new EnumMap<>(WorkflowStatus.class);
+
+    /**
+     * 节点事件只带节点ID，按此找到所属工作流；运行结束时移除
+     */
+    private final Map<NodeId, WorkflowId> nodeOwners = new ConcurrentHashMap<>();
+
+    private final ScheduledThreadPoolExecutor executor;
+
+    public WorkflowListIndex(WorkflowRepository workflowRepository) {
+        this.workflowRepository = workflowRepository;
+        for (WorkflowStatus status : WorkflowStatus.values()) {
+            byStatus.put(status, new ConcurrentSkipListSet<>());
+        }
+        AtomicInteger counter = new AtomicInteger();
+        this.executor = new ScheduledThreadPoolExecutor(1, runnable -> {
+            Thread thread = new Thread(runnable, "workflow-list-index-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.executor.scheduleWithFixedDelay(this::prune, 1, 1, TimeUnit.MINUTES);
+    }
+
+    /**
+     * 更新工作流的摘要和索引位置
+     */
+    public void index(Workflow workflow) {
+        WorkflowSummary summary = WorkflowSummary.from(workflow);
+        SortKey key = new SortKey(summary.getName(), summary.getWorkflowId().getValue());
+        // 同一工作流的更新在 compute 中串行执行；先加入新位置再移出旧位置，查询按摘要状态过滤掉重复
+        summaries.compute(workflow.getWorkflowId(), (id, previous) -> {
+            byName.add(key);
+            byStatus.get(summary.getStatus()).add(key);
+            if (previous != null) {
+                SortKey previousKey = new SortKey(previous.getName(), previous.getWorkflowId().getValue());
+                if (previous.getStatus() != summary.getStatus() || !previousKey.equals(key)) {
+                    byStatus.get(previous.getStatus()).remove(previousKey);
+                }
+                if (!previousKey.equals(key)) {
+                    byName.remove(previousKey);
+                }
+            }
+            return summary;
+        });
+    }
+
+    /**
+     * 移除工作流
+     */
+    public void remove(WorkflowId workflowId) {
+        summaries.computeIfPresent(workflowId, (id, previous) -> {
+            SortKey key = new SortKey(previous.getName(), previous.getWorkflowId().getValue());
+            byName.remove(key);
+            byStatus.get(previous.getStatus()).remove(key);
+            return null;
+        });
+        nodeOwners.values().removeIf(workflowId::equals);
+    }
+
+    /**
+     * 查询一页摘要
+     *
+     * @param status      状态，为空表示全部
+     * @param namePrefix  名称前缀，为空表示不限
+     * @param nameKeyword 名称包含的关键字，在索引区间内逐条过滤
+     * @param cursor      上一页返回的游标，为空表示第一页
+     * @param limit       每页条数，非正数时使用默认值
+     */
+    public WorkflowPage query(WorkflowStatus status, String namePrefix, String nameKeyword, String cursor, int limit) {
+        int size = limit > 0 ? Math.min(limit, MAX_PAGE_SIZE) : DEFAULT_PAGE_SIZE;
+        String prefix = namePrefix != null && !namePrefix.isEmpty() ? namePrefix : null;
+        NavigableSet<SortKey> source = status != null ? byStatus.get(status) : byName;
+        SortKey after = cursor != null && !cursor.isEmpty() ? SortKey.decode(cursor) : null;
+        SortKey prefixStart = prefix != null ? new SortKey(prefix, "") : null;
+
+        NavigableSet<SortKey> range = source;
+        if (after != null && (prefixStart == null || after.compareTo(prefixStart) >= 0)) {
+            range = source.tailSet(after, false);
+        } else if (prefixStart != null) {
+            range = source.tailSet(prefixStart, true);
+        }
+
+        List<WorkflowSummary> items = new ArrayList<>(Math.min(size, 64));
+        for (SortKey key : range) {
+            if (prefix != null && !key.name().startsWith(prefix)) {
+                break;
+            }
+            WorkflowSummary summary = summaries.get(WorkflowId.of(key.workflowId()));
+            if (summary == null || !key.name().equals(summary.getName())
+                    || (status != null && summary.getStatus() != status)) {
+                // 正在移动位置的条目
+                continue;
+            }
+            if (nameKeyword != null && !summary.getName().contains(nameKeyword)) {
+                continue;
+            }
+            if (workflowRepository.findById(summary.getWorkflowId()).isEmpty()) {
+                remove(summary.getWorkflowId());
+                continue;
+            }
+            items.add(summary);
+            if (items.size() == size) {
+                return new WorkflowPage(items, key.encode());
+            }
+        }
+        return new WorkflowPage(items, null);
+    }
+
+    public int size() {
+        return summaries.size();
+    }
+
+    @EventListener
+    public void onWorkflowStarted(WorkflowEvent.WorkflowStarted event) {
+        track(event.getWorkflowId());
+    }
+
+    @EventListener
+    public void onWorkflowRecovered(WorkflowEvent.WorkflowRecovered event) {
+        track(event.getWorkflowId());
+    }
+
+    @EventListener
+    public void onWorkflowRetried(WorkflowEvent.WorkflowRetried event) {
+        track(event.getWorkflowId());
+    }
+
+    @EventListener
+    public void onNodeCompleted(WorkflowEvent.NodeCompleted event) {
+        refresh(nodeOwners.get(event.getNodeId()));
+    }
+
+    @EventListener
+    public void onNodeFailed(WorkflowEvent.NodeFailed event) {
+        refresh(nodeOwners.get(event.getNodeId()));
+    }
+
+    @EventListener
+    public void onNodeSkipped(WorkflowEvent.NodeSkipped event) {
+        refresh(nodeOwners.get(event.getNodeId()));
+    }
+
+    @EventListener
+    public void onNodeReset(WorkflowEvent.NodeReset event) {
+        refresh(nodeOwners.get(event.getNodeId()));
+    }
+
+    @EventListener
+    public void onWorkflowCompleted(WorkflowEvent.WorkflowCompleted event) {
+        refresh(event.getWorkflowId());
+        untrack(event.getWorkflowId());
+    }
+
+    @EventListener
+    public void onWorkflowFailed(WorkflowEvent.WorkflowFailed event) {
+        refresh(event.getWorkflowId());
+        untrack(event.getWorkflowId());
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    private void track(WorkflowId workflowId) {
+        workflowRepository.findById(workflowId).ifPresent(workflow -> {
+            for (Object node : workflow.getNodes().values()) {
+                nodeOwners.put(((WorkflowNode<?, ?>) node).getNodeId(), workflowId);
+            }
+            index(workflow);
+        });
+    }
+
+    private void untrack(WorkflowId workflowId) {
+        nodeOwners.values().removeIf(workflowId::equals);
+    }
+
+    private void refresh(WorkflowId workflowId) {
+        if (workflowId != null) {
+            workflowRepository.findById(workflowId).ifPresent(this::index);
+        }
+    }
+
+    /**
+     * 清理已被仓储回收的工作流
+     */
+    private void prune() {
+        try {
+            for (WorkflowId workflowId : summaries.keySet()) {
+                if (workflowRepository.findById(workflowId).isEmpty()) {
+                    remove(workflowId);
+                }
+            }
+        } catch (RuntimeException e) {
+            log.warn("Workflow list index prune failed: {}", e.getMessage(), e);
+        }
+    }
+
+    /**
+     * 排序键：名称，同名按工作流ID；游标是最后一条的排序键
+     */
+    private record SortKey(String name, String workflowId) implements Comparable<SortKey> {
+
+        private static final Comparator<SortKey> ORDER = Comparator.comparing(SortKey::name)
+                .thenComparing(SortKey::workflowId);
+
+        @Override
+        public int compareTo(SortKey other) {
+            return ORDER.compare(this, other);
+        }
+
+        private String encode() {
+            return Base64.getUrlEncoder().withoutPadding()
+                    .encodeToString((name + '\0' + workflowId).getBytes(StandardCharsets.UTF_8));
+        }
+
+        private static SortKey decode(String cursor) {
+            String value;
+            try {
+                value = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            } catch (IllegalArgumentException e) {
+                throw new IllegalArgumentException("Invalid cursor: " + cursor, e);
+            }
+            int separator = value.lastIndexOf('\0');
+            if (separator < 0) {
+                throw new IllegalArgumentException("Invalid cursor: " + cursor);
+            }
+            return new SortKey(value.substring(0, separator), value.substring(separator + 1));
+        }
+    }
+}
@@ -0,0 +1,141 @@
+package com.example.nextgen.domain.application;
+
+import com.example.nextgen.common.journal.JournalEntry;
+import com.example.nextgen.common.journal.RecoveredRun;
+import com.example.nextgen.common.journal.RunSnapshot;
+import com.example.nextgen.common.journal.WorkflowJournal;
+import com.example.nextgen.domain.event.WorkflowEvent;
+import com.example.nextgen.domain.node.NodeId;
+import com.example.nextgen.domain.node.NodeStatus;
+import com.example.nextgen.domain.node.WorkflowNode;
+import com.example.nextgen.domain.service.WorkflowExecutionEngine;
+import com.example.nextgen.domain.workflow.Workflow;
+import com.example.nextgen.domain.workflow.WorkflowId;
+import com.example.nextgen.domain.workflow.WorkflowRepository;
+import com.example.nextgen.domain.workflow.WorkflowStatus;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.util.*;
+import java.util.function.Supplier;
+
+/**
+ * 崩溃恢复
+ * 应用启动完成后，把事件日志中未结束的运行按注册的定义重建：先载入快照中的节点状态和全局上下文，
+ * 再按顺序重放快照之后的节点完成/失败记录（经由工作流自身的处理逻辑，跳过和错误路由与原运行一致），
+ * 然后从中断处继续执行。已完成的节点直接使用记录的输出，不会重新执行；崩溃时正在执行的节点重新执行
+ */
+@Slf4j
+@Component
+public class WorkflowRecoveryService {
+
+    private final WorkflowJournal journal;
+    private final WorkflowDefinitionRegistry definitionRegistry;
+    private final WorkflowApplicationService applicationService;
+    private final WorkflowRepository workflowRepository;
+    private final WorkflowExecutionEngine executionEngine;
+    private final ApplicationEventPublisher eventPublisher;
+
+    public WorkflowRecoveryService(WorkflowJournal journal, WorkflowDefinitionRegistry definitionRegistry,
+                                   WorkflowApplicationService applicationService, WorkflowRepository workflowRepository,
+                                   WorkflowExecutionEngine executionEngine, ApplicationEventPublisher eventPublisher) {
+        this.journal = journal;
+        this.definitionRegistry = definitionRegistry;
+        this.applicationService = applicationService;
+        this.workflowRepository = workflowRepository;
+        this.executionEngine = executionEngine;
+        this.eventPublisher = eventPublisher;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void recover() {
+        for (RecoveredRun run : journal.getRecoveredRuns()) {
+            try {
+                Workflow workflow = rebuild(run);
+                if (workflow == null) {
+                    continue;
+                }
+                workflowRepository.save(workflow);
+                eventPublisher.publishEvent(new WorkflowEvent.WorkflowRecovered(workflow.getWorkflowId(), workflow.getName()));
+                log.info("Resuming workflow {} ({}) from journal", workflow.getName(), run.workflowId());
+                executionEngine.resumeExecution(workflow);
+            } catch (RuntimeException e) {
+                log.error("Failed to recover workflow {}: {}", run.workflowId(), e.getMessage(), e);
+                journal.abandon(run.workflowId(), "Recovery failed: " + e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * 重建工作流并恢复到崩溃前最后落盘的状态，找不到定义时放弃并返回空
+     */
+    Workflow rebuild(RecoveredRun run) {
+        String name = run.workflowName();
+        Optional<Supplier<WorkflowApplicationService.CreateWorkflowCommand>> definition = definitionRegistry.find(name);
+        if (definition.isEmpty()) {
+            log.warn("No workflow definition registered for {} ({}), abandoning recovery", name, run.workflowId());
+            journal.abandon(run.workflowId(), "No workflow definition registered: " + name);
+            return null;
+        }
+        Workflow workflow = applicationService.buildWorkflow(definition.get().get(), WorkflowId.of(run.workflowId()));
+        workflow.setTimeoutMillis(run.timeoutMillis());
+        workflow.setTokenLimit(run.tokenLimit());
+        Map<String, WorkflowNode> nodes = new HashMap<>();
+        for (Object value : workflow.getNodes().values()) {
+            WorkflowNode node = (WorkflowNode) value;
+            nodes.put(node.getName(), node);
+        }
+
+        RunSnapshot snapshot = run.snapshot();
+        if (snapshot != null) {
+            Set<NodeId> handledFailures = new HashSet<>();
+            snapshot.nodes().forEach((nodeName, state) -> {
+                WorkflowNode node = nodes.get(nodeName);
+                NodeStatus status = NodeStatus.valueOf(state.status());
+                // 快照时仍在执行或未开始的节点重新执行
+                if (node != null && status != NodeStatus.IDLE && status != NodeStatus.RUNNING) {
+                    node.restore(status, state.outputData(), state.metadata());
+                }
+            });
+            for (String nodeName : snapshot.handledFailures()) {
+                WorkflowNode node = nodes.get(nodeName);
+                if (node != null) {
+                    handledFailures.add(node.getNodeId());
+                }
+            }
+            workflow.restore(snapshot.globalContext(), handledFailures);
+        } else {
+            workflow.restore(run.initialContext(), Set.of());
+        }
+
+        for (JournalEntry entry : run.tail()) {
+            if (workflow.getStatus() != WorkflowStatus.RUNNING) {
+                break;
+            }
+            WorkflowNode node = entry.nodeName() != null ? nodes.get(entry.nodeName()) : null;
+            if (node == null || node.getStatus() != NodeStatus.IDLE) {
+                continue;
+            }
+            if (JournalEntry.NODE_COMPLETED.equals(entry.type())) {
+                node.restore(NodeStatus.COMPLETED, map(entry.data().get("output")), map(entry.data().get("metadata")));
+                workflow.onNodeCompleted(node.getNodeId());
+            } else if (JournalEntry.NODE_FAILED.equals(entry.type())) {
+                node.restore(NodeStatus.FAILED, null, map(entry.data().get("metadata")));
+                workflow.onNodeFailed(node.getNodeId(), (String) entry.data().get("errorMessage"));
+            }
+        }
+        // 进程内的输出（文档流等）随崩溃丢失，仍被下游需要的节点重新执行
+        if (workflow.getStatus() == WorkflowStatus.RUNNING) {
+            workflow.resetTransientOutputs();
+        }
+        return workflow;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Map<String, Object> map(Object value) {
+        return value instanceof Map ? (Map<String, Object>) value : null;
+    }
+}
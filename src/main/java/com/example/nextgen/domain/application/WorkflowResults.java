@@ -3,17 +3,22 @@ package com.example.nextgen.domain.application;
 
 import com.example.nextgen.domain.workflow.WorkflowId;
 import com.example.nextgen.domain.workflow.Workflow;
+import com.example.nextgen.domain.workflow.WorkflowArchive;
 import com.example.nextgen.domain.workflow.WorkflowStatus;
+import com.example.nextgen.domain.workflow.WorkflowStatusSnapshot;
 import com.example.nextgen.domain.node.WorkflowNode;
 import com.example.nextgen.domain.node.NodeId;
 import com.example.nextgen.domain.node.NodeType;
 import com.example.nextgen.domain.node.NodeStatus;
 import com.example.nextgen.domain.event.EventLog;
+import com.example.nextgen.domain.event.WorkflowExecutionContext;
 import lombok.Data;
 import lombok.Getter;
 
 import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.stream.Collectors;
@@ -103,7 +108,17 @@ public class WorkflowResults {
      */
     @Getter
     public static class WorkflowStatusResult {
+        /**
+         * 进程标识，拼入 ETag：重启后快照版本号从头计数，旧的 ETag 不会误中
+         */
+        private static final String INSTANCE_TAG = Long.toString(System.currentTimeMillis(), 36);
+        private static final String ARCHIVED_VERSION = "archived";
+
         private final boolean found;
+        /**
+         * 查询过程出错，区别于工作流不存在
+         */
+        private final boolean error;
         private final String errorMessage;
         private final WorkflowId workflowId;
         private final String workflowName;
@@ -111,12 +126,37 @@ public class WorkflowResults {
         private final List<NodeStatusInfo> nodeStatuses;
         private final Map<String, Object> globalContext;
         private final double progress;
+        /**
+         * 状态快照版本，工作流每次状态变化后递增；已归档或未找到时为0
+         */
+        private final long version;
+        /**
+         * 弱 ETag，由快照版本和查询投影共同决定，与查询时的 ifNoneMatch 相同时只返回 notModified
+         */
+        private final String etag;
+        /**
+         * 自 ifNoneMatch 对应的版本以来没有变化，其余字段为空
+         */
+        private final boolean notModified;
+
+        private WorkflowStatusResult(boolean error, String errorMessage) {
+            this(false, error, errorMessage, null, null, null, null, null, 0.0, 0L, null, false);
+        }
 
         private WorkflowStatusResult(boolean found, String errorMessage, WorkflowId workflowId,
                                    String workflowName, WorkflowStatus status,
                                    List<NodeStatusInfo> nodeStatuses, Map<String, Object> globalContext,
-                                   double progress) {
+                                   double progress, long version, String etag, boolean notModified) {
+            this(found, false, errorMessage, workflowId, workflowName, status, nodeStatuses, globalContext, progress,
+                    version, etag, notModified);
+        }
+
+        private WorkflowStatusResult(boolean found, boolean error, String errorMessage, WorkflowId workflowId,
+                                   String workflowName, WorkflowStatus status,
+                                   List<NodeStatusInfo> nodeStatuses, Map<String, Object> globalContext,
+                                   double progress, long version, String etag, boolean notModified) {
             this.found = found;
+            this.error = error;
             this.errorMessage = errorMessage;
             this.workflowId = workflowId;
             this.workflowName = workflowName;
@@ -124,36 +164,102 @@ public class WorkflowResults {
             this.nodeStatuses = nodeStatuses;
             this.globalContext = globalContext;
             this.progress = progress;
+            this.version = version;
+            this.etag = etag;
+            this.notModified = notModified;
         }
 
+        /**
+         * 取工作流最近发布的状态快照，不读取执行中的节点和上下文
+         */
         public static WorkflowStatusResult success(Workflow workflow) {
-            List<NodeStatusInfo> nodeStatuses = workflow.getNodes().values().stream()
+            return success(workflow.getStatusSnapshot());
+        }
+
+        public static WorkflowStatusResult success(WorkflowStatusSnapshot snapshot) {
+            List<NodeStatusInfo> nodeStatuses = snapshot.nodes().stream()
                     .map(NodeStatusInfo::from)
                     .collect(Collectors.toList());
 
-            double progress = calculateProgress(workflow);
+            return new WorkflowStatusResult(true, null, snapshot.workflowId(), snapshot.name(),
+                                          snapshot.status(), nodeStatuses, snapshot.globalContext(), snapshot.progress(),
+                                          snapshot.version(), etag(Long.toString(snapshot.version())), false);
+        }
 
-            return new WorkflowStatusResult(true, null, workflow.getWorkflowId(), workflow.getName(),
-                                          workflow.getStatus(), nodeStatuses, workflow.getGlobalContext(), progress);
+        /**
+         * 已回收工作流的归档快照，节点只有最终状态和输出
+         */
+        public static WorkflowStatusResult archived(WorkflowArchive archive) {
+            List<NodeStatusInfo> nodeStatuses = archive.nodes().stream()
+                    .map(NodeStatusInfo::from)
+                    .collect(Collectors.toList());
+            long completedNodes = archive.nodes().stream()
+                    .filter(node -> node.status() == NodeStatus.COMPLETED)
+                    .count();
+            double progress = archive.nodes().isEmpty() ? 0.0 : (double) completedNodes / archive.nodes().size() * 100.0;
+
+            return new WorkflowStatusResult(true, null, WorkflowId.of(archive.workflowId()), archive.name(),
+                                          archive.status(), nodeStatuses, archive.globalContext(), progress,
+                                          0L, etag(ARCHIVED_VERSION), false);
+        }
+
+        /**
+         * 快照按查询投影后的 ETag，用于在构建结果之前判断是否有变化
+         */
+        public static String etagOf(WorkflowStatusSnapshot snapshot, WorkflowApplicationService.WorkflowStatusQuery query) {
+            return etag(snapshot.version() + "-" + query.projectionTag());
+        }
+
+        /**
+         * 已归档工作流按查询投影后的 ETag，归档后不再变化
+         */
+        public static String archivedEtag(WorkflowApplicationService.WorkflowStatusQuery query) {
+            return etag(ARCHIVED_VERSION + "-" + query.projectionTag());
+        }
+
+        public static WorkflowStatusResult notModified(WorkflowId workflowId, long version, String etag) {
+            return new WorkflowStatusResult(true, null, workflowId, null, null, null, null, 0.0, version, etag, true);
+        }
+
+        /**
+         * 按查询裁剪结果：只保留请求的节点和上下文字段，超长字符串（任意嵌套层级）按 maxValueChars 截断，
+         * ETag 换成按同一查询计算的 projectedEtag
+         */
+        public WorkflowStatusResult project(WorkflowApplicationService.WorkflowStatusQuery query, String projectedEtag) {
+            if (!found || notModified) {
+                return this;
+            }
+            int maxChars = query.getMaxValueChars();
+            List<NodeStatusInfo> nodes = null;
+            if (query.isIncludeNodes() && nodeStatuses != null) {
+                nodes = nodeStatuses.stream()
+                        .filter(node -> query.getNodeNames() == null || query.getNodeNames().contains(node.getNodeName()))
+                        .map(node -> query.isIncludeNodeData() ? node.truncated(maxChars) : node.withoutData())
+                        .collect(Collectors.toList());
+            }
+            Map<String, Object> context = null;
+            if (query.isIncludeContext() && globalContext != null) {
+                context = new LinkedHashMap<>();
+                for (Map.Entry<String, Object> entry : globalContext.entrySet()) {
+                    if (query.getContextKeys() == null || query.getContextKeys().contains(entry.getKey())) {
+                        context.put(entry.getKey(), truncate(entry.getValue(), maxChars));
+                    }
+                }
+            }
+            return new WorkflowStatusResult(found, errorMessage, workflowId, workflowName, status, nodes, context,
+                    progress, version, projectedEtag, false);
+        }
+
+        private static String etag(String version) {
+            return "W/\"" + INSTANCE_TAG + "-" + version + "\"";
         }
 
         public static WorkflowStatusResult notFound() {
-            return new WorkflowStatusResult(false, "工作流不存在", null, null, null, null, null, 0.0);
+            return new WorkflowStatusResult(false, "工作流不存在");
         }
 
         public static WorkflowStatusResult error(String errorMessage) {
-            return new WorkflowStatusResult(false, errorMessage, null, null, null, null, null, 0.0);
-        }
-
-        private static double calculateProgress(Workflow workflow) {
-            int totalNodes = workflow.getNodes().size();
-            if (totalNodes == 0) return 0.0;
-
-            long completedNodes = workflow.getNodes().values().stream()
-                    .filter(node -> node.getStatus() == NodeStatus.COMPLETED)
-                    .count();
-
-            return (double) completedNodes / totalNodes * 100.0;
+            return new WorkflowStatusResult(true, errorMessage);
         }
     }
 
@@ -193,6 +299,48 @@ public class WorkflowResults {
             );
         }
 
+        /**
+         * 不带输入输出的节点状态
+         */
+        NodeStatusInfo withoutData() {
+            return new NodeStatusInfo(nodeId, nodeName, nodeType, status, null, null, dependencies);
+        }
+
+        /**
+         * 输入输出中的超长字符串截断后的节点状态
+         */
+        NodeStatusInfo truncated(int maxChars) {
+            if (maxChars <= 0) {
+                return this;
+            }
+            return new NodeStatusInfo(nodeId, nodeName, nodeType, status,
+                    truncateMap(inputData, maxChars), truncateMap(outputData, maxChars), dependencies);
+        }
+
+        public static NodeStatusInfo from(WorkflowStatusSnapshot.NodeState node) {
+            return new NodeStatusInfo(
+                    node.nodeId(),
+                    node.name(),
+                    node.type(),
+                    node.status(),
+                    node.inputData(),
+                    node.outputData(),
+                    node.dependencies()
+            );
+        }
+
+        public static NodeStatusInfo from(WorkflowArchive.NodeState node) {
+            return new NodeStatusInfo(
+                    NodeId.of(node.nodeId()),
+                    node.name(),
+                    node.type(),
+                    node.status(),
+                    Map.of(),
+                    node.outputData(),
+                    List.of()
+            );
+        }
+
     }
 //
     /**
@@ -220,6 +368,12 @@ public class WorkflowResults {
             this.lastUpdated = LocalDateTime.now();
         }
 
+        public static WorkflowSummary from(Workflow workflow) {
+            WorkflowExecutionContext context = workflow.getExecutionContext();
+            return new WorkflowSummary(workflow.getWorkflowId(), workflow.getName(), workflow.getDescription(),
+                    workflow.getStatus(), context.getTotalNodes(), context.getCompletedNodes(), context.getProgress());
+        }
+
         // Getters
         public WorkflowId getWorkflowId() { return workflowId; }
         public String getName() { return name; }
@@ -231,6 +385,42 @@ public class WorkflowResults {
         public LocalDateTime getLastUpdated() { return lastUpdated; }
     }
 
+    /**
+     * 工作流列表的一页，按名称（同名按ID）排序
+     */
+    @Getter
+    public static class WorkflowPage {
+        private final boolean success;
+        private final String errorMessage;
+        private final List<WorkflowSummary> items;
+        /**
+         * 下一页游标，作为下次查询的 cursor 传入；为空表示没有更多数据
+         */
+        private final String nextCursor;
+
+        public WorkflowPage(List<WorkflowSummary> items, String nextCursor) {
+            this(true, null, items, nextCursor);
+        }
+
+        private WorkflowPage(boolean success, String errorMessage, List<WorkflowSummary> items, String nextCursor) {
+            this.success = success;
+            this.errorMessage = errorMessage;
+            this.items = items;
+            this.nextCursor = nextCursor;
+        }
+
+        public static WorkflowPage empty() {
+            return new WorkflowPage(List.of(), null);
+        }
+
+        /**
+         * 查询失败（如游标无效），不返回任何条目
+         */
+        public static WorkflowPage error(String errorMessage) {
+            return new WorkflowPage(false, errorMessage, List.of(), null);
+        }
+    }
+
     /**
      * 工作流执行历史
      */
@@ -454,4 +644,39 @@ public class WorkflowResults {
             this.agentExecutionTimes = agentExecutionTimes;
         }
     }
-}
\ No newline at end of file
+
+    /**
+     * 截断超长字符串，Map 和集合逐个元素处理；maxChars 非正数时原样返回
+     */
+    static Object truncate(Object value, int maxChars) {
+        if (maxChars <= 0 || value == null) {
+            return value;
+        }
+        if (value instanceof CharSequence text) {
+            if (text.length() <= maxChars) {
+                return value;
+            }
+            return text.subSequence(0, maxChars) + "...[truncated " + (text.length() - maxChars) + " chars]";
+        }
+        if (value instanceof Map<?, ?> map) {
+            Map<Object, Object> result = new LinkedHashMap<>();
+            map.forEach((key, item) -> result.put(key, truncate(item, maxChars)));
+            return result;
+        }
+        if (value instanceof Collection<?> collection) {
+            List<Object> result = new ArrayList<>(collection.size());
+            collection.forEach(item -> result.add(truncate(item, maxChars)));
+            return result;
+        }
+        return value;
+    }
+
+    private static Map<String, Object> truncateMap(Map<String, Object> map, int maxChars) {
+        if (map == null || map.isEmpty()) {
+            return map;
+        }
+        Map<String, Object> result = new LinkedHashMap<>();
+        map.forEach((key, item) -> result.put(key, truncate(item, maxChars)));
+        return result;
+    }
+}
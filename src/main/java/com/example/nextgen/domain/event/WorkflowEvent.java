@@ -4,6 +4,7 @@ import com.example.nextgen.domain.node.NodeId;
 import com.example.nextgen.domain.workflow.WorkflowId;
 
 import java.time.LocalDateTime;
+import java.util.List;
 import java.util.Map;
 import java.util.UUID;
 
@@ -74,6 +75,43 @@ public abstract class WorkflowEvent {
         public String getErrorMessage() { return errorMessage; }
     }
 
+    /**
+     * 工作流在重启后从事件日志恢复，随后继续执行
+     */
+    public static class WorkflowRecovered extends WorkflowEvent {
+        private final WorkflowId workflowId;
+        private final String workflowName;
+
+        public WorkflowRecovered(WorkflowId workflowId, String workflowName) {
+            super("WorkflowRecovered");
+            this.workflowId = workflowId;
+            this.workflowName = workflowName;
+        }
+
+        public WorkflowId getWorkflowId() { return workflowId; }
+        public String getWorkflowName() { return workflowName; }
+    }
+
+    /**
+     * 失败的工作流从失败节点重新执行，已完成的上游节点保留
+     */
+    public static class WorkflowRetried extends WorkflowEvent {
+        private final WorkflowId workflowId;
+        private final String workflowName;
+        private final List<String> resetNodes;
+
+        public WorkflowRetried(WorkflowId workflowId, String workflowName, List<String> resetNodes) {
+            super("WorkflowRetried");
+            this.workflowId = workflowId;
+            this.workflowName = workflowName;
+            this.resetNodes = resetNodes;
+        }
+
+        public WorkflowId getWorkflowId() { return workflowId; }
+        public String getWorkflowName() { return workflowName; }
+        public List<String> getResetNodes() { return resetNodes; }
+    }
+
     // 节点级别事件
     public static class NodeStarted extends WorkflowEvent {
         private final NodeId nodeId;
@@ -137,6 +175,43 @@ public abstract class WorkflowEvent {
         public String getNodeName() { return nodeName; }
     }
 
+    public static class NodeSkipped extends WorkflowEvent {
+        private final NodeId nodeId;
+        private final String nodeName;
+
+        public NodeSkipped(NodeId nodeId, String nodeName) {
+            super("NodeSkipped");
+            this.nodeId = nodeId;
+            this.nodeName = nodeName;
+        }
+
+        public NodeId getNodeId() { return nodeId; }
+        public String getNodeName() { return nodeName; }
+    }
+
+    /**
+     * 结构化输出节点的某个字段已在流式响应中完成
+     */
+    public static class NodeOutputFieldCompleted extends WorkflowEvent {
+        private final NodeId nodeId;
+        private final String nodeName;
+        private final String field;
+        private final Object value;
+
+        public NodeOutputFieldCompleted(NodeId nodeId, String nodeName, String field, Object value) {
+            super("NodeOutputFieldCompleted");
+            this.nodeId = nodeId;
+            this.nodeName = nodeName;
+            this.field = field;
+            this.value = value;
+        }
+
+        public NodeId getNodeId() { return nodeId; }
+        public String getNodeName() { return nodeName; }
+        public String getField() { return field; }
+        public Object getValue() { return value; }
+    }
+
     // Agent执行事件
     public static class AgentExecutionStarted extends WorkflowEvent {
         private final NodeId nodeId;
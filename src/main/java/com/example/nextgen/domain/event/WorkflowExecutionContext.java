@@ -1,73 +1,132 @@
 package com.example.nextgen.domain.event;
 
+import com.example.nextgen.domain.node.NodeStatus;
+
 import java.time.LocalDateTime;
+import java.util.EnumMap;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * 工作流执行上下文
  * 用于跟踪工作流执行过程中的状态和数据
+ *
+ * 每个工作流持有一个，节点数量按状态计数：节点加入工作流时登记，之后每次状态变化由节点回调更新，
+ * 计数器无锁，执行线程更新时查询线程可随时读取，进度和状态统计都是常数时间
  */
 public class WorkflowExecutionContext {
     private final String workflowId;
     private final String workflowName;
-    private final LocalDateTime startTime;
-    private LocalDateTime endTime;
-    private String status;
-    private String errorMessage;
+    private volatile LocalDateTime startTime;
+    private volatile LocalDateTime endTime;
+    private volatile String status;
+    private volatile String errorMessage;
     private final Map<String, Object> contextData;
-    private int totalNodes;
-    private int completedNodes;
-    private int failedNodes;
-    
-    public WorkflowExecutionContext(String workflowId, String workflowName, LocalDateTime startTime) {
+    private final AtomicInteger totalNodes = new AtomicInteger();
+    private final Map<NodeStatus, AtomicInteger> nodeCounts = new EnumMap<>(NodeStatus.class);
+
+    public WorkflowExecutionContext(String workflowId, String workflowName) {
         this.workflowId = workflowId;
         this.workflowName = workflowName;
+        this.status = "CREATED";
+        this.contextData = new ConcurrentHashMap<>();
+        for (NodeStatus nodeStatus : NodeStatus.values()) {
+            nodeCounts.put(nodeStatus, new AtomicInteger());
+        }
+    }
+
+    public WorkflowExecutionContext(String workflowId, String workflowName, LocalDateTime startTime) {
+        this(workflowId, workflowName);
+        markStarted(startTime);
+    }
+
+    /**
+     * 开始（或重试、恢复后重新开始）一次运行
+     */
+    public void markStarted(LocalDateTime startTime) {
         this.startTime = startTime;
+        this.endTime = null;
+        this.errorMessage = null;
         this.status = "RUNNING";
-        this.contextData = new HashMap<>();
-        this.totalNodes = 0;
-        this.completedNodes = 0;
-        this.failedNodes = 0;
     }
-    
+
     public void markCompleted(LocalDateTime endTime) {
         this.endTime = endTime;
         this.status = "COMPLETED";
     }
-    
+
     public void markFailed(LocalDateTime endTime, String errorMessage) {
         this.endTime = endTime;
         this.status = "FAILED";
         this.errorMessage = errorMessage;
     }
-    
-    public void incrementCompletedNodes() {
-        this.completedNodes++;
+
+    public void markPaused() {
+        this.status = "PAUSED";
+    }
+
+    public void markResumed() {
+        this.status = "RUNNING";
+    }
+
+    /**
+     * 登记加入工作流的节点
+     */
+    public void nodeAdded(NodeStatus nodeStatus) {
+        totalNodes.incrementAndGet();
+        nodeCounts.get(nodeStatus).incrementAndGet();
     }
-    
-    public void incrementFailedNodes() {
-        this.failedNodes++;
+
+    /**
+     * 注销移出工作流的节点
+     */
+    public void nodeRemoved(NodeStatus nodeStatus) {
+        totalNodes.decrementAndGet();
+        nodeCounts.get(nodeStatus).decrementAndGet();
     }
-    
-    public void setTotalNodes(int totalNodes) {
-        this.totalNodes = totalNodes;
+
+    /**
+     * 节点状态变化
+     */
+    public void onNodeTransition(NodeStatus from, NodeStatus to) {
+        // 先加后减，读取方不会看到节点暂时从所有状态中消失
+        nodeCounts.get(to).incrementAndGet();
+        nodeCounts.get(from).decrementAndGet();
     }
-    
+
     public void addContextData(String key, Object value) {
-        this.contextData.put(key, value);
+        if (value == null) {
+            this.contextData.remove(key);
+        } else {
+            this.contextData.put(key, value);
+        }
     }
-    
+
+    /**
+     * 进度：已完成节点占全部节点的百分比
+     */
     public double getProgress() {
-        if (totalNodes == 0) return 0.0;
-        return (double) (completedNodes + failedNodes) / totalNodes;
+        int total = totalNodes.get();
+        if (total == 0) return 0.0;
+        return (double) getCompletedNodes() / total * 100.0;
+    }
+
+    /**
+     * 已结束（完成、失败或跳过）的节点数量
+     */
+    public int getFinishedNodes() {
+        return getCompletedNodes() + getFailedNodes() + getSkippedNodes();
     }
-    
+
     public long getDurationInSeconds() {
+        LocalDateTime start = startTime;
+        if (start == null) return 0L;
         LocalDateTime end = endTime != null ? endTime : LocalDateTime.now();
-        return java.time.Duration.between(startTime, end).getSeconds();
+        return java.time.Duration.between(start, end).getSeconds();
     }
-    
+
     // Getters
     public String getWorkflowId() { return workflowId; }
     public String getWorkflowName() { return workflowName; }
@@ -76,7 +135,10 @@ public class WorkflowExecutionContext {
     public String getStatus() { return status; }
     public String getErrorMessage() { return errorMessage; }
     public Map<String, Object> getContextData() { return new HashMap<>(contextData); }
-    public int getTotalNodes() { return totalNodes; }
-    public int getCompletedNodes() { return completedNodes; }
-    public int getFailedNodes() { return failedNodes; }
-}
\ No newline at end of file
+    public int getTotalNodes() { return totalNodes.get(); }
+    public int getCompletedNodes() { return nodeCounts.get(NodeStatus.COMPLETED).get(); }
+    public int getFailedNodes() { return nodeCounts.get(NodeStatus.FAILED).get(); }
+    public int getSkippedNodes() { return nodeCounts.get(NodeStatus.SKIPPED).get(); }
+    public int getRunningNodes() { return nodeCounts.get(NodeStatus.RUNNING).get(); }
+    public int getIdleNodes() { return nodeCounts.get(NodeStatus.IDLE).get(); }
+}
@@ -0,0 +1,77 @@
+package com.example.nextgen.domain.node;
+
+import com.alibaba.fastjson2.JSON;
+import com.alibaba.fastjson2.TypeReference;
+import com.example.nextgen.common.ingest.DocumentChunkStream;
+import com.example.nextgen.common.ingest.DocumentIngestionService;
+
+import javax.validation.constraints.NotNull;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Objects;
+
+/**
+ * 文档摄取节点基类
+ * 从上下文的 documentPath 读取文件，启动并行解析后立即完成，输出文档流ID（documentStream）；
+ * 下游节点通过 {@link DocumentIngestionService#stream(String)} 边解析边消费分块，首个分块不必等整个文档解析完
+ */
+public abstract class DocumentIngestionNode extends WorkflowNode<DocumentIngestionNode.DocumentInput, DocumentIngestionNode.DocumentStreamOutput> {
+
+    /**
+     * 输出到上下文的文档流ID字段
+     */
+    public static final String DOCUMENT_STREAM_KEY = "documentStream";
+
+    protected final DocumentIngestionService ingestionService;
+
+    protected DocumentIngestionNode(NodeId nodeId, String name, DocumentIngestionService ingestionService) {
+        super(nodeId, name, NodeType.CUSTOM);
+        this.ingestionService = Objects.requireNonNull(ingestionService, "DocumentIngestionService cannot be null");
+    }
+
+    /**
+     * 开始摄取文件
+     */
+    protected abstract DocumentChunkStream ingest(Path path);
+
+    /**
+     * 文档流在消费后释放，输出的流ID不能跨运行复用
+     */
+    @Override
+    public boolean isReusable() {
+        return false;
+    }
+
+    /**
+     * 工作流失败或进程重启时文档流已被回收，下游重新执行前要重新摄取
+     */
+    @Override
+    public boolean hasTransientOutput() {
+        return true;
+    }
+
+    @Override
+    protected DocumentInput parseInputObject(String inputJson) {
+        return JSON.parseObject(inputJson, new TypeReference<DocumentInput>() {
+        });
+    }
+
+    @Override
+    protected DocumentStreamOutput execute(DocumentInput params) {
+        if (params.documentPath() == null || params.documentPath().isBlank()) {
+            throw new IllegalArgumentException("documentPath is required");
+        }
+        Path path = Path.of(params.documentPath());
+        if (!Files.isRegularFile(path)) {
+            throw new IllegalArgumentException("Document not found: " + path);
+        }
+        DocumentChunkStream stream = ingest(path);
+        return new DocumentStreamOutput(stream.getId(), params.documentPath());
+    }
+
+    public record DocumentInput(@NotNull String documentPath) {
+    }
+
+    public record DocumentStreamOutput(String documentStream, String documentPath) {
+    }
+}
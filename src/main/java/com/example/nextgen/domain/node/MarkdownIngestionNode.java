@@ -0,0 +1,21 @@
+package com.example.nextgen.domain.node;
+
+import com.example.nextgen.common.ingest.DocumentChunkStream;
+import com.example.nextgen.common.ingest.DocumentIngestionService;
+
+import java.nio.file.Path;
+
+/**
+ * Markdown 摄取节点，按章节并行解析
+ */
+public class MarkdownIngestionNode extends DocumentIngestionNode {
+
+    public MarkdownIngestionNode(NodeId nodeId, String name, DocumentIngestionService ingestionService) {
+        super(nodeId, name, ingestionService);
+    }
+
+    @Override
+    protected DocumentChunkStream ingest(Path path) {
+        return ingestionService.ingestMarkdown(path);
+    }
+}
@@ -0,0 +1,12 @@
+package com.example.nextgen.domain.node;
+
+import org.springframework.ai.chat.client.ChatClient;
+
+/**
+ * 调用模型的节点
+ * 增量执行时客户端的模型和顾问链参与输入哈希，无法确定客户端来源时节点不复用之前的输出
+ */
+public interface ModelBackedNode {
+
+    ChatClient getChatClient();
+}
@@ -0,0 +1,144 @@
+package com.example.nextgen.domain.node;
+
+import com.alibaba.fastjson2.JSON;
+import com.alibaba.fastjson2.JSONException;
+import com.alibaba.fastjson2.JSONObject;
+import com.example.nextgen.common.budget.CallBudget;
+import com.example.nextgen.common.json.IncrementalJsonParser;
+import com.example.nextgen.common.json.JsonRepair;
+import com.example.nextgen.domain.event.WorkflowEvent;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.ai.chat.client.ChatClient;
+import org.springframework.ai.chat.prompt.Prompt;
+import reactor.core.publisher.Flux;
+
+import java.lang.annotation.Annotation;
+import java.lang.reflect.RecordComponent;
+import java.time.Duration;
+import java.util.*;
+
+/**
+ * 结构化输出节点基类
+ * 以流式方式调用模型，按输出 record 的字段增量解析 JSON：每个字段一完成就写入节点输出并回调 {@link #onFieldCompleted}，
+ * 所有必填字段到齐后立即停止生成；响应有轻微语法错误时在本地修复后解析，不重新调用模型
+ *
+ * 必填字段为输出 record 中标注了 NotNull 的组件，没有任何组件标注时全部视为必填
+ */
+@Slf4j
+public abstract class StructuredOutputNode<T, R extends Record> extends WorkflowNode<T, R> implements ModelBackedNode {
+
+    private final ChatClient chatClient;
+    private final Class<R> outputType;
+    private final Set<String> requiredFields;
+
+    protected StructuredOutputNode(NodeId nodeId, String name, NodeType type, ChatClient chatClient, Class<R> outputType) {
+        super(nodeId, name, type);
+        this.chatClient = Objects.requireNonNull(chatClient, "ChatClient cannot be null");
+        this.outputType = Objects.requireNonNull(outputType, "Output type cannot be null");
+        this.requiredFields = requiredFields(outputType);
+    }
+
+    /**
+     * 构造请求，提示词中应要求模型只输出符合输出 record 结构的 JSON 对象
+     */
+    protected abstract Prompt buildPrompt(T params);
+
+    /**
+     * 字段在流式响应中完成时回调，默认不处理
+     */
+    protected void onFieldCompleted(String field, Object value) {
+    }
+
+    @Override
+    protected R execute(T params) {
+        IncrementalJsonParser parser = new IncrementalJsonParser(this::fieldCompleted);
+        CallBudget budget = CallBudget.current();
+        // 必填字段到齐即取消订阅，停止生成；用量统计、限流、熔断和路由把收到数据后的取消按成功记录
+        Flux<String> content = chatClient.prompt(buildPrompt(params)).stream().content()
+                .takeUntil(chunk -> {
+                    parser.feed(chunk);
+                    return parser.hasFields(requiredFields);
+                });
+        if (budget != null && budget.hasDeadline()) {
+            content.blockLast(Duration.ofMillis(Math.max(1L, budget.remainingMillis())));
+        } else {
+            content.blockLast();
+        }
+
+        if (parser.hasFields(requiredFields)) {
+            getMetadata().put("structuredOutput", Map.of("stoppedEarly", !parser.isComplete(), "repaired", false));
+            return new JSONObject(parser.getFields()).to(outputType);
+        }
+        JSONObject repaired = repair(parser.getText());
+        getMetadata().put("structuredOutput", Map.of("stoppedEarly", false, "repaired", true));
+        return repaired.to(outputType);
+    }
+
+    private void fieldCompleted(String field, Object value) {
+        getOutputData().put(field, value);
+        addDomainEvent(new WorkflowEvent.NodeOutputFieldCompleted(getNodeId(), getName(), field, value));
+        onFieldCompleted(field, value);
+    }
+
+    /**
+     * 增量解析未拿到全部必填字段时，修复完整文本后整体解析
+     */
+    private JSONObject repair(String text) {
+        JSONObject object;
+        try {
+            object = JSON.parseObject(JsonRepair.repair(text));
+        } catch (JSONException e) {
+            throw new IllegalStateException("Structured output of node " + getName() + " is not valid JSON: " + e.getMessage(), e);
+        }
+        if (object == null) {
+            throw new IllegalStateException("Structured output of node " + getName() + " is empty");
+        }
+        List<String> missing = new ArrayList<>();
+        for (String field : requiredFields) {
+            if (object.get(field) == null) {
+                missing.add(field);
+            }
+        }
+        if (!missing.isEmpty()) {
+            throw new IllegalStateException("Structured output of node " + getName() + " is missing required fields: " + missing);
+        }
+        log.info("Repaired structured output of node {}", getName());
+        return object;
+    }
+
+    private static Set<String> requiredFields(Class<? extends Record> type) {
+        Set<String> all = new LinkedHashSet<>();
+        Set<String> annotated = new LinkedHashSet<>();
+        for (RecordComponent component : type.getRecordComponents()) {
+            all.add(component.getName());
+            if (hasNotNull(component.getAccessor().getAnnotations())
+                    || hasNotNull(component.getAnnotatedType().getAnnotations())) {
+                annotated.add(component.getName());
+            }
+        }
+        return Collections.unmodifiableSet(annotated.isEmpty() ? all : annotated);
+    }
+
+    private static boolean hasNotNull(Annotation[] annotations) {
+        for (Annotation annotation : annotations) {
+            if ("NotNull".equals(annotation.annotationType().getSimpleName())) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Override
+    protected String configFingerprint() {
+        return super.configFingerprint() + "|" + outputType.getName() + "|" + requiredFields;
+    }
+
+    @Override
+    public ChatClient getChatClient() {
+        return chatClient;
+    }
+
+    public Set<String> getRequiredFields() {
+        return requiredFields;
+    }
+}
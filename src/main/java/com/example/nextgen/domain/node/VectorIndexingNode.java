@@ -0,0 +1,61 @@
+package com.example.nextgen.domain.node;
+
+import com.alibaba.fastjson2.JSON;
+import com.alibaba.fastjson2.TypeReference;
+import com.example.nextgen.common.ingest.DocumentIngestionService;
+import com.example.nextgen.common.vector.VectorIndexService;
+
+import javax.validation.constraints.NotNull;
+import java.util.Objects;
+
+/**
+ * 向量索引写入节点
+ * 消费上游摄取节点输出的文档流，分块一到达就向量化并插入索引，与文档解析重叠进行；写完后释放文档流
+ */
+public class VectorIndexingNode extends WorkflowNode<VectorIndexingNode.IndexInput, VectorIndexingNode.IndexOutput> {
+
+    private final String indexName;
+    private final DocumentIngestionService ingestionService;
+    private final VectorIndexService vectorIndexService;
+
+    public VectorIndexingNode(NodeId nodeId, String name, String indexName, DocumentIngestionService ingestionService,
+                              VectorIndexService vectorIndexService) {
+        super(nodeId, name, NodeType.CUSTOM);
+        this.indexName = Objects.requireNonNull(indexName, "Index name cannot be null");
+        this.ingestionService = Objects.requireNonNull(ingestionService, "DocumentIngestionService cannot be null");
+        this.vectorIndexService = Objects.requireNonNull(vectorIndexService, "VectorIndexService cannot be null");
+    }
+
+    /**
+     * 写入的是可变的索引，每次运行都需要重新写入
+     */
+    @Override
+    public boolean isReusable() {
+        return false;
+    }
+
+    @Override
+    protected IndexInput parseInputObject(String inputJson) {
+        return JSON.parseObject(inputJson, new TypeReference<IndexInput>() {
+        });
+    }
+
+    @Override
+    protected IndexOutput execute(IndexInput params) {
+        if (params.documentStream() == null) {
+            throw new IllegalArgumentException("documentStream is required");
+        }
+        try {
+            int indexed = vectorIndexService.index(indexName, ingestionService.stream(params.documentStream()));
+            return new IndexOutput(indexName, indexed);
+        } finally {
+            ingestionService.release(params.documentStream());
+        }
+    }
+
+    public record IndexInput(@NotNull String documentStream) {
+    }
+
+    public record IndexOutput(String vectorIndex, int indexedChunks) {
+    }
+}
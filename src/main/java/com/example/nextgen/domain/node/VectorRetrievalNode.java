@@ -0,0 +1,71 @@
+package com.example.nextgen.domain.node;
+
+import com.alibaba.fastjson2.JSON;
+import com.alibaba.fastjson2.TypeReference;
+import com.example.nextgen.common.vector.HnswIndex;
+import com.example.nextgen.common.vector.VectorIndexService;
+
+import javax.validation.constraints.NotNull;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * 向量检索节点
+ * 在进程内的向量索引中查询与 query 最相似的 topK 个分块，输出到上下文供后续模型节点引用
+ */
+public class VectorRetrievalNode extends WorkflowNode<VectorRetrievalNode.RetrievalInput, VectorRetrievalNode.RetrievalOutput> {
+
+    private final String indexName;
+    private final int topK;
+    private final VectorIndexService vectorIndexService;
+
+    public VectorRetrievalNode(NodeId nodeId, String name, String indexName, int topK, VectorIndexService vectorIndexService) {
+        super(nodeId, name, NodeType.CUSTOM);
+        if (topK <= 0) {
+            throw new IllegalArgumentException("topK must be positive");
+        }
+        this.indexName = Objects.requireNonNull(indexName, "Index name cannot be null");
+        this.topK = topK;
+        this.vectorIndexService = Objects.requireNonNull(vectorIndexService, "VectorIndexService cannot be null");
+    }
+
+    /**
+     * 检索结果取决于索引当前的内容，输入相同也不能复用之前的结果
+     */
+    @Override
+    public boolean isReusable() {
+        return false;
+    }
+
+    @Override
+    protected RetrievalInput parseInputObject(String inputJson) {
+        return JSON.parseObject(inputJson, new TypeReference<RetrievalInput>() {
+        });
+    }
+
+    @Override
+    protected RetrievalOutput execute(RetrievalInput params) {
+        if (params.query() == null || params.query().isBlank()) {
+            throw new IllegalArgumentException("query is required");
+        }
+        List<RetrievedChunk> chunks = vectorIndexService.search(indexName, params.query(), topK).stream()
+                .map(VectorRetrievalNode::toChunk)
+                .toList();
+        return new RetrievalOutput(chunks);
+    }
+
+    private static RetrievedChunk toChunk(HnswIndex.SearchHit hit) {
+        return new RetrievedChunk(hit.document().getId(), hit.document().getText(), hit.score(),
+                hit.document().getMetadata());
+    }
+
+    public record RetrievalInput(@NotNull String query) {
+    }
+
+    public record RetrievalOutput(List<RetrievedChunk> retrievedChunks) {
+    }
+
+    public record RetrievedChunk(String id, String text, float score, Map<String, Object> metadata) {
+    }
+}
@@ -3,14 +3,26 @@ package com.example.nextgen.domain.node;
 
 import com.alibaba.fastjson2.JSON;
 import com.alibaba.fastjson2.JSONObject;
+import com.alibaba.fastjson2.JSONWriter;
 import com.alibaba.fastjson2.TypeReference;
+import com.example.nextgen.common.prompt.ContextTrimPolicy;
+import com.example.nextgen.common.prompt.NodePrompt;
+import com.example.nextgen.common.prompt.PromptTemplate;
 import com.example.nextgen.domain.event.WorkflowEvent;
+import lombok.AccessLevel;
 import lombok.AllArgsConstructor;
 import lombok.Getter;
 import lombok.RequiredArgsConstructor;
 import lombok.Setter;
+import org.springframework.core.ResolvableType;
 
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.lang.reflect.RecordComponent;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.util.*;
+import java.util.function.BiConsumer;
 import java.util.stream.Collectors;
 
 /**
@@ -22,18 +34,70 @@ import java.util.stream.Collectors;
 @AllArgsConstructor
 @RequiredArgsConstructor
 public abstract class WorkflowNode<T, R> {
+
+    /**
+     * 节点类 -> 输入 record 声明的字段，每个节点类只反射一次
+     */
+    private static final ClassValue<Set<String>> RECORD_FIELDS = new ClassValue<>() {
+        @Override
+        protected Set<String> computeValue(Class<?> type) {
+            return recordFields(type);
+        }
+    };
+
+    /**
+     * 节点类 -> 参与配置指纹的字段，每个节点类只反射一次
+     */
+    private static final ClassValue<List<Field>> CONFIG_FIELDS = new ClassValue<>() {
+        @Override
+        protected List<Field> computeValue(Class<?> type) {
+            return configFields(type);
+        }
+    };
+
+    /**
+     * 节点元数据中记录输入哈希的键
+     */
+    public static final String INPUT_HASH_KEY = "inputHash";
+
+    /**
+     * 开始/结束节点写入上下文的运行相关字段（时间、节点ID），不参与输入哈希
+     */
+    private static final Set<String> RUN_SPECIFIC_KEYS = Set.of(
+            "workflowStartTime", "startNodeId", "workflowEndTime", "endNodeId", "workflowDuration");
+
     private final NodeId nodeId;
     private String name;
     private NodeType type;
+    /**
+     * 状态只能通过生命周期方法改变，每次变化通知 statusListener
+     */
+    @Setter(AccessLevel.NONE)
     private NodeStatus status = NodeStatus.IDLE;
     private Map<String, Object> inputData = new HashMap<>();
     private Map<String, Object> outputData = new HashMap<>();
     private String taskPrompt;
+    /**
+     * 编译后的任务提示，随 taskPrompt 一起设置
+     */
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    private PromptTemplate taskPromptTemplate;
+    /**
+     * 调用前的上下文裁剪策略，为空时使用全局默认配置
+     */
+    private ContextTrimPolicy contextPolicy;
     private Set<NodeId> dependencies = new HashSet<>();
     private Map<String, Object> metadata = new HashMap<>();
     private List<WorkflowEvent> domainEvents = new ArrayList<>();
     private Date createdAt = new Date();
     private Date updatedAt = new Date();
+    /**
+     * 状态变化回调（原状态, 新状态），由所属工作流设置，用于维护节点计数
+     */
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    private BiConsumer<NodeStatus, NodeStatus> statusListener;
 
 
     protected WorkflowNode(NodeId nodeId, String name, NodeType type) {
@@ -57,25 +121,36 @@ public abstract class WorkflowNode<T, R> {
         if (status != NodeStatus.IDLE) {
             throw new IllegalStateException("Node can only be started from IDLE status");
         }
-        this.status = NodeStatus.RUNNING;
+        transitionTo(NodeStatus.RUNNING);
         this.updatedAt = new Date();
         addDomainEvent(new WorkflowEvent.NodeStarted(nodeId, name));
 
+        T javaBean = null;
         try {
             // 输入Map，在这里按实参匹配，将参数传入apply方法
             String jsonString = JSON.toJSONString(inputData);
-            T javaBean = parseInputObject(jsonString);
+            javaBean = parseInputObject(jsonString);
             // 实际业务逻辑
             R apply = execute(javaBean);
-            JSONObject jsonObject = JSONObject.parseObject(JSON.toJSONString(apply));
-            Map<String, Object> collect = jsonObject.entrySet().stream().collect(Collectors.toMap(Map.Entry::getKey, Map.Entry::getValue));
-            outputData.putAll(collect);
+            collectOutput(apply);
         } catch (Exception e) {
-            // todo 异常处理
-            addDomainEvent(new WorkflowEvent.NodeFailed(nodeId, name, e.getMessage()));
+            R fallbackResult = javaBean != null ? fallback(javaBean, e) : null;
+            if (fallbackResult != null) {
+                this.metadata.put("fallbackReason", String.valueOf(e.getMessage()));
+                collectOutput(fallbackResult);
+            } else if (status == NodeStatus.RUNNING) {
+                this.metadata.put("errorType", e.getClass().getSimpleName());
+                fail(String.valueOf(e.getMessage()));
+            }
         }
     }
 
+    private void collectOutput(R result) {
+        JSONObject jsonObject = JSONObject.parseObject(JSON.toJSONString(result));
+        Map<String, Object> collect = jsonObject.entrySet().stream().collect(Collectors.toMap(Map.Entry::getKey, Map.Entry::getValue));
+        outputData.putAll(collect);
+    }
+
 
     /**
      * 父类定义了何时解析，但将具体如何解析的实现留给子类。
@@ -90,6 +165,14 @@ public abstract class WorkflowNode<T, R> {
      */
     protected abstract R execute(T params);
 
+    /**
+     * 执行失败时的降级钩子（包括模型熔断时的快速失败）
+     * 返回非null结果时节点以降级结果正常完成；返回null时节点失败，由引擎按错误处理边路由或使工作流失败
+     */
+    protected R fallback(T params, Exception cause) {
+        return null;
+    }
+
     /**
      * 完成节点执行
      */
@@ -98,7 +181,7 @@ public abstract class WorkflowNode<T, R> {
             throw new IllegalStateException("Node can only be completed from RUNNING status");
         }
         outputData.putAll(input);
-        this.status = NodeStatus.COMPLETED;
+        transitionTo(NodeStatus.COMPLETED);
         this.outputData = Collections.unmodifiableMap(outputData);
         this.updatedAt = new Date();
         addDomainEvent(new WorkflowEvent.NodeCompleted(nodeId, name, outputData));
@@ -111,23 +194,87 @@ public abstract class WorkflowNode<T, R> {
         if (status != NodeStatus.RUNNING) {
             throw new IllegalStateException("Node can only fail from RUNNING status");
         }
-        this.status = NodeStatus.FAILED;
+        // 先记录错误，状态变化时发布的快照中即包含错误信息
         this.metadata.put("errorMessage", errorMessage);
+        transitionTo(NodeStatus.FAILED);
         this.updatedAt = new Date();
         addDomainEvent(new WorkflowEvent.NodeFailed(nodeId, name, errorMessage));
     }
 
+    /**
+     * 跳过节点（所在分支不需要执行）
+     */
+    public void skip() {
+        if (status != NodeStatus.IDLE) {
+            throw new IllegalStateException("Node can only be skipped from IDLE status");
+        }
+        transitionTo(NodeStatus.SKIPPED);
+        this.updatedAt = new Date();
+    }
+
     /**
      * 重置节点状态
      */
     public void reset() {
-        this.status = NodeStatus.IDLE;
-        this.outputData.clear();
+        transitionTo(NodeStatus.IDLE);
+        // 完成后的输出是只读的
+        this.outputData = new HashMap<>();
         this.metadata.remove("errorMessage");
+        this.metadata.remove("errorType");
         this.updatedAt = new Date();
         addDomainEvent(new WorkflowEvent.NodeReset(nodeId, name));
     }
 
+    /**
+     * 用已保存的输出直接完成节点（检查点命中），不执行业务逻辑
+     */
+    public void completeFromCheckpoint(Map<String, Object> output, Map<String, Object> metadata) {
+        if (status != NodeStatus.IDLE) {
+            throw new IllegalStateException("Node can only be completed from a checkpoint in IDLE status");
+        }
+        if (metadata != null) {
+            this.metadata.putAll(metadata);
+        }
+        this.metadata.put("fromCheckpoint", true);
+        transitionTo(NodeStatus.RUNNING);
+        complete(output != null ? output : Collections.emptyMap());
+    }
+
+    /**
+     * 载入节点在上次运行中的结果（从事件日志恢复），不产生领域事件
+     */
+    public void restore(NodeStatus status, Map<String, Object> outputData, Map<String, Object> metadata) {
+        if (this.status != NodeStatus.IDLE) {
+            throw new IllegalStateException("Node can only be restored from IDLE status");
+        }
+        if (outputData != null) {
+            this.outputData.putAll(outputData);
+        }
+        if (metadata != null) {
+            this.metadata.putAll(metadata);
+        }
+        transitionTo(status);
+        if (status == NodeStatus.COMPLETED) {
+            this.outputData = Collections.unmodifiableMap(this.outputData);
+        }
+        this.updatedAt = new Date();
+    }
+
+    /**
+     * 设置状态变化回调，节点加入工作流时由工作流设置
+     */
+    public void setStatusListener(BiConsumer<NodeStatus, NodeStatus> statusListener) {
+        this.statusListener = statusListener;
+    }
+
+    private void transitionTo(NodeStatus next) {
+        NodeStatus previous = this.status;
+        this.status = next;
+        if (statusListener != null && previous != next) {
+            statusListener.accept(previous, next);
+        }
+    }
+
     /**
      * 检查依赖是否满足
      */
@@ -147,7 +294,7 @@ public abstract class WorkflowNode<T, R> {
      * 设置输入数据
      */
     public void setInputData(Map<String, Object> inputData) {
-        this.inputData = new HashMap<>(inputData != null ? inputData : Collections.emptyMap());
+        this.inputData = new LinkedHashMap<>(inputData != null ? inputData : Collections.emptyMap());
         this.updatedAt = new Date();
     }
 
@@ -155,11 +302,139 @@ public abstract class WorkflowNode<T, R> {
      * 设置任务提示
      */
     public void setTaskPrompt(String taskPrompt) {
+        this.taskPromptTemplate = taskPrompt != null ? PromptTemplate.compile(taskPrompt) : null;
         this.taskPrompt = taskPrompt;
         this.updatedAt = new Date();
     }
 
-    private void addDomainEvent(WorkflowEvent event) {
+    /**
+     * 用节点输入渲染任务提示，未设置时返回null
+     */
+    protected String renderTaskPrompt() {
+        return taskPromptTemplate != null ? taskPromptTemplate.render(inputData) : null;
+    }
+
+    /**
+     * 节点声明的输入字段，上下文裁剪时始终保留；为空表示未声明
+     * 默认取输入类型为 record 时的组件名，以及任务提示引用的字段
+     */
+    public Set<String> getDeclaredInputFields() {
+        Set<String> fields = RECORD_FIELDS.get(getClass());
+        if (taskPromptTemplate == null) {
+            return fields;
+        }
+        Set<String> merged = new LinkedHashSet<>(fields);
+        merged.addAll(taskPromptTemplate.getInputKeys());
+        return merged;
+    }
+
+    /**
+     * 增量执行时能否复用之前运行中相同输入的输出，有副作用或输出只在本次运行有效的节点应返回false
+     */
+    public boolean isReusable() {
+        return type != NodeType.START && type != NodeType.END;
+    }
+
+    /**
+     * 输出是否只在产生它的那次执行期间有效（如进程内的文档流ID）
+     * 失败重试或崩溃恢复时，这类已完成节点若仍有下游待执行，需要重新执行
+     */
+    public boolean hasTransientOutput() {
+        return false;
+    }
+
+    /**
+     * 节点配置指纹，与输入一起计算输入哈希
+     * 包括节点类、类型、任务提示，以及子类中声明的简单类型字段（字符串、数值、枚举等）和提示词模板字段（含静态字段）；
+     * 还有其他影响输出的配置（输出结构等）的子类应追加
+     */
+    protected String configFingerprint() {
+        StringBuilder fingerprint = new StringBuilder()
+                .append(getClass().getName()).append('|').append(type).append('|')
+                .append(taskPrompt != null ? taskPrompt : "");
+        for (Field field : CONFIG_FIELDS.get(getClass())) {
+            Object value;
+            try {
+                value = field.get(Modifier.isStatic(field.getModifiers()) ? null : this);
+            } catch (IllegalAccessException e) {
+                throw new IllegalStateException("Cannot read node field " + field.getName(), e);
+            }
+            if (value instanceof NodePrompt prompt) {
+                value = prompt.getSystem() + "\n" + prompt.getUserTemplate().getSource();
+            } else if (value instanceof PromptTemplate template) {
+                value = template.getSource();
+            } else if (value instanceof Class<?> clazz) {
+                value = clazz.getName();
+            }
+            fingerprint.append('|').append(field.getDeclaringClass().getSimpleName()).append('.')
+                    .append(field.getName()).append('=').append(value);
+        }
+        return fingerprint.toString();
+    }
+
+    /**
+     * 当前输入和配置的哈希（SHA-256）
+     * 声明了输入字段时只取这些字段，否则取除 excludedKeys 外的全部输入；键按字典序序列化，与写入顺序无关
+     *
+     * @param excludedKeys  未声明输入字段时排除的字段（如其他分支写入上下文的输出）
+     * @param modelIdentity 节点使用的模型和顾问链标识，不调用模型的节点为null
+     */
+    public String inputHash(Set<String> excludedKeys, String modelIdentity) {
+        Set<String> declared = getDeclaredInputFields();
+        Map<String, Object> hashed = new TreeMap<>();
+        inputData.forEach((key, value) -> {
+            boolean used = declared.isEmpty() ? !excludedKeys.contains(key) : declared.contains(key);
+            if (used && !RUN_SPECIFIC_KEYS.contains(key)) {
+                hashed.put(key, value);
+            }
+        });
+        Map<String, Object> canonical = new TreeMap<>();
+        canonical.put("config", configFingerprint());
+        canonical.put("input", hashed);
+        if (modelIdentity != null) {
+            canonical.put("model", modelIdentity);
+        }
+        byte[] bytes = JSON.toJSONBytes(canonical, JSONWriter.Feature.SortMapEntriesByKeys);
+        try {
+            return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(bytes));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    private static Set<String> recordFields(Class<?> nodeClass) {
+        Class<?> input = ResolvableType.forClass(nodeClass).as(WorkflowNode.class).getGeneric(0).resolve();
+        if (input == null || !input.isRecord()) {
+            return Set.of();
+        }
+        Set<String> fields = new LinkedHashSet<>();
+        for (RecordComponent component : input.getRecordComponents()) {
+            fields.add(component.getName());
+        }
+        return Collections.unmodifiableSet(fields);
+    }
+
+    private static List<Field> configFields(Class<?> nodeClass) {
+        List<Field> fields = new ArrayList<>();
+        for (Class<?> current = nodeClass; current != null && current != WorkflowNode.class; current = current.getSuperclass()) {
+            for (Field field : current.getDeclaredFields()) {
+                if (!field.isSynthetic() && isConfigType(field.getType())) {
+                    field.setAccessible(true);
+                    fields.add(field);
+                }
+            }
+        }
+        fields.sort(Comparator.comparing((Field field) -> field.getDeclaringClass().getName()).thenComparing(Field::getName));
+        return Collections.unmodifiableList(fields);
+    }
+
+    private static boolean isConfigType(Class<?> type) {
+        return type.isPrimitive() || CharSequence.class.isAssignableFrom(type) || Number.class.isAssignableFrom(type)
+                || type == Boolean.class || type == Character.class || type.isEnum() || type == Class.class
+                || type == NodePrompt.class || type == PromptTemplate.class;
+    }
+
+    protected void addDomainEvent(WorkflowEvent event) {
         this.domainEvents.add(event);
     }
 
@@ -5,6 +5,7 @@ import com.example.nextgen.domain.event.WorkflowExecutionContext;
 import com.example.nextgen.domain.orchestration.WorkflowOrchestrator;
 import com.example.nextgen.domain.workflow.Workflow;
 import com.example.nextgen.domain.workflow.WorkflowId;
+import com.example.nextgen.domain.workflow.WorkflowRepository;
 import com.example.nextgen.domain.workflow.WorkflowStatus;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Qualifier;
@@ -34,9 +35,7 @@ import java.util.concurrent.atomic.AtomicInteger;
 @Service
 public class WorkFlowExecutor {
 
-    Map<WorkflowId,Workflow>workflowRepository =new HashMap<>();
-
-//    private final WorkflowRepository workflowRepository;
+    private final WorkflowRepository workflowRepository;
     private final WorkflowExecutionEngine executionEngine;
     private final WorkflowOrchestrator defaultOrchestrator;
     private final ApplicationEventPublisher eventPublisher;
@@ -61,7 +60,7 @@ public class WorkFlowExecutor {
 
     @Autowired
     public WorkFlowExecutor(
-//            WorkflowRepository workflowRepository,
+            WorkflowRepository workflowRepository,
             WorkflowExecutionEngine executionEngine,
             WorkflowOrchestrator defaultOrchestrator,
             ApplicationEventPublisher eventPublisher
@@ -73,7 +72,7 @@ public class WorkFlowExecutor {
 //            @Qualifier("eventExecutor") Executor eventExecutor
     ) {
 
-//        this.workflowRepository = workflowRepository;
+        this.workflowRepository = workflowRepository;
         this.executionEngine = executionEngine;
         this.defaultOrchestrator = defaultOrchestrator;
         this.eventPublisher = eventPublisher;
@@ -347,7 +346,7 @@ public class WorkFlowExecutor {
      */
     private Workflow prepareWorkflowExecution(WorkflowId workflowId, Map<String, Object> initialContext) {
         // 查找工作流
-        Optional<Workflow> workflowOpt = Optional.ofNullable(workflowRepository.get(workflowId));
+        Optional<Workflow> workflowOpt = workflowRepository.findById(workflowId);
         if (workflowOpt.isEmpty()) {
             throw new IllegalArgumentException("工作流不存在: " + workflowId.getValue());
         }
@@ -368,14 +367,10 @@ public class WorkFlowExecutor {
     }
 
     /**
-     * 创建执行上下文
+     * 执行上下文：使用工作流自身的上下文，节点计数随执行实时更新
      */
     private WorkflowExecutionContext createExecutionContext(Workflow workflow) {
-        return new WorkflowExecutionContext(
-            workflow.getWorkflowId().getValue(),
-            workflow.getName(),
-            LocalDateTime.now()
-        );
+        return workflow.getExecutionContext();
     }
 
 //    /**
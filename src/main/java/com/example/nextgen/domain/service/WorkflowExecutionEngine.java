@@ -1,7 +1,14 @@
 package com.example.nextgen.domain.service;
 
+import com.example.nextgen.common.budget.CallBudget;
+import com.example.nextgen.common.chatmodel.ChatClientRegistry;
+import com.example.nextgen.common.checkpoint.NodeCheckpoint;
+import com.example.nextgen.common.checkpoint.NodeCheckpointStore;
+import com.example.nextgen.common.prompt.ContextTrimmer;
 import com.example.nextgen.domain.event.WorkflowEvent;
+import com.example.nextgen.domain.node.ModelBackedNode;
 import com.example.nextgen.domain.node.NodeStatus;
+import com.example.nextgen.domain.node.NodeType;
 import com.example.nextgen.domain.node.WorkflowNode;
 import com.example.nextgen.domain.workflow.Workflow;
 import com.example.nextgen.domain.workflow.WorkflowStatus;
@@ -23,12 +30,21 @@ import java.util.concurrent.CompletableFuture;
 public class WorkflowExecutionEngine {
     
     private final ApplicationEventPublisher eventPublisher;
+    private final ContextTrimmer contextTrimmer;
+    private final NodeCheckpointStore checkpointStore;
+    private final ChatClientRegistry chatClientRegistry;
 //    private final AgentExecutor agentExecutor;
     
-    public WorkflowExecutionEngine(ApplicationEventPublisher eventPublisher//,
+    public WorkflowExecutionEngine(ApplicationEventPublisher eventPublisher,
+                                   ContextTrimmer contextTrimmer,
+                                   NodeCheckpointStore checkpointStore,
+                                   ChatClientRegistry chatClientRegistry//,
 //                                 AgentExecutor agentExecutor
     ) {
         this.eventPublisher = eventPublisher;
+        this.contextTrimmer = contextTrimmer;
+        this.checkpointStore = checkpointStore;
+        this.chatClientRegistry = chatClientRegistry;
 //        this.agentExecutor = agentExecutor;
     }
     
@@ -60,6 +76,31 @@ public class WorkflowExecutionEngine {
         });
     }
     
+    /**
+     * 继续执行已处于运行状态的工作流（从事件日志恢复或从失败处重试），不再启动
+     */
+    public CompletableFuture<Void> resumeExecution(Workflow workflow) {
+        return CompletableFuture.runAsync(() -> {
+            try {
+                // 先发布工作流事件（恢复时重放产生的跳过/结束事件、重试事件），再发布节点的重置事件
+                publishDomainEvents(workflow);
+                for (Object value : workflow.getNodes().values()) {
+                    WorkflowNode node = (WorkflowNode) value;
+                    if (!node.getDomainEvents().isEmpty()) {
+                        publishNodeEvents(node);
+                    }
+                }
+                executeWorkflowLoop(workflow);
+            } catch (Exception e) {
+                if (workflow.getStatus() == WorkflowStatus.RUNNING) {
+                    workflow.fail("Workflow execution failed: " + e.getMessage());
+                    publishDomainEvents(workflow);
+                }
+                throw new RuntimeException("Workflow execution failed", e);
+            }
+        });
+    }
+
     /**
      * 工作流执行循环
      */
@@ -91,18 +132,39 @@ public class WorkflowExecutionEngine {
      * 执行单个节点
      */
     private void executeNode(Workflow workflow, WorkflowNode node) {
+        if (completeFromCheckpoint(workflow, node)) {
+            return;
+        }
         try {
-            node.setInputData(workflow.getGlobalContext());
-            // 启动节点
-            node.start();
+            node.setInputData(prepareInput(workflow, node));
+            if (completeFromPreviousRun(workflow, node)) {
+                return;
+            }
+            // 启动节点，执行期间绑定调用预算：按截止时间分配的时间、工作流 token 预算及用量归属
+            CallBudget budget = CallBudget.builder()
+                    .workflowId(workflow.getWorkflowId().getValue())
+                    .workflowName(workflow.getName())
+                    .nodeName(node.getName())
+                    .timeBudgetMillis(workflow.getNodeTimeBudgetMillis(node.getNodeId()))
+                    .tokenBudget(workflow.getTokenBudget())
+                    .build();
+            CallBudget.within(budget, node::start);
+            recordBudgetUsage(node, budget);
             publishNodeEvents(node);
-            node.complete(Map.of("result", "success"));
-            workflow.onNodeCompleted(node.getNodeId());
+            if (node.getStatus() == NodeStatus.FAILED) {
+                // 节点失败（含降级失败），按错误处理边路由或使工作流失败
+                workflow.onNodeFailed(node.getNodeId(), String.valueOf(node.getMetadata().get("errorMessage")));
+            } else {
+                node.complete(Map.of("result", "success"));
+                workflow.onNodeCompleted(node.getNodeId());
+            }
         } catch (Exception e) {
-            node.fail("Node execution failed: " + e.getMessage());
-            workflow.onNodeFailed(node.getNodeId(), e.getMessage());
-            publishNodeEvents(node);
-            publishDomainEvents(workflow);
+            if (node.getStatus() == NodeStatus.RUNNING) {
+                node.fail("Node execution failed: " + e.getMessage());
+            }
+            if (workflow.getStatus() == WorkflowStatus.RUNNING) {
+                workflow.onNodeFailed(node.getNodeId(), e.getMessage());
+            }
         }
 
         publishNodeEvents(node);
@@ -139,6 +201,88 @@ public class WorkflowExecutionEngine {
 //        node.complete(aggregatedData);
 //    }
     
+    /**
+     * 本次运行中该节点已有检查点（恢复或重试的运行）时直接使用保存的输出，不再调用模型
+     */
+    private boolean completeFromCheckpoint(Workflow workflow, WorkflowNode node) {
+        NodeCheckpoint checkpoint = checkpointStore.find(workflow.getWorkflowId().getValue(), node.getName()).orElse(null);
+        if (checkpoint == null) {
+            return false;
+        }
+        log.info("Reusing checkpoint of node: " + node.getName());
+        node.completeFromCheckpoint(checkpoint.output(), checkpoint.metadata());
+        workflow.onNodeCompleted(node.getNodeId());
+        publishNodeEvents(node);
+        publishDomainEvents(workflow);
+        return true;
+    }
+
+    /**
+     * 增量执行：节点输入和配置与之前某次运行相同时直接复用那次的输出；
+     * 输入哈希记入节点元数据，未命中时随本次执行的检查点保存
+     * 上游节点复用了输出时下游的输入也不变，因此只有输入真正变化的节点会重新执行
+     */
+    private boolean completeFromPreviousRun(Workflow workflow, WorkflowNode node) {
+        if (!checkpointStore.isIncremental() || !node.isReusable()) {
+            return false;
+        }
+        String modelIdentity = null;
+        if (node instanceof ModelBackedNode modelNode) {
+            modelIdentity = chatClientRegistry.describe(modelNode.getChatClient()).orElse(null);
+            if (modelIdentity == null) {
+                // 客户端不是由注册中心构建的，无法确定模型，不复用也不登记输入哈希
+                return false;
+            }
+        }
+        String inputHash = node.inputHash(workflow.getUnrelatedContextKeys(node.getNodeId()), modelIdentity);
+        node.getMetadata().put(WorkflowNode.INPUT_HASH_KEY, inputHash);
+        NodeCheckpoint checkpoint = checkpointStore.findByInputHash(workflow.getName(), node.getName(), inputHash).orElse(null);
+        if (checkpoint == null) {
+            return false;
+        }
+        log.info("Inputs of node {} unchanged, reusing output of run {}", node.getName(), checkpoint.workflowId());
+        node.completeFromCheckpoint(checkpoint.output(), checkpoint.metadata());
+        node.getMetadata().put("reusedFromRun", checkpoint.workflowId());
+        workflow.onNodeCompleted(node.getNodeId());
+        publishNodeEvents(node);
+        publishDomainEvents(workflow);
+        return true;
+    }
+
+    /**
+     * 准备节点输入：全局上下文按节点的 token 上限裁剪，开始/结束节点原样传递
+     */
+    private Map<String, Object> prepareInput(Workflow workflow, WorkflowNode node) {
+        Map<String, Object> context = workflow.getGlobalContext();
+        if (node.getType() == NodeType.START || node.getType() == NodeType.END) {
+            return context;
+        }
+        ContextTrimmer.TrimResult result = contextTrimmer.trim(node.getName(), context,
+                node.getContextPolicy(), node.getDeclaredInputFields());
+        if (result.isTrimmed()) {
+            node.getMetadata().put("contextTrim", Map.of(
+                    "originalTokens", result.originalTokens(),
+                    "trimmedTokens", result.trimmedTokens(),
+                    "strategies", result.strategies()));
+        }
+        return result.context();
+    }
+
+    /**
+     * 把节点的降级记录和 token 用量写入节点元数据
+     */
+    private void recordBudgetUsage(WorkflowNode node, CallBudget budget) {
+        if (!budget.getDegradations().isEmpty()) {
+            node.getMetadata().put("degradations", budget.getDegradations());
+        }
+        if (budget.getTotalTokens() > 0) {
+            node.getMetadata().put("tokenUsage", Map.of(
+                    "promptTokens", budget.getPromptTokens(),
+                    "completionTokens", budget.getCompletionTokens(),
+                    "totalTokens", budget.getTotalTokens()));
+        }
+    }
+
     /**
      * 等待正在运行的节点完成
      */
@@ -1,17 +1,21 @@
 package com.example.nextgen.domain.workflow;
 
+import com.example.nextgen.common.budget.TokenBudget;
 import com.example.nextgen.domain.edge.EdgeId;
 import com.example.nextgen.domain.edge.EdgeType;
 import com.example.nextgen.domain.edge.WorkflowEdge;
 import com.example.nextgen.domain.event.WorkflowEvent;
+import com.example.nextgen.domain.event.WorkflowExecutionContext;
 import com.example.nextgen.domain.node.NodeId;
 import com.example.nextgen.domain.node.NodeStatus;
+import com.example.nextgen.domain.node.NodeType;
 import com.example.nextgen.domain.node.WorkflowNode;
 import lombok.AllArgsConstructor; // 导入
 import lombok.Builder;
 import lombok.Getter;
 import lombok.extern.slf4j.Slf4j;
 
+import java.time.Duration;
 import java.time.LocalDateTime;
 import java.util.*;
 import java.util.stream.Collectors;
@@ -29,6 +33,11 @@ import java.util.stream.Collectors;
  * 管理整个工作流的生命周期和节点编排
  */
 public class Workflow {
+    /**
+     * 节点失败被错误处理边接管时，失败信息写入全局上下文的键
+     */
+    public static final String ERROR_CONTEXT_KEY = "error";
+
     private final WorkflowId workflowId;
     private String name;
     private String description;
@@ -45,8 +54,17 @@ public class Workflow {
     @Builder.Default
     private final List<WorkflowEvent> domainEvents = new ArrayList<>();
 
+    /**
+     * 全局上下文，保持写入顺序（上下文裁剪按顺序丢弃最早的字段）
+     */
+    @Builder.Default
+    private Map<String, Object> globalContext = new LinkedHashMap<>();
+
+    /**
+     * 已被错误处理边/回退边接管的失败节点
+     */
     @Builder.Default
-    private Map<String, Object> globalContext = new HashMap<>();
+    private final Set<NodeId> handledFailures = new HashSet<>();
 
     @Builder.Default
     private LocalDateTime createdAt = LocalDateTime.now();
@@ -57,6 +75,36 @@ public class Workflow {
     private LocalDateTime startedAt;
     private LocalDateTime completedAt;
 
+    /**
+     * 端到端时间预算（毫秒），为空表示不限制
+     */
+    private Long timeoutMillis;
+
+    /**
+     * 截止时间，启动时根据 timeoutMillis 计算
+     */
+    private LocalDateTime deadline;
+
+    /**
+     * token 预算上限，为空表示不限制
+     */
+    private Long tokenLimit;
+
+    /**
+     * 本次运行的 token 预算和用量，启动时创建，所有节点共享
+     */
+    private TokenBudget tokenBudget;
+
+    /**
+     * 执行上下文（节点计数、运行时间），首次访问时创建并登记已有节点
+     */
+    private volatile WorkflowExecutionContext executionContext;
+
+    /**
+     * 最近发布的状态快照，每次状态变化后整体替换，查询方无需加锁
+     */
+    private volatile WorkflowStatusSnapshot statusSnapshot;
+
     /**
      * 添加节点到工作流
      */
@@ -65,8 +113,14 @@ public class Workflow {
         if (status != WorkflowStatus.CREATED && status != WorkflowStatus.PAUSED) {
             throw new IllegalStateException("Cannot add nodes to a running or completed workflow");
         }
-        nodes.put(node.getNodeId(), node);
+        WorkflowExecutionContext context = getExecutionContext();
+        WorkflowNode previous = nodes.put(node.getNodeId(), node);
+        if (previous != null) {
+            detach(context, previous);
+        }
+        attach(context, node);
         this.updatedAt = LocalDateTime.now();
+        publishSnapshot();
     }
 
     /**
@@ -78,10 +132,64 @@ public class Workflow {
         }
         // 移除节点时，同时移除相关的边
         removeEdgesForNode(nodeId);
-        nodes.remove(nodeId);
+        WorkflowNode removed = nodes.remove(nodeId);
+        if (removed != null) {
+            detach(getExecutionContext(), removed);
+        }
+        publishSnapshot();
         this.updatedAt = LocalDateTime.now();
     }
 
+    /**
+     * 执行上下文，节点按状态的计数随节点状态变化实时更新
+     */
+    public WorkflowExecutionContext getExecutionContext() {
+        WorkflowExecutionContext context = executionContext;
+        if (context == null) {
+            synchronized (this) {
+                context = executionContext;
+                if (context == null) {
+                    context = new WorkflowExecutionContext(workflowId.getValue(), name);
+                    for (WorkflowNode node : nodes.values()) {
+                        attach(context, node);
+                    }
+                    executionContext = context;
+                }
+            }
+        }
+        return context;
+    }
+
+    private void attach(WorkflowExecutionContext context, WorkflowNode<?, ?> node) {
+        context.nodeAdded(node.getStatus());
+        node.setStatusListener((from, to) -> {
+            context.onNodeTransition(from, to);
+            publishSnapshot();
+        });
+    }
+
+    private static void detach(WorkflowExecutionContext context, WorkflowNode<?, ?> node) {
+        node.setStatusListener(null);
+        context.nodeRemoved(node.getStatus());
+    }
+
+    /**
+     * 最近发布的状态快照，可在任意线程读取
+     */
+    public WorkflowStatusSnapshot getStatusSnapshot() {
+        WorkflowStatusSnapshot snapshot = statusSnapshot;
+        return snapshot != null ? snapshot : publishSnapshot();
+    }
+
+    /**
+     * 生成并发布状态快照，由修改工作流的线程在状态变化后调用
+     */
+    private synchronized WorkflowStatusSnapshot publishSnapshot() {
+        WorkflowStatusSnapshot snapshot = WorkflowStatusSnapshot.of(this, statusSnapshot);
+        this.statusSnapshot = snapshot;
+        return snapshot;
+    }
+
     /**
      * 添加边到工作流
      */
@@ -211,14 +319,38 @@ public class Workflow {
             throw new IllegalStateException("Cannot start workflow without nodes");
         }
 
+        beginRun();
+        addDomainEvent(new WorkflowEvent.WorkflowStarted(workflowId, name));
+        // 节点由执行引擎通过 getExecutableNodes() 调度
+    }
+
+    /**
+     * 从事件日志恢复运行：直接进入运行状态，载入上次的全局上下文和已接管的失败节点，不产生启动事件
+     * 节点状态由调用方先行恢复；截止时间和 token 预算按恢复时刻重新计算
+     */
+    public void restore(Map<String, Object> context, Set<NodeId> handledFailures) {
+        if (status != WorkflowStatus.CREATED) {
+            throw new IllegalStateException("Workflow can only be restored from CREATED status");
+        }
+        if (context != null) {
+            this.globalContext.putAll(context);
+        }
+        if (handledFailures != null) {
+            this.handledFailures.addAll(handledFailures);
+        }
+        beginRun();
+    }
+
+    private void beginRun() {
         this.status = WorkflowStatus.RUNNING;
         this.startedAt = LocalDateTime.now();
         this.updatedAt = LocalDateTime.now();
-
-        addDomainEvent(new WorkflowEvent.WorkflowStarted(workflowId, name));
-
-        // 启动所有没有依赖的节点
-        startReadyNodes();
+        if (timeoutMillis != null && timeoutMillis > 0) {
+            this.deadline = startedAt.plus(Duration.ofMillis(timeoutMillis));
+        }
+        this.tokenBudget = new TokenBudget(tokenLimit != null ? tokenLimit : 0L);
+        getExecutionContext().markStarted(startedAt);
+        publishSnapshot();
     }
 
     /**
@@ -236,6 +368,8 @@ public class Workflow {
         if (finalOutput != null) {
             this.globalContext.putAll(finalOutput);
         }
+        getExecutionContext().markCompleted(completedAt);
+        publishSnapshot();
 
         addDomainEvent(new WorkflowEvent.WorkflowCompleted(workflowId, name, finalOutput));
     }
@@ -252,6 +386,8 @@ public class Workflow {
         this.status = WorkflowStatus.FAILED;
         this.completedAt = LocalDateTime.now();
         this.updatedAt = LocalDateTime.now();
+        getExecutionContext().markFailed(completedAt, errorMessage);
+        publishSnapshot();
 
         addDomainEvent(new WorkflowEvent.WorkflowFailed(workflowId, name, errorMessage));
     }
@@ -265,6 +401,8 @@ public class Workflow {
         }
         this.status = WorkflowStatus.PAUSED;
         this.updatedAt = LocalDateTime.now();
+        getExecutionContext().markPaused();
+        publishSnapshot();
     }
 
     /**
@@ -276,7 +414,111 @@ public class Workflow {
         }
         this.status = WorkflowStatus.RUNNING;
         this.updatedAt = LocalDateTime.now();
-        startReadyNodes();
+        getExecutionContext().markResumed();
+        publishSnapshot();
+    }
+
+    /**
+     * 从失败处重试：重置失败（或失败时仍在执行）的节点及其已执行过的下游节点，回到运行状态
+     * 已完成的上游节点输出和全局上下文保留（输出已失效的节点除外），截止时间和 token 预算按重试时刻重新计算
+     *
+     * @return 被重置的节点
+     */
+    public List<WorkflowNode> retryFromFailure() {
+        if (status != WorkflowStatus.FAILED) {
+            throw new IllegalStateException("Only failed workflows can be retried");
+        }
+        Set<NodeId> toReset = new LinkedHashSet<>();
+        for (WorkflowNode node : nodes.values()) {
+            boolean unhandledFailure = node.getStatus() == NodeStatus.FAILED && !handledFailures.contains(node.getNodeId());
+            if (unhandledFailure || node.getStatus() == NodeStatus.RUNNING) {
+                toReset.add(node.getNodeId());
+            }
+        }
+        // 下游节点按依赖关系传递查找
+        boolean changed = true;
+        while (changed) {
+            changed = false;
+            for (WorkflowNode node : nodes.values()) {
+                if (!toReset.contains(node.getNodeId()) && !Collections.disjoint(node.getDependencies(), toReset)) {
+                    toReset.add(node.getNodeId());
+                    changed = true;
+                }
+            }
+        }
+        List<WorkflowNode> reset = new ArrayList<>();
+        for (NodeId nodeId : toReset) {
+            WorkflowNode node = nodes.get(nodeId);
+            if (node.getStatus() != NodeStatus.IDLE) {
+                node.reset();
+                reset.add(node);
+            }
+        }
+        reset.addAll(resetTransientOutputs());
+        this.completedAt = null;
+        beginRun();
+        addDomainEvent(new WorkflowEvent.WorkflowRetried(workflowId, name,
+                reset.stream().map(WorkflowNode::getName).collect(Collectors.toList())));
+        return reset;
+    }
+
+    /**
+     * 重置输出已失效（见 {@link WorkflowNode#hasTransientOutput()}）且仍有下游未执行的已完成节点，
+     * 用于失败重试和崩溃恢复；下游已执行完的不重置
+     *
+     * @return 被重置的节点
+     */
+    public List<WorkflowNode> resetTransientOutputs() {
+        List<WorkflowNode> reset = new ArrayList<>();
+        boolean changed = true;
+        while (changed) {
+            changed = false;
+            for (WorkflowNode node : nodes.values()) {
+                if (node.getStatus() == NodeStatus.COMPLETED && node.hasTransientOutput() && hasPendingDependent(node.getNodeId())) {
+                    node.reset();
+                    reset.add(node);
+                    changed = true;
+                }
+            }
+        }
+        return reset;
+    }
+
+    private boolean hasPendingDependent(NodeId nodeId) {
+        for (WorkflowNode node : nodes.values()) {
+            if (node.getStatus() == NodeStatus.IDLE && node.getDependencies().contains(nodeId)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 与节点无关的上下文字段：只由非上游（不在传递依赖中）的已完成节点写入，增量执行计算输入哈希时排除
+     */
+    public Set<String> getUnrelatedContextKeys(NodeId nodeId) {
+        WorkflowNode target = nodes.get(nodeId);
+        if (target == null) {
+            throw new IllegalArgumentException("Node not found: " + nodeId);
+        }
+        Set<NodeId> upstream = new HashSet<>();
+        Deque<NodeId> pending = new ArrayDeque<>(target.getDependencies());
+        while (!pending.isEmpty()) {
+            NodeId id = pending.poll();
+            WorkflowNode dependency = nodes.get(id);
+            if (upstream.add(id) && dependency != null) {
+                pending.addAll(dependency.getDependencies());
+            }
+        }
+        Set<String> related = new HashSet<>();
+        Set<String> unrelated = new HashSet<>();
+        for (WorkflowNode node : nodes.values()) {
+            if (node.getStatus() == NodeStatus.COMPLETED && !node.getNodeId().equals(nodeId)) {
+                (upstream.contains(node.getNodeId()) ? related : unrelated).addAll(node.getOutputData().keySet());
+            }
+        }
+        unrelated.removeAll(related);
+        return unrelated;
     }
 
     /**
@@ -291,36 +533,110 @@ public class Workflow {
         // 将节点输出添加到全局上下文
         globalContext.putAll(node.getOutputData());
 
-//        // 启动新的就绪节点
-//        startReadyNodes();
+        // 成功路径上不再需要的错误处理分支
+        skipUnreachableNodes();
 
         // 检查工作流是否完成
         checkWorkflowCompletion();
+        publishSnapshot();
     }
 
     /**
      * 节点失败后的处理
+     * 节点有错误处理边或回退边时，失败信息写入全局上下文，立即转到对应分支，正常分支被跳过；
+     * 否则整个工作流失败
      */
     public void onNodeFailed(NodeId nodeId, String errorMessage) {
-        // 根据失败策略处理
-        // 这里简单实现为整个工作流失败
-        fail("Node " + nodeId + " failed: " + errorMessage);
+        WorkflowNode node = nodes.get(nodeId);
+        if (node == null || getErrorHandlingEdges(nodeId).isEmpty()) {
+            fail("Node " + nodeId + " failed: " + errorMessage);
+            return;
+        }
+
+        log.warn("Node {} failed, routing to error handling edges: {}", node.getName(), errorMessage);
+        handledFailures.add(nodeId);
+        Map<String, Object> error = new HashMap<>();
+        error.put("nodeId", nodeId.getValue());
+        error.put("nodeName", node.getName());
+        error.put("errorMessage", errorMessage);
+        error.put("errorType", node.getMetadata().get("errorType"));
+        globalContext.put(ERROR_CONTEXT_KEY, error);
+        this.updatedAt = LocalDateTime.now();
+
+        skipUnreachableNodes();
+        checkWorkflowCompletion();
+        publishSnapshot();
     }
 
     /**
-     * 启动所有就绪的节点
+     * 获取节点的错误处理边和回退边
      */
-    private void startReadyNodes() {
-        if (status != WorkflowStatus.RUNNING) {
-            return;
-        }
+    public List<WorkflowEdge> getErrorHandlingEdges(NodeId nodeId) {
+        return getOutgoingEdges(nodeId).stream()
+                .filter(edge -> edge.getType() == EdgeType.ERROR_HANDLING || edge.getType() == EdgeType.FALLBACK)
+                .collect(Collectors.toList());
+    }
 
-        Set<NodeId> completedNodes = getCompletedNodeIds();
+    /**
+     * 检查 target 是否通过错误处理边/回退边连接在 source 之后
+     */
+    private boolean isErrorRoute(NodeId source, NodeId target) {
+        return getErrorHandlingEdges(source).stream()
+                .anyMatch(edge -> edge.getTargetNodeId().equals(target));
+    }
 
-        nodes.values().stream()
-                .filter(node -> node.getStatus() == NodeStatus.IDLE)
-                .filter(node -> node.areDependenciesSatisfied(completedNodes))
-                .forEach(WorkflowNode::start);
+    /**
+     * 根据依赖节点的状态判断节点是否可以执行
+     * 依赖完成（非错误路由）、或依赖失败且本节点是其错误处理目标，视为激活；
+     * 依赖跳过、依赖完成但本节点是其错误处理目标，视为已结束但未激活。
+     * 所有依赖都已结束且至少一个激活时可以执行；都已结束但没有激活的依赖时应跳过
+     */
+    private DependencyState resolveDependencies(WorkflowNode node) {
+        Set<NodeId> dependencies = node.getDependencies();
+        if (dependencies.isEmpty()) {
+            return DependencyState.READY;
+        }
+        boolean anyActive = false;
+        for (NodeId dependencyId : dependencies) {
+            WorkflowNode dependency = nodes.get(dependencyId);
+            if (dependency == null) {
+                return DependencyState.WAITING;
+            }
+            boolean errorRoute = isErrorRoute(dependencyId, node.getNodeId());
+            switch (dependency.getStatus()) {
+                case COMPLETED:
+                    anyActive |= !errorRoute;
+                    break;
+                case SKIPPED:
+                    break;
+                case FAILED:
+                    if (!handledFailures.contains(dependencyId)) {
+                        return DependencyState.WAITING;
+                    }
+                    anyActive |= errorRoute;
+                    break;
+                default:
+                    return DependencyState.WAITING;
+            }
+        }
+        return anyActive ? DependencyState.READY : DependencyState.SKIP;
+    }
+
+    /**
+     * 跳过所有不可能再被激活的节点，直到没有变化
+     */
+    private void skipUnreachableNodes() {
+        boolean changed = true;
+        while (changed) {
+            changed = false;
+            for (WorkflowNode node : nodes.values()) {
+                if (node.getStatus() == NodeStatus.IDLE && resolveDependencies(node) == DependencyState.SKIP) {
+                    node.skip();
+                    addDomainEvent(new WorkflowEvent.NodeSkipped(node.getNodeId(), node.getName()));
+                    changed = true;
+                }
+            }
+        }
     }
 
     /**
@@ -330,26 +646,21 @@ public class Workflow {
         if (status != WorkflowStatus.RUNNING) {
             return;
         }
+        // 还有未结束的节点时不必逐个检查
+        if (getExecutionContext().getFinishedNodes() < nodes.size()) {
+            return;
+        }
 
         boolean allCompleted = nodes.values().stream()
                 .allMatch(node -> node.getStatus() == NodeStatus.COMPLETED ||
-                        node.getStatus() == NodeStatus.SKIPPED);
+                        node.getStatus() == NodeStatus.SKIPPED ||
+                        handledFailures.contains(node.getNodeId()));
 
         if (allCompleted) {
             complete(new HashMap<>(globalContext));
         }
     }
 
-    /**
-     * 获取已完成的节点ID集合
-     */
-    private Set<NodeId> getCompletedNodeIds() {
-        return nodes.values().stream()
-                .filter(node -> node.getStatus() == NodeStatus.COMPLETED)
-                .map(WorkflowNode::getNodeId)
-                .collect(Collectors.toSet());
-    }
-
     /**
      * 获取可执行的节点列表
      */
@@ -358,18 +669,99 @@ public class Workflow {
             return Collections.emptyList();
         }
 
-        Set<NodeId> completedNodes = getCompletedNodeIds();
-
         return nodes.values().stream()
                 .filter(node -> node.getStatus() == NodeStatus.IDLE)
-                .filter(node -> node.areDependenciesSatisfied(completedNodes))
+                .filter(node -> resolveDependencies(node) == DependencyState.READY)
                 .collect(Collectors.toList());
     }
 
+    /**
+     * 设置端到端时间预算，只能在启动前设置
+     */
+    public void setTimeoutMillis(Long timeoutMillis) {
+        if (status != WorkflowStatus.CREATED) {
+            throw new IllegalStateException("Timeout can only be set before the workflow starts");
+        }
+        if (timeoutMillis != null && timeoutMillis <= 0) {
+            throw new IllegalArgumentException("Timeout must be positive");
+        }
+        this.timeoutMillis = timeoutMillis;
+        this.updatedAt = LocalDateTime.now();
+    }
+
+    /**
+     * 设置 token 预算，只能在启动前设置
+     */
+    public void setTokenLimit(Long tokenLimit) {
+        if (status != WorkflowStatus.CREATED) {
+            throw new IllegalStateException("Token limit can only be set before the workflow starts");
+        }
+        if (tokenLimit != null && tokenLimit <= 0) {
+            throw new IllegalArgumentException("Token limit must be positive");
+        }
+        this.tokenLimit = tokenLimit;
+        this.updatedAt = LocalDateTime.now();
+    }
+
+    /**
+     * 剩余时间（毫秒），没有截止时间时返回空
+     */
+    public Long getRemainingMillis() {
+        if (deadline == null) {
+            return null;
+        }
+        return Math.max(0L, Duration.between(LocalDateTime.now(), deadline).toMillis());
+    }
+
+    /**
+     * 节点分到的时间预算（毫秒），没有截止时间时返回空
+     * 剩余时间按该节点到终点的最长待执行路径平分，开始/结束节点不占份额
+     */
+    public Long getNodeTimeBudgetMillis(NodeId nodeId) {
+        Long remaining = getRemainingMillis();
+        if (remaining == null) {
+            return null;
+        }
+        Map<NodeId, List<NodeId>> successors = new HashMap<>();
+        for (WorkflowNode node : nodes.values()) {
+            for (Object dependency : node.getDependencies()) {
+                successors.computeIfAbsent((NodeId) dependency, key -> new ArrayList<>()).add(node.getNodeId());
+            }
+        }
+        int depth = Math.max(1, pendingDepth(nodeId, successors, new HashMap<>()));
+        return remaining / depth;
+    }
+
+    /**
+     * 从节点出发最长路径上需要分配时间的待执行节点数量
+     */
+    private int pendingDepth(NodeId nodeId, Map<NodeId, List<NodeId>> successors, Map<NodeId, Integer> memo) {
+        Integer cached = memo.get(nodeId);
+        if (cached != null) {
+            return cached;
+        }
+        memo.put(nodeId, 0);
+        WorkflowNode node = nodes.get(nodeId);
+        int self = node != null && isPending(node) && node.getType() != NodeType.START && node.getType() != NodeType.END ? 1 : 0;
+        int longest = 0;
+        for (NodeId successor : successors.getOrDefault(nodeId, Collections.emptyList())) {
+            longest = Math.max(longest, pendingDepth(successor, successors, memo));
+        }
+        memo.put(nodeId, self + longest);
+        return self + longest;
+    }
+
+    private boolean isPending(WorkflowNode node) {
+        return node.getStatus() == NodeStatus.IDLE || node.getStatus() == NodeStatus.RUNNING;
+    }
+
     /**
      * 获取正在运行的节点列表
      */
     public List<WorkflowNode> getRunningNodes() {
+        if (getExecutionContext().getRunningNodes() == 0) {
+            return Collections.emptyList();
+        }
         return nodes.values().stream()
                 .filter(node -> node.getStatus() == NodeStatus.RUNNING)
                 .collect(Collectors.toList());
@@ -430,4 +822,20 @@ public class Workflow {
         return edges.containsKey(edgeId);
     }
 
+    /**
+     * 已被错误处理边接管的失败节点
+     */
+    public Set<NodeId> getHandledFailures() {
+        return Collections.unmodifiableSet(handledFailures);
+    }
+
+    /**
+     * 节点依赖状态
+     */
+    private enum DependencyState {
+        WAITING,
+        READY,
+        SKIP
+    }
+
 }
\ No newline at end of file
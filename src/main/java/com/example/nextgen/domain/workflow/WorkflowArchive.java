@@ -0,0 +1,40 @@
+package com.example.nextgen.domain.workflow;
+
+import com.example.nextgen.domain.node.NodeStatus;
+import com.example.nextgen.domain.node.NodeType;
+import com.example.nextgen.domain.node.WorkflowNode;
+
+import java.time.LocalDateTime;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 已结束工作流的归档快照
+ * 只保留状态查询需要的数据，不引用节点对象（节点持有模型客户端等运行时资源）
+ */
+public record WorkflowArchive(String workflowId, String name, String description, WorkflowStatus status,
+                              LocalDateTime createdAt, LocalDateTime startedAt, LocalDateTime completedAt,
+                              Map<String, Object> globalContext, List<NodeState> nodes) {
+
+    public static WorkflowArchive from(Workflow workflow) {
+        List<NodeState> nodes = workflow.getNodes().values().stream()
+                .map(NodeState::from)
+                .toList();
+        return new WorkflowArchive(workflow.getWorkflowId().getValue(), workflow.getName(), workflow.getDescription(),
+                workflow.getStatus(), workflow.getCreatedAt(), workflow.getStartedAt(), workflow.getCompletedAt(),
+                new LinkedHashMap<>(workflow.getGlobalContext()), nodes);
+    }
+
+    /**
+     * 节点的最终状态
+     */
+    public record NodeState(String nodeId, String name, NodeType type, NodeStatus status,
+                            Map<String, Object> outputData) {
+
+        static NodeState from(WorkflowNode<?, ?> node) {
+            return new NodeState(node.getNodeId().getValue(), node.getName(), node.getType(), node.getStatus(),
+                    new LinkedHashMap<>(node.getOutputData()));
+        }
+    }
+}
@@ -0,0 +1,39 @@
+package com.example.nextgen.domain.workflow;
+
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * 工作流仓储
+ * 保存运行中和最近结束的工作流；结束较久的工作流可能已被回收，只能通过 {@link #findArchived} 查到归档快照
+ */
+public interface WorkflowRepository {
+
+    /**
+     * 保存（新增或覆盖）工作流
+     */
+    void save(Workflow workflow);
+
+    Optional<Workflow> findById(WorkflowId workflowId);
+
+    /**
+     * 删除工作流，不存在时返回false
+     */
+    boolean delete(WorkflowId workflowId);
+
+    /**
+     * 当前保存的全部工作流
+     */
+    List<Workflow> findAll();
+
+    List<Workflow> findByStatus(WorkflowStatus status);
+
+    /**
+     * 已从仓储中回收的工作流的归档快照
+     */
+    default Optional<WorkflowArchive> findArchived(WorkflowId workflowId) {
+        return Optional.empty();
+    }
+
+    long count();
+}
@@ -32,5 +32,12 @@ public enum WorkflowStatus {
     /**
      * 已取消 - 工作流被取消
      */
-    CANCELLED
-}
\ No newline at end of file
+    CANCELLED;
+
+    /**
+     * 是否为终态（完成、失败或取消）
+     */
+    public boolean isTerminal() {
+        return this == COMPLETED || this == FAILED || this == CANCELLED;
+    }
+}
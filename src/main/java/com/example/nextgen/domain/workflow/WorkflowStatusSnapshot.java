@@ -0,0 +1,64 @@
+package com.example.nextgen.domain.workflow;
+
+import com.example.nextgen.domain.node.NodeId;
+import com.example.nextgen.domain.node.NodeStatus;
+import com.example.nextgen.domain.node.NodeType;
+import com.example.nextgen.domain.node.WorkflowNode;
+
+import java.time.LocalDateTime;
+import java.util.*;
+
+/**
+ * 工作流状态快照
+ * 由修改工作流的线程在每次状态变化后生成并整体发布，发布后不再修改；查询方读取最近一次发布的快照，
+ * 得到一致的视图，不与执行线程竞争。版本号随每次发布递增
+ *
+ * 上下文和节点输入输出是发布时的浅拷贝；状态和更新时间都没变的节点直接沿用上一版快照中的条目
+ */
+public record WorkflowStatusSnapshot(long version, WorkflowId workflowId, String name, WorkflowStatus status,
+                                     LocalDateTime startedAt, LocalDateTime completedAt, double progress,
+                                     Map<String, Object> globalContext, List<NodeState> nodes) {
+
+    static WorkflowStatusSnapshot of(Workflow workflow, WorkflowStatusSnapshot previous) {
+        Map<NodeId, NodeState> previousNodes = new HashMap<>();
+        if (previous != null) {
+            previous.nodes().forEach(node -> previousNodes.put(node.nodeId(), node));
+        }
+        List<NodeState> nodes = new ArrayList<>(workflow.getNodes().size());
+        int completed = 0;
+        for (Object value : workflow.getNodes().values()) {
+            WorkflowNode<?, ?> node = (WorkflowNode<?, ?>) value;
+            NodeState state = previousNodes.get(node.getNodeId());
+            if (state == null || state.status() != node.getStatus() || state.updatedAt() != node.getUpdatedAt().getTime()) {
+                state = NodeState.from(node);
+            }
+            nodes.add(state);
+            if (state.status() == NodeStatus.COMPLETED) {
+                completed++;
+            }
+        }
+        double progress = nodes.isEmpty() ? 0.0 : (double) completed / nodes.size() * 100.0;
+        return new WorkflowStatusSnapshot(previous != null ? previous.version() + 1 : 1, workflow.getWorkflowId(),
+                workflow.getName(), workflow.getStatus(), workflow.getStartedAt(), workflow.getCompletedAt(), progress,
+                copy(workflow.getGlobalContext()), Collections.unmodifiableList(nodes));
+    }
+
+    /**
+     * 节点在快照时刻的状态
+     */
+    public record NodeState(NodeId nodeId, String name, NodeType type, NodeStatus status,
+                            Map<String, Object> inputData, Map<String, Object> outputData,
+                            Set<NodeId> dependencies, String errorMessage, long updatedAt) {
+
+        static NodeState from(WorkflowNode<?, ?> node) {
+            Object error = node.getMetadata().get("errorMessage");
+            return new NodeState(node.getNodeId(), node.getName(), node.getType(), node.getStatus(),
+                    copy(node.getInputData()), copy(node.getOutputData()), Set.copyOf(node.getDependencies()),
+                    error != null ? error.toString() : null, node.getUpdatedAt().getTime());
+        }
+    }
+
+    private static Map<String, Object> copy(Map<String, Object> source) {
+        return source == null || source.isEmpty() ? Map.of() : Collections.unmodifiableMap(new LinkedHashMap<>(source));
+    }
+}
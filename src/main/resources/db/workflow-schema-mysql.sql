@@ -0,0 +1,40 @@
+-- 工作流持久化表结构（MySQL 8，默认配置），nextgen.store.persistence.enabled=true 时使用
+
+CREATE TABLE IF NOT EXISTS nextgen_workflow_definition (
+    workflow_id  VARCHAR(64)  NOT NULL PRIMARY KEY,
+    name         VARCHAR(255) NOT NULL,
+    description  TEXT,
+    nodes        JSON         NOT NULL,
+    edges        JSON         NOT NULL,
+    created_at   DATETIME(3)  NOT NULL
+) ENGINE = InnoDB DEFAULT CHARSET = utf8mb4;
+
+CREATE TABLE IF NOT EXISTS nextgen_workflow_run (
+    workflow_id     VARCHAR(64)  NOT NULL PRIMARY KEY,
+    name            VARCHAR(255) NOT NULL,
+    description     TEXT,
+    status          VARCHAR(16)  NOT NULL,
+    global_context  JSON         NOT NULL,
+    created_at      DATETIME(3)  NOT NULL,
+    started_at      DATETIME(3),
+    completed_at    DATETIME(3),
+    updated_at      DATETIME(3)  NOT NULL,
+    INDEX idx_nextgen_workflow_run_status (status, updated_at),
+    CONSTRAINT fk_nextgen_workflow_run_definition FOREIGN KEY (workflow_id)
+        REFERENCES nextgen_workflow_definition (workflow_id) ON DELETE CASCADE
+) ENGINE = InnoDB DEFAULT CHARSET = utf8mb4;
+
+CREATE TABLE IF NOT EXISTS nextgen_node_state (
+    workflow_id    VARCHAR(64)  NOT NULL,
+    node_id        VARCHAR(64)  NOT NULL,
+    name           VARCHAR(255),
+    type           VARCHAR(32),
+    status         VARCHAR(16)  NOT NULL,
+    input_data     JSON,
+    output_data    JSON,
+    error_message  TEXT,
+    updated_at     DATETIME(3)  NOT NULL,
+    PRIMARY KEY (workflow_id, node_id),
+    CONSTRAINT fk_nextgen_node_state_run FOREIGN KEY (workflow_id)
+        REFERENCES nextgen_workflow_run (workflow_id) ON DELETE CASCADE
+) ENGINE = InnoDB DEFAULT CHARSET = utf8mb4;
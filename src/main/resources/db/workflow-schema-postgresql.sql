@@ -0,0 +1,37 @@
+-- 工作流持久化表结构（PostgreSQL，dev 配置），nextgen.store.persistence.enabled=true 时使用
+
+CREATE TABLE IF NOT EXISTS nextgen_workflow_definition (
+    workflow_id  VARCHAR(64) PRIMARY KEY,
+    name         VARCHAR(255) NOT NULL,
+    description  TEXT,
+    nodes        JSONB        NOT NULL,
+    edges        JSONB        NOT NULL,
+    created_at   TIMESTAMP    NOT NULL
+);
+
+CREATE TABLE IF NOT EXISTS nextgen_workflow_run (
+    workflow_id     VARCHAR(64) PRIMARY KEY REFERENCES nextgen_workflow_definition (workflow_id) ON DELETE CASCADE,
+    name            VARCHAR(255) NOT NULL,
+    description     TEXT,
+    status          VARCHAR(16)  NOT NULL,
+    global_context  JSONB        NOT NULL DEFAULT '{}'::jsonb,
+    created_at      TIMESTAMP    NOT NULL,
+    started_at      TIMESTAMP,
+    completed_at    TIMESTAMP,
+    updated_at      TIMESTAMP    NOT NULL
+);
+
+CREATE INDEX IF NOT EXISTS idx_nextgen_workflow_run_status ON nextgen_workflow_run (status, updated_at);
+
+CREATE TABLE IF NOT EXISTS nextgen_node_state (
+    workflow_id    VARCHAR(64) NOT NULL REFERENCES nextgen_workflow_run (workflow_id) ON DELETE CASCADE,
+    node_id        VARCHAR(64) NOT NULL,
+    name           VARCHAR(255),
+    type           VARCHAR(32),
+    status         VARCHAR(16) NOT NULL,
+    input_data     JSONB,
+    output_data    JSONB,
+    error_message  TEXT,
+    updated_at     TIMESTAMP   NOT NULL,
+    PRIMARY KEY (workflow_id, node_id)
+);
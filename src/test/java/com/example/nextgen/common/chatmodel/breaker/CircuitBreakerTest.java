@@ -0,0 +1,160 @@
+package com.example.nextgen.common.chatmodel.breaker;
+
+import com.example.nextgen.common.chatmodel.breaker.CircuitBreaker.State;
+import com.example.nextgen.common.chatmodel.limit.ModelOverloadedException;
+import org.junit.jupiter.api.Test;
+import org.springframework.ai.chat.messages.AssistantMessage;
+import org.springframework.ai.chat.model.ChatModel;
+import org.springframework.ai.chat.model.ChatResponse;
+import org.springframework.ai.chat.model.Generation;
+import org.springframework.ai.chat.prompt.Prompt;
+import reactor.core.publisher.Flux;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class CircuitBreakerTest {
+
+    private static final long FAST = TimeUnit.MILLISECONDS.toNanos(5);
+    private static final long SLOW = TimeUnit.MILLISECONDS.toNanos(5_000);
+    private static final long OPEN_MILLIS = 50;
+
+    @Test
+    void opensOnceFailureRateReachesThresholdWithEnoughCalls() {
+        CircuitBreaker breaker = breaker(1);
+
+        breaker.onFailure(FAST);
+        breaker.onFailure(FAST);
+        breaker.onSuccess(FAST);
+        assertThat(breaker.getState()).isEqualTo(State.CLOSED);
+
+        breaker.onFailure(FAST);
+        assertThat(breaker.getState()).isEqualTo(State.OPEN);
+    }
+
+    @Test
+    void opensOnSlowCallRate() {
+        CircuitBreaker breaker = breaker(1);
+        for (int i = 0; i < 4; i++) {
+            breaker.onSuccess(SLOW);
+        }
+        assertThat(breaker.getState()).isEqualTo(State.OPEN);
+    }
+
+    @Test
+    void failsFastWhileOpen() {
+        CircuitBreaker breaker = opened(1, 60_000);
+        AtomicInteger calls = new AtomicInteger();
+        ChatModel model = new CircuitBreakerChatModel(prompt -> {
+            calls.incrementAndGet();
+            return response();
+        }, breaker);
+
+        assertThatThrownBy(() -> model.call(new Prompt("hello"))).isInstanceOf(CallNotPermittedException.class);
+        assertThatThrownBy(() -> model.stream(new Prompt("hello")).blockLast())
+                .isInstanceOf(CallNotPermittedException.class);
+
+        assertThat(calls).hasValue(0);
+        assertThat(breaker.isCallPermitted()).isFalse();
+        assertThat(breaker.getNotPermittedCalls()).isEqualTo(2);
+    }
+
+    @Test
+    void halfOpenAdmitsSingleProbeAndClosesOnSuccess() throws InterruptedException {
+        CircuitBreaker breaker = opened(1);
+        Thread.sleep(OPEN_MILLIS * 2);
+
+        assertThat(breaker.isCallPermitted()).isTrue();
+        assertThat(breaker.tryAcquirePermission()).isTrue();
+        assertThat(breaker.getState()).isEqualTo(State.HALF_OPEN);
+        assertThat(breaker.tryAcquirePermission()).isFalse();
+
+        breaker.onSuccess(FAST);
+        assertThat(breaker.getState()).isEqualTo(State.CLOSED);
+        assertThat(breaker.getFailureRate()).isZero();
+        assertThat(breaker.tryAcquirePermission()).isTrue();
+    }
+
+    @Test
+    void failedProbeReopens() throws InterruptedException {
+        CircuitBreaker breaker = opened(1);
+        Thread.sleep(OPEN_MILLIS * 2);
+
+        assertThat(breaker.tryAcquirePermission()).isTrue();
+        breaker.onFailure(FAST);
+
+        assertThat(breaker.getState()).isEqualTo(State.OPEN);
+        assertThat(breaker.tryAcquirePermission()).isFalse();
+    }
+
+    @Test
+    void ignoredProbeReturnsItsSlot() throws InterruptedException {
+        CircuitBreaker breaker = opened(1);
+        Thread.sleep(OPEN_MILLIS * 2);
+        AtomicInteger calls = new AtomicInteger();
+        ChatModel model = new CircuitBreakerChatModel(prompt -> {
+            if (calls.incrementAndGet() == 1) {
+                throw new ModelOverloadedException("test", 1);
+            }
+            return response();
+        }, breaker);
+
+        // 本地限流拒绝不算后端故障，探测名额归还
+        assertThatThrownBy(() -> model.call(new Prompt("hello"))).isInstanceOf(ModelOverloadedException.class);
+        assertThat(breaker.getState()).isEqualTo(State.HALF_OPEN);
+
+        model.call(new Prompt("hello"));
+        assertThat(breaker.getState()).isEqualTo(State.CLOSED);
+    }
+
+    @Test
+    void probeCancelledAfterFirstDataCloses() throws InterruptedException {
+        CircuitBreaker breaker = opened(1);
+        Thread.sleep(OPEN_MILLIS * 2);
+        ChatModel model = new CircuitBreakerChatModel(new ChatModel() {
+            @Override
+            public ChatResponse call(Prompt prompt) {
+                throw new UnsupportedOperationException();
+            }
+
+            @Override
+            public Flux<ChatResponse> stream(Prompt prompt) {
+                return Flux.concat(Flux.just(response()), Flux.never());
+            }
+        }, breaker);
+
+        // 调用方拿到所需内容后取消，按成功记录
+        model.stream(new Prompt("hello")).take(1).blockLast();
+
+        assertThat(breaker.getState()).isEqualTo(State.CLOSED);
+    }
+
+    private static CircuitBreaker breaker(int halfOpenPermittedCalls) {
+        return breaker(halfOpenPermittedCalls, OPEN_MILLIS);
+    }
+
+    private static CircuitBreaker breaker(int halfOpenPermittedCalls, long openMillis) {
+        return new CircuitBreaker("test", 10, 4, 0.5, 0.8, 1_000, openMillis, halfOpenPermittedCalls);
+    }
+
+    private static CircuitBreaker opened(int halfOpenPermittedCalls) {
+        return opened(halfOpenPermittedCalls, OPEN_MILLIS);
+    }
+
+    private static CircuitBreaker opened(int halfOpenPermittedCalls, long openMillis) {
+        CircuitBreaker breaker = breaker(halfOpenPermittedCalls, openMillis);
+        for (int i = 0; i < 4; i++) {
+            breaker.onFailure(FAST);
+        }
+        assertThat(breaker.getState()).isEqualTo(State.OPEN);
+        return breaker;
+    }
+
+    private static ChatResponse response() {
+        return new ChatResponse(List.of(new Generation(new AssistantMessage("ok"))));
+    }
+}
@@ -0,0 +1,58 @@
+package com.example.nextgen.common.chatmodel.limit;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class AimdLimitTest {
+
+    private static final long FAST = TimeUnit.MILLISECONDS.toNanos(10);
+    private static final long SLOW = TimeUnit.MILLISECONDS.toNanos(2_000);
+
+    @Test
+    void increasesByOneOnlyWhenHalfTheLimitIsInUse() {
+        AimdLimit limit = new AimdLimit(10, 1, 20, 0.5, 1_000);
+
+        limit.onSample(FAST, 4, false);
+        assertThat(limit.getLimit()).isEqualTo(10);
+
+        limit.onSample(FAST, 5, false);
+        assertThat(limit.getLimit()).isEqualTo(11);
+        limit.onSample(FAST, 11, false);
+        assertThat(limit.getLimit()).isEqualTo(12);
+    }
+
+    @Test
+    void backsOffMultiplicativelyOnDropOrTimeout() {
+        AimdLimit limit = new AimdLimit(16, 1, 20, 0.5, 1_000);
+
+        limit.onSample(FAST, 16, true);
+        assertThat(limit.getLimit()).isEqualTo(8);
+
+        limit.onSample(SLOW, 8, false);
+        assertThat(limit.getLimit()).isEqualTo(4);
+    }
+
+    @Test
+    void staysWithinBounds() {
+        AimdLimit limit = new AimdLimit(50, 2, 4, 0.5, 1_000);
+        assertThat(limit.getLimit()).isEqualTo(4);
+
+        limit.onSample(FAST, 4, false);
+        assertThat(limit.getLimit()).isEqualTo(4);
+
+        for (int i = 0; i < 5; i++) {
+            limit.onSample(FAST, 4, true);
+        }
+        assertThat(limit.getLimit()).isEqualTo(2);
+    }
+
+    @Test
+    void rejectsInvalidBackoffRatio() {
+        assertThatThrownBy(() -> new AimdLimit(10, 1, 20, 1.0, 1_000)).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> new AimdLimit(10, 1, 20, 0.0, 1_000)).isInstanceOf(IllegalArgumentException.class);
+    }
+}
@@ -0,0 +1,134 @@
+package com.example.nextgen.common.chatmodel.limit;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.ai.chat.messages.AssistantMessage;
+import org.springframework.ai.chat.model.ChatModel;
+import org.springframework.ai.chat.model.ChatResponse;
+import org.springframework.ai.chat.model.Generation;
+import org.springframework.ai.chat.prompt.Prompt;
+import org.springframework.ai.retry.NonTransientAiException;
+import org.springframework.ai.retry.TransientAiException;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class ConcurrencyLimitedChatModelTest {
+
+    private static final Prompt PROMPT = new Prompt("hello");
+
+    @Test
+    void successfulCallReleasesPermitAndRecordsSample() {
+        AdaptiveConcurrencyLimiter limiter = limiter(2, 0);
+        ChatModel model = new ConcurrencyLimitedChatModel(prompt -> response("ok"), limiter);
+
+        model.call(PROMPT);
+
+        assertThat(limiter.getInFlight()).isZero();
+        assertThat(limiter.getAcquired()).isEqualTo(1);
+        // 在途 1 个，达到上限 2 的一半，上限加一
+        assertThat(limiter.getLimit()).isEqualTo(3);
+    }
+
+    @Test
+    void overloadErrorReleasesPermitAndBacksOff() {
+        AdaptiveConcurrencyLimiter limiter = limiter(8, 0);
+        ChatModel model = new ConcurrencyLimitedChatModel(prompt -> {
+            throw new TransientAiException("503 Service Unavailable");
+        }, limiter);
+
+        assertThatThrownBy(() -> model.call(PROMPT)).isInstanceOf(TransientAiException.class);
+
+        assertThat(limiter.getInFlight()).isZero();
+        assertThat(limiter.getDrops()).isEqualTo(1);
+        assertThat(limiter.getLimit()).isEqualTo(4);
+    }
+
+    @Test
+    void otherErrorReleasesPermitWithoutChangingLimit() {
+        AdaptiveConcurrencyLimiter limiter = limiter(8, 0);
+        ChatModel model = new ConcurrencyLimitedChatModel(prompt -> {
+            throw new NonTransientAiException("400 Bad Request");
+        }, limiter);
+
+        assertThatThrownBy(() -> model.call(PROMPT)).isInstanceOf(NonTransientAiException.class);
+
+        assertThat(limiter.getInFlight()).isZero();
+        assertThat(limiter.getDrops()).isZero();
+        assertThat(limiter.getLimit()).isEqualTo(8);
+    }
+
+    @Test
+    void streamReleasesPermitOnCompleteErrorAndCancel() {
+        AdaptiveConcurrencyLimiter limiter = limiter(4, 0);
+
+        new ConcurrencyLimitedChatModel(streaming(Flux.just(response("a"), response("b"))), limiter)
+                .stream(PROMPT).blockLast();
+        assertThat(limiter.getInFlight()).isZero();
+
+        Flux<ChatResponse> failing = new ConcurrencyLimitedChatModel(
+                streaming(Flux.error(new TransientAiException("429 Too Many Requests"))), limiter).stream(PROMPT);
+        assertThatThrownBy(failing::blockLast).isInstanceOf(TransientAiException.class);
+        assertThat(limiter.getInFlight()).isZero();
+        assertThat(limiter.getDrops()).isEqualTo(1);
+
+        Disposable subscription = new ConcurrencyLimitedChatModel(streaming(Flux.never()), limiter)
+                .stream(PROMPT).subscribe();
+        assertThat(limiter.getInFlight()).isEqualTo(1);
+        subscription.dispose();
+        assertThat(limiter.getInFlight()).isZero();
+    }
+
+    @Test
+    void cancelAfterFirstDataCountsAsSuccess() {
+        AdaptiveConcurrencyLimiter limiter = limiter(2, 0);
+
+        Disposable subscription = new ConcurrencyLimitedChatModel(
+                streaming(Flux.concat(Flux.just(response("a")), Flux.never())), limiter).stream(PROMPT).subscribe();
+        subscription.dispose();
+
+        assertThat(limiter.getInFlight()).isZero();
+        assertThat(limiter.getLimit()).isEqualTo(3);
+    }
+
+    @Test
+    void rejectsWhenFullAfterMaxWait() {
+        AdaptiveConcurrencyLimiter limiter = limiter(1, 20);
+        AdaptiveConcurrencyLimiter.Permit held = limiter.acquire();
+
+        assertThatThrownBy(limiter::acquire).isInstanceOf(ModelOverloadedException.class);
+        assertThat(limiter.getRejections()).isEqualTo(1);
+
+        held.onSuccess();
+        // 重复释放不会多减在途数
+        held.onIgnore();
+        assertThat(limiter.getInFlight()).isZero();
+        limiter.acquire().onIgnore();
+        assertThat(limiter.getInFlight()).isZero();
+    }
+
+    private static AdaptiveConcurrencyLimiter limiter(int initialLimit, long maxWaitMillis) {
+        return new AdaptiveConcurrencyLimiter("test", new AimdLimit(initialLimit, 1, 16, 0.5, 60_000), maxWaitMillis);
+    }
+
+    private static ChatResponse response(String text) {
+        return new ChatResponse(List.of(new Generation(new AssistantMessage(text))));
+    }
+
+    private static ChatModel streaming(Flux<ChatResponse> responses) {
+        return new ChatModel() {
+            @Override
+            public ChatResponse call(Prompt prompt) {
+                throw new UnsupportedOperationException();
+            }
+
+            @Override
+            public Flux<ChatResponse> stream(Prompt prompt) {
+                return responses;
+            }
+        };
+    }
+}
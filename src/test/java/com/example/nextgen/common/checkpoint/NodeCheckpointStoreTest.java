@@ -0,0 +1,144 @@
+package com.example.nextgen.common.checkpoint;
+
+import com.example.nextgen.common.repository.ShardedWorkflowRepository;
+import com.example.nextgen.common.repository.WorkflowStoreProperties;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.support.StaticListableBeanFactory;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class NodeCheckpointStoreTest {
+
+    private static final ObjectProvider<MeterRegistry> NO_METERS =
+            new StaticListableBeanFactory().getBeanProvider(MeterRegistry.class);
+
+    @TempDir
+    Path directory;
+
+    private ShardedWorkflowRepository repository;
+    private CheckpointProperties properties;
+
+    @BeforeEach
+    void setUp() {
+        repository = new ShardedWorkflowRepository(new WorkflowStoreProperties(), NO_METERS);
+        properties = new CheckpointProperties();
+        properties.setEnabled(true);
+        properties.setDirectory(directory.toString());
+        properties.setSegmentBytes(64 * 1024);
+        // 回收只由测试显式触发
+        properties.setFlushIntervalMillis(3_600_000);
+    }
+
+    @AfterEach
+    void tearDown() {
+        repository.shutdown();
+    }
+
+    @Test
+    void restartScansSegmentsAndRebuildsIndexes() throws IOException {
+        NodeCheckpointStore store = new NodeCheckpointStore(properties, repository, NO_METERS);
+        store.save(checkpoint("run-1", "extract", "hash-1", System.currentTimeMillis()));
+        store.save(checkpoint("run-1", "summarize", null, System.currentTimeMillis()));
+        store.shutdown();
+
+        NodeCheckpointStore reopened = new NodeCheckpointStore(properties, repository, NO_METERS);
+
+        NodeCheckpoint found = reopened.find("run-1", "extract").orElseThrow();
+        assertThat(found.output()).containsEntry("value", "extract-output");
+        assertThat(found.metadata()).containsEntry("attempt", 1);
+        assertThat(reopened.find("run-1", "summarize")).isPresent();
+        assertThat(reopened.findByInputHash("report", "extract", "hash-1")).isPresent();
+        assertThat(reopened.findByInputHash("report", "summarize", "hash-1")).isEmpty();
+
+        // 已有的段只读映射，新记录写入新段
+        reopened.save(checkpoint("run-2", "extract", null, System.currentTimeMillis()));
+        assertThat(reopened.getSegmentCount()).isEqualTo(2);
+        assertThat(segmentFiles()).hasSize(2);
+        reopened.shutdown();
+    }
+
+    @Test
+    void scanStopsAtCorruptRecord() throws IOException {
+        NodeCheckpointStore store = new NodeCheckpointStore(properties, repository, NO_METERS);
+        store.save(checkpoint("run-1", "first", null, System.currentTimeMillis()));
+        store.save(checkpoint("run-1", "second", null, System.currentTimeMillis()));
+        store.save(checkpoint("run-1", "third", null, System.currentTimeMillis()));
+        store.shutdown();
+
+        Path segment = segmentFiles().get(0);
+        byte[] bytes = Files.readAllBytes(segment);
+        int secondRecord = 8 + ByteBuffer.wrap(bytes).getInt();
+        bytes[secondRecord + 8] ^= 0x5A;
+        Files.write(segment, bytes);
+
+        NodeCheckpointStore reopened = new NodeCheckpointStore(properties, repository, NO_METERS);
+        assertThat(reopened.find("run-1", "first")).isPresent();
+        assertThat(reopened.find("run-1", "second")).isEmpty();
+        assertThat(reopened.find("run-1", "third")).isEmpty();
+        reopened.shutdown();
+    }
+
+    @Test
+    void reclaimsSegmentsWithoutLiveCheckpoints() throws IOException {
+        // 每个段只放得下一条记录
+        properties.setSegmentBytes(64);
+        NodeCheckpointStore store = new NodeCheckpointStore(properties, repository, NO_METERS);
+        store.save(checkpoint("run-1", "extract", null, System.currentTimeMillis()));
+        store.save(checkpoint("run-2", "extract", null, System.currentTimeMillis()));
+        store.save(checkpoint("run-3", "extract", null, System.currentTimeMillis()));
+        assertThat(store.getSegmentCount()).isEqualTo(3);
+
+        store.discard("run-1");
+        store.discard("run-3");
+        store.maintain();
+
+        // 活动段即使没有检查点也保留
+        assertThat(store.getSegmentCount()).isEqualTo(2);
+        assertThat(segmentFiles()).hasSize(2);
+        assertThat(store.find("run-1", "extract")).isEmpty();
+        assertThat(store.find("run-2", "extract")).isPresent();
+        store.shutdown();
+    }
+
+    @Test
+    void reclaimsExpiredSegmentsAndTheirHashEntries() throws IOException {
+        properties.setSegmentBytes(64);
+        properties.setRetentionHours(1);
+        NodeCheckpointStore store = new NodeCheckpointStore(properties, repository, NO_METERS);
+        long twoHoursAgo = System.currentTimeMillis() - 2 * 3_600_000L;
+        store.save(checkpoint("run-1", "extract", "hash-1", twoHoursAgo));
+        store.save(checkpoint("run-2", "extract", "hash-2", System.currentTimeMillis()));
+
+        store.maintain();
+
+        assertThat(store.getSegmentCount()).isEqualTo(1);
+        assertThat(store.find("run-1", "extract")).isEmpty();
+        assertThat(store.findByInputHash("report", "extract", "hash-1")).isEmpty();
+        assertThat(store.findByInputHash("report", "extract", "hash-2")).isPresent();
+        store.shutdown();
+    }
+
+    private static NodeCheckpoint checkpoint(String workflowId, String nodeName, String inputHash, long timestamp) {
+        return new NodeCheckpoint(workflowId, "report", nodeName + "-id", nodeName, inputHash, timestamp,
+                Map.of("value", nodeName + "-output"), Map.of("attempt", 1));
+    }
+
+    private List<Path> segmentFiles() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.filter(file -> file.getFileName().toString().endsWith(".dat")).sorted().toList();
+        }
+    }
+}
@@ -0,0 +1,171 @@
+package com.example.nextgen.common.journal;
+
+import com.example.nextgen.common.repository.ShardedWorkflowRepository;
+import com.example.nextgen.common.repository.WorkflowStoreProperties;
+import com.example.nextgen.domain.event.WorkflowEvent;
+import com.example.nextgen.domain.node.EchoNode;
+import com.example.nextgen.domain.workflow.Workflow;
+import com.example.nextgen.domain.workflow.WorkflowId;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.support.StaticListableBeanFactory;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class WorkflowJournalTest {
+
+    private static final ObjectProvider<MeterRegistry> NO_METERS =
+            new StaticListableBeanFactory().getBeanProvider(MeterRegistry.class);
+
+    @TempDir
+    Path directory;
+
+    private ShardedWorkflowRepository repository;
+    private JournalProperties properties;
+
+    @BeforeEach
+    void setUp() {
+        repository = new ShardedWorkflowRepository(new WorkflowStoreProperties(), NO_METERS);
+        properties = new JournalProperties();
+        properties.setEnabled(true);
+        properties.setDirectory(directory.toString());
+    }
+
+    @AfterEach
+    void tearDown() {
+        repository.shutdown();
+    }
+
+    @Test
+    void recoversUnfinishedRunAndIgnoresTornTail() throws IOException {
+        Workflow workflow = startedWorkflow("first");
+        EchoNode first = node(workflow, "first");
+        WorkflowJournal journal = new WorkflowJournal(properties, repository, NO_METERS);
+        journal.onEvent(new WorkflowEvent.WorkflowStarted(workflow.getWorkflowId(), workflow.getName()));
+        first.run(Map.of("answer", 42));
+        journal.onEvent(new WorkflowEvent.NodeCompleted(first.getNodeId(), "first", first.getOutputData()));
+        journal.shutdown();
+
+        // 崩溃时写了一半的记录：头部声明的长度超过实际写入的内容
+        Path segment = single(segmentFiles());
+        ByteBuffer torn = ByteBuffer.allocate(26).putInt(100).putInt(0).putLong(3).put(new byte[10]);
+        Files.write(segment, torn.array(), StandardOpenOption.APPEND);
+
+        WorkflowJournal reopened = new WorkflowJournal(properties, repository, NO_METERS);
+        List<RecoveredRun> runs = reopened.getRecoveredRuns();
+
+        assertThat(runs).hasSize(1);
+        RecoveredRun run = runs.get(0);
+        assertThat(run.workflowId()).isEqualTo(workflow.getWorkflowId().getValue());
+        assertThat(run.workflowName()).isEqualTo("journal-test");
+        assertThat(run.initialContext()).containsEntry("tenant", "acme");
+        assertThat(run.snapshot()).isNull();
+        assertThat(run.tail()).extracting(JournalEntry::type)
+                .containsExactly(JournalEntry.WORKFLOW_STARTED, JournalEntry.NODE_COMPLETED);
+        assertThat(run.tail()).extracting(JournalEntry::sequence).containsExactly(1L, 2L);
+        JournalEntry completed = run.tail().get(1);
+        assertThat(completed.nodeName()).isEqualTo("first");
+        assertThat(((Map<?, ?>) completed.data().get("output")).get("answer")).isEqualTo(42);
+
+        // 新记录写入新段，序号接着已读到的最后一条；运行结束后日志全部回收
+        reopened.onEvent(new WorkflowEvent.WorkflowCompleted(workflow.getWorkflowId(), workflow.getName(), Map.of()));
+        reopened.shutdown();
+        assertThat(segmentFiles()).isEmpty();
+
+        WorkflowJournal afterFinish = new WorkflowJournal(properties, repository, NO_METERS);
+        assertThat(afterFinish.getRecoveredRuns()).isEmpty();
+        afterFinish.shutdown();
+    }
+
+    @Test
+    void corruptRecordStopsReplayOfItsSegment() throws IOException {
+        Workflow workflow = startedWorkflow("first");
+        EchoNode first = node(workflow, "first");
+        WorkflowJournal journal = new WorkflowJournal(properties, repository, NO_METERS);
+        journal.onEvent(new WorkflowEvent.WorkflowStarted(workflow.getWorkflowId(), workflow.getName()));
+        first.run(Map.of("answer", 42));
+        journal.onEvent(new WorkflowEvent.NodeCompleted(first.getNodeId(), "first", first.getOutputData()));
+        journal.shutdown();
+
+        Path segment = single(segmentFiles());
+        byte[] bytes = Files.readAllBytes(segment);
+        int firstRecord = 16 + ByteBuffer.wrap(bytes).getInt();
+        bytes[firstRecord + 16] ^= 0x5A;
+        Files.write(segment, bytes);
+
+        WorkflowJournal reopened = new WorkflowJournal(properties, repository, NO_METERS);
+        assertThat(single(reopened.getRecoveredRuns()).tail()).extracting(JournalEntry::type)
+                .containsExactly(JournalEntry.WORKFLOW_STARTED);
+        reopened.shutdown();
+    }
+
+    @Test
+    void snapshotReplacesEarlierRecords() throws IOException {
+        properties.setSnapshotEveryEvents(1);
+        Workflow workflow = startedWorkflow("first", "second");
+        EchoNode first = node(workflow, "first");
+        WorkflowJournal journal = new WorkflowJournal(properties, repository, NO_METERS);
+        journal.onEvent(new WorkflowEvent.WorkflowStarted(workflow.getWorkflowId(), workflow.getName()));
+        first.run(Map.of("answer", 42));
+        workflow.onNodeCompleted(first.getNodeId());
+        journal.onEvent(new WorkflowEvent.NodeCompleted(first.getNodeId(), "first", first.getOutputData()));
+        journal.shutdown();
+
+        WorkflowJournal reopened = new WorkflowJournal(properties, repository, NO_METERS);
+        RecoveredRun run = single(reopened.getRecoveredRuns());
+
+        assertThat(run.snapshot()).isNotNull();
+        assertThat(run.snapshot().lastSequence()).isEqualTo(2L);
+        assertThat(run.snapshot().nodes().get("first").status()).isEqualTo("COMPLETED");
+        assertThat(run.snapshot().nodes().get("first").outputData()).containsEntry("answer", 42);
+        assertThat(run.snapshot().nodes().get("second").status()).isEqualTo("IDLE");
+        assertThat(run.snapshot().globalContext()).containsEntry("answer", 42).containsEntry("tenant", "acme");
+        assertThat(run.tail()).isEmpty();
+        reopened.shutdown();
+    }
+
+    private Workflow startedWorkflow(String... nodeNames) {
+        Workflow workflow = Workflow.builder()
+                .workflowId(WorkflowId.generate())
+                .name("journal-test")
+                .build();
+        for (String name : nodeNames) {
+            workflow.addNode(new EchoNode(name));
+        }
+        workflow.getGlobalContext().put("tenant", "acme");
+        workflow.start();
+        repository.save(workflow);
+        return workflow;
+    }
+
+    private static EchoNode node(Workflow workflow, String name) {
+        return (EchoNode) workflow.getNodes().values().stream()
+                .filter(node -> name.equals(((EchoNode) node).getName()))
+                .findFirst()
+                .orElseThrow();
+    }
+
+    private List<Path> segmentFiles() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.filter(file -> file.getFileName().toString().endsWith(".log")).toList();
+        }
+    }
+
+    private static <T> T single(List<T> values) {
+        assertThat(values).hasSize(1);
+        return values.get(0);
+    }
+}
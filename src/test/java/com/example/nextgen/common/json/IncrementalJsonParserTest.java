@@ -0,0 +1,107 @@
+package com.example.nextgen.common.json;
+
+import com.alibaba.fastjson2.JSONArray;
+import com.alibaba.fastjson2.JSONObject;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class IncrementalJsonParserTest {
+
+    @Test
+    void parsesKeysAndValuesSplitAcrossChunks() {
+        List<String> completed = new ArrayList<>();
+        IncrementalJsonParser parser = new IncrementalJsonParser((field, value) -> completed.add(field));
+        String json = "{\"title\": \"Quarterly report\", \"pages\": 12, \"draft\": false}";
+
+        // 逐字符喂入，键、值和分隔符都被切开
+        for (int i = 0; i < json.length(); i++) {
+            parser.feed(json.substring(i, i + 1));
+            if (i == json.indexOf(", \"pages\"")) {
+                assertThat(parser.getFields()).containsOnlyKeys("title");
+                assertThat(parser.isComplete()).isFalse();
+            }
+        }
+
+        assertThat(completed).containsExactly("title", "pages", "draft");
+        assertThat(parser.getFields())
+                .containsEntry("title", "Quarterly report")
+                .containsEntry("pages", 12)
+                .containsEntry("draft", false);
+        assertThat(parser.isComplete()).isTrue();
+        assertThat(parser.hasFields(Set.of("title", "pages"))).isTrue();
+    }
+
+    @Test
+    void handlesEscapedQuotesAndBackslashes() {
+        IncrementalJsonParser parser = new IncrementalJsonParser(null);
+
+        parser.feed("{\"quote\": \"she said \\\"hi\\");
+        // 转义符和被转义的引号落在两个分片里
+        parser.feed("\" then left\", \"path\": \"C:\\\\data\\\\\", \"k\\\"ey\": 1}");
+
+        assertThat(parser.getFields())
+                .containsEntry("quote", "she said \"hi\" then left")
+                .containsEntry("path", "C:\\data\\")
+                .containsEntry("k\"ey", 1);
+        assertThat(parser.isComplete()).isTrue();
+    }
+
+    @Test
+    void emitsNestedObjectsAndArraysWhenTheyClose() {
+        List<String> completed = new ArrayList<>();
+        IncrementalJsonParser parser = new IncrementalJsonParser((field, value) -> completed.add(field));
+
+        parser.feed("{\"company\": {\"name\": \"A}\", \"tags\": [\"x\", \"]\"]}, \"items\": [1, [2, 3], {\"k\": ");
+        assertThat(completed).containsExactly("company");
+
+        parser.feed("null}], \"done\": true}");
+
+        JSONObject company = (JSONObject) parser.getFields().get("company");
+        assertThat(company.getString("name")).isEqualTo("A}");
+        assertThat(company.getJSONArray("tags")).containsExactly("x", "]");
+        JSONArray items = (JSONArray) parser.getFields().get("items");
+        assertThat(items).hasSize(3);
+        assertThat(items.getJSONArray(1)).containsExactly(2, 3);
+        assertThat(completed).containsExactly("company", "items", "done");
+    }
+
+    @Test
+    void ignoresPreambleAndTrailingText() {
+        IncrementalJsonParser parser = new IncrementalJsonParser(null);
+
+        parser.feed("Sure, here is the result:\n```js");
+        parser.feed("on\n{\"answer\": \"42\"}\n```\nLet me know {if} you need more.");
+
+        assertThat(parser.getFields()).containsOnlyKeys("answer");
+        assertThat(parser.isComplete()).isTrue();
+        assertThat(parser.getText()).startsWith("Sure");
+    }
+
+    @Test
+    void parsesNumberAsLastValue() {
+        IncrementalJsonParser parser = new IncrementalJsonParser(null);
+
+        parser.feed("{\"name\": \"x\", \"score\": 3.");
+        assertThat(parser.getFields()).containsOnlyKeys("name");
+        parser.feed("5 }");
+
+        assertThat(parser.getFields()).containsEntry("score", new BigDecimal("3.5"));
+        assertThat(parser.isComplete()).isTrue();
+    }
+
+    @Test
+    void skipsInvalidValueAndKeepsParsing() {
+        IncrementalJsonParser parser = new IncrementalJsonParser(null);
+
+        parser.feed("{\"broken\": tru, \"ok\": 1}");
+
+        assertThat(parser.getFields()).containsOnlyKeys("ok");
+        assertThat(parser.hasFields(Set.of("broken"))).isFalse();
+    }
+}
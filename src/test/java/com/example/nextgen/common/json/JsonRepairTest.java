@@ -0,0 +1,65 @@
+package com.example.nextgen.common.json;
+
+import com.alibaba.fastjson2.JSON;
+import com.alibaba.fastjson2.JSONObject;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class JsonRepairTest {
+
+    @Test
+    void removesTrailingCommas() {
+        JSONObject object = parse("{\"a\": 1, \"b\": [1, 2, ], \"c\": {\"d\": true,\n},\n}");
+
+        assertThat(object.getIntValue("a")).isEqualTo(1);
+        assertThat(object.getJSONArray("b")).containsExactly(1, 2);
+        assertThat(object.getJSONObject("c").getBooleanValue("d")).isTrue();
+    }
+
+    @Test
+    void escapesRawControlCharactersInStrings() {
+        JSONObject object = parse("{\"text\": \"line one\nline two\r\n\tindented\"}");
+
+        assertThat(object.getString("text")).isEqualTo("line one\nline two\r\n\tindented");
+    }
+
+    @Test
+    void keepsEscapesAndBracketsInsideStrings() {
+        JSONObject object = parse("{\"text\": \"a \\\"quoted\\\" } ] value,\", \"path\": \"C:\\\\tmp\",}");
+
+        assertThat(object.getString("text")).isEqualTo("a \"quoted\" } ] value,");
+        assertThat(object.getString("path")).isEqualTo("C:\\tmp");
+    }
+
+    @Test
+    void closesTruncatedStringsAndBrackets() {
+        assertThat(parse("{\"summary\": \"revenue gr").getString("summary")).isEqualTo("revenue gr");
+        assertThat(parse("{\"summary\": \"ends with escape\\").getString("summary")).isEqualTo("ends with escape");
+
+        JSONObject nested = parse("{\"items\": [1, {\"name\": \"x\", \"tags\": [\"a\", ");
+        assertThat(nested.getJSONArray("items").getJSONObject(1).getJSONArray("tags")).containsExactly("a");
+
+        assertThat(parse("{\"a\": 1, \"b\":").containsKey("b")).isTrue();
+        assertThat(parse("{\"a\": 1, \"b\":").get("b")).isNull();
+        assertThat(parse("{\"a\": 1,")).containsOnlyKeys("a");
+    }
+
+    @Test
+    void stripsPreambleAndCodeFence() {
+        String repaired = JsonRepair.repair("Here you go:\n```json\n{\"answer\": \"42\"}\n```\nAnything else?");
+
+        assertThat(repaired).isEqualTo("{\"answer\": \"42\"}");
+        assertThat(JsonRepair.repair("[1, 2,]")).isEqualTo("[1, 2]");
+    }
+
+    @Test
+    void leavesTextWithoutJsonUnchanged() {
+        assertThat(JsonRepair.repair("  no json here  ")).isEqualTo("no json here");
+        assertThat(JsonRepair.repair(null)).isNull();
+    }
+
+    private static JSONObject parse(String text) {
+        return JSON.parseObject(JsonRepair.repair(text));
+    }
+}
@@ -0,0 +1,182 @@
+package com.example.nextgen.common.repository;
+
+import com.example.nextgen.domain.node.EchoNode;
+import com.example.nextgen.domain.node.NodeStatus;
+import com.example.nextgen.domain.workflow.Workflow;
+import com.example.nextgen.domain.workflow.WorkflowArchive;
+import com.example.nextgen.domain.workflow.WorkflowId;
+import com.example.nextgen.domain.workflow.WorkflowStatus;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.support.StaticListableBeanFactory;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.BooleanSupplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ShardedWorkflowRepositoryTest {
+
+    private static final ObjectProvider<MeterRegistry> NO_METERS =
+            new StaticListableBeanFactory().getBeanProvider(MeterRegistry.class);
+
+    @TempDir
+    Path directory;
+
+    private ShardedWorkflowRepository repository;
+
+    @AfterEach
+    void tearDown() {
+        if (repository != null) {
+            repository.shutdown();
+        }
+    }
+
+    @Test
+    void evictsEarliestTerminalWorkflowsBeyondTheLimit() {
+        repository = repository(2, null);
+        Workflow running = workflow(WorkflowId.generate(), WorkflowStatus.RUNNING);
+        Workflow first = workflow(WorkflowId.generate(), WorkflowStatus.COMPLETED);
+        Workflow second = workflow(WorkflowId.generate(), WorkflowStatus.FAILED);
+        Workflow third = workflow(WorkflowId.generate(), WorkflowStatus.COMPLETED);
+
+        repository.save(running);
+        repository.save(first);
+        repository.save(second);
+        // 重复保存不改变进入终态的顺序
+        repository.save(first);
+        repository.save(third);
+
+        assertThat(repository.findById(first.getWorkflowId())).isEmpty();
+        assertThat(repository.findById(second.getWorkflowId())).isPresent();
+        assertThat(repository.findById(third.getWorkflowId())).isPresent();
+        assertThat(repository.findById(running.getWorkflowId())).isPresent();
+        assertThat(repository.count()).isEqualTo(3);
+    }
+
+    @Test
+    void evictsTerminalWorkflowsAfterTheirTtl() throws InterruptedException {
+        WorkflowStoreProperties properties = properties(100, null);
+        properties.setTerminalTtlMinutes(10);
+        properties.setSweepIntervalSeconds(1);
+        repository = new ShardedWorkflowRepository(properties, NO_METERS);
+        Workflow expired = workflow(WorkflowId.generate(), WorkflowStatus.COMPLETED, LocalDateTime.now().minusHours(1));
+        Workflow recent = workflow(WorkflowId.generate(), WorkflowStatus.COMPLETED, LocalDateTime.now().minusMinutes(1));
+        Workflow running = workflow(WorkflowId.generate(), WorkflowStatus.RUNNING);
+        repository.save(expired);
+        repository.save(recent);
+        repository.save(running);
+
+        assertThat(waitUntil(() -> repository.findById(expired.getWorkflowId()).isEmpty())).isTrue();
+        assertThat(repository.findById(recent.getWorkflowId())).isPresent();
+        assertThat(repository.findById(running.getWorkflowId())).isPresent();
+    }
+
+    @Test
+    void workflowLeavingTerminalStateIsNoLongerEvicted() {
+        repository = repository(1, null);
+        WorkflowId workflowId = WorkflowId.generate();
+        repository.save(workflow(workflowId, WorkflowStatus.FAILED));
+        // 重试后回到运行状态
+        repository.save(workflow(workflowId, WorkflowStatus.RUNNING));
+
+        Workflow other = workflow(WorkflowId.generate(), WorkflowStatus.COMPLETED);
+        Workflow latest = workflow(WorkflowId.generate(), WorkflowStatus.COMPLETED);
+        repository.save(other);
+        repository.save(latest);
+
+        assertThat(repository.findById(workflowId)).map(Workflow::getStatus).contains(WorkflowStatus.RUNNING);
+        assertThat(repository.findById(other.getWorkflowId())).isEmpty();
+        assertThat(repository.findById(latest.getWorkflowId())).isPresent();
+    }
+
+    @Test
+    void evictedWorkflowsAreArchivedAndCanBeDeleted() throws InterruptedException {
+        Path spill = directory.resolve("archive");
+        repository = repository(1, spill);
+        EchoNode node = new EchoNode("summary");
+        node.run(Map.of("summary", "short"));
+        Workflow archived = Workflow.builder().workflowId(WorkflowId.generate()).name("report")
+                .status(WorkflowStatus.COMPLETED).completedAt(LocalDateTime.now())
+                .nodes(new HashMap<>(Map.of(node.getNodeId(), node)))
+                .build();
+        archived.getGlobalContext().put("summary", "short");
+        repository.save(archived);
+        repository.save(workflow(WorkflowId.generate(), WorkflowStatus.COMPLETED));
+
+        assertThat(repository.findById(archived.getWorkflowId())).isEmpty();
+        assertThat(waitUntil(() -> repository.findArchived(archived.getWorkflowId()).isPresent())).isTrue();
+        WorkflowArchive archive = repository.findArchived(archived.getWorkflowId()).orElseThrow();
+        assertThat(archive.workflowId()).isEqualTo(archived.getWorkflowId().getValue());
+        assertThat(archive.name()).isEqualTo("report");
+        assertThat(archive.status()).isEqualTo(WorkflowStatus.COMPLETED);
+        assertThat(archive.globalContext()).containsEntry("summary", "short");
+        assertThat(archive.nodes()).singleElement().satisfies(state -> {
+            assertThat(state.name()).isEqualTo("summary");
+            assertThat(state.status()).isEqualTo(NodeStatus.COMPLETED);
+            assertThat(state.outputData()).containsEntry("summary", "short");
+        });
+
+        Path file = spill.resolve(archived.getWorkflowId().getValue() + ".json");
+        assertThat(file).exists();
+        assertThat(repository.delete(archived.getWorkflowId())).isTrue();
+        assertThat(file).doesNotExist();
+        assertThat(repository.findArchived(archived.getWorkflowId())).isEmpty();
+        assertThat(repository.delete(archived.getWorkflowId())).isFalse();
+    }
+
+    @Test
+    void findArchivedIsEmptyWithoutSpillDirectory() {
+        repository = repository(1, null);
+        WorkflowId workflowId = WorkflowId.generate();
+        repository.save(workflow(workflowId, WorkflowStatus.COMPLETED));
+        repository.save(workflow(WorkflowId.generate(), WorkflowStatus.COMPLETED));
+
+        assertThat(repository.findById(workflowId)).isEmpty();
+        assertThat(repository.findArchived(workflowId)).isEmpty();
+        assertThat(Files.exists(directory.resolve("archive"))).isFalse();
+    }
+
+    private static ShardedWorkflowRepository repository(int maxTerminal, Path spillDirectory) {
+        return new ShardedWorkflowRepository(properties(maxTerminal, spillDirectory), NO_METERS);
+    }
+
+    /**
+     * 单分片，使数量上限和回收顺序可预期
+     */
+    private static WorkflowStoreProperties properties(int maxTerminal, Path spillDirectory) {
+        WorkflowStoreProperties properties = new WorkflowStoreProperties();
+        properties.setShards(1);
+        properties.setMaxTerminal(maxTerminal);
+        if (spillDirectory != null) {
+            properties.setSpillDirectory(spillDirectory.toString());
+        }
+        return properties;
+    }
+
+    private static Workflow workflow(WorkflowId workflowId, WorkflowStatus status) {
+        return workflow(workflowId, status, status.isTerminal() ? LocalDateTime.now() : null);
+    }
+
+    private static Workflow workflow(WorkflowId workflowId, WorkflowStatus status, LocalDateTime completedAt) {
+        return Workflow.builder().workflowId(workflowId).name("store-test").status(status).completedAt(completedAt).build();
+    }
+
+    private static boolean waitUntil(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5_000;
+        while (!condition.getAsBoolean()) {
+            if (System.currentTimeMillis() > deadline) {
+                return false;
+            }
+            Thread.sleep(20);
+        }
+        return true;
+    }
+}
@@ -0,0 +1,145 @@
+package com.example.nextgen.common.repository.mybatis;
+
+import com.example.nextgen.common.repository.ShardedWorkflowRepository;
+import com.example.nextgen.common.repository.WorkflowStoreProperties;
+import com.example.nextgen.domain.event.WorkflowEvent;
+import com.example.nextgen.domain.node.EchoNode;
+import com.example.nextgen.domain.workflow.Workflow;
+import com.example.nextgen.domain.workflow.WorkflowId;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.support.StaticListableBeanFactory;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.after;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoMoreInteractions;
+import static org.mockito.Mockito.when;
+
+class MybatisWorkflowRepositoryTest {
+
+    private static final ObjectProvider<MeterRegistry> NO_METERS =
+            new StaticListableBeanFactory().getBeanProvider(MeterRegistry.class);
+
+    private final WorkflowPersistenceMapper mapper = mock(WorkflowPersistenceMapper.class);
+    private ShardedWorkflowRepository memory;
+    private MybatisWorkflowRepository repository;
+
+    @AfterEach
+    void tearDown() {
+        repository.shutdown();
+        memory.shutdown();
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void coalescesChangesToOneRowPerKeyPerFlush() {
+        repository = repository(200);
+        Workflow workflow = workflow();
+        EchoNode extract = add(workflow, "extract");
+        EchoNode summarize = add(workflow, "summarize");
+        repository.save(workflow);
+        repository.save(workflow);
+
+        repository.onWorkflowStarted(new WorkflowEvent.WorkflowStarted(workflow.getWorkflowId(), workflow.getName()));
+        repository.onNodeStarted(new WorkflowEvent.NodeStarted(extract.getNodeId(), "extract"));
+        extract.run(Map.of("text", "revenue grew"));
+        repository.onNodeCompleted(new WorkflowEvent.NodeCompleted(extract.getNodeId(), "extract", Map.of()));
+        repository.onNodeStarted(new WorkflowEvent.NodeStarted(summarize.getNodeId(), "summarize"));
+        repository.onNodeStarted(new WorkflowEvent.NodeStarted(summarize.getNodeId(), "summarize"));
+        repository.flush();
+
+        ArgumentCaptor<List<WorkflowDefinitionRow>> definitions = ArgumentCaptor.forClass(List.class);
+        ArgumentCaptor<List<WorkflowRunRow>> runs = ArgumentCaptor.forClass(List.class);
+        ArgumentCaptor<List<NodeStateRow>> nodes = ArgumentCaptor.forClass(List.class);
+        verify(mapper).upsertDefinitions(definitions.capture());
+        verify(mapper).upsertRuns(runs.capture());
+        verify(mapper).upsertNodeStates(nodes.capture());
+        assertThat(definitions.getValue()).singleElement()
+                .extracting(WorkflowDefinitionRow::getWorkflowId).isEqualTo(workflow.getWorkflowId().getValue());
+        assertThat(runs.getValue()).hasSize(1);
+        assertThat(nodes.getValue()).extracting(NodeStateRow::getNodeId)
+                .containsExactlyInAnyOrder(extract.getNodeId().getValue(), summarize.getNodeId().getValue());
+        // 写入时取最新状态，而不是标记时的状态
+        assertThat(nodes.getValue()).filteredOn(row -> row.getName().equals("extract"))
+                .singleElement().extracting(NodeStateRow::getStatus).isEqualTo("COMPLETED");
+
+        // 没有新变化时不再写入
+        repository.flush();
+        verifyNoMoreInteractions(mapper);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void remarksFailedBatchAndRetriesOnNextFlush() {
+        repository = repository(200);
+        Workflow workflow = workflow();
+        EchoNode extract = add(workflow, "extract");
+        repository.save(workflow);
+        repository.onNodeStarted(new WorkflowEvent.NodeStarted(extract.getNodeId(), "extract"));
+        when(mapper.upsertNodeStates(anyList())).thenThrow(new IllegalStateException("connection reset")).thenReturn(1);
+
+        repository.flush();
+        repository.flush();
+
+        ArgumentCaptor<List<NodeStateRow>> nodes = ArgumentCaptor.forClass(List.class);
+        verify(mapper, times(2)).upsertNodeStates(nodes.capture());
+        assertThat(nodes.getAllValues()).allSatisfy(rows -> assertThat(rows).singleElement()
+                .extracting(NodeStateRow::getNodeId).isEqualTo(extract.getNodeId().getValue()));
+        // 已写入的定义和运行不重复写
+        verify(mapper).upsertDefinitions(anyList());
+        verify(mapper).upsertRuns(anyList());
+
+        repository.flush();
+        verifyNoMoreInteractions(mapper);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void flushesEarlyWhenPendingNodesReachBatchSize() {
+        repository = repository(2);
+        Workflow workflow = workflow();
+        EchoNode extract = add(workflow, "extract");
+        EchoNode summarize = add(workflow, "summarize");
+        repository.save(workflow);
+
+        repository.onNodeStarted(new WorkflowEvent.NodeStarted(extract.getNodeId(), "extract"));
+        verify(mapper, after(100).never()).upsertNodeStates(anyList());
+        repository.onNodeStarted(new WorkflowEvent.NodeStarted(summarize.getNodeId(), "summarize"));
+
+        // 写回间隔设为一分钟，两秒内的写入只能来自数量触发
+        ArgumentCaptor<List<NodeStateRow>> nodes = ArgumentCaptor.forClass(List.class);
+        verify(mapper, timeout(2_000)).upsertNodeStates(nodes.capture());
+        assertThat(nodes.getValue()).hasSize(2);
+    }
+
+    private MybatisWorkflowRepository repository(int batchSize) {
+        WorkflowStoreProperties properties = new WorkflowStoreProperties();
+        properties.getPersistence().setEnabled(true);
+        properties.getPersistence().setFlushIntervalMillis(60_000);
+        properties.getPersistence().setBatchSize(batchSize);
+        memory = new ShardedWorkflowRepository(properties, NO_METERS);
+        return new MybatisWorkflowRepository(memory, mapper, properties, NO_METERS);
+    }
+
+    private static Workflow workflow() {
+        return Workflow.builder().workflowId(WorkflowId.generate()).name("persist-test").build();
+    }
+
+    private static EchoNode add(Workflow workflow, String name) {
+        EchoNode node = new EchoNode(name);
+        workflow.addNode(node);
+        return node;
+    }
+}
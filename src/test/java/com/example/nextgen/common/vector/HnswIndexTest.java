@@ -0,0 +1,152 @@
+package com.example.nextgen.common.vector;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.ai.document.Document;
+
+import java.nio.file.Path;
+import java.util.*;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.within;
+
+class HnswIndexTest {
+
+    private static final int DIMENSIONS = 32;
+
+    @Test
+    void searchReturnsExactMatchFirst() {
+        HnswIndex index = new HnswIndex(DIMENSIONS, 8, 64, 128);
+        List<float[]> vectors = randomVectors(500, new Random(1));
+        for (int i = 0; i < vectors.size(); i++) {
+            index.add(new Document("doc-" + i, "text " + i, Map.of()), vectors.get(i));
+        }
+
+        List<HnswIndex.SearchHit> hits = index.search(vectors.get(42), 5, 32);
+
+        assertThat(hits).hasSize(5);
+        assertThat(hits.get(0).document().getId()).isEqualTo("doc-42");
+        assertThat(hits.get(0).score()).isCloseTo(1.0f, within(1e-4f));
+        for (int i = 1; i < hits.size(); i++) {
+            assertThat(hits.get(i).score()).isLessThanOrEqualTo(hits.get(i - 1).score());
+        }
+    }
+
+    @Test
+    void recallAgainstBruteForce() {
+        Random random = new Random(7);
+        List<float[]> vectors = randomVectors(2000, random);
+        HnswIndex index = new HnswIndex(DIMENSIONS, 16, 200, 256);
+        for (int i = 0; i < vectors.size(); i++) {
+            index.add(new Document("doc-" + i, "text", Map.of()), vectors.get(i));
+        }
+
+        int k = 10;
+        int found = 0;
+        List<float[]> queries = randomVectors(50, random);
+        for (float[] query : queries) {
+            Set<String> expected = bruteForce(vectors, query, k);
+            for (HnswIndex.SearchHit hit : index.search(query, k, 200)) {
+                if (expected.contains(hit.document().getId())) {
+                    found++;
+                }
+            }
+        }
+        double recall = (double) found / (queries.size() * k);
+        assertThat(recall).isGreaterThanOrEqualTo(0.9);
+    }
+
+    @Test
+    void addSkipsExistingDocumentId() {
+        HnswIndex index = new HnswIndex(DIMENSIONS, 8, 64, 128);
+        List<float[]> vectors = randomVectors(2, new Random(3));
+
+        assertThat(index.add(new Document("same", "first", Map.of()), vectors.get(0))).isEqualTo(0);
+        assertThat(index.add(new Document("same", "second", Map.of()), vectors.get(1))).isEqualTo(-1);
+
+        assertThat(index.size()).isEqualTo(1);
+        assertThat(index.contains("same")).isTrue();
+        assertThat(index.search(vectors.get(1), 5, 16)).extracting(hit -> hit.document().getText())
+                .containsExactly("first");
+    }
+
+    @Test
+    void saveAndLoadKeepResultsAndIds(@TempDir Path dir) throws Exception {
+        // 段大小不整除向量数，加载后既有映射段也有复制的末段
+        HnswIndex index = new HnswIndex(DIMENSIONS, 8, 64, 64);
+        List<float[]> vectors = randomVectors(300, new Random(11));
+        for (int i = 0; i < vectors.size(); i++) {
+            index.add(new Document("doc-" + i, "text " + i, Map.of("page", i)), vectors.get(i));
+        }
+        Path file = dir.resolve("test.hnsw");
+        index.save(file);
+
+        HnswIndex loaded = HnswIndex.load(file);
+
+        assertThat(loaded.size()).isEqualTo(300);
+        assertThat(loaded.getDimensions()).isEqualTo(DIMENSIONS);
+        float[] query = vectors.get(123);
+        assertThat(ids(loaded.search(query, 10, 64))).isEqualTo(ids(index.search(query, 10, 64)));
+        assertThat(loaded.contains("doc-299")).isTrue();
+        assertThat(loaded.add(new Document("doc-5", "again", Map.of()), vectors.get(5))).isEqualTo(-1);
+
+        float[] extra = randomVectors(1, new Random(12)).get(0);
+        assertThat(loaded.add(new Document("extra", "extra", Map.of()), extra)).isEqualTo(300);
+        assertThat(loaded.search(extra, 1, 32).get(0).document().getId()).isEqualTo("extra");
+    }
+
+    @Test
+    void rejectsWrongDimensionsAndZeroVectors() {
+        HnswIndex index = new HnswIndex(DIMENSIONS, 8, 64, 128);
+
+        assertThatThrownBy(() -> index.add(new Document("a", "a", Map.of()), new float[DIMENSIONS + 1]))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> index.add(new Document("b", "b", Map.of()), new float[DIMENSIONS]))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThat(index.search(new float[DIMENSIONS + 1], 0, 10)).isEmpty();
+    }
+
+    private static List<String> ids(List<HnswIndex.SearchHit> hits) {
+        return hits.stream().map(hit -> hit.document().getId()).toList();
+    }
+
+    private static Set<String> bruteForce(List<float[]> vectors, float[] query, int k) {
+        Integer[] order = new Integer[vectors.size()];
+        double[] scores = new double[vectors.size()];
+        for (int i = 0; i < vectors.size(); i++) {
+            order[i] = i;
+            scores[i] = cosine(vectors.get(i), query);
+        }
+        Arrays.sort(order, (a, b) -> Double.compare(scores[b], scores[a]));
+        Set<String> ids = new HashSet<>();
+        for (int i = 0; i < k; i++) {
+            ids.add("doc-" + order[i]);
+        }
+        return ids;
+    }
+
+    private static double cosine(float[] a, float[] b) {
+        double dot = 0;
+        double normA = 0;
+        double normB = 0;
+        for (int i = 0; i < a.length; i++) {
+            dot += a[i] * b[i];
+            normA += a[i] * a[i];
+            normB += b[i] * b[i];
+        }
+        return dot / Math.sqrt(normA * normB);
+    }
+
+    private static List<float[]> randomVectors(int count, Random random) {
+        List<float[]> vectors = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            float[] vector = new float[DIMENSIONS];
+            for (int d = 0; d < DIMENSIONS; d++) {
+                vector[d] = (float) random.nextGaussian();
+            }
+            vectors.add(vector);
+        }
+        return vectors;
+    }
+}
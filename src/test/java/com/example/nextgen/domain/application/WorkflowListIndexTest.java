@@ -0,0 +1,128 @@
+package com.example.nextgen.domain.application;
+
+import com.example.nextgen.common.repository.ShardedWorkflowRepository;
+import com.example.nextgen.common.repository.WorkflowStoreProperties;
+import com.example.nextgen.domain.application.WorkflowApplicationService.WorkflowListQuery;
+import com.example.nextgen.domain.application.WorkflowResults.WorkflowPage;
+import com.example.nextgen.domain.application.WorkflowResults.WorkflowSummary;
+import com.example.nextgen.domain.node.EchoNode;
+import com.example.nextgen.domain.workflow.Workflow;
+import com.example.nextgen.domain.workflow.WorkflowId;
+import com.example.nextgen.domain.workflow.WorkflowStatus;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.support.StaticListableBeanFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class WorkflowListIndexTest {
+
+    private static final ObjectProvider<MeterRegistry> NO_METERS =
+            new StaticListableBeanFactory().getBeanProvider(MeterRegistry.class);
+
+    private ShardedWorkflowRepository repository;
+    private WorkflowListIndex listIndex;
+
+    @BeforeEach
+    void setUp() {
+        repository = new ShardedWorkflowRepository(new WorkflowStoreProperties(), NO_METERS);
+        listIndex = new WorkflowListIndex(repository);
+    }
+
+    @AfterEach
+    void tearDown() {
+        listIndex.shutdown();
+        repository.shutdown();
+    }
+
+    @Test
+    void pagesInNameOrderUntilExhausted() {
+        for (String name : List.of("report-c", "report-a", "audit", "report-b", "report-a")) {
+            workflow(name);
+        }
+
+        List<String> names = new ArrayList<>();
+        String cursor = null;
+        int pages = 0;
+        do {
+            WorkflowPage page = listIndex.query(null, null, null, cursor, 2);
+            assertThat(page.isSuccess()).isTrue();
+            assertThat(page.getItems()).hasSizeLessThanOrEqualTo(2);
+            page.getItems().forEach(summary -> names.add(summary.getName()));
+            cursor = page.getNextCursor();
+            pages++;
+        } while (cursor != null);
+
+        assertThat(names).containsExactly("audit", "report-a", "report-a", "report-b", "report-c");
+        assertThat(pages).isEqualTo(3);
+    }
+
+    @Test
+    void filtersByPrefixKeywordAndStatus() {
+        Workflow running = workflow("report-a");
+        workflow("report-b");
+        workflow("daily-report");
+        running.start();
+        listIndex.index(running);
+
+        assertThat(names(listIndex.query(null, "report-", null, null, 10)))
+                .containsExactly("report-a", "report-b");
+        assertThat(names(listIndex.query(null, null, "daily", null, 10))).containsExactly("daily-report");
+        assertThat(names(listIndex.query(WorkflowStatus.RUNNING, null, null, null, 10))).containsExactly("report-a");
+        assertThat(names(listIndex.query(WorkflowStatus.CREATED, null, null, null, 10)))
+                .containsExactly("daily-report", "report-b");
+
+        WorkflowPage first = listIndex.query(null, "report-", null, null, 1);
+        assertThat(names(first)).containsExactly("report-a");
+        assertThat(names(listIndex.query(null, "report-", null, first.getNextCursor(), 1)))
+                .containsExactly("report-b");
+    }
+
+    @Test
+    void dropsWorkflowsNoLongerInRepository() {
+        Workflow removed = workflow("report-a");
+        workflow("report-b");
+        repository.delete(removed.getWorkflowId());
+
+        assertThat(names(listIndex.query(null, null, null, null, 10))).containsExactly("report-b");
+        assertThat(listIndex.size()).isEqualTo(1);
+    }
+
+    @Test
+    void rejectsInvalidCursor() {
+        workflow("report-a");
+
+        assertThatThrownBy(() -> listIndex.query(null, null, null, "not a cursor!", 10))
+                .isInstanceOf(IllegalArgumentException.class);
+        // 合法的 Base64 但不含分隔符
+        assertThatThrownBy(() -> listIndex.query(null, null, null, "cmVwb3J0", 10))
+                .isInstanceOf(IllegalArgumentException.class);
+
+        WorkflowApplicationService service = new WorkflowApplicationService(repository, null, listIndex, null);
+        WorkflowListQuery query = new WorkflowListQuery();
+        query.setCursor("not a cursor!");
+        WorkflowPage page = service.getWorkflowList(query);
+        assertThat(page.isSuccess()).isFalse();
+        assertThat(page.getErrorMessage()).contains("Invalid cursor");
+        assertThat(page.getItems()).isEmpty();
+    }
+
+    private Workflow workflow(String name) {
+        Workflow workflow = Workflow.builder().workflowId(WorkflowId.generate()).name(name).build();
+        workflow.addNode(new EchoNode("step"));
+        repository.save(workflow);
+        listIndex.index(workflow);
+        return workflow;
+    }
+
+    private static List<String> names(WorkflowPage page) {
+        return page.getItems().stream().map(WorkflowSummary::getName).toList();
+    }
+}
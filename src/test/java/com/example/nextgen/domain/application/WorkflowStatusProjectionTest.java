@@ -0,0 +1,156 @@
+package com.example.nextgen.domain.application;
+
+import com.example.nextgen.common.repository.ShardedWorkflowRepository;
+import com.example.nextgen.common.repository.WorkflowStoreProperties;
+import com.example.nextgen.domain.application.WorkflowApplicationService.WorkflowStatusQuery;
+import com.example.nextgen.domain.application.WorkflowResults.NodeStatusInfo;
+import com.example.nextgen.domain.application.WorkflowResults.WorkflowStatusResult;
+import com.example.nextgen.domain.node.EchoNode;
+import com.example.nextgen.domain.workflow.Workflow;
+import com.example.nextgen.domain.workflow.WorkflowId;
+import com.example.nextgen.domain.workflow.WorkflowStatusSnapshot;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.support.StaticListableBeanFactory;
+
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class WorkflowStatusProjectionTest {
+
+    private static final ObjectProvider<MeterRegistry> NO_METERS =
+            new StaticListableBeanFactory().getBeanProvider(MeterRegistry.class);
+
+    private ShardedWorkflowRepository repository;
+    private WorkflowApplicationService service;
+    private Workflow workflow;
+    private EchoNode extract;
+    private EchoNode summarize;
+
+    @BeforeEach
+    void setUp() {
+        repository = new ShardedWorkflowRepository(new WorkflowStoreProperties(), NO_METERS);
+        service = new WorkflowApplicationService(repository, null, null, null);
+        workflow = Workflow.builder().workflowId(WorkflowId.generate()).name("projection-test").build();
+        extract = new EchoNode("extract");
+        summarize = new EchoNode("summarize");
+        summarize.addDependency(extract.getNodeId());
+        workflow.addNode(extract);
+        workflow.addNode(summarize);
+        workflow.start();
+        extract.run(Map.of("text", "x".repeat(100), "pages", 3));
+        workflow.onNodeCompleted(extract.getNodeId());
+        repository.save(workflow);
+    }
+
+    @AfterEach
+    void tearDown() {
+        repository.shutdown();
+    }
+
+    @Test
+    void projectionTagDependsOnProjectionOnly() {
+        WorkflowStatusQuery full = new WorkflowStatusQuery(workflow.getWorkflowId());
+        WorkflowStatusQuery statusOnly = WorkflowStatusQuery.statusOnly(workflow.getWorkflowId());
+        WorkflowStatusQuery someNodes = new WorkflowStatusQuery(workflow.getWorkflowId());
+        someNodes.setNodeNames(new LinkedHashSet<>(List.of("extract", "summarize")));
+        WorkflowStatusQuery reordered = new WorkflowStatusQuery(WorkflowId.generate());
+        reordered.setNodeNames(new LinkedHashSet<>(List.of("summarize", "extract")));
+        WorkflowStatusQuery truncated = new WorkflowStatusQuery(workflow.getWorkflowId());
+        truncated.setMaxValueChars(10);
+
+        assertThat(Set.of(full.projectionTag(), statusOnly.projectionTag(), someNodes.projectionTag(),
+                truncated.projectionTag())).hasSize(4);
+        assertThat(reordered.projectionTag()).isEqualTo(someNodes.projectionTag());
+
+        // 不返回节点时，节点名过滤不影响结果
+        WorkflowStatusQuery statusOnlyWithNames = WorkflowStatusQuery.statusOnly(workflow.getWorkflowId());
+        statusOnlyWithNames.setNodeNames(Set.of("extract"));
+        assertThat(statusOnlyWithNames.projectionTag()).isEqualTo(statusOnly.projectionTag());
+    }
+
+    @Test
+    void etagChangesWithVersionAndProjection() {
+        WorkflowStatusQuery full = new WorkflowStatusQuery(workflow.getWorkflowId());
+        WorkflowStatusQuery statusOnly = WorkflowStatusQuery.statusOnly(workflow.getWorkflowId());
+        WorkflowStatusSnapshot before = workflow.getStatusSnapshot();
+
+        assertThat(WorkflowStatusResult.etagOf(before, full)).isEqualTo(WorkflowStatusResult.etagOf(before, full));
+        assertThat(WorkflowStatusResult.etagOf(before, statusOnly)).isNotEqualTo(WorkflowStatusResult.etagOf(before, full));
+
+        summarize.start();
+        assertThat(WorkflowStatusResult.etagOf(workflow.getStatusSnapshot(), full))
+                .isNotEqualTo(WorkflowStatusResult.etagOf(before, full));
+    }
+
+    @Test
+    void returnsNotModifiedOnlyForSameVersionAndProjection() {
+        WorkflowStatusQuery query = WorkflowStatusQuery.statusOnly(workflow.getWorkflowId());
+        WorkflowStatusResult first = service.getWorkflowStatus(query);
+        assertThat(first.isFound()).isTrue();
+        assertThat(first.isNotModified()).isFalse();
+
+        query.setIfNoneMatch(first.getEtag());
+        WorkflowStatusResult unchanged = service.getWorkflowStatus(query);
+        assertThat(unchanged.isNotModified()).isTrue();
+        assertThat(unchanged.getEtag()).isEqualTo(first.getEtag());
+
+        // 同一版本换一种投影，不能命中上次的 ETag
+        WorkflowStatusQuery full = new WorkflowStatusQuery(workflow.getWorkflowId());
+        full.setIfNoneMatch(first.getEtag());
+        WorkflowStatusResult fullResult = service.getWorkflowStatus(full);
+        assertThat(fullResult.isNotModified()).isFalse();
+        assertThat(fullResult.getNodeStatuses()).hasSize(2);
+
+        summarize.start();
+        WorkflowStatusResult changed = service.getWorkflowStatus(query);
+        assertThat(changed.isNotModified()).isFalse();
+        assertThat(changed.getEtag()).isNotEqualTo(first.getEtag());
+    }
+
+    @Test
+    void projectsNodesAndContextAndTruncatesValues() {
+        WorkflowStatusQuery query = new WorkflowStatusQuery(workflow.getWorkflowId());
+        query.setNodeNames(Set.of("extract"));
+        query.setContextKeys(Set.of("text"));
+        query.setMaxValueChars(10);
+
+        WorkflowStatusResult result = service.getWorkflowStatus(query);
+
+        assertThat(result.getNodeStatuses()).extracting(NodeStatusInfo::getNodeName).containsExactly("extract");
+        assertThat(result.getNodeStatuses().get(0).getOutputData())
+                .containsEntry("text", "x".repeat(10) + "...[truncated 90 chars]")
+                .containsEntry("pages", 3);
+        assertThat(result.getGlobalContext()).containsOnlyKeys("text");
+        assertThat(result.getEtag()).isEqualTo(WorkflowStatusResult.etagOf(workflow.getStatusSnapshot(), query));
+
+        WorkflowStatusQuery withoutData = new WorkflowStatusQuery(workflow.getWorkflowId());
+        withoutData.setIncludeNodeData(false);
+        withoutData.setIncludeContext(false);
+        WorkflowStatusResult light = service.getWorkflowStatus(withoutData);
+        assertThat(light.getNodeStatuses()).hasSize(2).allMatch(node -> node.getOutputData() == null);
+        assertThat(light.getGlobalContext()).isNull();
+
+        WorkflowStatusResult statusOnly = service.getWorkflowStatus(WorkflowStatusQuery.statusOnly(workflow.getWorkflowId()));
+        assertThat(statusOnly.getNodeStatuses()).isNull();
+        assertThat(statusOnly.getProgress()).isEqualTo(50.0);
+    }
+
+    @Test
+    void distinguishesNotFoundFromErrors() {
+        WorkflowStatusResult missing = service.getWorkflowStatus(new WorkflowStatusQuery(WorkflowId.generate()));
+        assertThat(missing.isFound()).isFalse();
+        assertThat(missing.isError()).isFalse();
+
+        WorkflowStatusResult failed = service.getWorkflowStatus(new WorkflowStatusQuery());
+        assertThat(failed.isError()).isTrue();
+        assertThat(failed.getErrorMessage()).startsWith("查询工作流状态失败");
+    }
+}
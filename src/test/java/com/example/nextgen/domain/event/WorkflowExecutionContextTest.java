@@ -0,0 +1,103 @@
+package com.example.nextgen.domain.event;
+
+import com.example.nextgen.domain.node.EchoNode;
+import com.example.nextgen.domain.node.NodeStatus;
+import com.example.nextgen.domain.workflow.Workflow;
+import com.example.nextgen.domain.workflow.WorkflowId;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+class WorkflowExecutionContextTest {
+
+    @Test
+    void countersFollowNodeLifecycle() {
+        Workflow workflow = Workflow.builder().workflowId(WorkflowId.generate()).name("counter-test").build();
+        EchoNode a = new EchoNode("a");
+        EchoNode b = new EchoNode("b");
+        EchoNode c = new EchoNode("c");
+        EchoNode d = new EchoNode("d");
+        List.of(a, b, c, d).forEach(workflow::addNode);
+        WorkflowExecutionContext context = workflow.getExecutionContext();
+        assertThat(context.getTotalNodes()).isEqualTo(4);
+        assertThat(context.getIdleNodes()).isEqualTo(4);
+
+        a.run(Map.of("document", "report.pdf"));
+        b.start();
+        c.skip();
+        assertThat(context.getCompletedNodes()).isEqualTo(1);
+        assertThat(context.getRunningNodes()).isEqualTo(1);
+        assertThat(context.getSkippedNodes()).isEqualTo(1);
+        assertThat(context.getIdleNodes()).isEqualTo(1);
+        assertThat(context.getFinishedNodes()).isEqualTo(2);
+        assertThat(context.getProgress()).isEqualTo(25.0);
+
+        b.fail("model timeout");
+        assertThat(context.getRunningNodes()).isZero();
+        assertThat(context.getFailedNodes()).isEqualTo(1);
+
+        b.reset();
+        assertThat(context.getFailedNodes()).isZero();
+        assertThat(context.getIdleNodes()).isEqualTo(2);
+
+        workflow.removeNode(d.getNodeId());
+        assertThat(context.getTotalNodes()).isEqualTo(3);
+        assertThat(context.getIdleNodes()).isEqualTo(1);
+        // 移出后节点的状态变化不再计入
+        d.start();
+        assertThat(context.getRunningNodes()).isZero();
+        assertThat(context.getProgress()).isCloseTo(100.0 / 3, within(1e-9));
+    }
+
+    @Test
+    void concurrentTransitionsKeepExactCounts() throws Exception {
+        WorkflowExecutionContext context = new WorkflowExecutionContext("wf", "concurrent");
+        int threads = 8;
+        int nodesPerThread = 5_000;
+        for (int i = 0; i < threads * nodesPerThread; i++) {
+            context.nodeAdded(NodeStatus.IDLE);
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        CountDownLatch ready = new CountDownLatch(1);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                int index = t;
+                futures.add(executor.submit(() -> {
+                    ready.await();
+                    for (int i = 0; i < nodesPerThread; i++) {
+                        context.onNodeTransition(NodeStatus.IDLE, NodeStatus.RUNNING);
+                        context.onNodeTransition(NodeStatus.RUNNING,
+                                (i + index) % 2 == 0 ? NodeStatus.COMPLETED : NodeStatus.FAILED);
+                    }
+                    return null;
+                }));
+            }
+            ready.countDown();
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        int total = threads * nodesPerThread;
+        assertThat(context.getTotalNodes()).isEqualTo(total);
+        assertThat(context.getIdleNodes()).isZero();
+        assertThat(context.getRunningNodes()).isZero();
+        assertThat(context.getCompletedNodes()).isEqualTo(total / 2);
+        assertThat(context.getFailedNodes()).isEqualTo(total / 2);
+        assertThat(context.getFinishedNodes()).isEqualTo(total);
+        assertThat(context.getProgress()).isEqualTo(50.0);
+    }
+}
@@ -0,0 +1,36 @@
+package com.example.nextgen.domain.node;
+
+import com.alibaba.fastjson2.JSON;
+import com.alibaba.fastjson2.TypeReference;
+
+import java.util.Map;
+
+/**
+ * 测试用节点：输出即输入
+ */
+public class EchoNode extends WorkflowNode<Map<String, Object>, Map<String, Object>> {
+
+    public EchoNode(String name) {
+        super(NodeId.generate(), name, NodeType.CUSTOM);
+    }
+
+    @Override
+    protected Map<String, Object> parseInputObject(String inputJson) {
+        return JSON.parseObject(inputJson, new TypeReference<Map<String, Object>>() {
+        });
+    }
+
+    @Override
+    protected Map<String, Object> execute(Map<String, Object> params) {
+        return params;
+    }
+
+    /**
+     * 按引擎的方式执行并完成节点
+     */
+    public void run(Map<String, Object> input) {
+        setInputData(input);
+        start();
+        complete(getOutputData());
+    }
+}
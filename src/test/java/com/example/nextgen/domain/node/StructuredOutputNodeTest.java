@@ -0,0 +1,152 @@
+package com.example.nextgen.domain.node;
+
+import com.alibaba.fastjson2.JSON;
+import com.example.nextgen.common.budget.CallBudget;
+import com.example.nextgen.common.chatmodel.ChatModelProperties;
+import com.example.nextgen.common.chatmodel.usage.TokenBudgetAdvisor;
+import com.example.nextgen.common.chatmodel.usage.TokenUsageRegistry;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.ai.chat.client.ChatClient;
+import org.springframework.ai.chat.messages.AssistantMessage;
+import org.springframework.ai.chat.metadata.ChatResponseMetadata;
+import org.springframework.ai.chat.metadata.DefaultUsage;
+import org.springframework.ai.chat.model.ChatModel;
+import org.springframework.ai.chat.model.ChatResponse;
+import org.springframework.ai.chat.model.Generation;
+import org.springframework.ai.chat.prompt.Prompt;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.support.StaticListableBeanFactory;
+import reactor.core.publisher.Flux;
+
+import javax.validation.constraints.NotNull;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class StructuredOutputNodeTest {
+
+    private static final ObjectProvider<MeterRegistry> NO_METERS =
+            new StaticListableBeanFactory().getBeanProvider(MeterRegistry.class);
+
+    @Test
+    void cancelsGenerationOnceRequiredFieldsArriveAndRecordsUsage() {
+        AtomicBoolean cancelled = new AtomicBoolean();
+        // 必填字段之后的内容永远不会到达，只有取消订阅才能让节点返回
+        Flux<ChatResponse> responses = Flux.concat(
+                        Flux.just(chunk("{\"answer\": \"4"), chunk("2\", \"expl"), chunk("anation\": \"six")),
+                        Flux.<ChatResponse>never())
+                .doOnCancel(() -> cancelled.set(true));
+        CallBudget budget = CallBudget.builder().workflowName("wf").nodeName("answer").timeBudgetMillis(10_000L).build();
+
+        AnswerNode node = new AnswerNode(client(responses));
+        node.setInputData(Map.of("question", "6 * 7"));
+        CallBudget.within(budget, node::start);
+
+        assertThat(node.getStatus()).isEqualTo(NodeStatus.RUNNING);
+        assertThat(node.getOutputData()).containsEntry("answer", "42").doesNotContainKey("explanation");
+        assertThat(node.getMetadata().get("structuredOutput")).isEqualTo(Map.of("stoppedEarly", true, "repaired", false));
+        assertThat(cancelled).isTrue();
+        // 提前取消时没有用量元数据，按预估计入
+        assertThat(budget.getPromptTokens()).isPositive();
+        assertThat(budget.getCompletionTokens()).isPositive();
+    }
+
+    @Test
+    void recordsReportedUsageWhenStreamCompletes() {
+        Flux<ChatResponse> responses = Flux.just(chunk("{\"answer\": \"42\", "),
+                chunk("\"explanation\": \"x\"}", new DefaultUsage(20, 12)));
+        CallBudget budget = CallBudget.builder().workflowName("wf").nodeName("answer").build();
+
+        OptionalAnswerNode node = new OptionalAnswerNode(client(responses));
+        node.setInputData(Map.of("question", "6 * 7"));
+        CallBudget.within(budget, node::start);
+
+        assertThat(node.getOutputData()).containsEntry("answer", "42").containsEntry("explanation", "x");
+        assertThat(budget.getPromptTokens()).isEqualTo(20);
+        assertThat(budget.getCompletionTokens()).isEqualTo(12);
+    }
+
+    @Test
+    void repairsMalformedResponse() {
+        Flux<ChatResponse> responses = Flux.just(chunk("{\"answer\": \"42\", \"explanation\": \"line\nbreak"));
+
+        OptionalAnswerNode node = new OptionalAnswerNode(client(responses));
+        node.setInputData(Map.of("question", "6 * 7"));
+        node.start();
+
+        assertThat(node.getOutputData()).containsEntry("answer", "42").containsEntry("explanation", "line\nbreak");
+        assertThat(node.getMetadata().get("structuredOutput")).isEqualTo(Map.of("stoppedEarly", false, "repaired", true));
+    }
+
+    private static ChatClient client(Flux<ChatResponse> responses) {
+        ChatModel model = new ChatModel() {
+            @Override
+            public ChatResponse call(Prompt prompt) {
+                throw new UnsupportedOperationException();
+            }
+
+            @Override
+            public Flux<ChatResponse> stream(Prompt prompt) {
+                return responses;
+            }
+        };
+        TokenBudgetAdvisor advisor = new TokenBudgetAdvisor(new TokenUsageRegistry(NO_METERS),
+                new ChatModelProperties(), Map.of());
+        return ChatClient.builder(model).defaultAdvisors(advisor).build();
+    }
+
+    private static ChatResponse chunk(String text) {
+        return new ChatResponse(List.of(new Generation(new AssistantMessage(text))));
+    }
+
+    private static ChatResponse chunk(String text, DefaultUsage usage) {
+        return new ChatResponse(List.of(new Generation(new AssistantMessage(text))),
+                ChatResponseMetadata.builder().model("test-model").usage(usage).build());
+    }
+
+    record Question(String question) {
+    }
+
+    record Answer(@NotNull String answer, String explanation) {
+    }
+
+    record OptionalAnswer(String answer, String explanation) {
+    }
+
+    static class AnswerNode extends StructuredOutputNode<Question, Answer> {
+
+        AnswerNode(ChatClient chatClient) {
+            super(NodeId.generate(), "answer", NodeType.CUSTOM, chatClient, Answer.class);
+        }
+
+        @Override
+        protected Question parseInputObject(String inputJson) {
+            return JSON.parseObject(inputJson, Question.class);
+        }
+
+        @Override
+        protected Prompt buildPrompt(Question params) {
+            return new Prompt(params.question());
+        }
+    }
+
+    static class OptionalAnswerNode extends StructuredOutputNode<Question, OptionalAnswer> {
+
+        OptionalAnswerNode(ChatClient chatClient) {
+            super(NodeId.generate(), "answer", NodeType.CUSTOM, chatClient, OptionalAnswer.class);
+        }
+
+        @Override
+        protected Question parseInputObject(String inputJson) {
+            return JSON.parseObject(inputJson, Question.class);
+        }
+
+        @Override
+        protected Prompt buildPrompt(Question params) {
+            return new Prompt(params.question());
+        }
+    }
+}
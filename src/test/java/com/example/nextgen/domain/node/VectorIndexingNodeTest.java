@@ -0,0 +1,147 @@
+package com.example.nextgen.domain.node;
+
+import com.example.nextgen.common.ingest.DocumentChunkStream;
+import com.example.nextgen.common.ingest.DocumentIngestionService;
+import com.example.nextgen.common.ingest.IngestionProperties;
+import com.example.nextgen.common.vector.VectorIndexProperties;
+import com.example.nextgen.common.vector.VectorIndexService;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.ai.document.Document;
+import org.springframework.ai.embedding.Embedding;
+import org.springframework.ai.embedding.EmbeddingModel;
+import org.springframework.ai.embedding.EmbeddingRequest;
+import org.springframework.ai.embedding.EmbeddingResponse;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.support.StaticListableBeanFactory;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class VectorIndexingNodeTest {
+
+    private static final ObjectProvider<MeterRegistry> NO_METERS =
+            new StaticListableBeanFactory().getBeanProvider(MeterRegistry.class);
+
+    @TempDir
+    Path directory;
+
+    private final CountingEmbeddingModel embeddingModel = new CountingEmbeddingModel();
+    private DocumentIngestionService ingestionService;
+    private VectorIndexProperties vectorProperties;
+    private Path markdown;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        IngestionProperties ingestionProperties = new IngestionProperties();
+        ingestionProperties.setChunkSizeTokens(40);
+        ingestionService = new DocumentIngestionService(ingestionProperties, NO_METERS);
+        vectorProperties = new VectorIndexProperties();
+        vectorProperties.setDirectory(directory.resolve("index").toString());
+        vectorProperties.setEmbedBatchSize(4);
+
+        StringBuilder text = new StringBuilder();
+        for (int section = 1; section <= 4; section++) {
+            text.append("# Section ").append(section).append("\n\n");
+            for (int sentence = 0; sentence < 12; sentence++) {
+                text.append("Revenue for segment ").append(section).append(" grew in quarter ")
+                        .append(sentence).append(" because of pricing and volume. ");
+            }
+            text.append("\n\n");
+        }
+        markdown = Files.writeString(directory.resolve("report.md"), text.toString());
+    }
+
+    @AfterEach
+    void tearDown() {
+        ingestionService.shutdown();
+    }
+
+    @Test
+    void reingestingTheSameDocumentDoesNotGrowTheIndex() {
+        VectorIndexService vectorIndexService = new VectorIndexService(vectorProperties, embeddingModel, NO_METERS);
+
+        int first = run(vectorIndexService);
+        int size = vectorIndexService.find("reports").size();
+        int embedded = embeddingModel.embedded.get();
+        assertThat(first).isPositive().isEqualTo(size);
+
+        assertThat(run(vectorIndexService)).isZero();
+        assertThat(vectorIndexService.find("reports").size()).isEqualTo(size);
+        assertThat(embeddingModel.embedded).hasValue(embedded);
+
+        // 重启后从磁盘加载的索引同样按分块ID跳过
+        VectorIndexService restarted = new VectorIndexService(vectorProperties, embeddingModel, NO_METERS);
+        assertThat(run(restarted)).isZero();
+        assertThat(restarted.find("reports").size()).isEqualTo(size);
+    }
+
+    @Test
+    void chunkIdsAreStableAcrossIngestions() {
+        assertThat(chunkIds()).isNotEmpty().containsExactlyInAnyOrderElementsOf(chunkIds());
+    }
+
+    private int run(VectorIndexService vectorIndexService) {
+        DocumentChunkStream stream = ingestionService.ingestMarkdown(markdown);
+        VectorIndexingNode node = new VectorIndexingNode(NodeId.generate(), "index", "reports",
+                ingestionService, vectorIndexService);
+        node.setInputData(Map.of("documentStream", stream.getId()));
+        node.start();
+        assertThat(node.getStatus()).isEqualTo(NodeStatus.RUNNING);
+        return (Integer) node.getOutputData().get("indexedChunks");
+    }
+
+    private List<String> chunkIds() {
+        DocumentChunkStream stream = ingestionService.ingestMarkdown(markdown);
+        List<String> ids = new ArrayList<>();
+        for (Document chunk : stream) {
+            ids.add(chunk.getId());
+        }
+        ingestionService.release(stream.getId());
+        return ids;
+    }
+
+    /**
+     * 按文本哈希生成确定的向量，并记录向量化的分块数
+     */
+    private static class CountingEmbeddingModel implements EmbeddingModel {
+
+        private final AtomicInteger embedded = new AtomicInteger();
+
+        @Override
+        public EmbeddingResponse call(EmbeddingRequest request) {
+            List<Embedding> embeddings = new ArrayList<>();
+            for (String text : request.getInstructions()) {
+                embeddings.add(new Embedding(vector(text), embeddings.size()));
+            }
+            embedded.addAndGet(embeddings.size());
+            return new EmbeddingResponse(embeddings);
+        }
+
+        @Override
+        public float[] embed(Document document) {
+            return vector(document.getText());
+        }
+
+        private static float[] vector(String text) {
+            byte[] bytes = text.getBytes(StandardCharsets.UTF_8);
+            float[] vector = new float[8];
+            for (int i = 0; i < bytes.length; i++) {
+                vector[i % vector.length] += bytes[i];
+            }
+            vector[0] += 1;
+            return vector;
+        }
+    }
+}
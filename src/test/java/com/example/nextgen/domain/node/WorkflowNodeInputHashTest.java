@@ -0,0 +1,96 @@
+package com.example.nextgen.domain.node;
+
+import com.alibaba.fastjson2.JSON;
+import org.junit.jupiter.api.Test;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class WorkflowNodeInputHashTest {
+
+    @Test
+    void ignoresKeyOrderExcludedKeysAndRunSpecificKeys() {
+        EchoNode first = new EchoNode("extract");
+        Map<String, Object> input = new LinkedHashMap<>();
+        input.put("document", "report.pdf");
+        input.put("language", "zh");
+        first.setInputData(input);
+
+        EchoNode second = new EchoNode("extract");
+        Map<String, Object> reordered = new LinkedHashMap<>();
+        reordered.put("language", "zh");
+        reordered.put("workflowStartTime", 123L);
+        reordered.put("otherBranch", "unrelated");
+        reordered.put("document", "report.pdf");
+        second.setInputData(reordered);
+
+        assertThat(second.inputHash(Set.of("otherBranch"), null)).isEqualTo(first.inputHash(Set.of(), null));
+        assertThat(second.inputHash(Set.of(), null)).isNotEqualTo(first.inputHash(Set.of(), null));
+    }
+
+    @Test
+    void changesWithInputTaskPromptAndModel() {
+        EchoNode node = new EchoNode("extract");
+        node.setInputData(Map.of("document", "report.pdf"));
+        String base = node.inputHash(Set.of(), null);
+
+        assertThat(node.inputHash(Set.of(), "gpt-4o|temperature=0.2")).isNotEqualTo(base);
+        assertThat(node.inputHash(Set.of(), "gpt-4o|temperature=0.2"))
+                .isNotEqualTo(node.inputHash(Set.of(), "gpt-4o|temperature=0.7"));
+
+        node.setTaskPrompt("Summarize {document}");
+        String withPrompt = node.inputHash(Set.of(), null);
+        assertThat(withPrompt).isNotEqualTo(base);
+
+        node.setInputData(Map.of("document", "other.pdf"));
+        assertThat(node.inputHash(Set.of(), null)).isNotEqualTo(withPrompt);
+    }
+
+    @Test
+    void declaredRecordFieldsSelectTheHashedInput() {
+        SearchNode node = new SearchNode("search", 5);
+        node.setInputData(Map.of("query", "revenue", "unrelated", "a"));
+        SearchNode other = new SearchNode("search", 5);
+        other.setInputData(Map.of("query", "revenue", "unrelated", "b"));
+
+        assertThat(node.getDeclaredInputFields()).containsExactly("query");
+        assertThat(other.inputHash(Set.of(), null)).isEqualTo(node.inputHash(Set.of(), null));
+    }
+
+    @Test
+    void includesNodeConfigurationFields() {
+        SearchNode topFive = new SearchNode("search", 5);
+        SearchNode topTen = new SearchNode("search", 10);
+        topFive.setInputData(Map.of("query", "revenue"));
+        topTen.setInputData(Map.of("query", "revenue"));
+
+        assertThat(topTen.inputHash(Set.of(), null)).isNotEqualTo(topFive.inputHash(Set.of(), null));
+        assertThat(topFive.configFingerprint()).contains("SearchNode.topK=5");
+    }
+
+    record SearchRequest(String query) {
+    }
+
+    static class SearchNode extends WorkflowNode<SearchRequest, Map<String, Object>> {
+
+        private final int topK;
+
+        SearchNode(String name, int topK) {
+            super(NodeId.generate(), name, NodeType.CUSTOM);
+            this.topK = topK;
+        }
+
+        @Override
+        protected SearchRequest parseInputObject(String inputJson) {
+            return JSON.parseObject(inputJson, SearchRequest.class);
+        }
+
+        @Override
+        protected Map<String, Object> execute(SearchRequest params) {
+            return Map.of("query", params.query(), "topK", topK);
+        }
+    }
+}
@@ -0,0 +1,166 @@
+package com.example.nextgen.domain.workflow;
+
+import com.example.nextgen.domain.edge.EdgeType;
+import com.example.nextgen.domain.edge.WorkflowEdge;
+import com.example.nextgen.domain.event.WorkflowEvent;
+import com.example.nextgen.domain.node.EchoNode;
+import com.example.nextgen.domain.node.NodeStatus;
+import com.example.nextgen.domain.node.WorkflowNode;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class WorkflowRetryTest {
+
+    @Test
+    void resetsFailedAndRunningNodesWithTheirDescendants() {
+        Workflow workflow = Workflow.builder().workflowId(WorkflowId.generate()).name("retry-test").build();
+        EchoNode a = add(workflow, "a");
+        EchoNode b = add(workflow, "b", a);
+        EchoNode c = add(workflow, "c", b);
+        EchoNode d = add(workflow, "d", c);
+        EchoNode x = add(workflow, "x", a);
+        EchoNode y = add(workflow, "y", x);
+        EchoNode e = add(workflow, "e", a);
+        workflow.start();
+
+        complete(workflow, a, Map.of("source", "report.pdf"));
+        complete(workflow, b, Map.of("extracted", "text"));
+        complete(workflow, e, Map.of("summary", "short"));
+        // 失败时 x 仍在执行
+        x.start();
+        c.start();
+        c.fail("model timeout");
+        workflow.onNodeFailed(c.getNodeId(), "model timeout");
+        assertThat(workflow.getStatus()).isEqualTo(WorkflowStatus.FAILED);
+
+        List<WorkflowNode> reset = workflow.retryFromFailure();
+
+        assertThat(reset).extracting(WorkflowNode::getName).containsExactlyInAnyOrder("c", "x");
+        assertThat(List.of(c, d, x, y)).allMatch(node -> node.getStatus() == NodeStatus.IDLE);
+        assertThat(List.of(a, b, e)).allMatch(node -> node.getStatus() == NodeStatus.COMPLETED);
+        assertThat(b.getOutputData()).containsEntry("extracted", "text");
+        assertThat(c.getMetadata()).doesNotContainKey("errorMessage");
+        assertThat(workflow.getGlobalContext())
+                .containsEntry("source", "report.pdf")
+                .containsEntry("extracted", "text")
+                .containsEntry("summary", "short");
+        assertThat(workflow.getStatus()).isEqualTo(WorkflowStatus.RUNNING);
+        assertThat(workflow.getCompletedAt()).isNull();
+        assertThat(workflow.getExecutableNodes()).extracting(WorkflowNode::getName).containsExactlyInAnyOrder("c", "x");
+
+        WorkflowEvent last = workflow.getDomainEvents().get(workflow.getDomainEvents().size() - 1);
+        assertThat(last).isInstanceOf(WorkflowEvent.WorkflowRetried.class);
+        assertThat(((WorkflowEvent.WorkflowRetried) last).getResetNodes()).containsExactlyInAnyOrder("c", "x");
+    }
+
+    @Test
+    void keepsFailuresHandledByErrorEdges() {
+        Workflow workflow = Workflow.builder().workflowId(WorkflowId.generate()).name("retry-test").build();
+        EchoNode source = add(workflow, "source");
+        EchoNode normal = add(workflow, "normal", source);
+        EchoNode handler = add(workflow, "handler", source);
+        workflow.addEdge(WorkflowEdge.builder().sourceNodeId(source.getNodeId()).targetNodeId(normal.getNodeId())
+                .priority(0).build());
+        workflow.addEdge(WorkflowEdge.builder().sourceNodeId(source.getNodeId()).targetNodeId(handler.getNodeId())
+                .type(EdgeType.ERROR_HANDLING).priority(0).build());
+        workflow.start();
+
+        source.start();
+        source.fail("parse error");
+        workflow.onNodeFailed(source.getNodeId(), "parse error");
+        assertThat(normal.getStatus()).isEqualTo(NodeStatus.SKIPPED);
+        handler.start();
+        handler.fail("handler error");
+        workflow.onNodeFailed(handler.getNodeId(), "handler error");
+        assertThat(workflow.getStatus()).isEqualTo(WorkflowStatus.FAILED);
+
+        List<WorkflowNode> reset = workflow.retryFromFailure();
+
+        assertThat(reset).extracting(WorkflowNode::getName).containsExactly("handler");
+        assertThat(source.getStatus()).isEqualTo(NodeStatus.FAILED);
+        assertThat(normal.getStatus()).isEqualTo(NodeStatus.SKIPPED);
+        assertThat(workflow.getGlobalContext()).containsKey(Workflow.ERROR_CONTEXT_KEY);
+        assertThat(workflow.getExecutableNodes()).extracting(WorkflowNode::getName).containsExactly("handler");
+    }
+
+    @Test
+    void rerunsCompletedNodesWithTransientOutputThatPendingNodesStillNeed() {
+        Workflow workflow = Workflow.builder().workflowId(WorkflowId.generate()).name("retry-test").build();
+        EchoNode ingest = addTransient(workflow, "ingest");
+        EchoNode index = add(workflow, "index", ingest);
+        EchoNode summary = add(workflow, "summary", ingest);
+        EchoNode report = add(workflow, "report", index, summary);
+        EchoNode cached = addTransient(workflow, "cached");
+        EchoNode consumer = add(workflow, "consumer", cached);
+        workflow.start();
+
+        complete(workflow, ingest, Map.of("documentStream", "wf/1"));
+        complete(workflow, cached, Map.of("documentStream", "wf/2"));
+        complete(workflow, consumer, Map.of("consumed", true));
+        complete(workflow, summary, Map.of("summary", "short"));
+        index.start();
+        index.fail("embedding timeout");
+        workflow.onNodeFailed(index.getNodeId(), "embedding timeout");
+
+        List<WorkflowNode> reset = workflow.retryFromFailure();
+
+        // 失败时文档流已回收，index 重新执行前要重新摄取；cached 的下游都已完成，不需要重新执行
+        assertThat(reset).extracting(WorkflowNode::getName).containsExactlyInAnyOrder("index", "ingest");
+        assertThat(List.of(ingest, index, report)).allMatch(node -> node.getStatus() == NodeStatus.IDLE);
+        assertThat(List.of(summary, cached, consumer)).allMatch(node -> node.getStatus() == NodeStatus.COMPLETED);
+        assertThat(workflow.getExecutableNodes()).extracting(WorkflowNode::getName).containsExactly("ingest");
+    }
+
+    @Test
+    void restoredRunResetsTransientNodesWithPendingDependents() {
+        Workflow workflow = Workflow.builder().workflowId(WorkflowId.generate()).name("retry-test").build();
+        EchoNode ingest = addTransient(workflow, "ingest");
+        EchoNode index = add(workflow, "index", ingest);
+        ingest.restore(NodeStatus.COMPLETED, Map.of("documentStream", "wf/1"), null);
+        workflow.restore(Map.of("documentStream", "wf/1"), Set.of());
+
+        assertThat(workflow.resetTransientOutputs()).containsExactly(ingest);
+        assertThat(workflow.getExecutableNodes()).containsExactly(ingest);
+        assertThat(index.getStatus()).isEqualTo(NodeStatus.IDLE);
+    }
+
+    @Test
+    void onlyFailedWorkflowsCanBeRetried() {
+        Workflow workflow = Workflow.builder().workflowId(WorkflowId.generate()).name("retry-test").build();
+        add(workflow, "a");
+        workflow.start();
+
+        assertThatThrownBy(workflow::retryFromFailure).isInstanceOf(IllegalStateException.class);
+    }
+
+    private static EchoNode add(Workflow workflow, String name, EchoNode... dependencies) {
+        EchoNode node = new EchoNode(name);
+        for (EchoNode dependency : dependencies) {
+            node.addDependency(dependency.getNodeId());
+        }
+        workflow.addNode(node);
+        return node;
+    }
+
+    private static EchoNode addTransient(Workflow workflow, String name) {
+        EchoNode node = new EchoNode(name) {
+            @Override
+            public boolean hasTransientOutput() {
+                return true;
+            }
+        };
+        workflow.addNode(node);
+        return node;
+    }
+
+    private static void complete(Workflow workflow, EchoNode node, Map<String, Object> output) {
+        node.run(output);
+        workflow.onNodeCompleted(node.getNodeId());
+    }
+}
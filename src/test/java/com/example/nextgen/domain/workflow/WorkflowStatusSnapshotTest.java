@@ -0,0 +1,79 @@
+package com.example.nextgen.domain.workflow;
+
+import com.example.nextgen.domain.node.EchoNode;
+import com.example.nextgen.domain.node.NodeStatus;
+import com.example.nextgen.domain.workflow.WorkflowStatusSnapshot.NodeState;
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class WorkflowStatusSnapshotTest {
+
+    @Test
+    void publishesNewVersionOnEveryTransition() {
+        Workflow workflow = Workflow.builder().workflowId(WorkflowId.generate()).name("snapshot-test").build();
+        EchoNode a = new EchoNode("a");
+        EchoNode b = new EchoNode("b");
+        b.addDependency(a.getNodeId());
+        workflow.addNode(a);
+        workflow.addNode(b);
+
+        WorkflowStatusSnapshot created = workflow.getStatusSnapshot();
+        assertThat(created.status()).isEqualTo(WorkflowStatus.CREATED);
+        assertThat(created.nodes()).hasSize(2);
+
+        workflow.start();
+        WorkflowStatusSnapshot started = workflow.getStatusSnapshot();
+        assertThat(started.version()).isGreaterThan(created.version());
+        assertThat(started.status()).isEqualTo(WorkflowStatus.RUNNING);
+
+        a.start();
+        WorkflowStatusSnapshot running = workflow.getStatusSnapshot();
+        assertThat(running.version()).isGreaterThan(started.version());
+        assertThat(state(running, "a").status()).isEqualTo(NodeStatus.RUNNING);
+
+        a.complete(Map.of("summary", "short"));
+        workflow.onNodeCompleted(a.getNodeId());
+        WorkflowStatusSnapshot completed = workflow.getStatusSnapshot();
+        assertThat(completed.version()).isGreaterThan(running.version());
+        assertThat(state(completed, "a").status()).isEqualTo(NodeStatus.COMPLETED);
+        assertThat(state(completed, "a").outputData()).containsEntry("summary", "short");
+        assertThat(completed.globalContext()).containsEntry("summary", "short");
+        assertThat(completed.progress()).isEqualTo(50.0);
+        // 未变化的节点沿用上一版本的状态
+        assertThat(state(completed, "b")).isSameAs(state(running, "b"));
+    }
+
+    @Test
+    void earlierSnapshotsAreNotAffectedByLaterChanges() {
+        Workflow workflow = Workflow.builder().workflowId(WorkflowId.generate()).name("snapshot-test").build();
+        EchoNode a = new EchoNode("a");
+        workflow.addNode(a);
+        workflow.start();
+        WorkflowStatusSnapshot before = workflow.getStatusSnapshot();
+
+        a.start();
+        a.fail("model timeout");
+        workflow.onNodeFailed(a.getNodeId(), "model timeout");
+
+        assertThat(before.status()).isEqualTo(WorkflowStatus.RUNNING);
+        assertThat(state(before, "a").status()).isEqualTo(NodeStatus.IDLE);
+        assertThat(state(before, "a").errorMessage()).isNull();
+        assertThat(before.globalContext()).isEmpty();
+
+        WorkflowStatusSnapshot after = workflow.getStatusSnapshot();
+        assertThat(after.status()).isEqualTo(WorkflowStatus.FAILED);
+        assertThat(state(after, "a").status()).isEqualTo(NodeStatus.FAILED);
+        assertThat(state(after, "a").errorMessage()).isEqualTo("model timeout");
+        assertThatThrownBy(() -> after.nodes().clear()).isInstanceOf(UnsupportedOperationException.class);
+        assertThatThrownBy(() -> after.globalContext().put("key", "value"))
+                .isInstanceOf(UnsupportedOperationException.class);
+    }
+
+    private static NodeState state(WorkflowStatusSnapshot snapshot, String name) {
+        return snapshot.nodes().stream().filter(node -> node.name().equals(name)).findFirst().orElseThrow();
+    }
+}